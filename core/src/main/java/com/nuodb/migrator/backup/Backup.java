@@ -43,6 +43,7 @@ public class Backup implements HasSize {
     private Long size;
     private String version = Migrator.getVersion();
     private String format;
+    private String parent;
     private Database database = new Database();
     private Collection<RowSet> rowSets = newArrayList();
 
@@ -97,6 +98,17 @@ public class Backup implements HasSize {
         this.format = format;
     }
 
+    /**
+     * Path to the parent backup catalog if this backup is incremental.
+     */
+    public String getParent() {
+        return parent;
+    }
+
+    public void setParent(String parent) {
+        this.parent = parent;
+    }
+
     public Database getDatabase() {
         return database;
     }
@@ -136,6 +148,8 @@ public class Backup implements HasSize {
             return false;
         if (format != null ? !format.equals(backup.format) : backup.format != null)
             return false;
+        if (parent != null ? !parent.equals(backup.parent) : backup.parent != null)
+            return false;
         if (rowSets != null ? !rowSets.equals(backup.rowSets) : backup.rowSets != null)
             return false;
         if (version != null ? !version.equals(backup.version) : backup.version != null)
@@ -148,6 +162,7 @@ public class Backup implements HasSize {
     public int hashCode() {
         int result = version != null ? version.hashCode() : 0;
         result = 31 * result + (format != null ? format.hashCode() : 0);
+        result = 31 * result + (parent != null ? parent.hashCode() : 0);
         result = 31 * result + (database != null ? database.hashCode() : 0);
         result = 31 * result + (rowSets != null ? rowSets.hashCode() : 0);
         return result;
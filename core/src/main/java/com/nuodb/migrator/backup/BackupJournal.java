@@ -0,0 +1,492 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup;
+
+import com.nuodb.migrator.backup.format.InputRange;
+import com.nuodb.migrator.backup.format.RowGroup;
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newHashSet;
+import static com.nuodb.migrator.backup.format.RowGroup.getMaxKey;
+import static com.nuodb.migrator.backup.format.RowGroup.getMinKey;
+import static com.nuodb.migrator.backup.format.value.ValueType.fromAlias;
+import static com.nuodb.migrator.backup.format.value.ValueType.toAlias;
+import static java.lang.Long.parseLong;
+import static java.lang.Math.max;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Arrays.asList;
+import static java.lang.String.format;
+import static org.apache.commons.codec.binary.Base64.decodeBase64;
+import static org.apache.commons.codec.binary.Base64.encodeBase64String;
+import static org.apache.commons.io.FileUtils.readFileToString;
+import static org.apache.commons.io.FilenameUtils.getBaseName;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.apache.commons.io.IOUtils.copyLarge;
+import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+import static org.apache.commons.lang3.SerializationUtils.deserialize;
+import static org.apache.commons.lang3.SerializationUtils.serialize;
+import static org.apache.commons.lang3.StringUtils.join;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Append only checkpoint journal kept next to the backup catalog, which makes
+ * dump and load resumable. Every record is a single tab separated line written
+ * to the file before the call returns, so that a record either survives a crash
+ * of the process or is discarded as a partially written last line on the next
+ * read. Dump and table records are synced to the disk right away, while syncs of
+ * the frequent load records are batched to one per {@link #SYNC_INTERVAL}:
+ * <ul>
+ * <li>{@code chunk split name codec rows size checksum row-group ...} for a
+ * chunk written by a query split and synced to the disk, where size is the
+ * length of the file, checksum is CRC32 of its uncompressed content and every
+ * row group is {@code offset:length:row:rows}. A chunk recorded again for the
+ * same split starts the split anew, dropping its previous chunks,</li>
+ * <li>{@code split split column type ...} for a query split written with all
+ * of its chunks,</li>
+ * <li>{@code bounds row-set bounds} for base64 encoded bounds of the query
+ * splits of the row set, so that the resumed dump splits it the same way,</li>
+ * <li>{@code table row-set} for a table which load has started,</li>
+ * <li>{@code load chunk to from} for a range of rows of the chunk committed to
+ * the target database, where a missing from is the first row.</li>
+ * </ul>
+ *
+ * @author Sergey Bushik
+ */
+public class BackupJournal implements Closeable {
+
+    public static final String DUMP = "dump";
+    public static final String LOAD = "load";
+    public static final String EXTENSION = "journal";
+
+    private static final String CHUNK = "chunk";
+    private static final String SPLIT = "split";
+    private static final String BOUNDS = "bounds";
+    private static final String TABLE = "table";
+    private static final String SEPARATOR = "\t";
+    private static final String ROW_GROUP_SEPARATOR = ":";
+    private static final String LINE_SEPARATOR = "\n";
+    private static final String ENCODING = "UTF-8";
+    /**
+     * Maximum time in milliseconds load records are kept unsynced
+     */
+    public static final long SYNC_INTERVAL = 1000;
+
+    protected final transient Logger logger = getLogger(getClass());
+
+    private final File file;
+    private final Map<String, Collection<Chunk>> chunks = newHashMap();
+    private final Map<String, Long> checksums = newHashMap();
+    private final Map<String, Collection<Column>> splits = newHashMap();
+    private final Map<String, Serializable> bounds = newHashMap();
+    private final Set<String> tables = newHashSet();
+    private final Map<String, TreeMap<Long, Long>> loads = newHashMap();
+    private FileOutputStream output;
+    private long syncTime;
+    private boolean unsynced;
+
+    public BackupJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens journal of the given type next to the backup catalog. Records left
+     * by the previous run are read if resume is requested, otherwise the
+     * journal is started anew.
+     *
+     * @param backupOps
+     *            backup to open journal for.
+     * @param type
+     *            either {@link #DUMP} or {@link #LOAD}.
+     * @param resume
+     *            true to continue from the records of the previous run.
+     * @return opened journal.
+     */
+    public static BackupJournal openJournal(BackupOps backupOps, String type, boolean resume) {
+        String name = getBaseName(backupOps.getFile()) + "." + type + "." + EXTENSION;
+        BackupJournal backupJournal = new BackupJournal(new File(backupOps.getDir(), name));
+        backupJournal.open(resume);
+        return backupJournal;
+    }
+
+    public void open(boolean resume) {
+        try {
+            if (resume && file.exists()) {
+                read(readFileToString(file, ENCODING));
+            }
+            output = new FileOutputStream(file, resume);
+        } catch (IOException exception) {
+            throw new BackupException(format("Error opening %s journal", file.getPath()), exception);
+        }
+    }
+
+    protected void read(String journal) throws IOException {
+        String[] lines = journal.split(LINE_SEPARATOR, -1);
+        // the last element is either empty or a partially written record
+        for (int index = 0; index < lines.length - 1; index++) {
+            String[] fields = lines[index].split(SEPARATOR, -1);
+            for (int field = 0; field < fields.length; field++) {
+                fields[field] = URLDecoder.decode(fields[field], ENCODING);
+            }
+            if (CHUNK.equals(fields[0])) {
+                Chunk chunk = new Chunk();
+                chunk.setName(fields[2]);
+                chunk.setCodec(isEmpty(fields[3]) ? null : fields[3]);
+                chunk.setRowCount(parseLong(fields[4]));
+                chunk.setSize(parseLong(fields[5]));
+                for (int field = 7; field < fields.length; field++) {
+                    String[] rowGroup = fields[field].split(ROW_GROUP_SEPARATOR);
+                    chunk.addRowGroup(rowGroup.length > 5
+                            ? new RowGroup(parseLong(rowGroup[0]), parseLong(rowGroup[1]), parseLong(rowGroup[2]),
+                                    parseLong(rowGroup[3]), rowGroup[4], rowGroup[5])
+                            : new InputRange(parseLong(rowGroup[0]), parseLong(rowGroup[1]), parseLong(rowGroup[2]),
+                                    parseLong(rowGroup[3])));
+                }
+                addChunk(fields[1], chunk, parseLong(fields[6]));
+            } else if (SPLIT.equals(fields[0])) {
+                Collection<Column> columns = newArrayList();
+                for (int field = 2; field + 1 < fields.length; field += 2) {
+                    columns.add(new Column(fields[field], fromAlias(fields[field + 1])));
+                }
+                splits.put(fields[1], columns);
+            } else if (BOUNDS.equals(fields[0])) {
+                bounds.put(fields[1], (Serializable) deserialize(decodeBase64(fields[2])));
+            } else if (TABLE.equals(fields[0])) {
+                tables.add(fields[1]);
+            } else if (LOAD.equals(fields[0])) {
+                addLoad(fields[1], fields.length > 3 ? parseLong(fields[3]) : 0, parseLong(fields[2]));
+            } else if (logger.isWarnEnabled()) {
+                logger.warn(format("Unknown journal record %s skipped", lines[index]));
+            }
+        }
+    }
+
+    private static Collection<Chunk> getChunks(String split, Map<String, Collection<Chunk>> chunks) {
+        Collection<Chunk> splitChunks = chunks.get(split);
+        if (splitChunks == null) {
+            chunks.put(split, splitChunks = newArrayList());
+        }
+        return splitChunks;
+    }
+
+    public synchronized void writeChunk(String split, Chunk chunk, long checksum) {
+        Collection<Object> fields = newArrayList();
+        fields.addAll(asList(CHUNK, split, chunk.getName(), chunk.getCodec(), chunk.getRowCount(), chunk.getSize(),
+                checksum));
+        for (InputRange rowGroup : chunk.getRowGroups()) {
+            fields.add(rowGroup instanceof RowGroup
+                    ? join(new Object[] { rowGroup.getOffset(), rowGroup.getLength(), rowGroup.getRow(),
+                            rowGroup.getRows(), getMinKey(rowGroup), getMaxKey(rowGroup) }, ROW_GROUP_SEPARATOR)
+                    : join(new Object[] { rowGroup.getOffset(), rowGroup.getLength(), rowGroup.getRow(),
+                            rowGroup.getRows() }, ROW_GROUP_SEPARATOR));
+        }
+        write(fields.toArray());
+        addChunk(split, chunk, checksum);
+    }
+
+    /**
+     * Adds chunk to the split, the chunk which is already recorded for the split
+     * means the split is written anew, so its previous chunks and split record
+     * are dropped.
+     */
+    protected void addChunk(String split, Chunk chunk, long checksum) {
+        Collection<Chunk> splitChunks = getChunks(split, chunks);
+        for (Chunk splitChunk : splitChunks) {
+            if (splitChunk.getName().equals(chunk.getName())) {
+                splitChunks.clear();
+                splits.remove(split);
+                break;
+            }
+        }
+        splitChunks.add(chunk);
+        checksums.put(chunk.getName(), checksum);
+    }
+
+    public synchronized void writeSplit(String split, Collection<Column> columns) {
+        Collection<Object> fields = newArrayList();
+        fields.add(SPLIT);
+        fields.add(split);
+        for (Column column : columns) {
+            fields.add(column.getName());
+            fields.add(toAlias(column.getValueType()));
+        }
+        write(fields.toArray());
+        splits.put(split, columns);
+    }
+
+    /**
+     * Records bounds of the query splits of the row set, which are taken
+     * instead of splitting the query anew by the resumed dump.
+     */
+    public synchronized void writeSplitBounds(String rowSet, Serializable splitBounds) {
+        write(BOUNDS, rowSet, encodeBase64String(serialize(splitBounds)));
+        bounds.put(rowSet, splitBounds);
+    }
+
+    public synchronized Serializable getSplitBounds(String rowSet) {
+        return bounds.get(rowSet);
+    }
+
+    /**
+     * Records that load of the table has started, so that the resumed load can
+     * tell a table without committed rows from a table without checkpoints.
+     */
+    public synchronized void writeTable(String rowSet) {
+        if (tables.add(rowSet)) {
+            write(TABLE, rowSet);
+        }
+    }
+
+    public synchronized boolean isTableStarted(String rowSet) {
+        return tables.contains(rowSet);
+    }
+
+    /**
+     * Records number of leading rows of the chunk committed to the target
+     * database.
+     */
+    public void writeLoad(Chunk chunk, long rows) {
+        writeLoad(chunk, 0, rows);
+    }
+
+    /**
+     * Records range of rows of the chunk committed to the target database, the
+     * record is synced to the disk with the next sync due.
+     *
+     * @param from
+     *            first committed row.
+     * @param to
+     *            row following the last committed row.
+     */
+    public synchronized void writeLoad(Chunk chunk, long from, long to) {
+        if (from >= to) {
+            return;
+        }
+        write(false, from > 0 ? new Object[] { LOAD, chunk.getName(), to, from }
+                : new Object[] { LOAD, chunk.getName(), to });
+        addLoad(chunk.getName(), from, to);
+    }
+
+    /**
+     * Merges range of loaded rows with the adjacent and overlapping ranges.
+     */
+    protected void addLoad(String chunk, long from, long to) {
+        TreeMap<Long, Long> ranges = loads.get(chunk);
+        if (ranges == null) {
+            loads.put(chunk, ranges = new TreeMap<Long, Long>());
+        }
+        Map.Entry<Long, Long> range = ranges.floorEntry(from);
+        if (range != null && range.getValue() >= from) {
+            from = range.getKey();
+            to = max(to, range.getValue());
+        }
+        while ((range = ranges.ceilingEntry(from)) != null && range.getKey() <= to) {
+            to = max(to, range.getValue());
+            ranges.remove(range.getKey());
+        }
+        ranges.put(from, to);
+    }
+
+    protected void write(Object... fields) {
+        write(true, fields);
+    }
+
+    protected void write(boolean sync, Object... fields) {
+        try {
+            String[] values = new String[fields.length];
+            for (int index = 0; index < fields.length; index++) {
+                values[index] = fields[index] != null ? URLEncoder.encode(fields[index].toString(), ENCODING) : "";
+            }
+            output.write((join(values, SEPARATOR) + LINE_SEPARATOR).getBytes(ENCODING));
+            unsynced = true;
+            if (sync || currentTimeMillis() - syncTime >= SYNC_INTERVAL) {
+                sync();
+            }
+        } catch (UnsupportedEncodingException exception) {
+            throw new BackupException(exception);
+        } catch (IOException exception) {
+            throw new BackupException(format("Error writing %s journal", file.getPath()), exception);
+        }
+    }
+
+    /**
+     * Syncs records written so far to the disk.
+     */
+    public synchronized void sync() throws IOException {
+        if (unsynced && output != null) {
+            output.getChannel().force(false);
+            unsynced = false;
+        }
+        syncTime = currentTimeMillis();
+    }
+
+    public synchronized boolean isSplitWritten(String split) {
+        return splits.containsKey(split);
+    }
+
+    /**
+     * Checks that every chunk recorded for the written split is on the disk
+     * with the recorded length and checksum, so that the split which chunks
+     * were lost or damaged by a crash is dumped again instead of being skipped.
+     *
+     * @param split
+     *            query split to verify.
+     * @param backupOps
+     *            backup ops to read chunks with.
+     * @return true if the split is written and all of its chunks are intact.
+     */
+    public boolean isSplitVerified(String split, BackupOps backupOps) {
+        if (!isSplitWritten(split)) {
+            return false;
+        }
+        for (Chunk chunk : getSplitChunks(split)) {
+            String error = verifyChunk(chunk, backupOps);
+            if (error != null) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn(format("Split %s is dumped again, chunk %s %s", split, chunk.getName(), error));
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns reason the chunk doesn't match the journal or null if it does.
+     */
+    protected String verifyChunk(Chunk chunk, BackupOps backupOps) {
+        Long length = backupOps.getLength(chunk.getName());
+        if (length == null || !length.equals(chunk.getSize())) {
+            return format("has length %d instead of %d", length, chunk.getSize());
+        }
+        Long checksum = getChunkChecksum(chunk);
+        if (checksum == null) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        InputStream input = null;
+        try {
+            input = new CheckedInputStream(backupOps.openInput(chunk.getName(), chunk.getCodec()), crc);
+            copyLarge(input, NULL_OUTPUT_STREAM);
+        } catch (IOException exception) {
+            return format("can't be read: %s", exception.getMessage());
+        } catch (BackupException exception) {
+            return format("can't be read: %s", exception.getMessage());
+        } finally {
+            closeQuietly(input);
+        }
+        return crc.getValue() != checksum ? format("has checksum %d instead of %d", crc.getValue(), checksum)
+                : null;
+    }
+
+    /**
+     * Returns CRC32 of the uncompressed content recorded for the chunk.
+     */
+    public synchronized Long getChunkChecksum(Chunk chunk) {
+        return checksums.get(chunk.getName());
+    }
+
+    /**
+     * Returns columns of the row set recorded for the written query split.
+     */
+    public synchronized Collection<Column> getSplitColumns(String split) {
+        return splits.get(split);
+    }
+
+    /**
+     * Returns chunks recorded for the query split in the order they were
+     * written.
+     */
+    public synchronized Collection<Chunk> getSplitChunks(String split) {
+        Collection<Chunk> splitChunks = chunks.get(split);
+        return splitChunks != null ? newArrayList(splitChunks) : newArrayList();
+    }
+
+    /**
+     * Returns number of leading rows of the chunk committed by the previous
+     * runs.
+     */
+    public synchronized long getLoadedRows(Chunk chunk) {
+        TreeMap<Long, Long> ranges = loads.get(chunk.getName());
+        Long rows = ranges != null ? ranges.get(0L) : null;
+        return rows != null ? rows : 0;
+    }
+
+    /**
+     * Returns ranges of rows of the chunk committed so far, which are keyed by
+     * the first row and map to the row following the last row of the range.
+     */
+    public synchronized NavigableMap<Long, Long> getLoadedRanges(Chunk chunk) {
+        TreeMap<Long, Long> ranges = loads.get(chunk.getName());
+        return ranges != null ? new TreeMap<Long, Long>(ranges) : new TreeMap<Long, Long>();
+    }
+
+    public synchronized boolean isChunkStarted(Chunk chunk) {
+        return loads.containsKey(chunk.getName());
+    }
+
+    public boolean isChunkLoaded(Chunk chunk) {
+        return getLoadedRows(chunk) >= chunk.getRowCount();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            sync();
+        } catch (IOException exception) {
+            if (logger.isWarnEnabled()) {
+                logger.warn(format("Error syncing %s journal", file.getPath()), exception);
+            }
+        }
+        closeQuietly(output);
+        output = null;
+    }
+}
@@ -35,6 +35,7 @@ public interface BackupMessages {
     String LOAD_TABLE_WORK = "com.nuodb.migrator.backup.loader.LoadTableWork";
     String LOAD_TABLE_FORK_WORK = "com.nuodb.migrator.backup.loader.LoadTableForkWork";
     String LOAD_CONSTRAINT_WORK = "com.nuodb.migrator.backup.loader.LoadConstraintWork";
+    String LOAD_SCHEMA_WORK = "com.nuodb.migrator.backup.loader.LoadSchemaWork";
     String WRITE_QUERIES_WORK = "com.nuodb.migrator.backup.writer.WriteQueriesWork";
     String WRITE_QUERY_WORK = "com.nuodb.migrator.backup.writer.WriteQueryWork";
 }
@@ -27,6 +27,8 @@
  */
 package com.nuodb.migrator.backup;
 
+import com.nuodb.migrator.backup.codec.CodecFactory;
+
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
@@ -42,6 +44,22 @@ public interface BackupOps {
 
     final String FILE = "backup.cat";
 
+    /**
+     * Selects how files are read & written, either {@link #IO_STREAM} or
+     * {@link #IO_CHANNEL}, which maps files for reading and writes them from
+     * direct buffers.
+     */
+    final String ATTRIBUTE_IO = "io";
+
+    /**
+     * Whether channel output is written by a dedicated thread.
+     */
+    final String ATTRIBUTE_IO_WRITE_BEHIND = "io.write.behind";
+
+    final String IO_STREAM = "stream";
+
+    final String IO_CHANNEL = "channel";
+
     String getDir();
 
     void setDir(String dir);
@@ -56,10 +74,50 @@ public interface BackupOps {
 
     Long getLength(String name);
 
+    Map<String, Object> getAttributes();
+
+    void setAttributes(Map<String, Object> attributes);
+
     InputStream openInput(String name);
 
     OutputStream openOutput(String name);
 
+    /**
+     * Opens input decompressing it with a given codec
+     *
+     * @param name
+     *            of the file to open
+     * @param codec
+     *            name of the codec or null if file is not compressed
+     * @return decompressed input
+     */
+    InputStream openInput(String name, String codec);
+
+    /**
+     * Opens output compressing it with a given codec, the returned stream counts compressed bytes if it is
+     * compressed
+     *
+     * @param name
+     *            of the file to open
+     * @param codec
+     *            name of the codec or null to write file as is
+     * @return compressing output
+     */
+    OutputStream openOutput(String name, String codec);
+
+    /**
+     * Forces written content of the closed file to the storage device, so that
+     * the file survives a crash of the system once it is recorded as written
+     *
+     * @param name
+     *            of the file to sync
+     */
+    void sync(String name);
+
+    CodecFactory getCodecFactory();
+
+    void setCodecFactory(CodecFactory codecFactory);
+
     Backup read();
 
     Backup read(Map context);
@@ -27,6 +27,9 @@
  */
 package com.nuodb.migrator.backup;
 
+import com.nuodb.migrator.backup.codec.CodecFactory;
+import com.nuodb.migrator.backup.codec.CodecOutputStream;
+import com.nuodb.migrator.backup.codec.SimpleCodecFactory;
 import com.nuodb.migrator.jdbc.metadata.Catalog;
 import com.nuodb.migrator.jdbc.metadata.Identifier;
 import com.nuodb.migrator.jdbc.metadata.MetaDataType;
@@ -39,6 +42,9 @@ import com.nuodb.migrator.jdbc.metadata.filter.MetaDataNameEqualsFilter;
 import com.nuodb.migrator.jdbc.metadata.filter.MetaDataNameMatchesFilter;
 import com.nuodb.migrator.match.Regex;
 import com.nuodb.migrator.spec.MetaDataSpec;
+import com.nuodb.migrator.utils.ChannelOutputStream;
+import com.nuodb.migrator.utils.CountingOutputStream;
+import com.nuodb.migrator.utils.MappedInputStream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -48,15 +54,28 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.nuodb.migrator.match.AntRegexCompiler.INSTANCE;
 import static com.nuodb.migrator.backup.XmlMetaDataHandlerBase.META_DATA_SPEC;
 import static com.nuodb.migrator.jdbc.metadata.Identifier.valueOf;
+import static java.lang.Boolean.parseBoolean;
 import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.apache.commons.io.FileUtils.*;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
@@ -73,6 +92,10 @@ public abstract class BackupOpsBase implements BackupOps {
 
     private String dir = DIR;
     private String file = FILE;
+    private CodecFactory codecFactory = new SimpleCodecFactory();
+    private Map<String, Object> attributes;
+    private final Queue<ByteBuffer> channelBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+    private ExecutorService writeBehind;
 
     @Override
     public String getDir() {
@@ -114,6 +137,33 @@ public abstract class BackupOpsBase implements BackupOps {
         return FileUtils.getFile(dir, name).length();
     }
 
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public void setAttributes(Map<String, Object> attributes) {
+        this.attributes = attributes;
+    }
+
+    protected String getIo() {
+        Object io = attributes != null ? attributes.get(ATTRIBUTE_IO) : null;
+        if (io == null || IO_STREAM.equals(io)) {
+            return IO_STREAM;
+        } else if (IO_CHANNEL.equals(io)) {
+            return IO_CHANNEL;
+        } else {
+            throw new BackupException(format("Unsupported %s %s, use %s or %s", ATTRIBUTE_IO, io, IO_STREAM,
+                    IO_CHANNEL));
+        }
+    }
+
+    protected boolean isWriteBehind() {
+        Object writeBehind = attributes != null ? attributes.get(ATTRIBUTE_IO_WRITE_BEHIND) : null;
+        return writeBehind != null && parseBoolean(writeBehind.toString());
+    }
+
     private static boolean isBackup(File file) {
         return (file.exists() && file.isFile()) || BACKUP_REGEX.test(file.getName());
     }
@@ -125,7 +175,8 @@ public abstract class BackupOpsBase implements BackupOps {
             if (logger.isTraceEnabled()) {
                 logger.trace(format("Opening file for reading %s", file.getPath()));
             }
-            return openInputStream(file);
+            return IO_CHANNEL.equals(getIo()) ? new MappedInputStream(FileChannel.open(file.toPath(), READ))
+                    : openInputStream(file);
         } catch (IOException exception) {
             throw new BackupException("Error opening file for reading", exception);
         }
@@ -138,12 +189,96 @@ public abstract class BackupOpsBase implements BackupOps {
             if (logger.isTraceEnabled()) {
                 logger.trace(format("Opening file for writing %s", file.getPath()));
             }
-            return openOutputStream(file);
+            return IO_CHANNEL.equals(getIo()) ? openChannelOutput(file) : openOutputStream(file);
         } catch (IOException exception) {
             throw new BackupException("Error opening file for writing", exception);
         }
     }
 
+    protected OutputStream openChannelOutput(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null) {
+            forceMkdir(parent);
+        }
+        return new ChannelOutputStream(FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING),
+                channelBuffers, isWriteBehind() ? getWriteBehind() : null);
+    }
+
+    /**
+     * Write behind threads are shared by channel outputs of all chunks, idle
+     * threads are released after a minute.
+     */
+    protected synchronized ExecutorService getWriteBehind() {
+        if (writeBehind == null) {
+            writeBehind = newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "write-behind-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return writeBehind;
+    }
+
+    @Override
+    public void sync(String name) {
+        File file = FileUtils.getFile(getDir(), name);
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file.toPath(), WRITE);
+            channel.force(true);
+        } catch (IOException exception) {
+            throw new BackupException(format("Error syncing file %s", file.getPath()), exception);
+        } finally {
+            closeQuietly(channel);
+        }
+    }
+
+    @Override
+    public InputStream openInput(String name, String codec) {
+        InputStream input = openInput(name);
+        if (codec == null) {
+            return input;
+        }
+        try {
+            return getCodecFactory().createCodec(codec).decompress(input);
+        } catch (IOException exception) {
+            closeQuietly(input);
+            throw new BackupException(format("Error opening %s file for reading with %s codec", name, codec),
+                    exception);
+        }
+    }
+
+    @Override
+    public OutputStream openOutput(String name, String codec) {
+        OutputStream output = openOutput(name);
+        if (codec == null) {
+            return output;
+        }
+        try {
+            CountingOutputStream counting = new CountingOutputStream(output);
+            return new CodecOutputStream(getCodecFactory().createCodec(codec).compress(counting), counting);
+        } catch (IOException exception) {
+            closeQuietly(output);
+            throw new BackupException(format("Error opening %s file for writing with %s codec", name, codec),
+                    exception);
+        }
+    }
+
+    @Override
+    public CodecFactory getCodecFactory() {
+        return codecFactory;
+    }
+
+    @Override
+    public void setCodecFactory(CodecFactory codecFactory) {
+        this.codecFactory = codecFactory;
+    }
+
     @Override
     public Backup read() {
         return read((Map) null);
@@ -27,18 +27,25 @@
  */
 package com.nuodb.migrator.backup;
 
+import com.nuodb.migrator.backup.format.InputRange;
 import com.nuodb.migrator.utils.ObjectUtils;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static com.google.common.collect.Lists.newArrayList;
+
 /**
  * @author Sergey Bushik
  */
 public class Chunk implements HasSize {
 
     private String name;
+    private String codec;
     private Long size;
     private AtomicLong rowCount = new AtomicLong();
+    private String keyColumn;
+    private List<InputRange> rowGroups = newArrayList();
     private transient RowSet rowSet;
 
     public String getName() {
@@ -49,6 +56,14 @@ public class Chunk implements HasSize {
         this.name = name;
     }
 
+    public String getCodec() {
+        return codec;
+    }
+
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
+
     @Override
     public Long getSize() {
         return size;
@@ -84,6 +99,37 @@ public class Chunk implements HasSize {
         return rowCount;
     }
 
+    /**
+     * Key column, which bounds are recorded for row groups of the chunk.
+     *
+     * @return key column name or null if row groups have no key bounds.
+     */
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public void setKeyColumn(String keyColumn) {
+        this.keyColumn = keyColumn;
+    }
+
+    /**
+     * Ranges of rows recorded while the chunk was written, which let a reader
+     * seek to a row group instead of scanning the chunk.
+     *
+     * @return row groups in the chunk order, empty if chunk is not indexed.
+     */
+    public List<InputRange> getRowGroups() {
+        return rowGroups;
+    }
+
+    public void setRowGroups(List<InputRange> rowGroups) {
+        this.rowGroups = rowGroups;
+    }
+
+    public void addRowGroup(InputRange rowGroup) {
+        rowGroups.add(rowGroup);
+    }
+
     public RowSet getRowSet() {
         return rowSet;
     }
@@ -103,8 +149,14 @@ public class Chunk implements HasSize {
 
         if (name != null ? !name.equals(chunk.name) : chunk.name != null)
             return false;
+        if (codec != null ? !codec.equals(chunk.codec) : chunk.codec != null)
+            return false;
         if (getRowCount() != chunk.getRowCount())
             return false;
+        if (keyColumn != null ? !keyColumn.equals(chunk.keyColumn) : chunk.keyColumn != null)
+            return false;
+        if (rowGroups != null ? !rowGroups.equals(chunk.rowGroups) : chunk.rowGroups != null)
+            return false;
 
         return true;
     }
@@ -112,6 +164,7 @@ public class Chunk implements HasSize {
     @Override
     public int hashCode() {
         int result = name != null ? name.hashCode() : 0;
+        result = 31 * result + (codec != null ? codec.hashCode() : 0);
         result = 31 * result + (rowCount != null ? rowCount.hashCode() : 0);
         return result;
     }
@@ -27,6 +27,7 @@
  */
 package com.nuodb.migrator.backup;
 
+import com.nuodb.migrator.backup.format.value.ValueType;
 import com.nuodb.migrator.jdbc.metadata.Table;
 
 /**
@@ -37,6 +38,9 @@ public class TableRowSet extends RowSet {
     private String catalog;
     private String schema;
     private String table;
+    private String watermarkColumn;
+    private String watermark;
+    private ValueType watermarkType;
 
     public TableRowSet() {
     }
@@ -71,6 +75,40 @@ public class TableRowSet extends RowSet {
         this.table = table;
     }
 
+    public String getWatermarkColumn() {
+        return watermarkColumn;
+    }
+
+    public void setWatermarkColumn(String watermarkColumn) {
+        this.watermarkColumn = watermarkColumn;
+    }
+
+    /**
+     * High water mark of the watermark column formatted as a string of the
+     * watermark type, all rows up to it inclusively are dumped to this or
+     * parent backups.
+     */
+    public String getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(String watermark) {
+        this.watermark = watermark;
+    }
+
+    /**
+     * Type of the watermark value bound to the filter of the next incremental
+     * backup, null for backups of older versions with the watermark written as
+     * SQL literal.
+     */
+    public ValueType getWatermarkType() {
+        return watermarkType;
+    }
+
+    public void setWatermarkType(ValueType watermarkType) {
+        this.watermarkType = watermarkType;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -88,6 +126,12 @@ public class TableRowSet extends RowSet {
             return false;
         if (table != null ? !table.equals(that.table) : that.table != null)
             return false;
+        if (watermarkColumn != null ? !watermarkColumn.equals(that.watermarkColumn) : that.watermarkColumn != null)
+            return false;
+        if (watermark != null ? !watermark.equals(that.watermark) : that.watermark != null)
+            return false;
+        if (watermarkType != that.watermarkType)
+            return false;
 
         return true;
     }
@@ -98,6 +142,9 @@ public class TableRowSet extends RowSet {
         result = 31 * result + (catalog != null ? catalog.hashCode() : 0);
         result = 31 * result + (schema != null ? schema.hashCode() : 0);
         result = 31 * result + (table != null ? table.hashCode() : 0);
+        result = 31 * result + (watermarkColumn != null ? watermarkColumn.hashCode() : 0);
+        result = 31 * result + (watermark != null ? watermark.hashCode() : 0);
+        result = 31 * result + (watermarkType != null ? watermarkType.hashCode() : 0);
         return result;
     }
 }
@@ -52,6 +52,7 @@ public class XmlBackupHandler extends XmlReadWriteHandlerBase<Backup> implements
 
     private static final String VERSION_ATTRIBUTE = "version";
     private static final String FORMAT_ATTRIBUTE = "format";
+    private static final String PARENT_ATTRIBUTE = "parent";
     private static final String DATABASE_ELEMENT = "database";
     private static final String DATABASE_INFO_ELEMENT = "database-info";
 
@@ -90,6 +91,7 @@ public class XmlBackupHandler extends XmlReadWriteHandlerBase<Backup> implements
     protected void readAttributes(InputNode input, Backup backup, XmlReadContext context) throws Exception {
         backup.setVersion(context.readAttribute(input, VERSION_ATTRIBUTE, String.class));
         backup.setFormat(context.readAttribute(input, FORMAT_ATTRIBUTE, String.class));
+        backup.setParent(context.readAttribute(input, PARENT_ATTRIBUTE, String.class));
     }
 
     @Override
@@ -111,6 +113,9 @@ public class XmlBackupHandler extends XmlReadWriteHandlerBase<Backup> implements
     protected void writeAttributes(Backup backup, OutputNode output, XmlWriteContext context) throws Exception {
         context.writeAttribute(output, VERSION_ATTRIBUTE, backup.getVersion());
         context.writeAttribute(output, FORMAT_ATTRIBUTE, backup.getFormat());
+        if (backup.getParent() != null) {
+            context.writeAttribute(output, PARENT_ATTRIBUTE, backup.getParent());
+        }
     }
 
     @Override
@@ -27,12 +27,17 @@
  */
 package com.nuodb.migrator.backup;
 
+import com.nuodb.migrator.backup.format.InputRange;
+import com.nuodb.migrator.backup.format.RowGroup;
 import com.nuodb.migrator.utils.xml.XmlReadContext;
 import com.nuodb.migrator.utils.xml.XmlReadWriteHandlerBase;
 import com.nuodb.migrator.utils.xml.XmlWriteContext;
 import org.simpleframework.xml.stream.InputNode;
 import org.simpleframework.xml.stream.OutputNode;
 
+import static com.nuodb.migrator.backup.format.RowGroup.getMaxKey;
+import static com.nuodb.migrator.backup.format.RowGroup.getMinKey;
+
 /**
  * @author Sergey Bushik
  */
@@ -40,6 +45,15 @@ public class XmlChunkHandler extends XmlReadWriteHandlerBase<Chunk> implements X
 
     private static final String NAME = "name";
     private static final String ROW_COUNT = "row-count";
+    private static final String CODEC = "codec";
+    private static final String KEY_COLUMN = "key-column";
+    private static final String ROW_GROUP_ELEMENT = "row-group";
+    private static final String OFFSET = "offset";
+    private static final String LENGTH = "length";
+    private static final String ROW = "row";
+    private static final String ROWS = "rows";
+    private static final String MIN_KEY = "min-key";
+    private static final String MAX_KEY = "max-key";
 
     public XmlChunkHandler() {
         super(Chunk.class);
@@ -49,11 +63,43 @@ public class XmlChunkHandler extends XmlReadWriteHandlerBase<Chunk> implements X
     protected void readAttributes(InputNode input, Chunk chunk, XmlReadContext context) throws Exception {
         chunk.setName(context.readAttribute(input, NAME, String.class));
         chunk.setRowCount(context.readAttribute(input, ROW_COUNT, Long.class));
+        chunk.setCodec(context.readAttribute(input, CODEC, String.class));
+        chunk.setKeyColumn(context.readAttribute(input, KEY_COLUMN, String.class));
     }
 
     @Override
     protected void writeAttributes(Chunk chunk, OutputNode output, XmlWriteContext context) throws Exception {
         context.writeAttribute(output, NAME, chunk.getName());
         context.writeAttribute(output, ROW_COUNT, chunk.getRowCount());
+        context.writeAttribute(output, CODEC, chunk.getCodec());
+        context.writeAttribute(output, KEY_COLUMN, chunk.getKeyColumn());
+    }
+
+    @Override
+    protected void readElement(InputNode input, Chunk chunk, XmlReadContext context) throws Exception {
+        if (ROW_GROUP_ELEMENT.equals(input.getName())) {
+            long offset = context.readAttribute(input, OFFSET, Long.class);
+            long length = context.readAttribute(input, LENGTH, Long.class);
+            long row = context.readAttribute(input, ROW, Long.class);
+            long rows = context.readAttribute(input, ROWS, Long.class);
+            String minKey = context.readAttribute(input, MIN_KEY, String.class);
+            String maxKey = context.readAttribute(input, MAX_KEY, String.class);
+            chunk.addRowGroup(minKey != null && maxKey != null
+                    ? new RowGroup(offset, length, row, rows, minKey, maxKey)
+                    : new InputRange(offset, length, row, rows));
+        }
+    }
+
+    @Override
+    protected void writeElements(Chunk chunk, OutputNode output, XmlWriteContext context) throws Exception {
+        for (InputRange rowGroup : chunk.getRowGroups()) {
+            OutputNode element = output.getChild(ROW_GROUP_ELEMENT);
+            context.writeAttribute(element, OFFSET, rowGroup.getOffset());
+            context.writeAttribute(element, LENGTH, rowGroup.getLength());
+            context.writeAttribute(element, ROW, rowGroup.getRow());
+            context.writeAttribute(element, ROWS, rowGroup.getRows());
+            context.writeAttribute(element, MIN_KEY, getMinKey(rowGroup));
+            context.writeAttribute(element, MAX_KEY, getMaxKey(rowGroup));
+        }
     }
 }
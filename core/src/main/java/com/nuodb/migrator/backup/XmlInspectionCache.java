@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup;
+
+import com.nuodb.migrator.Migrator;
+import com.nuodb.migrator.jdbc.metadata.Database;
+import com.nuodb.migrator.jdbc.metadata.inspector.InspectionCacheBase;
+import com.nuodb.migrator.spec.MetaDataSpec;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static com.nuodb.migrator.backup.XmlMetaDataHandlerBase.META_DATA_SPEC;
+import static java.lang.String.format;
+import static org.apache.commons.io.FileUtils.getFile;
+import static org.apache.commons.io.FileUtils.openInputStream;
+import static org.apache.commons.io.FileUtils.openOutputStream;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Keeps inspected databases in a directory, each database is written to a
+ * catalog file using backup catalog handlers next to a properties file holding
+ * its fingerprint and the migrator version
+ *
+ * @author Sergey Bushik
+ */
+public class XmlInspectionCache extends InspectionCacheBase {
+
+    public static final String CATALOG_SUFFIX = ".cat";
+    public static final String PROPERTIES_SUFFIX = ".properties";
+    public static final String FINGERPRINT = "fingerprint";
+    public static final String VERSION = "version";
+
+    private final String dir;
+
+    public XmlInspectionCache(String dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    protected Database read(String key, String fingerprint) {
+        File file = getFile(dir, key + PROPERTIES_SUFFIX);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            Properties properties = new Properties();
+            InputStream input = openInputStream(file);
+            try {
+                properties.load(input);
+            } finally {
+                closeQuietly(input);
+            }
+            if (!fingerprint.equals(properties.getProperty(FINGERPRINT))
+                    || !Migrator.getVersion().equals(properties.getProperty(VERSION))) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug(format("Cached database %s is outdated", key));
+                }
+                return null;
+            }
+            return createBackupOps(key).read(createContext()).getDatabase();
+        } catch (Exception exception) {
+            if (logger.isWarnEnabled()) {
+                logger.warn(format("Cached database %s can't be read", key), exception);
+            }
+            return null;
+        }
+    }
+
+    @Override
+    protected void write(String key, String fingerprint, Database database) {
+        try {
+            createBackupOps(key).write(new Backup(null, database), createContext());
+            Properties properties = new Properties();
+            properties.setProperty(FINGERPRINT, fingerprint);
+            properties.setProperty(VERSION, Migrator.getVersion());
+            OutputStream output = openOutputStream(getFile(dir, key + PROPERTIES_SUFFIX));
+            try {
+                properties.store(output, null);
+            } finally {
+                closeQuietly(output);
+            }
+        } catch (Exception exception) {
+            if (logger.isWarnEnabled()) {
+                logger.warn(format("Database %s can't be written to cache", key), exception);
+            }
+        }
+    }
+
+    protected BackupOps createBackupOps(String key) {
+        BackupOps backupOps = new XmlBackupOps();
+        backupOps.setDir(dir);
+        backupOps.setFile(key + CATALOG_SUFFIX);
+        return backupOps;
+    }
+
+    protected Map createContext() {
+        Map context = newHashMap();
+        context.put(META_DATA_SPEC, new MetaDataSpec());
+        return context;
+    }
+
+    public String getDir() {
+        return dir;
+    }
+}
@@ -32,6 +32,9 @@ import com.nuodb.migrator.utils.xml.XmlWriteContext;
 import org.simpleframework.xml.stream.InputNode;
 import org.simpleframework.xml.stream.OutputNode;
 
+import static com.nuodb.migrator.backup.format.value.ValueType.fromAlias;
+import static com.nuodb.migrator.backup.format.value.ValueType.toAlias;
+
 /**
  * @author Sergey Bushik
  */
@@ -40,6 +43,9 @@ public class XmlTableRowSetHandler extends XmlRowSetHandler<TableRowSet> {
     private static final String CATALOG_ATTRIBUTE = "catalog";
     private static final String SCHEMA_ATTRIBUTE = "schema";
     private static final String TABLE_ATTRIBUTE = "table";
+    private static final String WATERMARK_COLUMN_ATTRIBUTE = "watermark-column";
+    private static final String WATERMARK_ATTRIBUTE = "watermark";
+    private static final String WATERMARK_TYPE_ATTRIBUTE = "watermark-type";
     // old format attributes
     private static final String CATALOG_NAME_ATTRIBUTE = "catalog-name";
     private static final String SCHEMA_NAME_ATTRIBUTE = "schema-name";
@@ -58,6 +64,9 @@ public class XmlTableRowSetHandler extends XmlRowSetHandler<TableRowSet> {
                 context.readAttribute(input, SCHEMA_NAME_ATTRIBUTE, String.class)));
         target.setTable(context.readAttribute(input, TABLE_ATTRIBUTE, String.class,
                 context.readAttribute(input, TABLE_NAME_ATTRIBUTE, String.class)));
+        target.setWatermarkColumn(context.readAttribute(input, WATERMARK_COLUMN_ATTRIBUTE, String.class));
+        target.setWatermark(context.readAttribute(input, WATERMARK_ATTRIBUTE, String.class));
+        target.setWatermarkType(fromAlias(context.readAttribute(input, WATERMARK_TYPE_ATTRIBUTE, String.class)));
     }
 
     @Override
@@ -70,5 +79,14 @@ public class XmlTableRowSetHandler extends XmlRowSetHandler<TableRowSet> {
             context.writeAttribute(output, SCHEMA_ATTRIBUTE, rowSet.getSchema());
         }
         context.writeAttribute(output, TABLE_ATTRIBUTE, rowSet.getTable());
+        if (rowSet.getWatermarkColumn() != null) {
+            context.writeAttribute(output, WATERMARK_COLUMN_ATTRIBUTE, rowSet.getWatermarkColumn());
+        }
+        if (rowSet.getWatermark() != null) {
+            context.writeAttribute(output, WATERMARK_ATTRIBUTE, rowSet.getWatermark());
+        }
+        if (rowSet.getWatermarkType() != null) {
+            context.writeAttribute(output, WATERMARK_TYPE_ATTRIBUTE, toAlias(rowSet.getWatermarkType()));
+        }
     }
 }
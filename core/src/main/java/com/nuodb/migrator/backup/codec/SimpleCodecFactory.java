@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.codec;
+
+import com.nuodb.migrator.backup.BackupException;
+import org.slf4j.Logger;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.nuodb.migrator.utils.ReflectionUtils.getClassLoader;
+import static com.nuodb.migrator.utils.ReflectionUtils.newInstance;
+import static java.lang.String.CASE_INSENSITIVE_ORDER;
+import static java.lang.String.format;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Resolves codec by its name or by a class name of a custom {@link Codec} implementation.
+ *
+ * @author Sergey Bushik
+ */
+@SuppressWarnings("unchecked")
+public class SimpleCodecFactory implements CodecFactory {
+
+    protected final Logger logger = getLogger(getClass());
+
+    private Map<String, Class<? extends Codec>> codecs = new TreeMap<String, Class<? extends Codec>>(
+            CASE_INSENSITIVE_ORDER);
+
+    public SimpleCodecFactory() {
+        addCodec(GzipCodec.NAME, GzipCodec.class);
+        addCodec(DeflateCodec.NAME, DeflateCodec.class);
+    }
+
+    public void addCodec(String codec, Class<? extends Codec> codecClass) {
+        codecs.put(codec, codecClass);
+    }
+
+    @Override
+    public Codec createCodec(String codec) {
+        Class<? extends Codec> codecClass = codecs.get(codec);
+        if (codecClass == null) {
+            if (logger.isTraceEnabled()) {
+                logger.trace(format("Can't resolve codec %s to a class", codec));
+            }
+            try {
+                codecClass = (Class<? extends Codec>) getClassLoader().loadClass(codec);
+            } catch (ClassNotFoundException exception) {
+                throw new BackupException(format("Codec %s is not supported", codec));
+            }
+        }
+        return newInstance(codecClass);
+    }
+}
@@ -45,10 +45,32 @@ public interface Format extends Closeable {
      */
     final String ATTRIBUTE_BUFFER_SIZE = "buffer.size";
 
+    /**
+     * Attribute name of the codec compressing chunk files, either gzip, deflate or a class name of a custom codec,
+     * chunk files are not compressed by default
+     */
+    final String ATTRIBUTE_CODEC = "codec";
+
+    /**
+     * Attribute name of the approximate number of bytes in a row group recorded for uncompressed chunks of a
+     * splittable format, default is 4MB, 0 disables row groups
+     */
+    final String ATTRIBUTE_ROW_GROUP_BYTES = "row.group.bytes";
+
+    /**
+     * Attribute name of the maximum number of row groups recorded for a chunk, default is 64, adjacent groups are
+     * merged and the group size of the chunk is doubled once the chunk reaches it
+     */
+    final String ATTRIBUTE_ROW_GROUP_COUNT = "row.group.count";
+
     final boolean BUFFERING = true;
 
     final int BUFFER_SIZE = 1024 * 1024;
 
+    final long ROW_GROUP_BYTES = 4 * 1024 * 1024;
+
+    final int ROW_GROUP_COUNT = 64;
+
     void init();
 
     void close();
@@ -41,6 +41,19 @@ public interface Input extends Format {
 
     Value[] readValues();
 
+    boolean isReuseValues();
+
+    /**
+     * Allows input to return the same values array refilled on every read
+     * instead of a new one, the caller is done with the values of a row
+     * before the next row is read. Text inputs refill the same value slots
+     * too, so the values have to be copied to be kept.
+     *
+     * @param reuseValues
+     *            true to refill the same values array.
+     */
+    void setReuseValues(boolean reuseValues);
+
     void readEnd();
 
     void setReader(Reader reader);
@@ -28,6 +28,7 @@
 package com.nuodb.migrator.backup.format;
 
 import com.nuodb.migrator.backup.Column;
+import com.nuodb.migrator.backup.format.value.ValueSlot;
 import com.nuodb.migrator.backup.format.value.ValueType;
 
 import java.io.BufferedInputStream;
@@ -48,6 +49,8 @@ public abstract class InputBase extends FormatBase implements Input {
     private Reader reader;
     private InputStream inputStream;
     private List<ValueType> valueTypes;
+    private boolean reuseValues;
+    private ValueSlot[] valueSlots;
 
     public Reader getReader() {
         return reader;
@@ -83,6 +86,36 @@ public abstract class InputBase extends FormatBase implements Input {
 
     protected abstract void init(InputStream inputStream);
 
+    @Override
+    public boolean isReuseValues() {
+        return reuseValues;
+    }
+
+    @Override
+    public void setReuseValues(boolean reuseValues) {
+        this.reuseValues = reuseValues;
+    }
+
+    /**
+     * Returns slots refilled with the values of every row if the values are
+     * reused.
+     *
+     * @return value slots or null if the values are not reused.
+     */
+    protected ValueSlot[] getValueSlots() {
+        if (!reuseValues) {
+            return null;
+        }
+        if (valueSlots == null) {
+            ValueSlot[] valueSlots = new ValueSlot[valueTypes.size()];
+            for (int index = 0; index < valueSlots.length; index++) {
+                valueSlots[index] = new ValueSlot();
+            }
+            this.valueSlots = valueSlots;
+        }
+        return valueSlots;
+    }
+
     public List<ValueType> getValueTypes() {
         return valueTypes;
     }
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format;
+
+/**
+ * Byte range of a chunk file holding whole rows, which can be read
+ * independently of the other ranges of the chunk.
+ *
+ * @author Sergey Bushik
+ */
+public class InputRange {
+
+    private final long offset;
+    private final long length;
+    private final long row;
+    private final long rows;
+
+    /**
+     * @param offset
+     *            offset of the first byte of the range in the chunk file.
+     * @param length
+     *            number of bytes in the range.
+     * @param row
+     *            number of the first row of the range in the chunk.
+     * @param rows
+     *            number of rows in the range.
+     */
+    public InputRange(long offset, long length, long row, long rows) {
+        this.offset = offset;
+        this.length = length;
+        this.row = row;
+        this.rows = rows;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        InputRange that = (InputRange) o;
+
+        if (offset != that.offset)
+            return false;
+        if (length != that.length)
+            return false;
+        if (row != that.row)
+            return false;
+        return rows == that.rows;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (offset ^ (offset >>> 32));
+        result = 31 * result + (int) (length ^ (length >>> 32));
+        result = 31 * result + (int) (row ^ (row >>> 32));
+        result = 31 * result + (int) (rows ^ (rows >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "InputRange{offset=" + offset + ", length=" + length + ", row=" + row + ", rows=" + rows + '}';
+    }
+}
@@ -27,6 +27,10 @@
  */
 package com.nuodb.migrator.backup.format;
 
+import com.nuodb.migrator.backup.Column;
+import com.nuodb.migrator.backup.format.value.LobValue;
+import com.nuodb.migrator.backup.format.value.Value;
+import com.nuodb.migrator.backup.format.value.ValueType;
 import com.nuodb.migrator.utils.Counting;
 import com.nuodb.migrator.utils.CountingOutputStream;
 import com.nuodb.migrator.utils.CountingWriter;
@@ -35,6 +39,7 @@ import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.util.Collection;
 
 /**
  * @author Sergey Bushik
@@ -46,6 +51,7 @@ public abstract class OutputBase extends FormatBase implements Output {
     private OutputStream outputStream;
     private Long maxSize;
     private Counting counting;
+    private ValueType[] valueTypes;
 
     protected OutputBase() {
     }
@@ -112,18 +118,64 @@ public abstract class OutputBase extends FormatBase implements Output {
     }
 
     protected OutputStream wrapOutputStream(OutputStream outputStream) {
-        outputStream = isCounting() ? (OutputStream) (counting = new CountingOutputStream(outputStream)) : outputStream;
+        if (isCounting()) {
+            // compressed stream counts bytes written to the file rather than bytes written to the stream
+            counting = outputStream instanceof Counting ? (Counting) outputStream
+                    : new CountingOutputStream(outputStream);
+            outputStream = (OutputStream) counting;
+        }
         outputStream = isBuffering() ? new BufferedOutputStream(outputStream, getBufferSize()) : outputStream;
         return outputStream;
     }
 
+    /**
+     * Tells whether a value is a large object spilled to a file, which should be streamed to the output rather than
+     * read into heap.
+     *
+     * @param value
+     *            to check.
+     * @return true if the value is spilled.
+     */
+    protected boolean isSpilled(Value value) {
+        return value instanceof LobValue && ((LobValue) value).isSpilled();
+    }
+
+    /**
+     * Value types of the row set columns, resolved on the first row and used
+     * for every row of the chunk.
+     *
+     * @return array of the column value types.
+     */
+    protected ValueType[] getValueTypes() {
+        if (valueTypes == null) {
+            Collection<Column> columns = getRowSet().getColumns();
+            ValueType[] valueTypes = new ValueType[columns.size()];
+            int index = 0;
+            for (Column column : columns) {
+                valueTypes[index++] = column.getValueType();
+            }
+            this.valueTypes = valueTypes;
+        }
+        return valueTypes;
+    }
+
     @Override
     public boolean canWrite() {
         return fitMaxSize();
     }
 
     protected boolean fitMaxSize() {
-        return !(getMaxSize() != null && counting != null) || counting.getCount() < getMaxSize();
+        return !(getMaxSize() != null && counting != null) || counting.getCount() + getBufferedSize() < getMaxSize();
+    }
+
+    /**
+     * Number of bytes held by the output for the rows, which are written but
+     * not yet encoded to the stream.
+     *
+     * @return number of bytes to be written.
+     */
+    protected long getBufferedSize() {
+        return 0;
     }
 
     public boolean isCounting() {
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format;
+
+import java.math.BigDecimal;
+
+/**
+ * Row group of a chunk with the lowest and the highest value of the key column
+ * of its rows, which let a reader tell key ranges of the groups without
+ * decoding them. Bounds are recorded for numeric keys as plain decimal
+ * numbers, and are null if the key values of the group are unknown.
+ *
+ * @author Sergey Bushik
+ */
+public class RowGroup extends InputRange {
+
+    private final String minKey;
+    private final String maxKey;
+
+    public RowGroup(long offset, long length, long row, long rows, String minKey, String maxKey) {
+        super(offset, length, row, rows);
+        this.minKey = minKey;
+        this.maxKey = maxKey;
+    }
+
+    /**
+     * Merges two adjacent row groups into one, bounds of the merged group are
+     * known if they are known for both groups.
+     *
+     * @param rowGroup
+     *            first group.
+     * @param next
+     *            group following the first one.
+     * @return merged group.
+     */
+    public static InputRange merge(InputRange rowGroup, InputRange next) {
+        long offset = rowGroup.getOffset();
+        long length = next.getOffset() + next.getLength() - offset;
+        long rows = rowGroup.getRows() + next.getRows();
+        String minKey = getMinKey(rowGroup);
+        String maxKey = getMaxKey(rowGroup);
+        String nextMinKey = getMinKey(next);
+        String nextMaxKey = getMaxKey(next);
+        if (minKey == null || maxKey == null || nextMinKey == null || nextMaxKey == null) {
+            return new InputRange(offset, length, rowGroup.getRow(), rows);
+        }
+        return new RowGroup(offset, length, rowGroup.getRow(), rows,
+                compare(minKey, nextMinKey) <= 0 ? minKey : nextMinKey,
+                compare(maxKey, nextMaxKey) >= 0 ? maxKey : nextMaxKey);
+    }
+
+    public static String getMinKey(InputRange rowGroup) {
+        return rowGroup instanceof RowGroup ? ((RowGroup) rowGroup).getMinKey() : null;
+    }
+
+    public static String getMaxKey(InputRange rowGroup) {
+        return rowGroup instanceof RowGroup ? ((RowGroup) rowGroup).getMaxKey() : null;
+    }
+
+    private static int compare(String key1, String key2) {
+        return new BigDecimal(key1).compareTo(new BigDecimal(key2));
+    }
+
+    public String getMinKey() {
+        return minKey;
+    }
+
+    public String getMaxKey() {
+        return maxKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!super.equals(o))
+            return false;
+
+        RowGroup rowGroup = (RowGroup) o;
+
+        if (minKey != null ? !minKey.equals(rowGroup.minKey) : rowGroup.minKey != null)
+            return false;
+        return maxKey != null ? maxKey.equals(rowGroup.maxKey) : rowGroup.maxKey == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + (minKey != null ? minKey.hashCode() : 0);
+        result = 31 * result + (maxKey != null ? maxKey.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "RowGroup{offset=" + getOffset() + ", length=" + getLength() + ", row=" + getRow() + ", rows="
+                + getRows() + ", minKey=" + minKey + ", maxKey=" + maxKey + '}';
+    }
+}
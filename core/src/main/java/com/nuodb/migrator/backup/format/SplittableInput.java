@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format;
+
+import java.util.List;
+
+/**
+ * Input, which can split a chunk into ranges of whole rows aligned on record
+ * boundaries, so that a single chunk is decoded by several threads.
+ *
+ * @author Sergey Bushik
+ */
+public interface SplittableInput extends Input {
+
+    /**
+     * Checks whether chunks can be split with the current format attributes.
+     *
+     * @return true if {@link #split(long)} is supported.
+     */
+    boolean isSplittable();
+
+    /**
+     * Scans the input stream of the whole chunk up to the end without decoding
+     * values and splits it into ranges of rows.
+     *
+     * @param size
+     *            minimum number of bytes in a range, the last range can be
+     *            smaller.
+     * @return ranges of rows in the chunk order.
+     */
+    List<InputRange> split(long size);
+
+    InputRange getInputRange();
+
+    /**
+     * Sets the range to read, so that the input stream provided to the input
+     * starts at the range offset and ends at the range end.
+     *
+     * @param inputRange
+     *            range of rows to read.
+     */
+    void setInputRange(InputRange inputRange);
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.bson;
+
+import com.nuodb.migrator.backup.format.value.Value;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+
+/**
+ * Dictionary of strings of a column in a chunk. The first strings of the
+ * column are added to the dictionary as they are written or read, so that
+ * the writer and the reader fill it in the same order, and repeated strings
+ * are written as their ids. Strings longer than the maximum length are never
+ * added. Once the dictionary is full no more strings are added, and the
+ * writer stops using the dictionary as soon as a sample of lookups shows the
+ * column doesn't repeat its strings.
+ *
+ * @author Sergey Bushik
+ */
+class BsonDictionary {
+
+    /**
+     * Number of lookups in a sample deciding whether the column has low
+     * cardinality, which is the case if at least half of them hit.
+     */
+    static final int SAMPLE = 1024;
+
+    private final int size;
+    private final int length;
+    private Map<String, Integer> ids;
+    private List<Value> values;
+    private boolean lookup = true;
+    private int lookups;
+    private int hits;
+
+    /**
+     * @param size
+     *            maximum number of strings in the dictionary.
+     * @param length
+     *            maximum length of a string in the dictionary.
+     */
+    public BsonDictionary(int size, int length) {
+        this.size = size;
+        this.length = length;
+    }
+
+    /**
+     * Looks up id of the string to write, adding the string if it's absent
+     * and the dictionary is not full.
+     *
+     * @return id of the string or null if the string is written as is.
+     */
+    public Integer getId(String value) {
+        if (!lookup || value.length() > length) {
+            return null;
+        }
+        if (ids == null) {
+            ids = newHashMap();
+        }
+        Integer id = ids.get(value);
+        if (id == null && ids.size() < size) {
+            ids.put(value, ids.size());
+        }
+        hits += id != null ? 1 : 0;
+        if (++lookups == SAMPLE) {
+            lookup = hits * 2 >= lookups;
+            lookups = 0;
+            hits = 0;
+            if (!lookup) {
+                ids = null;
+            }
+        }
+        return id;
+    }
+
+    public boolean isLookup() {
+        return lookup;
+    }
+
+    /**
+     * Adds string read as is, the same way as the writer has added it.
+     */
+    public void addValue(Value value) {
+        if (values == null) {
+            values = newArrayList();
+        }
+        if (values.size() < size && value.asString().length() <= length) {
+            values.add(value);
+        }
+    }
+
+    /**
+     * @return string value of the id or null if the id is unknown.
+     */
+    public Value getValue(int id) {
+        return values != null && id >= 0 && id < values.size() ? values.get(id) : null;
+    }
+}
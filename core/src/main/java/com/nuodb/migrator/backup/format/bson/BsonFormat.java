@@ -40,4 +40,54 @@ public interface BsonFormat {
     final String TYPE = "bson";
 
     final String ROWS_FIELD = "rs";
+
+    /**
+     * Attribute name enabling dictionary encoding of repeated strings, chunks are written without dictionaries by
+     * default
+     */
+    final String ATTRIBUTE_DICTIONARY = "bson.dictionary";
+
+    /**
+     * Attribute name of the maximum number of strings in the dictionary of a column, default is 1024
+     */
+    final String ATTRIBUTE_DICTIONARY_SIZE = "bson.dictionary.size";
+
+    /**
+     * Attribute name of the maximum length of a string added to the dictionary of a column, default is 64 chars
+     */
+    final String ATTRIBUTE_DICTIONARY_LENGTH = "bson.dictionary.length";
+
+    /**
+     * Attribute name of the comma separated list of columns written without dictionaries
+     */
+    final String ATTRIBUTE_DICTIONARY_EXCLUDE = "bson.dictionary.exclude";
+
+    final boolean DICTIONARY = false;
+
+    final int DICTIONARY_SIZE = 1024;
+
+    final int DICTIONARY_LENGTH = 64;
+
+    /**
+     * Field preceding the rows array, which holds dictionary size if strings are written as int32 dictionary ids
+     */
+    final String DICTIONARY_FIELD = "dc";
+
+    /**
+     * Field following the dictionary size, which holds maximum length of a string in the dictionary, strings are not
+     * limited if it's absent
+     */
+    final String DICTIONARY_LENGTH_FIELD = "dl";
+
+    /**
+     * Fields of the embedded document holding a decimal as unscaled long value and scale
+     */
+    final String UNSCALED_FIELD = "d";
+
+    final String SCALE_FIELD = "s";
+
+    /**
+     * Field of the embedded document holding a timestamp with microseconds
+     */
+    final String MICROS_FIELD = "t";
 }
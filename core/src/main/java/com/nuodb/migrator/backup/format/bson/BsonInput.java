@@ -31,31 +31,55 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.nuodb.migrator.backup.format.InputBase;
 import com.nuodb.migrator.backup.format.InputException;
+import com.nuodb.migrator.backup.format.InputRange;
+import com.nuodb.migrator.backup.format.SplittableInput;
 import com.nuodb.migrator.backup.format.value.Value;
 import com.nuodb.migrator.backup.format.value.ValueType;
 import de.undercouch.bson4jackson.BsonFactory;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.io.Reader;
+import java.math.BigDecimal;
 import java.util.BitSet;
+import java.util.Date;
 import java.util.List;
 
+import static com.fasterxml.jackson.core.JsonParser.NumberType.INT;
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
 import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
 import static com.fasterxml.jackson.core.JsonToken.VALUE_NULL;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_TRUE;
 import static com.nuodb.migrator.backup.format.utils.BitSetUtils.EMPTY;
 import static com.nuodb.migrator.backup.format.utils.BitSetUtils.fromByteArray;
+import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
 import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
 import static com.nuodb.migrator.backup.format.value.ValueUtils.binary;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.booleanValue;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.decimal;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.doubleValue;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.longValue;
 import static com.nuodb.migrator.backup.format.value.ValueUtils.string;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.timestamp;
+import static java.lang.Integer.MAX_VALUE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static de.undercouch.bson4jackson.BsonConstants.TYPE_ARRAY;
 import static de.undercouch.bson4jackson.BsonGenerator.Feature.ENABLE_STREAMING;
 
 /**
  * @author Sergey Bushik
  */
-public class BsonInput extends InputBase implements BsonFormat {
+public class BsonInput extends InputBase implements BsonFormat, SplittableInput {
 
     private JsonParser bsonReader;
+    private InputRange inputRange;
+    private BsonDictionary[] dictionaries;
+    private Value[] values;
 
     @Override
     public String getFormat() {
@@ -74,12 +98,53 @@ public class BsonInput extends InputBase implements BsonFormat {
     @Override
     protected void init(InputStream input) {
         try {
+            if (inputRange != null) {
+                input = frameInputRange(input);
+            }
             bsonReader = createBsonFactory().createJsonParser(input);
         } catch (Exception exception) {
             throw new InputException(exception);
         }
     }
 
+    /**
+     * Encloses elements of the range into a document with the rows array, the
+     * same way as they are enclosed in the chunk.
+     */
+    protected InputStream frameInputRange(InputStream input) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        header.write(new byte[] { 0, 0, 0, 0, TYPE_ARRAY });
+        header.write(ROWS_FIELD.getBytes(UTF_8));
+        header.write(new byte[] { 0, 0, 0, 0, 0 });
+        return new SequenceInputStream(
+                new SequenceInputStream(new ByteArrayInputStream(header.toByteArray()), input),
+                new ByteArrayInputStream(new byte[] { 0, 0 }));
+    }
+
+    @Override
+    public boolean isSplittable() {
+        return true;
+    }
+
+    @Override
+    public List<InputRange> split(long size) {
+        try {
+            return new BsonSplitter(new BufferedInputStream(getInputStream())).split(size);
+        } catch (IOException exception) {
+            throw new InputException(exception);
+        }
+    }
+
+    @Override
+    public InputRange getInputRange() {
+        return inputRange;
+    }
+
+    @Override
+    public void setInputRange(InputRange inputRange) {
+        this.inputRange = inputRange;
+    }
+
     protected BsonFactory createBsonFactory() {
         BsonFactory factory = new BsonFactory();
         factory.enable(ENABLE_STREAMING);
@@ -90,7 +155,24 @@ public class BsonInput extends InputBase implements BsonFormat {
     public void readStart() {
         try {
             bsonReader.nextToken();
-            bsonReader.nextToken();
+            int dictionarySize = 0;
+            int dictionaryLength = MAX_VALUE;
+            // header fields precede the rows array
+            while (bsonReader.nextToken() == FIELD_NAME && !ROWS_FIELD.equals(bsonReader.getCurrentName())) {
+                String field = bsonReader.getCurrentName();
+                bsonReader.nextToken();
+                if (DICTIONARY_FIELD.equals(field)) {
+                    dictionarySize = bsonReader.getIntValue();
+                } else if (DICTIONARY_LENGTH_FIELD.equals(field)) {
+                    dictionaryLength = bsonReader.getIntValue();
+                }
+            }
+            if (dictionarySize > 0) {
+                dictionaries = new BsonDictionary[getValueTypes().size()];
+                for (int i = 0; i < dictionaries.length; i++) {
+                    dictionaries[i] = new BsonDictionary(dictionarySize, dictionaryLength);
+                }
+            }
             bsonReader.nextToken();
         } catch (IOException exception) {
             throw new InputException(exception);
@@ -104,26 +186,18 @@ public class BsonInput extends InputBase implements BsonFormat {
             if (isNextToken(START_ARRAY)) {
                 List<ValueType> valueTypes = getValueTypes();
                 int length = valueTypes.size();
-                values = new Value[length];
+                // read values are immutable, so only the array is reused
+                values = isReuseValues() && this.values != null ? this.values : new Value[length];
+                this.values = values;
                 int index = 0;
                 BitSet nulls = isNextToken(VALUE_NULL) ? EMPTY : fromByteArray((byte[]) bsonReader.getEmbeddedObject());
                 while (index < length) {
-                    Object value;
-                    if (nulls.get(index)) {
-                        value = null;
-                    } else {
-                        bsonReader.nextToken();
-                        value = bsonReader.getEmbeddedObject();
-                    }
                     ValueType valueType = valueTypes.get(index);
                     valueType = valueType != null ? valueType : STRING;
-                    switch (valueType) {
-                    case BINARY:
-                        values[index] = binary((byte[]) value);
-                        break;
-                    case STRING:
-                        values[index] = string((String) value);
-                        break;
+                    if (nulls.get(index)) {
+                        values[index] = valueType == BINARY ? binary(null) : string(null);
+                    } else {
+                        values[index] = readValue(valueType, dictionaries != null ? dictionaries[index] : null);
                     }
                     index++;
                 }
@@ -135,6 +209,75 @@ public class BsonInput extends InputBase implements BsonFormat {
         return values;
     }
 
+    /**
+     * Reads next value, where native BSON numbers, booleans, dates and embedded documents are mapped to typed
+     * values and strings and binaries are read according to the column value type
+     *
+     * @param valueType  of the column
+     * @param dictionary of the column or null if strings are written as is
+     * @return value read
+     * @throws IOException if read failed
+     */
+    protected Value readValue(ValueType valueType, BsonDictionary dictionary) throws IOException {
+        JsonToken token = bsonReader.nextToken();
+        switch (token) {
+        case VALUE_NUMBER_INT:
+            if (dictionary != null && bsonReader.getNumberType() == INT) {
+                int id = bsonReader.getIntValue();
+                Value value = dictionary.getValue(id);
+                if (value == null) {
+                    throw new InputException("Unknown dictionary id " + id);
+                }
+                return value;
+            }
+            return longValue(bsonReader.getLongValue());
+        case VALUE_NUMBER_FLOAT:
+            return doubleValue(bsonReader.getDoubleValue());
+        case VALUE_TRUE:
+        case VALUE_FALSE:
+            return booleanValue(token == VALUE_TRUE);
+        case START_OBJECT:
+            return readObject();
+        default:
+            Object value = bsonReader.getEmbeddedObject();
+            if (value instanceof Date) {
+                return timestamp(MILLISECONDS.toMicros(((Date) value).getTime()));
+            }
+            if (valueType == BINARY) {
+                return binary((byte[]) value);
+            }
+            Value string = string((String) value);
+            if (dictionary != null) {
+                dictionary.addValue(string);
+            }
+            return string;
+        }
+    }
+
+    protected Value readObject() throws IOException {
+        Long unscaled = null;
+        Integer scale = null;
+        Long micros = null;
+        while (isNextToken(FIELD_NAME)) {
+            String field = bsonReader.getCurrentName();
+            bsonReader.nextToken();
+            if (UNSCALED_FIELD.equals(field)) {
+                unscaled = bsonReader.getLongValue();
+            } else if (SCALE_FIELD.equals(field)) {
+                scale = bsonReader.getIntValue();
+            } else if (MICROS_FIELD.equals(field)) {
+                micros = bsonReader.getLongValue();
+            }
+        }
+        if (micros != null) {
+            return timestamp(micros);
+        } else if (unscaled != null && scale != null) {
+            return decimal(BigDecimal.valueOf(unscaled, scale));
+        } else {
+            throw new InputException("Embedded document is neither a decimal nor a timestamp");
+        }
+    }
+
     protected boolean isNextToken(JsonToken... tokens) throws IOException {
         return isToken(bsonReader.nextToken(), tokens);
     }
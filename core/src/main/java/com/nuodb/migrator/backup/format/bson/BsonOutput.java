@@ -27,29 +27,62 @@
  */
 package com.nuodb.migrator.backup.format.bson;
 
-import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.nuodb.migrator.backup.Column;
 import com.nuodb.migrator.backup.format.OutputBase;
 import com.nuodb.migrator.backup.format.OutputException;
+import com.nuodb.migrator.backup.format.SplittableOutput;
+import com.nuodb.migrator.backup.format.value.LobValue;
 import com.nuodb.migrator.backup.format.value.Value;
+import com.nuodb.migrator.backup.format.value.ValueType;
 import de.undercouch.bson4jackson.BsonFactory;
+import de.undercouch.bson4jackson.BsonGenerator;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.BitSet;
-import java.util.Collection;
+import java.util.Date;
+import java.util.Set;
 
-import static com.google.common.collect.Iterables.get;
+import static com.google.common.collect.Sets.newHashSet;
 import static com.nuodb.migrator.backup.format.utils.BitSetUtils.toByteArray;
+import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
+import static de.undercouch.bson4jackson.BsonConstants.SUBTYPE_BINARY;
+import static de.undercouch.bson4jackson.BsonConstants.TYPE_BINARY;
+import static de.undercouch.bson4jackson.BsonConstants.TYPE_STRING;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static java.lang.Boolean.parseBoolean;
+import static java.lang.Integer.parseInt;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+import static org.apache.commons.lang3.StringUtils.lowerCase;
+import static org.apache.commons.lang3.StringUtils.split;
+import static org.apache.commons.lang3.StringUtils.trim;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import static de.undercouch.bson4jackson.BsonGenerator.Feature.ENABLE_STREAMING;
 
 /**
  * @author Sergey Bushik
  */
-public class BsonOutput extends OutputBase implements BsonFormat {
+public class BsonOutput extends OutputBase implements BsonFormat, SplittableOutput {
 
-    private JsonGenerator bsonWriter;
+    private static final int READ_SIZE = 1 << 13;
+
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    private BsonGenerator bsonWriter;
+    private BitSet nulls = new BitSet();
+    private byte[] nullBytes;
+    private BsonDictionary[] dictionaries;
+    private BsonDictionary dictionary;
 
     public BsonOutput() {
         super(MAX_SIZE);
@@ -79,15 +112,64 @@ public class BsonOutput extends OutputBase implements BsonFormat {
     }
 
     protected BsonFactory createBsonFactory() {
-        BsonFactory factory = new BsonFactory();
+        BsonFactory factory = new BsonFactory() {
+            @Override
+            public BsonGenerator createGenerator(OutputStream output, JsonEncoding encoding) {
+                return new BsonWriter(_generatorFeatures, _bsonGeneratorFeatures, output);
+            }
+        };
         factory.enable(ENABLE_STREAMING);
         return factory;
     }
 
+    public boolean isDictionary() {
+        String dictionary = (String) getAttribute(ATTRIBUTE_DICTIONARY);
+        return isEmpty(dictionary) ? DICTIONARY : parseBoolean(dictionary);
+    }
+
+    public int getDictionarySize() {
+        String dictionarySize = (String) getAttribute(ATTRIBUTE_DICTIONARY_SIZE);
+        return isEmpty(dictionarySize) ? DICTIONARY_SIZE : parseInt(dictionarySize);
+    }
+
+    public int getDictionaryLength() {
+        String dictionaryLength = (String) getAttribute(ATTRIBUTE_DICTIONARY_LENGTH);
+        return isEmpty(dictionaryLength) ? DICTIONARY_LENGTH : parseInt(dictionaryLength);
+    }
+
+    /**
+     * @return lower cased names of the columns written without dictionaries.
+     */
+    public Set<String> getDictionaryExclude() {
+        Set<String> exclude = newHashSet();
+        String columns = (String) getAttribute(ATTRIBUTE_DICTIONARY_EXCLUDE);
+        if (!isEmpty(columns)) {
+            for (String column : split(columns, ',')) {
+                exclude.add(lowerCase(trim(column)));
+            }
+        }
+        return exclude;
+    }
+
     @Override
     public void writeStart() {
         try {
             bsonWriter.writeStartObject();
+            if (isDictionary()) {
+                int dictionarySize = getDictionarySize();
+                int dictionaryLength = getDictionaryLength();
+                Set<String> exclude = getDictionaryExclude();
+                dictionaries = new BsonDictionary[getValueTypes().length];
+                int i = 0;
+                for (Column column : getRowSet().getColumns()) {
+                    if (!exclude.contains(lowerCase(column.getName()))) {
+                        dictionaries[i] = new BsonDictionary(dictionarySize, dictionaryLength);
+                    }
+                    i++;
+                }
+                bsonWriter.writeNumberField(DICTIONARY_FIELD, dictionarySize);
+                bsonWriter.writeNumberField(DICTIONARY_LENGTH_FIELD, dictionaryLength);
+            }
             bsonWriter.writeArrayFieldStart(ROWS_FIELD);
         } catch (IOException exception) {
             throw new OutputException(exception);
@@ -98,25 +180,35 @@ public class BsonOutput extends OutputBase implements BsonFormat {
     public void writeValues(Value[] values) {
         try {
             bsonWriter.writeStartArray();
-            BitSet nulls = new BitSet();
+            // null bitmap and its bytes are reused between rows
+            BitSet nulls = this.nulls;
+            nulls.clear();
             for (int i = 0; i < values.length; i++) {
                 nulls.set(i, values[i].isNull());
             }
             if (nulls.isEmpty()) {
                 bsonWriter.writeNull();
             } else {
-                bsonWriter.writeBinary(toByteArray(nulls));
+                if (nullBytes == null || nullBytes.length * 8 < values.length) {
+                    nullBytes = new byte[(values.length + 7) / 8];
+                }
+                bsonWriter.writeBinary(nullBytes, 0, toByteArray(nulls, nullBytes));
             }
-            Collection<Column> columns = getRowSet().getColumns();
+            ValueType[] valueTypes = getValueTypes();
             for (int i = 0; i < values.length; i++) {
                 Value value = values[i];
                 if (!value.isNull()) {
-                    switch (get(columns, i).getValueType()) {
+                    if (isSpilled(value) && (valueTypes[i] == BINARY) == (value.getValueType() == BINARY)) {
+                        writeSpilled((LobValue) value);
+                        continue;
+                    }
+                    switch (valueTypes[i]) {
                     case BINARY:
                         bsonWriter.writeBinary(value.asBytes());
                         break;
-                    case STRING:
-                        bsonWriter.writeString(value.asString());
+                    default:
+                        dictionary = dictionaries != null ? dictionaries[i] : null;
+                        writeValue(value);
                         break;
                     }
                 }
@@ -127,6 +219,112 @@ public class BsonOutput extends OutputBase implements BsonFormat {
         }
     }
 
+    /**
+     * Writes typed values as native BSON types, so that they are not converted to and parsed from text
+     *
+     * @param value to write
+     * @throws IOException if write failed
+     */
+    protected void writeValue(Value value) throws IOException {
+        switch (value.getValueType()) {
+        case LONG:
+            bsonWriter.writeNumber(value.asLong());
+            break;
+        case DOUBLE:
+            bsonWriter.writeNumber(value.asDouble());
+            break;
+        case BOOLEAN:
+            bsonWriter.writeBoolean(value.asBoolean());
+            break;
+        case DECIMAL:
+            writeDecimal(value.asDecimal());
+            break;
+        case TIMESTAMP:
+            writeTimestamp(value.asLong());
+            break;
+        default:
+            writeString(value.asString());
+            break;
+        }
+    }
+
+    /**
+     * Streams content of a large object spilled to a file, binary object is written as binary and character object
+     * as a string of UTF-8 bytes stored in the file
+     *
+     * @param value spilled to a file
+     * @throws IOException if write failed
+     */
+    protected void writeSpilled(LobValue value) throws IOException {
+        long length = value.getFile().length();
+        if (length > Integer.MAX_VALUE) {
+            throw new OutputException(format("Large object of %d bytes exceeds maximum BSON value size", length));
+        }
+        InputStream input = value.openStream();
+        try {
+            if (value.getValueType() == BINARY) {
+                bsonWriter.writeBinary(input, (int) length);
+            } else {
+                ((BsonWriter) bsonWriter).writeUTF8String(input, (int) length);
+            }
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    /**
+     * Writes string as int32 id if it's in the dictionary of the column, int64 is used for numbers, so int32 is
+     * never ambiguous
+     *
+     * @param value string to write
+     * @throws IOException if write failed
+     */
+    protected void writeString(String value) throws IOException {
+        Integer id = dictionary != null ? dictionary.getId(value) : null;
+        if (id != null) {
+            bsonWriter.writeNumber(id);
+        } else {
+            bsonWriter.writeString(value);
+        }
+    }
+
+    protected void writeDecimal(BigDecimal decimal) throws IOException {
+        BigInteger unscaled = decimal.unscaledValue();
+        if (unscaled.compareTo(LONG_MIN) >= 0 && unscaled.compareTo(LONG_MAX) <= 0) {
+            bsonWriter.writeStartObject();
+            bsonWriter.writeNumberField(UNSCALED_FIELD, unscaled.longValue());
+            bsonWriter.writeNumberField(SCALE_FIELD, decimal.scale());
+            bsonWriter.writeEndObject();
+        } else {
+            writeString(decimal.toString());
+        }
+    }
+
+    protected void writeTimestamp(long micros) throws IOException {
+        if (micros % 1000 == 0) {
+            bsonWriter.writeDateTime(new Date(MICROSECONDS.toMillis(micros)));
+        } else {
+            bsonWriter.writeStartObject();
+            bsonWriter.writeNumberField(MICROS_FIELD, micros);
+            bsonWriter.writeEndObject();
+        }
+    }
+
+    /**
+     * Rows are streamed with zero document lengths, so that flushed rows are
+     * never rewritten. Rows referring to dictionaries can't be read without
+     * the rows preceding them.
+     */
+    @Override
+    public boolean isSplittable() {
+        return !isDictionary();
+    }
+
+    @Override
+    public long getOffset() {
+        return ((BsonWriter) bsonWriter).getOffset();
+    }
+
     @Override
     public void writeEnd() {
         try {
@@ -149,4 +347,63 @@ public class BsonOutput extends OutputBase implements BsonFormat {
             bsonWriter = null;
         }
     }
+
+    /**
+     * Generator telling the number of bytes written so far, including the ones
+     * it holds until a whole buffer can be flushed.
+     */
+    protected static class BsonWriter extends BsonGenerator {
+
+        public BsonWriter(int jsonFeatures, int bsonFeatures, OutputStream output) {
+            super(jsonFeatures, bsonFeatures, output);
+        }
+
+        public long getOffset() {
+            return _buffer.size();
+        }
+
+        /**
+         * Writes binary of a given length read from a stream, bytes are flushed as they are read, so that a large
+         * binary is never held in the buffer
+         */
+        @Override
+        public int writeBinary(Base64Variant variant, InputStream input, int length) throws IOException {
+            _writeArrayFieldNameIfNeeded();
+            _verifyValueWrite("write binary");
+            _buffer.putByte(_typeMarker, TYPE_BINARY);
+            _buffer.putInt(length);
+            _buffer.putByte(SUBTYPE_BINARY);
+            writeBytes(input, length);
+            return length;
+        }
+
+        /**
+         * Writes string of a given number of UTF-8 bytes read from a stream
+         */
+        public void writeUTF8String(InputStream input, int length) throws IOException {
+            _writeArrayFieldNameIfNeeded();
+            _verifyValueWrite("write string");
+            _buffer.putByte(_typeMarker, TYPE_STRING);
+            _buffer.putInt(length + 1);
+            writeBytes(input, length);
+            _buffer.putByte((byte) 0);
+            flushBuffer();
+        }
+
+        protected void writeBytes(InputStream input, int length) throws IOException {
+            byte[] bytes = new byte[READ_SIZE];
+            int remaining = length;
+            while (remaining > 0) {
+                int count = input.read(bytes, 0, min(bytes.length, remaining));
+                if (count < 0) {
+                    throw new EOFException(format("Expected %d more bytes of a large object", remaining));
+                }
+                for (int i = 0; i < count; i++) {
+                    _buffer.putByte(bytes[i]);
+                }
+                remaining -= count;
+                flushBuffer();
+            }
+        }
+    }
 }
@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.bson;
+
+import com.nuodb.migrator.backup.format.InputRange;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.lang.String.format;
+import static org.apache.commons.io.IOUtils.skipFully;
+
+/**
+ * Walks the element structure of a chunk without decoding values and splits
+ * the rows array into ranges of whole rows. Streamed documents are written
+ * with zero lengths, so elements are skipped by their types rather than by
+ * the document lengths.
+ *
+ * @author Sergey Bushik
+ */
+class BsonSplitter {
+
+    private static final int END = 0x00;
+    private static final int DOUBLE = 0x01;
+    private static final int STRING = 0x02;
+    private static final int DOCUMENT = 0x03;
+    private static final int ARRAY = 0x04;
+    private static final int BINARY = 0x05;
+    private static final int UNDEFINED = 0x06;
+    private static final int OBJECT_ID = 0x07;
+    private static final int BOOLEAN = 0x08;
+    private static final int DATE_TIME = 0x09;
+    private static final int NULL = 0x0A;
+    private static final int REGEX = 0x0B;
+    private static final int DB_POINTER = 0x0C;
+    private static final int JAVASCRIPT = 0x0D;
+    private static final int SYMBOL = 0x0E;
+    private static final int JAVASCRIPT_WITH_SCOPE = 0x0F;
+    private static final int INT32 = 0x10;
+    private static final int TIMESTAMP = 0x11;
+    private static final int INT64 = 0x12;
+    private static final int DECIMAL128 = 0x13;
+    private static final int MIN_KEY = 0xFF;
+    private static final int MAX_KEY = 0x7F;
+
+    private final InputStream input;
+    private long offset;
+
+    public BsonSplitter(InputStream input) {
+        this.input = input;
+    }
+
+    /**
+     * Splits rows of the chunk into ranges of elements of the rows array. A
+     * chunk with dictionaries is returned as a single range, as its rows refer
+     * to strings of the preceding rows.
+     *
+     * @param size
+     *            minimum number of bytes in a range.
+     * @return ranges in the chunk order.
+     */
+    public List<InputRange> split(long size) throws IOException {
+        List<InputRange> inputRanges = newArrayList();
+        skip(4);
+        int type = read();
+        // int32 header fields describe dictionaries
+        while (type == INT32) {
+            skipElement(type);
+            size = Long.MAX_VALUE;
+            type = read();
+        }
+        if (type == END) {
+            return inputRanges;
+        }
+        if (type != ARRAY) {
+            throw new IOException(format("Rows array expected, found element of %d type", type));
+        }
+        skipName();
+        skip(4);
+        long start = offset;
+        long row = 0;
+        long rows = 0;
+        while ((type = read()) != END) {
+            skipElement(type);
+            rows++;
+            if (offset - start >= size) {
+                inputRanges.add(new InputRange(start, offset - start, row, rows - row));
+                start = offset;
+                row = rows;
+            }
+        }
+        if (rows > row) {
+            // closing bytes of the rows array and of the document aren't included
+            inputRanges.add(new InputRange(start, offset - 1 - start, row, rows - row));
+        }
+        return inputRanges;
+    }
+
+    protected void skipElement(int type) throws IOException {
+        skipName();
+        skipValue(type);
+    }
+
+    protected void skipValue(int type) throws IOException {
+        switch (type) {
+        case DOUBLE:
+        case DATE_TIME:
+        case TIMESTAMP:
+        case INT64:
+            skip(8);
+            break;
+        case STRING:
+        case JAVASCRIPT:
+        case SYMBOL:
+            skip(readInt());
+            break;
+        case DOCUMENT:
+        case ARRAY:
+            skipDocument();
+            break;
+        case BINARY:
+            skip(readInt() + 1);
+            break;
+        case OBJECT_ID:
+            skip(12);
+            break;
+        case BOOLEAN:
+            skip(1);
+            break;
+        case REGEX:
+            skipName();
+            skipName();
+            break;
+        case DB_POINTER:
+            skip(readInt() + 12);
+            break;
+        case JAVASCRIPT_WITH_SCOPE:
+            skip(4);
+            skip(readInt());
+            skipDocument();
+            break;
+        case INT32:
+            skip(4);
+            break;
+        case DECIMAL128:
+            skip(16);
+            break;
+        case UNDEFINED:
+        case NULL:
+        case MIN_KEY:
+        case MAX_KEY:
+            break;
+        default:
+            throw new IOException(format("Unknown element type %d at %d offset", type, offset - 1));
+        }
+    }
+
+    protected void skipDocument() throws IOException {
+        skip(4);
+        int type;
+        while ((type = read()) != END) {
+            skipElement(type);
+        }
+    }
+
+    protected void skipName() throws IOException {
+        while (read() != 0) {
+        }
+    }
+
+    protected int readInt() throws IOException {
+        return read() | read() << 8 | read() << 16 | read() << 24;
+    }
+
+    protected int read() throws IOException {
+        int read = input.read();
+        if (read < 0) {
+            throw new EOFException(format("Unexpected end of chunk at %d offset", offset));
+        }
+        offset++;
+        return read;
+    }
+
+    protected void skip(long bytes) throws IOException {
+        skipFully(input, bytes);
+        offset += bytes;
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.columnar;
+
+import com.nuodb.migrator.backup.format.value.Value;
+import com.nuodb.migrator.backup.format.value.ValueType;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.BitSet;
+
+import static com.nuodb.migrator.backup.format.columnar.ColumnVectors.writeBinaries;
+import static com.nuodb.migrator.backup.format.columnar.ColumnVectors.writeBytes;
+import static com.nuodb.migrator.backup.format.columnar.ColumnVectors.writeDoubles;
+import static com.nuodb.migrator.backup.format.columnar.ColumnVectors.writeLongs;
+import static com.nuodb.migrator.backup.format.columnar.ColumnarFormat.VECTOR_TYPES;
+import static com.nuodb.migrator.backup.format.utils.BitSetUtils.toByteArray;
+import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
+import static com.nuodb.migrator.backup.format.value.ValueType.DECIMAL;
+import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.doubleValue;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.timestamp;
+import static java.util.Arrays.asList;
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.fill;
+
+/**
+ * Column vector of a row group under construction. Values are copied into the arrays of the vector type as they are
+ * added, so the vector doesn't hold the values, which may be reused or released by the caller once the row is
+ * written, and the number of bytes the row group takes is known before it's written. Binary columns are collected as
+ * binaries, other columns keep the value type while all of the values have it and are converted to strings
+ * otherwise.
+ *
+ * @author Sergey Bushik
+ */
+public class ColumnVector {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ValueType columnType;
+    private final BitSet nulls = new BitSet();
+    private ValueType vectorType;
+    private int capacity;
+    private int size;
+    private int count;
+    private long bytes;
+
+    private long[] longs;
+    private long[] scales;
+    private double[] doubles;
+    private BitSet booleans;
+    private byte[][] binaries;
+
+    public ColumnVector(ValueType columnType, int capacity) {
+        this.columnType = columnType;
+        this.capacity = capacity;
+    }
+
+    public void add(Value value) {
+        if (value == null || value.isNull()) {
+            nulls.set(size++);
+            return;
+        }
+        ValueType valueType = getVectorType(value);
+        if (vectorType == null) {
+            vectorType = valueType;
+        } else if (vectorType != valueType && vectorType != STRING) {
+            convertToStrings();
+        }
+        ensureCapacity(count + 1);
+        switch (vectorType) {
+        case LONG:
+        case TIMESTAMP:
+            longs[count] = value.asLong();
+            bytes += 8;
+            break;
+        case DOUBLE:
+            doubles[count] = value.asDouble();
+            bytes += 8;
+            break;
+        case BOOLEAN:
+            booleans.set(count, value.asBoolean());
+            break;
+        case DECIMAL:
+            BigDecimal decimal = value.asDecimal();
+            scales[count] = decimal.scale();
+            longs[count] = decimal.unscaledValue().longValue();
+            bytes += 9;
+            break;
+        case BINARY:
+            addBinary(count, value.asBytes());
+            break;
+        default:
+            addBinary(count, value.asString().getBytes(UTF_8));
+            break;
+        }
+        count++;
+        size++;
+    }
+
+    protected ValueType getVectorType(Value value) {
+        if (columnType == BINARY) {
+            return BINARY;
+        }
+        ValueType valueType = value.getValueType();
+        if (valueType == BINARY) {
+            return STRING;
+        }
+        if (valueType == DECIMAL && value.asDecimal().unscaledValue().bitLength() >= Long.SIZE) {
+            return STRING;
+        }
+        return valueType;
+    }
+
+    protected void addBinary(int index, byte[] binary) {
+        binaries[index] = binary;
+        bytes += binary.length + 1;
+    }
+
+    /**
+     * Replaces typed values collected so far with their string representations once a value of another type is
+     * added.
+     */
+    protected void convertToStrings() {
+        ValueType valueType = vectorType;
+        vectorType = STRING;
+        binaries = new byte[capacity][];
+        bytes = 0;
+        for (int index = 0; index < count; index++) {
+            String value;
+            switch (valueType) {
+            case LONG:
+                value = Long.toString(longs[index]);
+                break;
+            case TIMESTAMP:
+                value = timestamp(longs[index]).asString();
+                break;
+            case DOUBLE:
+                value = doubleValue(doubles[index]).asString();
+                break;
+            case BOOLEAN:
+                value = Boolean.toString(booleans.get(index));
+                break;
+            default:
+                value = BigDecimal.valueOf(longs[index], (int) scales[index]).toString();
+                break;
+            }
+            addBinary(index, value.getBytes(UTF_8));
+        }
+    }
+
+    protected void ensureCapacity(int minCapacity) {
+        if (minCapacity > capacity) {
+            capacity = Math.max(minCapacity, capacity * 2);
+            longs = longs != null ? copyOf(longs, capacity) : null;
+            scales = scales != null ? copyOf(scales, capacity) : null;
+            doubles = doubles != null ? copyOf(doubles, capacity) : null;
+            binaries = binaries != null ? copyOf(binaries, capacity) : null;
+        }
+        switch (vectorType) {
+        case LONG:
+        case TIMESTAMP:
+            longs = longs != null ? longs : new long[capacity];
+            break;
+        case DOUBLE:
+            doubles = doubles != null ? doubles : new double[capacity];
+            break;
+        case BOOLEAN:
+            booleans = booleans != null ? booleans : new BitSet(capacity);
+            break;
+        case DECIMAL:
+            longs = longs != null ? longs : new long[capacity];
+            scales = scales != null ? scales : new long[capacity];
+            break;
+        default:
+            binaries = binaries != null ? binaries : new byte[capacity][];
+            break;
+        }
+    }
+
+    /**
+     * Writes bitmap of nulls, code of the vector type and the non null values.
+     */
+    public void write(DataOutput output) throws IOException {
+        writeBytes(output, toByteArray(nulls));
+        ValueType vectorType = this.vectorType != null ? this.vectorType : STRING;
+        output.writeByte(asList(VECTOR_TYPES).indexOf(vectorType));
+        switch (vectorType) {
+        case LONG:
+        case TIMESTAMP:
+            writeLongs(output, copyOf(longs, count));
+            break;
+        case DOUBLE:
+            writeDoubles(output, copyOf(doubles, count));
+            break;
+        case BOOLEAN:
+            writeBytes(output, toByteArray(booleans.get(0, count)));
+            break;
+        case DECIMAL:
+            writeLongs(output, copyOf(scales, count));
+            writeLongs(output, copyOf(longs, count));
+            break;
+        default:
+            writeBinaries(output, count > 0 ? copyOf(binaries, count) : new byte[0][]);
+            break;
+        }
+    }
+
+    public void clear() {
+        nulls.clear();
+        if (booleans != null) {
+            booleans.clear();
+        }
+        if (binaries != null) {
+            fill(binaries, 0, count, null);
+        }
+        vectorType = null;
+        size = 0;
+        count = 0;
+        bytes = 0;
+    }
+
+    /**
+     * Approximate number of bytes the vector takes once written.
+     *
+     * @return estimated size of the vector.
+     */
+    public long getBytes() {
+        return bytes + size / 8 + 2;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,355 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.columnar;
+
+import com.nuodb.migrator.backup.format.value.Value;
+import com.nuodb.migrator.backup.format.value.ValueType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static com.nuodb.migrator.backup.format.columnar.ColumnEncoding.DELTA;
+import static com.nuodb.migrator.backup.format.columnar.ColumnEncoding.DICTIONARY;
+import static com.nuodb.migrator.backup.format.columnar.ColumnEncoding.PLAIN;
+import static com.nuodb.migrator.backup.format.columnar.ColumnEncoding.RLE;
+import static com.nuodb.migrator.backup.format.columnar.ColumnarFormat.VECTOR_TYPES;
+import static com.nuodb.migrator.backup.format.utils.BitSetUtils.fromByteArray;
+import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.*;
+
+/**
+ * Encodes and decodes column vectors of a row group. A vector starts with a bitmap of nulls and a code of the value
+ * type of its non null values, which are written using the encoding producing the most compact output for them:
+ * run length encoding if runs of equal values are at least 2 values long on average, dictionary encoding if strings
+ * or binaries have low cardinality and delta encoding if integers are monotonic.
+ *
+ * @author Sergey Bushik
+ */
+public class ColumnVectors {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Maximum ratio of distinct values to all values in a vector to use dictionary encoding
+     */
+    private static final int DICTIONARY_RATIO = 4;
+
+    public static Value[] readVector(DataInput input, ValueType columnType, int size) throws IOException {
+        BitSet nulls = fromByteArray(readBytes(input));
+        ValueType vectorType = VECTOR_TYPES[input.readUnsignedByte()];
+        int count = size - nulls.cardinality();
+        Value[] vector = new Value[count];
+        switch (vectorType) {
+        case LONG:
+            long[] longs = readLongs(input, count);
+            for (int i = 0; i < count; i++) {
+                vector[i] = longValue(longs[i]);
+            }
+            break;
+        case TIMESTAMP:
+            long[] micros = readLongs(input, count);
+            for (int i = 0; i < count; i++) {
+                vector[i] = timestamp(micros[i]);
+            }
+            break;
+        case DOUBLE:
+            double[] doubles = readDoubles(input, count);
+            for (int i = 0; i < count; i++) {
+                vector[i] = doubleValue(doubles[i]);
+            }
+            break;
+        case BOOLEAN:
+            BitSet booleans = fromByteArray(readBytes(input));
+            for (int i = 0; i < count; i++) {
+                vector[i] = booleanValue(booleans.get(i));
+            }
+            break;
+        case DECIMAL:
+            long[] scales = readLongs(input, count);
+            long[] unscaled = readLongs(input, count);
+            for (int i = 0; i < count; i++) {
+                vector[i] = decimal(BigDecimal.valueOf(unscaled[i], (int) scales[i]));
+            }
+            break;
+        default:
+            readBinaries(input, vector, vectorType == BINARY);
+            break;
+        }
+        Value[] values = new Value[size];
+        Value nullValue = columnType == BINARY ? BINARY_NULL : STRING_NULL;
+        for (int row = 0, index = 0; row < size; row++) {
+            values[row] = nulls.get(row) ? nullValue : vector[index++];
+        }
+        return values;
+    }
+
+    protected static void writeLongs(DataOutput output, long[] values) throws IOException {
+        int runs = values.length > 0 ? 1 : 0;
+        boolean monotonic = true;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] != values[i - 1]) {
+                runs++;
+            }
+            if (values[i] < values[i - 1]) {
+                monotonic = false;
+            }
+        }
+        if (values.length > 1 && runs * 2 <= values.length) {
+            output.writeByte(RLE.getCode());
+            for (int i = 0; i < values.length;) {
+                int run = 1;
+                while (i + run < values.length && values[i + run] == values[i]) {
+                    run++;
+                }
+                writeVarLong(output, run);
+                writeVarLong(output, zigZag(values[i]));
+                i += run;
+            }
+        } else if (values.length > 1 && monotonic) {
+            output.writeByte(DELTA.getCode());
+            writeVarLong(output, zigZag(values[0]));
+            for (int i = 1; i < values.length; i++) {
+                writeVarLong(output, zigZag(values[i] - values[i - 1]));
+            }
+        } else {
+            output.writeByte(PLAIN.getCode());
+            for (long value : values) {
+                writeVarLong(output, zigZag(value));
+            }
+        }
+    }
+
+    protected static long[] readLongs(DataInput input, int count) throws IOException {
+        long[] values = new long[count];
+        ColumnEncoding encoding = ColumnEncoding.fromCode(input.readUnsignedByte());
+        switch (encoding) {
+        case RLE:
+            for (int i = 0; i < count;) {
+                int run = (int) readVarLong(input);
+                long value = unZigZag(readVarLong(input));
+                Arrays.fill(values, i, i + run, value);
+                i += run;
+            }
+            break;
+        case DELTA:
+            for (int i = 0; i < count; i++) {
+                long delta = unZigZag(readVarLong(input));
+                values[i] = i == 0 ? delta : values[i - 1] + delta;
+            }
+            break;
+        default:
+            for (int i = 0; i < count; i++) {
+                values[i] = unZigZag(readVarLong(input));
+            }
+            break;
+        }
+        return values;
+    }
+
+    protected static void writeDoubles(DataOutput output, double[] values) throws IOException {
+        int runs = values.length > 0 ? 1 : 0;
+        for (int i = 1; i < values.length; i++) {
+            if (Double.compare(values[i], values[i - 1]) != 0) {
+                runs++;
+            }
+        }
+        if (values.length > 1 && runs * 2 <= values.length) {
+            output.writeByte(RLE.getCode());
+            for (int i = 0; i < values.length;) {
+                int run = 1;
+                while (i + run < values.length && Double.compare(values[i + run], values[i]) == 0) {
+                    run++;
+                }
+                writeVarLong(output, run);
+                output.writeDouble(values[i]);
+                i += run;
+            }
+        } else {
+            output.writeByte(PLAIN.getCode());
+            for (double value : values) {
+                output.writeDouble(value);
+            }
+        }
+    }
+
+    protected static double[] readDoubles(DataInput input, int count) throws IOException {
+        double[] values = new double[count];
+        ColumnEncoding encoding = ColumnEncoding.fromCode(input.readUnsignedByte());
+        if (encoding == RLE) {
+            for (int i = 0; i < count;) {
+                int run = (int) readVarLong(input);
+                Arrays.fill(values, i, i + run, input.readDouble());
+                i += run;
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                values[i] = input.readDouble();
+            }
+        }
+        return values;
+    }
+
+    protected static void writeBinaries(DataOutput output, byte[][] values) throws IOException {
+        int runs = values.length > 0 ? 1 : 0;
+        for (int i = 1; i < values.length; i++) {
+            if (!Arrays.equals(values[i], values[i - 1])) {
+                runs++;
+            }
+        }
+        if (values.length > 1 && runs * 2 <= values.length) {
+            output.writeByte(RLE.getCode());
+            for (int i = 0; i < values.length;) {
+                int run = 1;
+                while (i + run < values.length && Arrays.equals(values[i + run], values[i])) {
+                    run++;
+                }
+                writeVarLong(output, run);
+                writeBytes(output, values[i]);
+                i += run;
+            }
+            return;
+        }
+        Map<ByteBuffer, Integer> dictionary = createDictionary(values);
+        if (dictionary != null) {
+            output.writeByte(DICTIONARY.getCode());
+            byte[][] entries = new byte[dictionary.size()][];
+            for (Map.Entry<ByteBuffer, Integer> entry : dictionary.entrySet()) {
+                entries[entry.getValue()] = entry.getKey().array();
+            }
+            writeVarLong(output, entries.length);
+            for (byte[] entry : entries) {
+                writeBytes(output, entry);
+            }
+            for (byte[] value : values) {
+                writeVarLong(output, dictionary.get(ByteBuffer.wrap(value)));
+            }
+        } else {
+            output.writeByte(PLAIN.getCode());
+            for (byte[] value : values) {
+                writeBytes(output, value);
+            }
+        }
+    }
+
+    /**
+     * Maps distinct values to their indexes, gives up and returns null as soon as a number of distinct values
+     * makes dictionary encoding inefficient
+     */
+    protected static Map<ByteBuffer, Integer> createDictionary(byte[][] values) {
+        int maxSize = values.length / DICTIONARY_RATIO;
+        Map<ByteBuffer, Integer> dictionary = newHashMap();
+        for (byte[] value : values) {
+            ByteBuffer key = ByteBuffer.wrap(value);
+            if (!dictionary.containsKey(key)) {
+                if (dictionary.size() >= maxSize) {
+                    return null;
+                }
+                dictionary.put(key, dictionary.size());
+            }
+        }
+        return dictionary;
+    }
+
+    protected static void readBinaries(DataInput input, Value[] values, boolean binary) throws IOException {
+        ColumnEncoding encoding = ColumnEncoding.fromCode(input.readUnsignedByte());
+        switch (encoding) {
+        case RLE:
+            for (int i = 0; i < values.length;) {
+                int run = (int) readVarLong(input);
+                Arrays.fill(values, i, i + run, createValue(readBytes(input), binary));
+                i += run;
+            }
+            break;
+        case DICTIONARY:
+            Value[] dictionary = new Value[(int) readVarLong(input)];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = createValue(readBytes(input), binary);
+            }
+            for (int i = 0; i < values.length; i++) {
+                values[i] = dictionary[(int) readVarLong(input)];
+            }
+            break;
+        default:
+            for (int i = 0; i < values.length; i++) {
+                values[i] = createValue(readBytes(input), binary);
+            }
+            break;
+        }
+    }
+
+    protected static Value createValue(byte[] bytes, boolean binary) {
+        return binary ? binary(bytes) : string(new String(bytes, UTF_8));
+    }
+
+    protected static void writeBytes(DataOutput output, byte[] bytes) throws IOException {
+        writeVarLong(output, bytes.length);
+        output.write(bytes);
+    }
+
+    protected static byte[] readBytes(DataInput input) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(input)];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+    protected static void writeVarLong(DataOutput output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    protected static long readVarLong(DataInput input) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = input.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    protected static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    protected static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
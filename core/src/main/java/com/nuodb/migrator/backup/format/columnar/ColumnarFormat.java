@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.columnar;
+
+import com.nuodb.migrator.backup.format.value.ValueType;
+
+import static com.nuodb.migrator.backup.format.value.ValueType.*;
+
+/**
+ * Binary format storing rows in row groups of column vectors, where each vector is written with the most compact of
+ * plain, run length, dictionary or delta encodings together with a bitmap of nulls.
+ *
+ * @author Sergey Bushik
+ */
+public interface ColumnarFormat {
+
+    final String TYPE = "columnar";
+
+    /**
+     * Maximum size of a chunk, which is 1 GB, once it's reached rows are written to the next chunk
+     */
+    final long MAX_SIZE = 1073741824L;
+
+    /**
+     * Attribute name to set maximum number of rows in a row group, default is 4096
+     */
+    final String ATTRIBUTE_ROW_GROUP_SIZE = "columnar.row.group.size";
+
+    final int ROW_GROUP_SIZE = 4096;
+
+    final int MAGIC = 0x4e554f43;
+
+    final byte VERSION = 1;
+
+    /**
+     * Value types of column vectors in the order of their codes written to the stream
+     */
+    final ValueType[] VECTOR_TYPES = { STRING, BINARY, LONG, DOUBLE, DECIMAL, BOOLEAN, TIMESTAMP };
+}
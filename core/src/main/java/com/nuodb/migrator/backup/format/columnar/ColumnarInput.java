@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.columnar;
+
+import com.nuodb.migrator.backup.format.InputBase;
+import com.nuodb.migrator.backup.format.InputException;
+import com.nuodb.migrator.backup.format.value.Value;
+import com.nuodb.migrator.backup.format.value.ValueType;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.List;
+
+import static com.nuodb.migrator.backup.format.columnar.ColumnVectors.readVarLong;
+import static com.nuodb.migrator.backup.format.columnar.ColumnVectors.readVector;
+import static java.lang.String.format;
+
+/**
+ * Decodes a whole row group into column vectors at once and returns rows assembled from the decoded vectors.
+ *
+ * @author Sergey Bushik
+ */
+public class ColumnarInput extends InputBase implements ColumnarFormat {
+
+    private DataInputStream dataInput;
+    private Value[][] columns;
+    private Value[] values;
+    private int rows;
+    private int row;
+
+    @Override
+    public String getFormat() {
+        return TYPE;
+    }
+
+    @Override
+    protected void init(Reader reader) {
+        throw new InputException("Columnar format requires input stream");
+    }
+
+    @Override
+    protected void init(InputStream inputStream) {
+        dataInput = new DataInputStream(inputStream);
+    }
+
+    @Override
+    public void readStart() {
+        try {
+            int magic = dataInput.readInt();
+            byte version = dataInput.readByte();
+            if (magic != MAGIC || version != VERSION) {
+                throw new InputException(format("Unsupported columnar stream, magic %x version %d", magic, version));
+            }
+        } catch (IOException exception) {
+            throw new InputException(exception);
+        }
+    }
+
+    @Override
+    public Value[] readValues() {
+        if (row == rows && !readRowGroup()) {
+            return null;
+        }
+        Value[] values = isReuseValues() && this.values != null ? this.values : new Value[columns.length];
+        this.values = values;
+        for (int column = 0; column < columns.length; column++) {
+            values[column] = columns[column][row];
+        }
+        row++;
+        return values;
+    }
+
+    protected boolean readRowGroup() {
+        if (dataInput == null) {
+            return false;
+        }
+        try {
+            rows = (int) readVarLong(dataInput);
+            row = 0;
+            if (rows == 0) {
+                dataInput = null;
+                return false;
+            }
+            List<ValueType> valueTypes = getValueTypes();
+            columns = new Value[valueTypes.size()][];
+            for (int column = 0; column < columns.length; column++) {
+                columns[column] = readVector(dataInput, valueTypes.get(column), rows);
+            }
+            return true;
+        } catch (IOException exception) {
+            throw new InputException(exception);
+        }
+    }
+
+    @Override
+    public void readEnd() {
+    }
+}
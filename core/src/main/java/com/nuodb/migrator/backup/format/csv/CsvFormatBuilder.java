@@ -28,15 +28,17 @@
 package com.nuodb.migrator.backup.format.csv;
 
 import com.nuodb.migrator.backup.format.Format;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.QuoteMode;
 
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
 
 import static java.lang.Boolean.parseBoolean;
 import static java.lang.String.CASE_INSENSITIVE_ORDER;
-import static org.apache.commons.csv.CSVFormat.newFormat;
+import static java.nio.charset.Charset.forName;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 
 /**
@@ -45,6 +47,8 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 @SuppressWarnings("ConstantConditions")
 class CsvFormatBuilder implements CsvFormat {
 
+    private static final String META_CHARS = "\r\n";
+
     private static Map<String, Character> DELIMITERS;
     private static Map<String, String> LINE_SEPARATORS;
 
@@ -71,18 +75,14 @@ class CsvFormatBuilder implements CsvFormat {
         this.format = format;
     }
 
-    public CSVFormat build() {
-        CSVFormat format = newFormat(delimiter = initDelimiter());
-        format = format.withEscape(escape = initEscape());
-        format = format.withCommentMarker(commentMarker = initCommentMarker());
-        format = format.withRecordSeparator(lineSeparator = initLineSeparator());
+    public CsvFormatBuilder build() {
+        delimiter = initDelimiter();
+        escape = initEscape();
+        commentMarker = initCommentMarker();
+        lineSeparator = initLineSeparator();
         quote = initQuote();
         quoting = initQuoting();
-        if (quoting) {
-            format = format.withQuoteMode(QuoteMode.MINIMAL);
-            format = format.withQuote(quote);
-        }
-        return format;
+        return this;
     }
 
     protected Character initEscape() {
@@ -153,6 +153,27 @@ class CsvFormatBuilder implements CsvFormat {
         return COMMENT_MARKER;
     }
 
+    /**
+     * Chunk can be split if line breaks and meta chars take a single byte each
+     * and can't be a part of a multi byte char, so that the chunk can be
+     * scanned as ISO-8859-1 text, where char offsets are the byte offsets.
+     */
+    public boolean isSplittable() {
+        String chars = META_CHARS + lineSeparator + delimiter + escape + quote + commentMarker;
+        Charset charset = forName((String) format.getAttribute(ATTRIBUTE_ENCODING, ENCODING));
+        return isAscii(chars) && (charset.equals(UTF_8) || charset.newEncoder().maxBytesPerChar() == 1)
+                && Arrays.equals(chars.getBytes(charset), chars.getBytes(ISO_8859_1));
+    }
+
+    protected static boolean isAscii(String chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            if (chars.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public Character getDelimiter() {
         return delimiter;
     }
@@ -29,11 +29,11 @@ package com.nuodb.migrator.backup.format.csv;
 
 import com.nuodb.migrator.backup.format.InputBase;
 import com.nuodb.migrator.backup.format.InputException;
+import com.nuodb.migrator.backup.format.InputRange;
+import com.nuodb.migrator.backup.format.SplittableInput;
 import com.nuodb.migrator.backup.format.value.Value;
+import com.nuodb.migrator.backup.format.value.ValueSlot;
 import com.nuodb.migrator.backup.format.value.ValueType;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
@@ -41,23 +41,25 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
-import java.util.Iterator;
 import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.nuodb.migrator.backup.format.utils.BinaryEncoder.BASE64;
+import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
 import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
 import static com.nuodb.migrator.backup.format.value.ValueUtils.*;
 import static java.lang.String.valueOf;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.apache.commons.lang3.ArrayUtils.EMPTY_BYTE_ARRAY;
 
 /**
  * @author Sergey Bushik
  */
-public class CsvInput extends InputBase implements CsvFormat {
+public class CsvInput extends InputBase implements CsvFormat, SplittableInput {
 
     private String doubleQuote;
-    private Iterator<CSVRecord> iterator;
-    private CSVParser parser;
+    private CsvReader csvReader;
+    private InputRange inputRange;
 
     @Override
     public String getFormat() {
@@ -67,7 +69,7 @@ public class CsvInput extends InputBase implements CsvFormat {
     @Override
     protected void init(InputStream inputStream) {
         try {
-            init(new InputStreamReader(getInputStream(), (String) getAttribute(ATTRIBUTE_ENCODING, ENCODING)));
+            init(new InputStreamReader(inputStream, (String) getAttribute(ATTRIBUTE_ENCODING, ENCODING)));
         } catch (UnsupportedEncodingException exception) {
             throw new InputException(exception);
         }
@@ -75,41 +77,55 @@ public class CsvInput extends InputBase implements CsvFormat {
 
     @Override
     protected void init(Reader reader) {
-        CsvFormatBuilder builder = new CsvFormatBuilder(this);
-        CSVFormat format = builder.build();
+        CsvFormatBuilder builder = new CsvFormatBuilder(this).build();
         Character quote = builder.getQuote();
-
         doubleQuote = valueOf(quote) + valueOf(quote);
-        try {
-            parser = new CSVParser(reader, format);
-            iterator = parser.iterator();
-        } catch (IOException exception) {
-            throw new InputException(exception);
-        }
+        csvReader = new CsvReader(reader, builder);
     }
 
+    /**
+     * Skips the header, ranges hold rows only.
+     */
     @Override
     public void readStart() {
-        if (iterator.hasNext()) {
-            iterator.next();
+        if (inputRange == null) {
+            readRecord();
         }
     }
 
     @Override
     public Value[] readValues() {
-        return iterator.hasNext() ? readRow() : null;
+        return readRecord() ? readRow() : null;
+    }
+
+    protected boolean readRecord() {
+        try {
+            return csvReader.readRecord();
+        } catch (IOException exception) {
+            throw new InputException(exception);
+        }
     }
 
+    /**
+     * Reads values of the current record, the value slots are refilled if the
+     * values are reused.
+     */
     protected Value[] readRow() {
-        CSVRecord record = iterator.next();
         List<ValueType> valueTypes = getValueTypes();
+        ValueSlot[] valueSlots = getValueSlots();
+        if (valueSlots != null) {
+            return readRow(valueSlots, valueTypes);
+        }
         Value[] values = new Value[valueTypes.size()];
-        int index = 0;
-        for (String value : newArrayList(record.iterator())) {
-            if (doubleQuote.equals(value)) {
-                value = StringUtils.EMPTY;
-            } else if (value != null && value.length() == 0) {
+        int fields = csvReader.getFieldCount();
+        for (int index = 0; index < fields; index++) {
+            String value;
+            if (csvReader.getFieldLength(index) == 0) {
                 value = null;
+            } else if (csvReader.isField(index, doubleQuote)) {
+                value = StringUtils.EMPTY;
+            } else {
+                value = csvReader.getField(index);
             }
             ValueType type = valueTypes.get(index);
             type = type != null ? type : STRING;
@@ -117,29 +133,103 @@ public class CsvInput extends InputBase implements CsvFormat {
             case BINARY:
                 values[index] = binary(BASE64.decode(value));
                 break;
-            case STRING:
+            default:
                 values[index] = string(value);
                 break;
             }
-            index++;
         }
-        fill(values, valueTypes, index);
+        fill(values, valueTypes, fields);
         return values;
     }
 
+    /**
+     * Copies chars of the fields to the value slots, so that no strings are
+     * created until the values are asked for.
+     */
+    protected Value[] readRow(ValueSlot[] valueSlots, List<ValueType> valueTypes) {
+        char[] content = csvReader.getContent();
+        int fields = csvReader.getFieldCount();
+        for (int index = 0; index < fields; index++) {
+            ValueSlot valueSlot = valueSlots[index];
+            ValueType type = valueTypes.get(index);
+            type = type != null ? type : STRING;
+            int length = csvReader.getFieldLength(index);
+            if (length == 0) {
+                valueSlot.setNull(type);
+            } else if (csvReader.isField(index, doubleQuote)) {
+                if (type == BINARY) {
+                    valueSlot.setBinary(EMPTY_BYTE_ARRAY);
+                } else {
+                    valueSlot.setString(StringUtils.EMPTY);
+                }
+            } else if (type == BINARY) {
+                valueSlot.setBinary(content, csvReader.getFieldStart(index), length, BASE64);
+            } else {
+                valueSlot.setString(content, csvReader.getFieldStart(index), length);
+            }
+        }
+        for (int index = fields; index < valueSlots.length; index++) {
+            valueSlots[index].setNull(valueTypes.get(index));
+        }
+        return valueSlots;
+    }
+
+    @Override
+    public boolean isSplittable() {
+        return new CsvFormatBuilder(this).build().isSplittable();
+    }
+
+    @Override
+    public List<InputRange> split(long size) {
+        CsvReader csvReader = new CsvReader(new InputStreamReader(getInputStream(), ISO_8859_1),
+                new CsvFormatBuilder(this).build());
+        List<InputRange> inputRanges = newArrayList();
+        try {
+            csvReader.readRecord();
+            long offset = csvReader.getOffset();
+            long row = 0;
+            long rows = 0;
+            while (csvReader.readRecord()) {
+                rows++;
+                long length = csvReader.getOffset() - offset;
+                if (length >= size) {
+                    inputRanges.add(new InputRange(offset, length, row, rows - row));
+                    offset += length;
+                    row = rows;
+                }
+            }
+            if (rows > row) {
+                inputRanges.add(new InputRange(offset, csvReader.getOffset() - offset, row, rows - row));
+            }
+        } catch (IOException exception) {
+            throw new InputException(exception);
+        }
+        return inputRanges;
+    }
+
+    @Override
+    public InputRange getInputRange() {
+        return inputRange;
+    }
+
+    @Override
+    public void setInputRange(InputRange inputRange) {
+        this.inputRange = inputRange;
+    }
+
     @Override
     public void readEnd() {
     }
 
     @Override
     public void close() {
-        if (parser != null) {
+        if (csvReader != null) {
             try {
-                parser.close();
+                csvReader.close();
             } catch (IOException exception) {
                 throw new InputException(exception);
             }
-            parser = null;
+            csvReader = null;
         }
     }
 }
@@ -30,29 +30,33 @@ package com.nuodb.migrator.backup.format.csv;
 import com.nuodb.migrator.backup.Column;
 import com.nuodb.migrator.backup.format.OutputBase;
 import com.nuodb.migrator.backup.format.OutputException;
+import com.nuodb.migrator.backup.format.SplittableOutput;
+import com.nuodb.migrator.backup.format.value.LobValue;
 import com.nuodb.migrator.backup.format.value.Value;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
+import com.nuodb.migrator.backup.format.value.ValueType;
+import com.nuodb.migrator.utils.CountingOutputStream;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.Writer;
-import java.util.Collection;
 
-import static com.google.common.collect.Iterables.get;
 import static com.nuodb.migrator.backup.format.utils.BinaryEncoder.BASE64;
+import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
 import static java.lang.String.valueOf;
 import static java.nio.charset.Charset.forName;
+import static org.apache.commons.io.IOUtils.closeQuietly;
 
 /**
  * @author Sergey Bushik
  */
 @SuppressWarnings("unchecked")
-public class CsvOutput extends OutputBase implements CsvFormat {
+public class CsvOutput extends OutputBase implements CsvFormat, SplittableOutput {
 
     private String doubleQuote;
-    private CSVPrinter csvPrinter;
+    private CsvWriter csvWriter;
+    private CountingOutputStream offsetOutput;
 
     @Override
     public String getFormat() {
@@ -61,28 +65,24 @@ public class CsvOutput extends OutputBase implements CsvFormat {
 
     @Override
     protected void init(OutputStream outputStream) {
+        outputStream = offsetOutput = new CountingOutputStream(outputStream);
         init(new OutputStreamWriter(outputStream, forName((String) getAttribute(ATTRIBUTE_ENCODING, ENCODING))));
     }
 
     @Override
     protected void init(Writer writer) {
-        CsvFormatBuilder builder = new CsvFormatBuilder(this);
-        CSVFormat format = builder.build();
+        CsvFormatBuilder builder = new CsvFormatBuilder(this).build();
         doubleQuote = valueOf(builder.getQuote()) + valueOf(builder.getQuote());
-        try {
-            csvPrinter = new CSVPrinter(wrapWriter(writer), format);
-        } catch (IOException exception) {
-            throw new OutputException(exception);
-        }
+        csvWriter = new CsvWriter(wrapWriter(writer), builder);
     }
 
     @Override
     public void writeStart() {
         try {
             for (Column column : getRowSet().getColumns()) {
-                csvPrinter.print(column.getName());
+                csvWriter.write(column.getName());
             }
-            csvPrinter.println();
+            csvWriter.writeRecordEnd();
         } catch (IOException exception) {
             throw new OutputException(exception);
         }
@@ -91,34 +91,67 @@ public class CsvOutput extends OutputBase implements CsvFormat {
     @Override
     public void writeValues(Value[] values) {
         try {
-            String[] record = new String[values.length];
-            Collection<Column> columns = getRowSet().getColumns();
+            ValueType[] valueTypes = getValueTypes();
             for (int i = 0; i < values.length; i++) {
+                if (isSpilled(values[i])) {
+                    writeSpilled((LobValue) values[i], valueTypes[i]);
+                    continue;
+                }
                 String value = null;
-                switch (get(columns, i).getValueType()) {
+                switch (valueTypes[i]) {
                 case BINARY:
                     value = BASE64.encode(values[i].asBytes());
                     break;
-                case STRING:
+                default:
                     value = values[i].asString();
                     break;
                 }
                 if (value != null && value.length() == 0) {
                     value = doubleQuote;
                 }
-                record[i] = value;
+                csvWriter.write(value);
             }
-            csvPrinter.printRecord(record);
+            csvWriter.writeRecordEnd();
+        } catch (IOException exception) {
+            throw new OutputException(exception);
+        }
+    }
+
+    /**
+     * Streams content of a large object spilled to a file into the writer, binary content is encoded as it's read
+     */
+    protected void writeSpilled(LobValue value, ValueType valueType) throws IOException {
+        Reader reader = valueType == BINARY ? value.openBase64Reader() : value.openReader();
+        try {
+            csvWriter.write(reader);
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    @Override
+    public boolean isSplittable() {
+        return new CsvFormatBuilder(this).build().isSplittable();
+    }
+
+    /**
+     * Encodes buffered chars, so that their bytes are counted.
+     */
+    @Override
+    public long getOffset() {
+        try {
+            csvWriter.flush();
         } catch (IOException exception) {
             throw new OutputException(exception);
         }
+        return offsetOutput.getCount();
     }
 
     @Override
     public void writeEnd() {
         try {
-            if (csvPrinter != null) {
-                csvPrinter.flush();
+            if (csvWriter != null) {
+                csvWriter.flush();
             }
         } catch (IOException exception) {
             throw new OutputException(exception);
@@ -127,13 +160,13 @@ public class CsvOutput extends OutputBase implements CsvFormat {
 
     @Override
     public void close() {
-        if (csvPrinter != null) {
+        if (csvWriter != null) {
             try {
-                csvPrinter.close();
+                csvWriter.close();
             } catch (IOException exception) {
                 throw new OutputException(exception);
             }
-            csvPrinter = null;
+            csvWriter = null;
         }
     }
 }
@@ -0,0 +1,356 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import static java.lang.Character.isWhitespace;
+import static java.lang.String.format;
+import static java.util.Arrays.copyOf;
+
+/**
+ * Reads records from a char buffer filled from the underlying reader in bulk.
+ * Field contents are unescaped into a single record buffer and strings are
+ * created only for the fields requested by the caller. Follows the rules of
+ * commons-csv 1.1 the backups were written with: any of CR, LF or CRLF ends a
+ * record, a line starting with a comment marker is skipped, an escape followed
+ * by r, n, t, b or f is a control char, an escape followed by any other meta
+ * char is the char itself.
+ *
+ * @author Sergey Bushik
+ */
+class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int EOF = -1;
+    private static final int UNDEFINED = -2;
+    private static final int DISABLED = -3;
+
+    private static final int LF = '\n';
+    private static final int CR = '\r';
+    private static final int TAB = '\t';
+    private static final int BACKSPACE = '\b';
+    private static final int FF = '\f';
+
+    private static final int TOKEN = 0;
+    private static final int RECORD_END = 1;
+    private static final int FILE_END = 2;
+    private static final int FILE_END_READY = 3;
+    private static final int COMMENT = 4;
+
+    private final Reader reader;
+    private final int delimiter;
+    private final int escape;
+    private final int quote;
+    private final int commentMarker;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long filled;
+    private int lastChar = UNDEFINED;
+
+    private char[] content = new char[256];
+    private int length;
+    private int[] ends = new int[16];
+    private int fields;
+    private long records;
+
+    public CsvReader(Reader reader, CsvFormatBuilder builder) {
+        this.reader = reader;
+        this.delimiter = builder.getDelimiter();
+        this.escape = builder.getEscape();
+        this.quote = builder.isQuoting() ? builder.getQuote() : DISABLED;
+        this.commentMarker = builder.getCommentMarker();
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return true if record is read, false if the end of the input is
+     *         reached.
+     */
+    public boolean readRecord() throws IOException {
+        length = 0;
+        fields = 0;
+        int type;
+        do {
+            type = readToken();
+            switch (type) {
+            case TOKEN:
+            case RECORD_END:
+            case FILE_END_READY:
+                addField();
+                break;
+            case COMMENT:
+                type = TOKEN;
+                break;
+            default:
+            }
+        } while (type == TOKEN);
+        if (fields > 0) {
+            records++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns number of chars consumed, which is the offset of the next record
+     * after a record is read.
+     *
+     * @return number of chars read by the reader.
+     */
+    public long getOffset() {
+        return filled + position;
+    }
+
+    public int getFieldCount() {
+        return fields;
+    }
+
+    public int getFieldLength(int field) {
+        return ends[field] - getFieldStart(field);
+    }
+
+    /**
+     * Compares content of the field with the provided value without creating
+     * a string.
+     */
+    public boolean isField(int field, String value) {
+        int start = getFieldStart(field);
+        if (ends[field] - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (content[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getField(int field) {
+        int start = getFieldStart(field);
+        return new String(content, start, ends[field] - start);
+    }
+
+    /**
+     * Returns chars of the current record, which are overwritten by the next
+     * record, the field occupies chars from {@link #getFieldStart(int)} up to
+     * its length.
+     */
+    public char[] getContent() {
+        return content;
+    }
+
+    public int getFieldStart(int field) {
+        return field > 0 ? ends[field - 1] : 0;
+    }
+
+    protected void addField() {
+        if (fields == ends.length) {
+            ends = copyOf(ends, fields * 2);
+        }
+        ends[fields++] = length;
+    }
+
+    protected int readToken() throws IOException {
+        int last = lastChar;
+        int c = read();
+        boolean eol = readLineEnd(c);
+        if (last == EOF || (last != delimiter && c == EOF)) {
+            return FILE_END;
+        }
+        if ((last == LF || last == CR || last == UNDEFINED) && c == commentMarker) {
+            return skipLine() ? COMMENT : FILE_END;
+        }
+        if (c == delimiter) {
+            return TOKEN;
+        } else if (eol) {
+            return RECORD_END;
+        } else if (c == quote) {
+            return readQuotedToken();
+        } else if (c == EOF) {
+            return FILE_END_READY;
+        } else {
+            return readSimpleToken(c);
+        }
+    }
+
+    protected int readSimpleToken(int c) throws IOException {
+        while (true) {
+            if (readLineEnd(c)) {
+                return RECORD_END;
+            } else if (c == EOF) {
+                return FILE_END_READY;
+            } else if (c == delimiter) {
+                return TOKEN;
+            } else if (c == escape) {
+                appendEscaped(c);
+            } else {
+                append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    protected int readQuotedToken() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == escape) {
+                appendEscaped(c);
+            } else if (c == quote) {
+                if (peek() == quote) {
+                    append((char) read());
+                } else {
+                    // skips white space after the closing quote
+                    while (true) {
+                        c = read();
+                        if (c == delimiter) {
+                            return TOKEN;
+                        } else if (c == EOF) {
+                            return FILE_END_READY;
+                        } else if (readLineEnd(c)) {
+                            return RECORD_END;
+                        } else if (!isWhitespace((char) c)) {
+                            throw new IOException(
+                                    format("(record %d) invalid char between quoted value and delimiter", records + 1));
+                        }
+                    }
+                }
+            } else if (c == EOF) {
+                throw new IOException(format("(record %d) EOF reached before quoted value finished", records + 1));
+            } else {
+                append((char) c);
+            }
+        }
+    }
+
+    protected void appendEscaped(int escape) throws IOException {
+        int c = read();
+        switch (c) {
+        case 'r':
+            append((char) CR);
+            break;
+        case 'n':
+            append((char) LF);
+            break;
+        case 't':
+            append((char) TAB);
+            break;
+        case 'b':
+            append((char) BACKSPACE);
+            break;
+        case 'f':
+            append((char) FF);
+            break;
+        case CR:
+        case LF:
+        case FF:
+        case TAB:
+        case BACKSPACE:
+            append((char) c);
+            break;
+        case EOF:
+            throw new IOException("EOF whilst processing escape sequence");
+        default:
+            if (c != delimiter && c != this.escape && c != quote && c != commentMarker) {
+                // not an escape sequence, both chars are kept
+                append((char) escape);
+            }
+            append((char) c);
+        }
+    }
+
+    protected boolean readLineEnd(int c) throws IOException {
+        if (c == CR && peek() == LF) {
+            c = read();
+        }
+        return c == LF || c == CR;
+    }
+
+    /**
+     * Skips the rest of the line.
+     *
+     * @return false if the end of the input is reached right away.
+     */
+    protected boolean skipLine() throws IOException {
+        int c = read();
+        if (c == EOF) {
+            return false;
+        }
+        while (c != EOF && !readLineEnd(c)) {
+            c = read();
+        }
+        lastChar = LF;
+        return true;
+    }
+
+    protected void append(char c) {
+        if (length == content.length) {
+            content = copyOf(content, length * 2);
+        }
+        content[length++] = c;
+    }
+
+    protected int read() throws IOException {
+        if (position == limit && !fill()) {
+            return lastChar = EOF;
+        }
+        return lastChar = buffer[position++];
+    }
+
+    protected int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position];
+    }
+
+    protected boolean fill() throws IOException {
+        int read;
+        do {
+            read = reader.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        filled += limit;
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.csv;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Writes records to a char buffer, which is passed to the underlying writer
+ * in bulk. Produces output readable by {@link CsvReader}: special chars are
+ * escaped or, if quoting is enabled, values are quoted using the minimal
+ * quote rules.
+ *
+ * @author Sergey Bushik
+ */
+class CsvWriter implements Flushable, Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int READ_SIZE = 1 << 13;
+
+    private static final char LF = '\n';
+    private static final char CR = '\r';
+    private static final char SP = ' ';
+
+    private final Writer writer;
+    private final char delimiter;
+    private final char escape;
+    private final char quote;
+    private final char commentMarker;
+    private final boolean quoting;
+    private final char[] lineSeparator;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private boolean newRecord = true;
+
+    public CsvWriter(Writer writer, CsvFormatBuilder builder) {
+        this.writer = writer;
+        this.delimiter = builder.getDelimiter();
+        this.escape = builder.getEscape();
+        this.quote = builder.getQuote();
+        this.commentMarker = builder.getCommentMarker();
+        this.quoting = builder.isQuoting();
+        this.lineSeparator = builder.getLineSeparator().toCharArray();
+    }
+
+    /**
+     * Writes value of the next field of the current record, null is written as
+     * an empty field.
+     *
+     * @param value
+     *            field value or null.
+     */
+    public void write(String value) throws IOException {
+        if (!newRecord) {
+            append(delimiter);
+        }
+        if (value == null) {
+            value = "";
+        }
+        if (quoting && isQuote(value)) {
+            writeQuoted(value);
+        } else {
+            writeEscaped(value);
+        }
+        newRecord = false;
+    }
+
+    public void writeRecordEnd() throws IOException {
+        for (char c : lineSeparator) {
+            append(c);
+        }
+        newRecord = true;
+    }
+
+    /**
+     * Minimal quote rules, empty first field is quoted so that the record is
+     * not taken for an empty line.
+     */
+    protected boolean isQuote(String value) {
+        int length = value.length();
+        if (length == 0) {
+            return newRecord;
+        }
+        char c = value.charAt(0);
+        if (newRecord && (c < '0' || c > '9' && c < 'A' || c > 'Z' && c < 'a' || c > 'z')) {
+            return true;
+        }
+        if (c <= commentMarker) {
+            return true;
+        }
+        for (int i = 0; i < length; i++) {
+            c = value.charAt(i);
+            if (c == LF || c == CR || c == quote || c == delimiter) {
+                return true;
+            }
+        }
+        return value.charAt(length - 1) <= SP;
+    }
+
+    /**
+     * Writes value of the next field of the current record read from a
+     * reader, so that a large value is never held in heap. The value can't be
+     * checked against quote rules in advance, so it's always quoted if quoting
+     * is enabled.
+     *
+     * @param reader
+     *            of field value.
+     */
+    public void write(Reader reader) throws IOException {
+        if (!newRecord) {
+            append(delimiter);
+        }
+        if (quoting) {
+            append(quote);
+        }
+        char[] chars = new char[READ_SIZE];
+        int offset = 0;
+        int count;
+        while ((count = reader.read(chars)) >= 0) {
+            for (int i = 0; i < count; i++, offset++) {
+                if (quoting) {
+                    appendQuoted(chars[i]);
+                } else {
+                    appendEscaped(chars[i], offset == 0);
+                }
+            }
+        }
+        if (quoting) {
+            append(quote);
+        }
+        newRecord = false;
+    }
+
+    protected void writeQuoted(String value) throws IOException {
+        append(quote);
+        for (int i = 0, length = value.length(); i < length; i++) {
+            appendQuoted(value.charAt(i));
+        }
+        append(quote);
+    }
+
+    /**
+     * Escapes line breaks, delimiters, escapes and a comment marker at the
+     * start of a record, which would otherwise be read as a comment line.
+     */
+    protected void writeEscaped(String value) throws IOException {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            appendEscaped(value.charAt(i), i == 0);
+        }
+    }
+
+    protected void appendQuoted(char c) throws IOException {
+        if (c == quote) {
+            append(quote);
+        } else if (c == escape) {
+            append(escape);
+        }
+        append(c);
+    }
+
+    protected void appendEscaped(char c, boolean first) throws IOException {
+        if (c == LF) {
+            append(escape);
+            append('n');
+        } else if (c == CR) {
+            append(escape);
+            append('r');
+        } else if (c == delimiter || c == escape || (c == commentMarker && newRecord && first)) {
+            append(escape);
+            append(c);
+        } else {
+            append(c);
+        }
+    }
+
+    protected void append(char c) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = c;
+    }
+
+    protected void flushBuffer() throws IOException {
+        if (position > 0) {
+            writer.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            writer.close();
+        }
+    }
+}
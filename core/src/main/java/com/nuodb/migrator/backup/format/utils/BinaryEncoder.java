@@ -30,8 +30,8 @@ package com.nuodb.migrator.backup.format.utils;
 import com.nuodb.migrator.backup.format.value.ValueFormatException;
 import org.apache.commons.codec.DecoderException;
 
-import static org.apache.commons.codec.binary.Base64.decodeBase64;
-import static org.apache.commons.codec.binary.Base64.encodeBase64;
+import java.util.Base64;
+
 import static org.apache.commons.codec.binary.Hex.decodeHex;
 import static org.apache.commons.codec.binary.Hex.encodeHex;
 
@@ -56,15 +56,23 @@ public abstract class BinaryEncoder {
         }
     };
 
+    /**
+     * Base64 codec of the JDK, which doesn't allocate a working buffer per
+     * value unlike the commons codec. Decoder skips characters outside of the
+     * alphabet, such as line separators, as the commons codec does.
+     */
     public static final BinaryEncoder BASE64 = new BinaryEncoder() {
+        private final Base64.Encoder encoder = Base64.getEncoder();
+        private final Base64.Decoder decoder = Base64.getMimeDecoder();
+
         @Override
         public String encode(byte[] value) {
-            return value != null ? new String(encodeBase64(value)) : null;
+            return value != null ? encoder.encodeToString(value) : null;
         }
 
         @Override
         public byte[] decode(String value) {
-            return value != null ? decodeBase64(value) : null;
+            return value != null ? decoder.decode(value) : null;
         }
     };
 
@@ -30,6 +30,7 @@ package com.nuodb.migrator.backup.format.utils;
 import java.util.BitSet;
 
 import static com.nuodb.migrator.backup.format.utils.BinaryEncoder.HEX;
+import static java.util.Arrays.fill;
 
 /**
  * @author Sergey Bushik
@@ -48,6 +49,25 @@ public class BitSetUtils {
         return bytes;
     }
 
+    /**
+     * Writes bits to the provided buffer reused between rows.
+     *
+     * @param bits
+     *            bits to write.
+     * @param bytes
+     *            buffer large enough to hold all the bits.
+     * @return number of bytes written, which equals to the length of the array
+     *         returned by {@link #toByteArray(BitSet)}.
+     */
+    public static int toByteArray(BitSet bits, byte[] bytes) {
+        int length = (bits.length() + 7) / 8;
+        fill(bytes, 0, length, (byte) 0);
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            bytes[i / 8] |= 1 << (i % 8);
+        }
+        return length;
+    }
+
     public static BitSet fromByteArray(byte[] bytes) {
         int length = bytes.length * 8;
         BitSet bits = new BitSet(length);
@@ -38,7 +38,8 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Map;
 
-import static com.nuodb.migrator.backup.format.value.ValueUtils.string;
+import static com.nuodb.migrator.backup.format.value.ValueType.TIMESTAMP;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.timestamp;
 import static java.lang.String.format;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 
@@ -51,8 +52,7 @@ public class JdbcTimestampValueFormat extends ValueFormatBase<Timestamp> {
 
     @Override
     protected Value doGetValue(JdbcValueAccess<Timestamp> access, Map<String, Object> options) throws SQLException {
-        Timestamp timestamp = access.getValue(options);
-        return string(timestamp != null ? timestamp.toString() : null);
+        return timestamp(access.getValue(options));
     }
 
     @Override
@@ -66,6 +66,10 @@ public class JdbcTimestampValueFormat extends ValueFormatBase<Timestamp> {
 
     protected boolean doSetValueAsTimestamp(Value variant, JdbcValueAccess<Timestamp> access,
             Map<String, Object> options) throws SQLException {
+        if (variant.getValueType() == TIMESTAMP) {
+            access.setValue(variant.asTimestamp(), options);
+            return true;
+        }
         try {
             String value = variant.asString();
             access.setValue(!isEmpty(value) ? Timestamp.valueOf(value) : null, options);
@@ -27,22 +27,33 @@
  */
 package com.nuodb.migrator.backup.format.value;
 
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Shorts;
 import com.nuodb.migrator.jdbc.model.Field;
 import com.nuodb.migrator.jdbc.type.JdbcValueAccess;
+import com.nuodb.migrator.jdbc.type.StreamBlob;
+import com.nuodb.migrator.jdbc.type.StreamClob;
 
 import javax.sql.rowset.serial.SerialRef;
 import java.io.*;
-import java.math.BigDecimal;
 import java.net.URL;
+import java.sql.Blob;
+import java.sql.Clob;
 import java.sql.Ref;
 import java.sql.RowId;
 import java.sql.Types;
 import java.util.Map;
 
+import static com.nuodb.migrator.backup.format.value.LobBuffer.getLobBuffer;
 import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
+import static com.nuodb.migrator.backup.format.value.ValueType.DOUBLE;
 import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.BINARY_NULL;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.STRING_NULL;
 import static com.nuodb.migrator.backup.format.value.ValueUtils.binary;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.isEmpty;
 import static com.nuodb.migrator.backup.format.value.ValueUtils.string;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.value;
 import static java.lang.String.format;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
@@ -68,8 +79,7 @@ public class JdbcValueFormat extends ValueFormatBase<Object> {
         case Types.DOUBLE:
         case Types.NUMERIC:
         case Types.DECIMAL:
-            result = access.getValue(options);
-            value = string(result != null ? result.toString() : null);
+            value = value(access.getValue(options));
             break;
         case Types.CHAR:
         case Types.VARCHAR:
@@ -83,7 +93,13 @@ public class JdbcValueFormat extends ValueFormatBase<Object> {
         case Types.VARBINARY:
         case Types.LONGVARBINARY:
         case Types.BLOB:
-            value = binary(access.getValue(byte[].class, options));
+            LobBuffer blobBuffer = getLobBuffer(options);
+            if (blobBuffer != null) {
+                Blob blob = access.getValue(Blob.class, options);
+                value = blob != null ? blobBuffer.binary(blob) : BINARY_NULL;
+            } else {
+                value = binary(access.getValue(byte[].class, options));
+            }
             break;
         case Types.OTHER:
         case Types.JAVA_OBJECT:
@@ -93,7 +109,13 @@ public class JdbcValueFormat extends ValueFormatBase<Object> {
             break;
         case Types.CLOB:
         case Types.NCLOB:
-            value = string(access.getValue(String.class, options));
+            LobBuffer clobBuffer = getLobBuffer(options);
+            if (clobBuffer != null) {
+                Clob clob = access.getValue(Clob.class, options);
+                value = clob != null ? clobBuffer.string(clob) : STRING_NULL;
+            } else {
+                value = string(access.getValue(String.class, options));
+            }
             break;
         case Types.REF:
             result = access.getValue(options);
@@ -104,8 +126,7 @@ public class JdbcValueFormat extends ValueFormatBase<Object> {
             value = string(result != null ? result.toString() : null);
             break;
         case Types.BOOLEAN:
-            result = access.getValue(options);
-            value = string(result != null ? result.toString() : null);
+            value = value(access.getValue(options));
             break;
         case Types.ROWID:
             result = access.getValue(options);
@@ -125,32 +146,40 @@ public class JdbcValueFormat extends ValueFormatBase<Object> {
     protected void doSetValue(Value value, JdbcValueAccess<Object> access, Map<String, Object> options)
             throws Exception {
         Field field = access.getField();
+        switch (field.getTypeCode()) {
+        case Types.BLOB:
+        case Types.CLOB:
+        case Types.NCLOB:
+            setLobValue(value, access, options);
+            return;
+        default:
+        }
         final String result = value.asString();
         switch (field.getTypeCode()) {
         case Types.BIT:
         case Types.BOOLEAN:
-            access.setValue(!isEmpty(result) ? Boolean.parseBoolean(result) : null, options);
+            access.setValue(!isEmpty(value) ? value.asBoolean() : null, options);
             break;
         case Types.TINYINT:
         case Types.SMALLINT:
-            access.setValue(!isEmpty(result) ? Short.parseShort(result) : null, options);
+            access.setValue(!isEmpty(value) ? Shorts.checkedCast(value.asLong()) : null, options);
             break;
         case Types.INTEGER:
-            access.setValue(!isEmpty(result) ? Integer.parseInt(result) : null, options);
+            access.setValue(!isEmpty(value) ? Ints.checkedCast(value.asLong()) : null, options);
             break;
         case Types.BIGINT:
-            access.setValue(!isEmpty(result) ? Long.parseLong(result) : null, options);
+            access.setValue(!isEmpty(value) ? value.asLong() : null, options);
             break;
         case Types.FLOAT:
         case Types.REAL:
-            access.setValue(!isEmpty(result) ? Float.parseFloat(result) : null, options);
+            access.setValue(!isEmpty(value) ? asFloat(value) : null, options);
             break;
         case Types.DOUBLE:
-            access.setValue(!isEmpty(result) ? Double.parseDouble(result) : null, options);
+            access.setValue(!isEmpty(value) ? value.asDouble() : null, options);
             break;
         case Types.NUMERIC:
         case Types.DECIMAL:
-            access.setValue(!isEmpty(result) ? new BigDecimal(result) : null, options);
+            access.setValue(!isEmpty(value) ? value.asDecimal() : null, options);
             break;
         case Types.CHAR:
         case Types.VARCHAR:
@@ -170,15 +199,6 @@ public class JdbcValueFormat extends ValueFormatBase<Object> {
         case Types.STRUCT:
             access.setValue(read(value.asBytes()), options);
             break;
-        case Types.BLOB:
-            access.setValue(value.asBytes(), options);
-            break;
-        case Types.CLOB:
-            access.setValue(result, options);
-            break;
-        case Types.NCLOB:
-            access.setValue(result, options);
-            break;
         case Types.REF:
             access.setValue(!isEmpty(result) ? read(value.asBytes()) : null, options);
             break;
@@ -194,6 +214,33 @@ public class JdbcValueFormat extends ValueFormatBase<Object> {
         }
     }
 
+    /**
+     * Binds large object as a stream, so that the content is not copied to a large object created by the driver.
+     * Large object value spilled to a file by {@link LobBuffer} is streamed from the file, while a value read from the
+     * backup is held in heap whole, as input formats read every field of a row into memory.
+     */
+    protected void setLobValue(Value value, JdbcValueAccess<Object> access, Map<String, Object> options)
+            throws Exception {
+        if (value.isNull()) {
+            access.setValue(null, options);
+        } else if (value instanceof LobValue) {
+            LobValue lobValue = (LobValue) value;
+            access.setValue(access.getField().getTypeCode() == Types.BLOB
+                    ? new StreamBlob(lobValue.openStream(), lobValue.getLength())
+                    : new StreamClob(lobValue.openReader(), lobValue.getLength()), options);
+        } else if (access.getField().getTypeCode() == Types.BLOB) {
+            byte[] bytes = value.asBytes();
+            access.setValue(new StreamBlob(new ByteArrayInputStream(bytes), bytes.length), options);
+        } else {
+            String string = value.asString();
+            access.setValue(new StreamClob(new StringReader(string), string.length()), options);
+        }
+    }
+
+    protected float asFloat(Value value) {
+        return value.getValueType() == DOUBLE ? (float) value.asDouble() : Float.parseFloat(value.asString().trim());
+    }
+
     protected byte[] write(Object object) throws IOException {
         if (object == null) {
             return null;
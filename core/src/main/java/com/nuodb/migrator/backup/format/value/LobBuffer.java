@@ -0,0 +1,272 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.value;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.io.ByteStreams.copy;
+import static com.google.common.io.ByteStreams.readFully;
+import static com.google.common.io.CharStreams.copy;
+import static com.nuodb.migrator.backup.format.value.LobValue.UTF_8;
+import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
+import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
+import static java.lang.Long.parseLong;
+import static java.lang.String.format;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Reads large objects of a single worker into values. Objects of a known length not exceeding spill threshold are
+ * read into exactly sized arrays while heap held by not yet written values fits a heap budget, other objects are
+ * streamed to temporary files, which are removed once values are written to the backup.
+ *
+ * @author Sergey Bushik
+ */
+public class LobBuffer implements Closeable {
+
+    /**
+     * Option holding lob buffer of a worker in the value access options
+     */
+    public static final String LOB_BUFFER = "lob.buffer";
+    /**
+     * Attribute name of the maximum size in bytes of a large object kept in heap, default is 16 MB
+     */
+    public static final String ATTRIBUTE_SPILL_THRESHOLD = "lob.spill.threshold";
+    /**
+     * Attribute name of the maximum size in bytes of large objects held in heap by a worker, default is 128 MB
+     */
+    public static final String ATTRIBUTE_HEAP_BUDGET = "lob.heap.budget";
+
+    public static final long SPILL_THRESHOLD = 16 * 1024 * 1024;
+
+    public static final long HEAP_BUDGET = 128 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final transient Logger logger = getLogger(getClass());
+
+    private final long spillThreshold;
+    private final long heapBudget;
+    private long heapSize;
+    private final Collection<File> files = newArrayList();
+    private final Collection<File> releasedFiles = newArrayList();
+
+    public LobBuffer() {
+        this(SPILL_THRESHOLD, HEAP_BUDGET);
+    }
+
+    public LobBuffer(long spillThreshold, long heapBudget) {
+        this.spillThreshold = spillThreshold;
+        this.heapBudget = heapBudget;
+    }
+
+    public static LobBuffer newLobBuffer(Map<String, Object> attributes) {
+        String spillThreshold = attributes != null ? (String) attributes.get(ATTRIBUTE_SPILL_THRESHOLD) : null;
+        String heapBudget = attributes != null ? (String) attributes.get(ATTRIBUTE_HEAP_BUDGET) : null;
+        return new LobBuffer(isEmpty(spillThreshold) ? SPILL_THRESHOLD : parseLong(spillThreshold),
+                isEmpty(heapBudget) ? HEAP_BUDGET : parseLong(heapBudget));
+    }
+
+    public static LobBuffer getLobBuffer(Map<String, Object> options) {
+        return options != null ? (LobBuffer) options.get(LOB_BUFFER) : null;
+    }
+
+    /**
+     * Reads content of a binary large object into a value and frees the object, so that resources held by the
+     * driver are released without waiting for the result set to be closed
+     */
+    public Value binary(Blob blob) throws IOException, SQLException {
+        try {
+            return binary(blob.getBinaryStream(), blob.length());
+        } finally {
+            free(blob);
+        }
+    }
+
+    /**
+     * Reads content of a character large object into a value and frees the object
+     */
+    public Value string(Clob clob) throws IOException, SQLException {
+        try {
+            return string(clob.getCharacterStream(), clob.length());
+        } finally {
+            free(clob);
+        }
+    }
+
+    protected void free(Blob blob) {
+        try {
+            blob.free();
+        } catch (SQLException exception) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed freeing binary large object", exception);
+            }
+        }
+    }
+
+    protected void free(Clob clob) {
+        try {
+            clob.free();
+        } catch (SQLException exception) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed freeing character large object", exception);
+            }
+        }
+    }
+
+    /**
+     * Reads binary stream of a given length into a value
+     */
+    public Value binary(InputStream input, long length) throws IOException {
+        try {
+            if (reserve(length)) {
+                byte[] bytes = new byte[(int) length];
+                readFully(input, bytes);
+                return LobValue.binary(bytes);
+            }
+            File file = createFile();
+            OutputStream output = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+            try {
+                copy(input, output);
+            } finally {
+                closeQuietly(output);
+            }
+            return LobValue.spilled(BINARY, length, file);
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    /**
+     * Reads character stream of a given length into a value
+     */
+    public Value string(Reader reader, long length) throws IOException {
+        try {
+            if (reserve(length * 2)) {
+                char[] chars = new char[(int) length];
+                int offset = 0;
+                int count;
+                while (offset < length && (count = reader.read(chars, offset, (int) length - offset)) >= 0) {
+                    offset += count;
+                }
+                return LobValue.string(new String(chars, 0, offset));
+            }
+            File file = createFile();
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UTF_8),
+                    BUFFER_SIZE);
+            try {
+                copy(reader, writer);
+            } finally {
+                closeQuietly(writer);
+            }
+            return LobValue.spilled(STRING, length, file);
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    protected synchronized boolean reserve(long size) {
+        if (size <= spillThreshold && size < Integer.MAX_VALUE && heapSize + size <= heapBudget) {
+            heapSize += size;
+            return true;
+        }
+        return false;
+    }
+
+    protected synchronized File createFile() throws IOException {
+        File file = File.createTempFile("lob", ".tmp");
+        file.deleteOnExit();
+        files.add(file);
+        if (logger.isTraceEnabled()) {
+            logger.trace(format("Spilling large object to %s", file.getPath()));
+        }
+        return file;
+    }
+
+    /**
+     * Returns heap held by large object values of a row written to the output
+     *
+     * @param values
+     *            of the row written to the output
+     */
+    public synchronized void release(Value[] values) {
+        for (Value value : values) {
+            if (value instanceof LobValue) {
+                LobValue lobValue = (LobValue) value;
+                if (lobValue.isSpilled()) {
+                    releasedFiles.add(lobValue.getFile());
+                } else {
+                    heapSize -= lobValue.getHeapSize();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes files of released values, should be invoked once output has written all of the released values
+     */
+    public synchronized void flush() {
+        for (File file : releasedFiles) {
+            files.remove(file);
+            file.delete();
+        }
+        releasedFiles.clear();
+    }
+
+    public synchronized long getHeapSize() {
+        return heapSize;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (File file : files) {
+            file.delete();
+        }
+        files.clear();
+        releasedFiles.clear();
+    }
+}
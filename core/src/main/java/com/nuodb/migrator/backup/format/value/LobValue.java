@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.value;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharStreams;
+import org.apache.commons.codec.binary.Base64InputStream;
+import org.apache.commons.io.input.ReaderInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Value of a binary or character large object, which is either held in heap or spilled to a temporary file by
+ * {@link LobBuffer}. Content of a spilled value is read from the file each time it's accessed and can be streamed
+ * with {@link #openStream()} or {@link #openReader()} without materializing it.
+ *
+ * @author Sergey Bushik
+ */
+public class LobValue extends ValueUtils.ValueBase {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    private final ValueType valueType;
+    private final long length;
+    private final byte[] bytes;
+    private final String string;
+    private final File file;
+
+    private LobValue(ValueType valueType, long length, byte[] bytes, String string, File file) {
+        this.valueType = valueType;
+        this.length = length;
+        this.bytes = bytes;
+        this.string = string;
+        this.file = file;
+    }
+
+    public static LobValue binary(byte[] bytes) {
+        return new LobValue(BINARY, bytes.length, bytes, null, null);
+    }
+
+    public static LobValue string(String string) {
+        return new LobValue(ValueType.STRING, string.length(), null, string, null);
+    }
+
+    /**
+     * Creates value spilled to a file, where content of a character object is stored in UTF-8
+     *
+     * @param valueType
+     *            binary or string
+     * @param length
+     *            in bytes for binary and in characters for character object
+     * @param file
+     *            holding content
+     * @return spilled value
+     */
+    public static LobValue spilled(ValueType valueType, long length, File file) {
+        return new LobValue(valueType, length, null, null, file);
+    }
+
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Number of bytes of binary or number of characters of character object
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Number of bytes held in heap by this value
+     */
+    public long getHeapSize() {
+        return bytes != null ? bytes.length : string != null ? string.length() * 2L : 0;
+    }
+
+    public InputStream openStream() throws IOException {
+        if (file != null) {
+            return new BufferedInputStream(new FileInputStream(file));
+        } else {
+            return new ByteArrayInputStream(asBytes());
+        }
+    }
+
+    public Reader openReader() throws IOException {
+        if (file != null) {
+            return new InputStreamReader(openStream(), valueType == BINARY ? Charset.defaultCharset() : UTF_8);
+        } else {
+            return new StringReader(asString());
+        }
+    }
+
+    /**
+     * Opens reader of base64 encoded {@link #asBytes()}, so that a spilled value is encoded while it's read
+     */
+    public Reader openBase64Reader() throws IOException {
+        InputStream stream = valueType == BINARY || bytes != null ? openStream() : new ReaderInputStream(
+                openReader(), Charset.defaultCharset());
+        return new InputStreamReader(new Base64InputStream(stream, true, 0, null), US_ASCII);
+    }
+
+    @Override
+    public boolean isNull() {
+        return false;
+    }
+
+    @Override
+    public String asString() {
+        if (string != null) {
+            return string;
+        } else if (bytes != null) {
+            return new String(bytes);
+        }
+        Reader reader = null;
+        try {
+            return CharStreams.toString(reader = openReader());
+        } catch (IOException exception) {
+            throw new ValueFormatException(exception);
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    @Override
+    public byte[] asBytes() {
+        if (bytes != null) {
+            return bytes;
+        } else if (string != null) {
+            return string.getBytes();
+        } else if (valueType != BINARY) {
+            return asString().getBytes();
+        }
+        InputStream stream = null;
+        try {
+            return ByteStreams.toByteArray(stream = openStream());
+        } catch (IOException exception) {
+            throw new ValueFormatException(exception);
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+
+    @Override
+    public ValueType getValueType() {
+        return valueType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        LobValue that = (LobValue) o;
+
+        if (valueType != that.valueType || length != that.length)
+            return false;
+
+        return valueType == BINARY ? Arrays.equals(asBytes(), that.asBytes()) : asString().equals(that.asString());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = valueType.hashCode();
+        result = 31 * result + (int) (length ^ (length >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Lob{" + valueType + ", " + length + (file != null ? ", " + file : "") + '}';
+    }
+}
@@ -44,6 +44,16 @@ public class Row {
         this.number = number;
     }
 
+    /**
+     * Refills the row read by a reader reusing its rows.
+     */
+    Row reset(Chunk chunk, Value[] values, long number) {
+        this.chunk = chunk;
+        this.values = values;
+        this.number = number;
+        return this;
+    }
+
     public Chunk getChunk() {
         return chunk;
     }
@@ -32,10 +32,19 @@ import com.nuodb.migrator.backup.Chunk;
 import com.nuodb.migrator.backup.RowSet;
 import com.nuodb.migrator.backup.format.FormatFactory;
 import com.nuodb.migrator.backup.format.Input;
+import com.nuodb.migrator.backup.format.InputException;
+import com.nuodb.migrator.backup.format.InputRange;
+import com.nuodb.migrator.backup.format.SplittableInput;
+import org.apache.commons.io.input.BoundedInputStream;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
 
+import static java.lang.String.format;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 
 /**
@@ -48,6 +57,51 @@ public class RowReaders {
         return new SequentialRowReader(rowSet, backupOps, formatFactory, formatAttributes);
     }
 
+    /**
+     * Creates row reader taking whole chunks from the queue shared by several
+     * readers, so that each reader parses its own chunks without locking.
+     *
+     * @param chunks
+     *            lock free queue of chunks shared by readers of the row set.
+     * @return row reader to be used by a single thread.
+     */
+    public static RowReader newChunkQueueRowReader(RowSet rowSet, Queue<Chunk> chunks, BackupOps backupOps,
+            FormatFactory formatFactory, Map<String, Object> formatAttributes) {
+        return new ChunkQueueRowReader(rowSet, chunks, backupOps, formatFactory, formatAttributes, false);
+    }
+
+    /**
+     * Creates row reader taking chunks from the shared queue, which returns the
+     * same row instance refilled on every read if reuse rows is true. Rows can
+     * be reused only if the reader is not shared by threads and the caller is
+     * done with the row before the next one is read.
+     *
+     * @param reuseRows
+     *            true to refill the same row instead of creating a new one.
+     * @return row reader to be used by a single thread.
+     */
+    public static RowReader newChunkQueueRowReader(RowSet rowSet, Queue<Chunk> chunks, BackupOps backupOps,
+            FormatFactory formatFactory, Map<String, Object> formatAttributes, boolean reuseRows) {
+        return new ChunkQueueRowReader(rowSet, chunks, backupOps, formatFactory, formatAttributes, reuseRows);
+    }
+
+    /**
+     * Creates row reader taking ranges of chunks from the queue shared by
+     * several readers, so that a large chunk is decoded by several threads.
+     * Rows are numbered from the first row of the range.
+     *
+     * @param chunkRanges
+     *            lock free queue of chunk ranges shared by readers of the row
+     *            set.
+     * @return row reader to be used by a single thread.
+     */
+    public static RowReader newChunkRangeQueueRowReader(RowSet rowSet, Queue<ChunkRange> chunkRanges,
+            BackupOps backupOps, FormatFactory formatFactory, Map<String, Object> formatAttributes,
+            boolean reuseRows) {
+        return new ChunkRangeQueueRowReader(rowSet, chunkRanges, backupOps, formatFactory, formatAttributes,
+                reuseRows);
+    }
+
     public static RowReader newSynchronizedRowReader(RowReader rowReader) {
         return new SynchronizedRowReader(rowReader);
     }
@@ -58,10 +112,11 @@ public class RowReaders {
 
     static class SequentialRowReader implements RowReader {
 
-        private final RowSet rowSet;
-        private final BackupOps backupOps;
-        private final FormatFactory formatFactory;
-        private final Map<String, Object> formatAttributes;
+        protected final RowSet rowSet;
+        protected final BackupOps backupOps;
+        protected final FormatFactory formatFactory;
+        protected final Map<String, Object> formatAttributes;
+        private final Row reusableRow;
 
         private Iterator<Chunk> chunks;
         private Chunk chunk;
@@ -71,17 +126,26 @@ public class RowReaders {
 
         SequentialRowReader(RowSet rowSet, BackupOps backupOps, FormatFactory formatFactory,
                 Map<String, Object> formatAttributes) {
+            this(rowSet, backupOps, formatFactory, formatAttributes, false);
+        }
+
+        SequentialRowReader(RowSet rowSet, BackupOps backupOps, FormatFactory formatFactory,
+                Map<String, Object> formatAttributes, boolean reuseRows) {
             this.rowSet = rowSet;
             this.backupOps = backupOps;
             this.formatFactory = formatFactory;
             this.formatAttributes = formatAttributes;
+            this.reusableRow = reuseRows ? new Row(null, null, 0) : null;
         }
 
         @Override
         public Row readRow() {
-            initChunk();
-            initInput();
-            initRowValues();
+            row = null;
+            // moves on to the next chunk once the current one is exhausted
+            while (row == null && initChunk()) {
+                initInput();
+                initRowValues();
+            }
             return row;
         }
 
@@ -93,26 +157,45 @@ public class RowReaders {
             }
         }
 
-        protected void initChunk() {
+        protected boolean initChunk() {
+            if (chunk == null) {
+                chunk = nextChunk();
+            }
+            return chunk != null;
+        }
+
+        protected Chunk nextChunk() {
             if (chunks == null) {
                 chunks = rowSet.getChunks().iterator();
             }
-            if (chunks.hasNext() && chunk == null) {
-                chunk = chunks.next();
-            }
+            return chunks.hasNext() ? chunks.next() : null;
         }
 
         protected void initInput() {
             if (chunk != null && input == null) {
-                input = formatFactory.createInput(rowSet.getBackup().getFormat(), formatAttributes);
-                input.setInputStream(backupOps.openInput(chunk.getName()));
-                input.setRowSet(rowSet);
-                input.init();
-                input.readStart();
-                number = 0;
+                input = openInput(chunk);
+                number = getFirstNumber();
             }
         }
 
+        protected Input openInput(Chunk chunk) {
+            Input input = formatFactory.createInput(rowSet.getBackup().getFormat(), formatAttributes);
+            input.setInputStream(backupOps.openInput(chunk.getName(), chunk.getCodec()));
+            input.setReuseValues(isReuseRows());
+            input.setRowSet(rowSet);
+            input.init();
+            input.readStart();
+            return input;
+        }
+
+        protected long getFirstNumber() {
+            return 0;
+        }
+
+        protected boolean isReuseRows() {
+            return reusableRow != null;
+        }
+
         protected void initRowValues() {
             Value[] values = null;
             if (input != null) {
@@ -127,7 +210,97 @@ public class RowReaders {
                     }
                 }
             }
-            row = values != null ? new Row(chunk, values, number++) : null;
+            if (values == null) {
+                row = null;
+            } else if (reusableRow != null) {
+                row = reusableRow.reset(chunk, values, number++);
+            } else {
+                row = new Row(chunk, values, number++);
+            }
+        }
+    }
+
+    static class ChunkQueueRowReader extends SequentialRowReader {
+
+        private final Queue<Chunk> chunks;
+
+        ChunkQueueRowReader(RowSet rowSet, Queue<Chunk> chunks, BackupOps backupOps, FormatFactory formatFactory,
+                Map<String, Object> formatAttributes, boolean reuseRows) {
+            super(rowSet, backupOps, formatFactory, formatAttributes, reuseRows);
+            this.chunks = chunks;
+        }
+
+        @Override
+        protected Chunk nextChunk() {
+            return chunks.poll();
+        }
+    }
+
+    static class ChunkRangeQueueRowReader extends SequentialRowReader {
+
+        private final Queue<ChunkRange> chunkRanges;
+        private ChunkRange chunkRange;
+
+        ChunkRangeQueueRowReader(RowSet rowSet, Queue<ChunkRange> chunkRanges, BackupOps backupOps,
+                FormatFactory formatFactory, Map<String, Object> formatAttributes, boolean reuseRows) {
+            super(rowSet, backupOps, formatFactory, formatAttributes, reuseRows);
+            this.chunkRanges = chunkRanges;
+        }
+
+        @Override
+        protected Chunk nextChunk() {
+            chunkRange = chunkRanges.poll();
+            return chunkRange != null ? chunkRange.getChunk() : null;
+        }
+
+        /**
+         * Opens the chunk positioned at the range offset, whole chunks are
+         * read by the sequential reader. Split chunks are uncompressed, so
+         * the stream of the file is positioned without reading the bytes
+         * before the offset.
+         */
+        @Override
+        protected Input openInput(Chunk chunk) {
+            InputRange inputRange = chunkRange.getInputRange();
+            if (inputRange == null) {
+                return super.openInput(chunk);
+            }
+            SplittableInput input = (SplittableInput) formatFactory.createInput(rowSet.getBackup().getFormat(),
+                    formatAttributes);
+            InputStream inputStream = backupOps.openInput(chunk.getName(), chunk.getCodec());
+            try {
+                seek(inputStream, inputRange.getOffset());
+            } catch (IOException exception) {
+                closeQuietly(inputStream);
+                throw new InputException(exception);
+            }
+            input.setInputRange(inputRange);
+            input.setInputStream(new BoundedInputStream(inputStream, inputRange.getLength()));
+            input.setReuseValues(isReuseRows());
+            input.setRowSet(rowSet);
+            input.init();
+            input.readStart();
+            return input;
+        }
+
+        /**
+         * Skips bytes up to the offset with {@link InputStream#skip(long)},
+         * which seeks file and mapped file streams.
+         */
+        protected void seek(InputStream inputStream, long offset) throws IOException {
+            while (offset > 0) {
+                long skipped = inputStream.skip(offset);
+                if (skipped <= 0) {
+                    throw new EOFException(format("Can't seek %d bytes past the end of the chunk", offset));
+                }
+                offset -= skipped;
+            }
+        }
+
+        @Override
+        protected long getFirstNumber() {
+            InputRange inputRange = chunkRange.getInputRange();
+            return inputRange != null ? inputRange.getRow() : 0;
         }
     }
 
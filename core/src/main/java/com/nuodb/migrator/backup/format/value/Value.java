@@ -28,8 +28,14 @@
 package com.nuodb.migrator.backup.format.value;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
 
 /**
+ * Value of a single cell. Typed values keep numeric, boolean and temporal data
+ * in their native representation, while the text of any value is available
+ * with {@link #asString()} and typed accessors of the text values parse it.
+ *
  * @author Sergey Bushik
  */
 public interface Value extends Serializable {
@@ -40,5 +46,15 @@ public interface Value extends Serializable {
 
     byte[] asBytes();
 
+    long asLong();
+
+    double asDouble();
+
+    BigDecimal asDecimal();
+
+    boolean asBoolean();
+
+    Timestamp asTimestamp();
+
     ValueType getValueType();
 }
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.value;
+
+import com.nuodb.migrator.jdbc.type.JdbcValueAccess;
+
+import java.util.Map;
+
+/**
+ * Column accessor with value format, jdbc value access and access options
+ * resolved once by {@link ValueHandleListBuilder}, so that reading or binding
+ * a row is a loop over an array of accessors.
+ *
+ * @author Sergey Bushik
+ */
+@SuppressWarnings("unchecked")
+public final class ValueAccessor {
+
+    private final ValueFormat valueFormat;
+    private final JdbcValueAccess jdbcValueAccess;
+    private final Map<String, Object> jdbcValueAccessOptions;
+
+    public ValueAccessor(ValueHandle valueHandle) {
+        this.valueFormat = valueHandle.getValueFormat();
+        this.jdbcValueAccess = valueHandle.getJdbcValueAccess();
+        this.jdbcValueAccessOptions = valueHandle.getJdbcValueAccessOptions();
+    }
+
+    public Value getValue() {
+        return valueFormat.getValue(jdbcValueAccess, jdbcValueAccessOptions);
+    }
+
+    public void setValue(Value value) {
+        valueFormat.setValue(value, jdbcValueAccess, jdbcValueAccessOptions);
+    }
+
+    public ValueFormat getValueFormat() {
+        return valueFormat;
+    }
+
+    public JdbcValueAccess getJdbcValueAccess() {
+        return jdbcValueAccess;
+    }
+
+    public Map<String, Object> getJdbcValueAccessOptions() {
+        return jdbcValueAccessOptions;
+    }
+}
@@ -39,4 +39,12 @@ public interface ValueHandleList extends FieldList<ValueHandle> {
     ValueHandle get(String column);
 
     ValueHandle set(int index, ValueHandle column);
+
+    /**
+     * Returns accessors of the value handles in the column order, which are
+     * resolved once and are called for every row.
+     *
+     * @return array of value accessors.
+     */
+    ValueAccessor[] getValueAccessors();
 }
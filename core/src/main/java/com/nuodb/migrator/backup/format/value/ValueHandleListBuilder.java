@@ -33,7 +33,6 @@ import com.nuodb.migrator.jdbc.model.SimpleField;
 import com.nuodb.migrator.jdbc.model.SimpleFieldList;
 import com.nuodb.migrator.jdbc.type.JdbcTypeDesc;
 import com.nuodb.migrator.jdbc.type.JdbcValueAccess;
-import com.nuodb.migrator.jdbc.type.jdbc2.JdbcDateValueBase;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -44,7 +43,10 @@ import java.util.Map;
 import java.util.TimeZone;
 
 import static com.google.common.collect.Maps.newHashMap;
+import static com.nuodb.migrator.backup.format.value.LobBuffer.LOB_BUFFER;
+import static com.nuodb.migrator.jdbc.type.jdbc2.JdbcDateValueBase.CALENDAR;
 import static com.nuodb.migrator.jdbc.type.jdbc2.JdbcDateValueBase.TIMEZONE;
+import static java.util.Calendar.getInstance;
 
 /**
  * @author Sergey Bushik
@@ -59,6 +61,8 @@ public abstract class ValueHandleListBuilder {
 
     private ValueFormatRegistry valueFormatRegistry;
 
+    private LobBuffer lobBuffer;
+
     public static ValueHandleListBuilder newBuilder(final Connection connection, final ResultSet resultSet) {
         return new ValueHandleListBuilder() {
             private int column = 1;
@@ -145,6 +149,18 @@ public abstract class ValueHandleListBuilder {
             if (dialect.supportsStatementWithTimezone()) {
                 jdbcValueAccessOptions = newHashMap();
                 jdbcValueAccessOptions.put(TIMEZONE, getTimeZone());
+                // calendar is reused for every value of the column
+                if (getTimeZone() != null) {
+                    jdbcValueAccessOptions.put(CALENDAR, getInstance(getTimeZone()));
+                }
+            }
+            break;
+        case Types.BLOB:
+        case Types.CLOB:
+        case Types.NCLOB:
+            if (lobBuffer != null) {
+                jdbcValueAccessOptions = newHashMap();
+                jdbcValueAccessOptions.put(LOB_BUFFER, lobBuffer);
             }
             break;
         default:
@@ -188,6 +204,15 @@ public abstract class ValueHandleListBuilder {
         return this;
     }
 
+    public LobBuffer getLobBuffer() {
+        return lobBuffer;
+    }
+
+    public ValueHandleListBuilder withLobBuffer(LobBuffer lobBuffer) {
+        this.lobBuffer = lobBuffer;
+        return this;
+    }
+
     private static class SimpleValueHandle extends SimpleField implements ValueHandle {
 
         private ValueType valueType;
@@ -241,5 +266,15 @@ public abstract class ValueHandleListBuilder {
     }
 
     private static class SimpleValueHandleList extends SimpleFieldList<ValueHandle> implements ValueHandleList {
+
+        @Override
+        public ValueAccessor[] getValueAccessors() {
+            ValueAccessor[] valueAccessors = new ValueAccessor[size()];
+            int index = 0;
+            for (ValueHandle valueHandle : this) {
+                valueAccessors[index++] = new ValueAccessor(valueHandle);
+            }
+            return valueAccessors;
+        }
     }
 }
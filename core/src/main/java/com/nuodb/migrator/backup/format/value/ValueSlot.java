@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.value;
+
+import com.nuodb.migrator.backup.format.utils.BinaryEncoder;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import static java.lang.Math.max;
+import static java.lang.System.arraycopy;
+import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
+import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
+
+/**
+ * Mutable value refilled with the value of a column of every row read by an
+ * input reusing values. Text and binary content is held by the slot itself,
+ * values of other types are immutable and are shared by reference. Content
+ * filled from chars is copied to the buffer of the slot, the string or decoded
+ * bytes are created only once the value is asked for.
+ *
+ * @author Sergey Bushik
+ */
+public class ValueSlot extends ValueUtils.ValueBase {
+
+    private ValueType valueType = STRING;
+    private String string;
+    private byte[] bytes;
+    private Value value;
+    private char[] chars = new char[0];
+    private int length = -1;
+    private BinaryEncoder binaryEncoder;
+
+    public void setString(String string) {
+        this.valueType = STRING;
+        this.string = string;
+        this.bytes = null;
+        this.value = null;
+        this.length = -1;
+    }
+
+    public void setBinary(byte[] bytes) {
+        this.valueType = BINARY;
+        this.string = null;
+        this.bytes = bytes;
+        this.value = null;
+        this.length = -1;
+    }
+
+    /**
+     * Copies text content to the buffer of the slot.
+     */
+    public void setString(char[] chars, int offset, int length) {
+        setChars(STRING, chars, offset, length, null);
+    }
+
+    /**
+     * Copies encoded binary content to the buffer of the slot, which is
+     * decoded with the binary encoder when the bytes are asked for.
+     */
+    public void setBinary(char[] chars, int offset, int length, BinaryEncoder binaryEncoder) {
+        setChars(BINARY, chars, offset, length, binaryEncoder);
+    }
+
+    protected void setChars(ValueType valueType, char[] chars, int offset, int length,
+            BinaryEncoder binaryEncoder) {
+        if (this.chars.length < length) {
+            this.chars = new char[max(length, this.chars.length * 2)];
+        }
+        arraycopy(chars, offset, this.chars, 0, length);
+        this.valueType = valueType;
+        this.string = null;
+        this.bytes = null;
+        this.value = null;
+        this.length = length;
+        this.binaryEncoder = binaryEncoder;
+    }
+
+    /**
+     * Creates string or decodes bytes from the chars of the slot.
+     */
+    protected void materialize() {
+        if (length >= 0) {
+            String content = new String(chars, 0, length);
+            if (valueType == BINARY) {
+                bytes = binaryEncoder.decode(content);
+            } else {
+                string = content;
+            }
+            length = -1;
+        }
+    }
+
+    public void setNull(ValueType valueType) {
+        if (valueType == BINARY) {
+            setBinary(null);
+        } else {
+            setString(null);
+        }
+    }
+
+    /**
+     * Copies content of the slot, including chars not turned to a string yet,
+     * or refers to the value otherwise, so that the slot keeps the value after
+     * the source slot is refilled.
+     *
+     * @param value
+     *            to assign.
+     */
+    public void setValue(Value value) {
+        this.length = -1;
+        if (value instanceof ValueSlot && ((ValueSlot) value).length >= 0) {
+            ValueSlot slot = (ValueSlot) value;
+            setChars(slot.valueType, slot.chars, 0, slot.length, slot.binaryEncoder);
+        } else if (value instanceof ValueSlot) {
+            ValueSlot slot = (ValueSlot) value;
+            this.valueType = slot.valueType;
+            this.string = slot.string;
+            this.bytes = slot.bytes;
+            this.value = slot.value;
+        } else {
+            this.valueType = value.getValueType();
+            this.string = null;
+            this.bytes = null;
+            this.value = value;
+        }
+    }
+
+    @Override
+    public boolean isNull() {
+        if (value != null) {
+            return value.isNull();
+        }
+        if (length >= 0) {
+            return false;
+        }
+        return valueType == BINARY ? bytes == null : string == null;
+    }
+
+    @Override
+    public String asString() {
+        if (value != null) {
+            return value.asString();
+        }
+        materialize();
+        return valueType == BINARY ? (bytes != null ? new String(bytes) : null) : string;
+    }
+
+    @Override
+    public byte[] asBytes() {
+        if (value != null) {
+            return value.asBytes();
+        }
+        materialize();
+        return valueType == BINARY ? bytes : super.asBytes();
+    }
+
+    @Override
+    public long asLong() {
+        return value != null ? value.asLong() : super.asLong();
+    }
+
+    @Override
+    public double asDouble() {
+        return value != null ? value.asDouble() : super.asDouble();
+    }
+
+    @Override
+    public BigDecimal asDecimal() {
+        return value != null ? value.asDecimal() : super.asDecimal();
+    }
+
+    @Override
+    public boolean asBoolean() {
+        return value != null ? value.asBoolean() : super.asBoolean();
+    }
+
+    @Override
+    public Timestamp asTimestamp() {
+        return value != null ? value.asTimestamp() : super.asTimestamp();
+    }
+
+    @Override
+    public ValueType getValueType() {
+        return valueType;
+    }
+
+    @Override
+    public String toString() {
+        materialize();
+        return "Slot{" + (value != null ? value : valueType == BINARY ? bytes : "'" + string + "'") + '}';
+    }
+}
@@ -30,11 +30,15 @@ package com.nuodb.migrator.backup.format.value;
 import com.nuodb.migrator.utils.EnumAlias;
 
 /**
+ * Type of the value, where LONG is a 64 bit integer, DOUBLE is a 64 bit float,
+ * DECIMAL is an unscaled integer with scale and TIMESTAMP is a number of
+ * microseconds since the epoch.
+ *
  * @author Sergey Bushik
  */
 public enum ValueType {
 
-    STRING, BINARY;
+    STRING, BINARY, LONG, DOUBLE, DECIMAL, BOOLEAN, TIMESTAMP;
 
     private static final EnumAlias<ValueType> VALUE_TYPES = new EnumAlias<ValueType>(ValueType.class);
 
@@ -27,11 +27,21 @@
  */
 package com.nuodb.migrator.backup.format.value;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
+import static com.nuodb.migrator.backup.format.value.ValueType.BOOLEAN;
+import static com.nuodb.migrator.backup.format.value.ValueType.DECIMAL;
+import static com.nuodb.migrator.backup.format.value.ValueType.DOUBLE;
+import static com.nuodb.migrator.backup.format.value.ValueType.LONG;
 import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
+import static com.nuodb.migrator.backup.format.value.ValueType.TIMESTAMP;
+import static java.lang.String.format;
 
 /**
  * @author Sergey Bushik
@@ -41,6 +51,10 @@ public class ValueUtils {
     public static final Value BINARY_NULL = new BinaryValue(null);
     public static final Value STRING_NULL = new StringValue(null);
 
+    private static final long MICROS_PER_SECOND = TimeUnit.SECONDS.toMicros(1);
+    private static final long MILLIS_PER_SECOND = TimeUnit.SECONDS.toMillis(1);
+    private static final int NANOS_PER_MICRO = (int) TimeUnit.MICROSECONDS.toNanos(1);
+
     public static void fill(Value[] values, List<ValueType> valueTypes, int offset) {
         for (; offset < values.length; offset++) {
             ValueType valueType = valueTypes.get(offset);
@@ -49,13 +63,34 @@ public class ValueUtils {
             case BINARY:
                 values[offset] = ValueUtils.BINARY_NULL;
                 break;
-            case STRING:
+            default:
                 values[offset] = ValueUtils.STRING_NULL;
                 break;
             }
         }
     }
 
+    /**
+     * Checks whether value is null or is a text or binary value of zero length, which is treated as null by the
+     * formats storing values as text.
+     *
+     * @param value to check
+     * @return true if value carries no data
+     */
+    public static boolean isEmpty(Value value) {
+        if (value == null || value.isNull()) {
+            return true;
+        }
+        switch (value.getValueType()) {
+        case STRING:
+            return value.asString().length() == 0;
+        case BINARY:
+            return value.asBytes().length == 0;
+        default:
+            return false;
+        }
+    }
+
     public static Value binary(byte[] value) {
         return value == null ? BINARY_NULL : new BinaryValue(value);
     }
@@ -64,7 +99,133 @@ public class ValueUtils {
         return value == null ? STRING_NULL : new StringValue(value);
     }
 
-    static class BinaryValue implements Value {
+    public static Value longValue(long value) {
+        return new LongValue(value);
+    }
+
+    public static Value doubleValue(double value) {
+        return new DoubleValue(value);
+    }
+
+    public static Value decimal(BigDecimal value) {
+        return value == null ? STRING_NULL : new DecimalValue(value);
+    }
+
+    public static Value booleanValue(boolean value) {
+        return new BooleanValue(value);
+    }
+
+    /**
+     * Creates timestamp value from the number of microseconds since the epoch. Timestamps are read and bound with
+     * the calendar of the configured time zone, so the microseconds identify the instant independently of the
+     * default time zone.
+     *
+     * @param micros since the epoch
+     * @return timestamp value
+     */
+    public static Value timestamp(long micros) {
+        return new TimestampValue(micros);
+    }
+
+    /**
+     * Creates timestamp value keeping microsecond precision, returns string value if the timestamp has sub
+     * microsecond nanos, which can't be represented by the timestamp value without loss.
+     *
+     * @param value timestamp
+     * @return timestamp or string value
+     */
+    public static Value timestamp(Timestamp value) {
+        if (value == null) {
+            return STRING_NULL;
+        }
+        if (value.getNanos() % NANOS_PER_MICRO != 0) {
+            return string(value.toString());
+        }
+        return new TimestampValue(toMicros(value));
+    }
+
+    /**
+     * Maps a number or a boolean to the typed value of the narrowest suitable value type, other objects are
+     * converted to string values.
+     *
+     * @param value to map
+     * @return typed value
+     */
+    public static Value value(Object value) {
+        if (value == null) {
+            return STRING_NULL;
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short ||
+                value instanceof Byte) {
+            return longValue(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            return doubleValue((Double) value);
+        } else if (value instanceof Float) {
+            // widens float to double preserving its decimal representation
+            return doubleValue(Double.parseDouble(value.toString()));
+        } else if (value instanceof BigDecimal) {
+            return decimal((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            return decimal(new BigDecimal((BigInteger) value));
+        } else if (value instanceof Boolean) {
+            return booleanValue((Boolean) value);
+        } else if (value instanceof Timestamp) {
+            return timestamp((Timestamp) value);
+        } else {
+            return string(value.toString());
+        }
+    }
+
+    static long toMicros(Timestamp timestamp) {
+        long seconds = Math.floorDiv(timestamp.getTime(), MILLIS_PER_SECOND);
+        return seconds * MICROS_PER_SECOND + timestamp.getNanos() / NANOS_PER_MICRO;
+    }
+
+    static Timestamp toTimestamp(long micros) {
+        long seconds = Math.floorDiv(micros, MICROS_PER_SECOND);
+        Timestamp timestamp = new Timestamp(seconds * MILLIS_PER_SECOND);
+        timestamp.setNanos((int) Math.floorMod(micros, MICROS_PER_SECOND) * NANOS_PER_MICRO);
+        return timestamp;
+    }
+
+    /**
+     * Base value converting its text representation to the requested type.
+     */
+    static abstract class ValueBase implements Value {
+
+        @Override
+        public byte[] asBytes() {
+            String value = asString();
+            return value != null ? value.getBytes() : null;
+        }
+
+        @Override
+        public long asLong() {
+            return Long.parseLong(asString().trim());
+        }
+
+        @Override
+        public double asDouble() {
+            return Double.parseDouble(asString().trim());
+        }
+
+        @Override
+        public BigDecimal asDecimal() {
+            return new BigDecimal(asString().trim());
+        }
+
+        @Override
+        public boolean asBoolean() {
+            String value = asString().trim();
+            return "1".equals(value) || Boolean.parseBoolean(value);
+        }
+
+        @Override
+        public Timestamp asTimestamp() {
+            return Timestamp.valueOf(asString().trim());
+        }
+    }
+
+    static class BinaryValue extends ValueBase {
 
         private final byte[] value;
 
@@ -118,7 +279,7 @@ public class ValueUtils {
         }
     }
 
-    static class StringValue implements Value {
+    static class StringValue extends ValueBase {
 
         public String value;
 
@@ -131,11 +292,6 @@ public class ValueUtils {
             return value;
         }
 
-        @Override
-        public byte[] asBytes() {
-            return value != null ? value.getBytes() : null;
-        }
-
         @Override
         public boolean isNull() {
             return value == null;
@@ -171,4 +327,355 @@ public class ValueUtils {
             return "String{'" + value + "'}";
         }
     }
+
+    static class LongValue extends ValueBase {
+
+        private final long value;
+
+        public LongValue(long value) {
+            this.value = value;
+        }
+
+        @Override
+        public String asString() {
+            return Long.toString(value);
+        }
+
+        @Override
+        public long asLong() {
+            return value;
+        }
+
+        @Override
+        public double asDouble() {
+            return value;
+        }
+
+        @Override
+        public BigDecimal asDecimal() {
+            return BigDecimal.valueOf(value);
+        }
+
+        @Override
+        public boolean asBoolean() {
+            return value != 0;
+        }
+
+        @Override
+        public boolean isNull() {
+            return false;
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return LONG;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+
+            LongValue that = (LongValue) o;
+
+            return value == that.value;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (value ^ (value >>> 32));
+        }
+
+        @Override
+        public String toString() {
+            return "Long{" + value + '}';
+        }
+    }
+
+    static class DoubleValue extends ValueBase {
+
+        private final double value;
+
+        public DoubleValue(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public String asString() {
+            return Double.toString(value);
+        }
+
+        /**
+         * Converts integral value only, fractional, infinite or out of range values are rejected instead of being
+         * truncated.
+         */
+        @Override
+        public long asLong() {
+            if (value != Math.rint(value) || value < Long.MIN_VALUE || value >= 0x1p63) {
+                throw new ValueFormatException(format("Value %s is not a long", asString()));
+            }
+            return (long) value;
+        }
+
+        @Override
+        public double asDouble() {
+            return value;
+        }
+
+        @Override
+        public BigDecimal asDecimal() {
+            return new BigDecimal(asString());
+        }
+
+        @Override
+        public boolean asBoolean() {
+            return value != 0;
+        }
+
+        @Override
+        public boolean isNull() {
+            return false;
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return DOUBLE;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+
+            DoubleValue that = (DoubleValue) o;
+
+            return Double.compare(that.value, value) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            long bits = Double.doubleToLongBits(value);
+            return (int) (bits ^ (bits >>> 32));
+        }
+
+        @Override
+        public String toString() {
+            return "Double{" + value + '}';
+        }
+    }
+
+    static class DecimalValue extends ValueBase {
+
+        private final BigDecimal value;
+
+        public DecimalValue(BigDecimal value) {
+            this.value = value;
+        }
+
+        @Override
+        public String asString() {
+            return value.toString();
+        }
+
+        @Override
+        public long asLong() {
+            try {
+                return value.longValueExact();
+            } catch (ArithmeticException exception) {
+                throw new ValueFormatException(format("Value %s is not a long", asString()), exception);
+            }
+        }
+
+        @Override
+        public double asDouble() {
+            return value.doubleValue();
+        }
+
+        @Override
+        public BigDecimal asDecimal() {
+            return value;
+        }
+
+        @Override
+        public boolean asBoolean() {
+            return value.signum() != 0;
+        }
+
+        @Override
+        public boolean isNull() {
+            return false;
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return DECIMAL;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+
+            DecimalValue that = (DecimalValue) o;
+
+            return value.equals(that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "Decimal{" + value + '}';
+        }
+    }
+
+    static class BooleanValue extends ValueBase {
+
+        private final boolean value;
+
+        public BooleanValue(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public String asString() {
+            return Boolean.toString(value);
+        }
+
+        @Override
+        public long asLong() {
+            return value ? 1 : 0;
+        }
+
+        @Override
+        public double asDouble() {
+            return asLong();
+        }
+
+        @Override
+        public BigDecimal asDecimal() {
+            return BigDecimal.valueOf(asLong());
+        }
+
+        @Override
+        public boolean asBoolean() {
+            return value;
+        }
+
+        @Override
+        public boolean isNull() {
+            return false;
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return BOOLEAN;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+
+            BooleanValue that = (BooleanValue) o;
+
+            return value == that.value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value ? 1 : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Boolean{" + value + '}';
+        }
+    }
+
+    static class TimestampValue extends ValueBase {
+
+        private final long micros;
+
+        public TimestampValue(long micros) {
+            this.micros = micros;
+        }
+
+        public long getMicros() {
+            return micros;
+        }
+
+        @Override
+        public String asString() {
+            return asTimestamp().toString();
+        }
+
+        @Override
+        public long asLong() {
+            return micros;
+        }
+
+        @Override
+        public double asDouble() {
+            return micros;
+        }
+
+        @Override
+        public BigDecimal asDecimal() {
+            return BigDecimal.valueOf(micros);
+        }
+
+        @Override
+        public boolean asBoolean() {
+            throw new ValueFormatException(format("Value %s is not a boolean", asString()));
+        }
+
+        @Override
+        public Timestamp asTimestamp() {
+            return toTimestamp(micros);
+        }
+
+        @Override
+        public boolean isNull() {
+            return false;
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return TIMESTAMP;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+
+            TimestampValue that = (TimestampValue) o;
+
+            return micros == that.micros;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (micros ^ (micros >>> 32));
+        }
+
+        @Override
+        public String toString() {
+            return "Timestamp{" + asString() + '}';
+        }
+    }
 }
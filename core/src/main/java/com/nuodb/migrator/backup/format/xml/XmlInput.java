@@ -30,6 +30,7 @@ package com.nuodb.migrator.backup.format.xml;
 import com.nuodb.migrator.backup.format.InputBase;
 import com.nuodb.migrator.backup.format.InputException;
 import com.nuodb.migrator.backup.format.value.Value;
+import com.nuodb.migrator.backup.format.value.ValueSlot;
 import com.nuodb.migrator.backup.format.value.ValueType;
 
 import javax.xml.namespace.QName;
@@ -94,7 +95,8 @@ public class XmlInput extends InputBase implements XmlFormat {
             BitSet nulls = nullsAttribute != null ? fromHexString(nullsAttribute) : EMPTY;
             List<ValueType> valueTypes = getValueTypes();
             int length = valueTypes.size();
-            values = new Value[length];
+            ValueSlot[] valueSlots = getValueSlots();
+            values = valueSlots != null ? valueSlots : new Value[length];
             int index = 0;
             while (index < length) {
                 String value = null;
@@ -112,10 +114,19 @@ public class XmlInput extends InputBase implements XmlFormat {
                 valueType = valueType != null ? valueType : STRING;
                 switch (valueType) {
                 case BINARY:
-                    values[index] = binary(BASE64.decode(value));
+                    byte[] bytes = BASE64.decode(value);
+                    if (valueSlots != null) {
+                        valueSlots[index].setBinary(bytes);
+                    } else {
+                        values[index] = binary(bytes);
+                    }
                     break;
-                case STRING:
-                    values[index] = string(value);
+                default:
+                    if (valueSlots != null) {
+                        valueSlots[index].setString(value);
+                    } else {
+                        values[index] = string(value);
+                    }
                     break;
                 }
                 index++;
@@ -27,26 +27,28 @@
  */
 package com.nuodb.migrator.backup.format.xml;
 
-import com.nuodb.migrator.backup.Column;
 import com.nuodb.migrator.backup.format.OutputBase;
 import com.nuodb.migrator.backup.format.OutputException;
+import com.nuodb.migrator.backup.format.value.LobValue;
 import com.nuodb.migrator.backup.format.value.Value;
 import com.nuodb.migrator.backup.format.value.ValueType;
 
 import javax.xml.XMLConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.io.Writer;
 import java.util.BitSet;
-import java.util.Collection;
 
-import static com.google.common.collect.Iterables.get;
 import static com.nuodb.migrator.backup.format.utils.BinaryEncoder.BASE64;
 import static com.nuodb.migrator.backup.format.utils.BitSetUtils.toHexString;
 import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
+import static com.nuodb.migrator.backup.format.xml.XmlUtils.READ_SIZE;
 import static com.nuodb.migrator.backup.format.xml.XmlUtils.isValid;
 import static javax.xml.stream.XMLOutputFactory.newInstance;
+import static org.apache.commons.io.IOUtils.closeQuietly;
 
 /**
  * @author Sergey Bushik
@@ -54,6 +56,7 @@ import static javax.xml.stream.XMLOutputFactory.newInstance;
 public class XmlOutput extends OutputBase implements XmlFormat {
 
     private XMLStreamWriter xmlWriter;
+    private BitSet nulls = new BitSet();
 
     @Override
     public String getFormat() {
@@ -93,7 +96,8 @@ public class XmlOutput extends OutputBase implements XmlFormat {
     public void writeValues(Value[] values) {
         try {
             xmlWriter.writeStartElement(ELEMENT_ROW);
-            BitSet nulls = new BitSet();
+            BitSet nulls = this.nulls;
+            nulls.clear();
             for (int i = 0; i < values.length; i++) {
                 nulls.set(i, values[i].isNull());
             }
@@ -101,21 +105,21 @@ public class XmlOutput extends OutputBase implements XmlFormat {
                 xmlWriter.writeAttribute(ATTRIBUTE_NULLS, toHexString(nulls));
             }
             int i = 0;
-            Collection<Column> columns = getRowSet().getColumns();
+            ValueType[] valueTypes = getValueTypes();
             for (Value value : values) {
                 if (!value.isNull()) {
-                    ValueType valueType = get(columns, i).getValueType();
+                    ValueType valueType = valueTypes[i];
                     xmlWriter.writeStartElement(ELEMENT_COLUMN);
-                    String content;
-                    if (valueType == BINARY) {
-                        content = BASE64.encode(value.asBytes());
+                    if (isSpilled(value)) {
+                        writeSpilled((LobValue) value, valueType);
+                    } else if (valueType == BINARY) {
+                        xmlWriter.writeCharacters(BASE64.encode(value.asBytes()));
                     } else if (!isValid(value.asString())) {
                         xmlWriter.writeAttribute(ATTRIBUTE_VALUE_TYPE, VALUE_TYPES.toAlias(BINARY));
-                        content = BASE64.encode(value.asBytes());
+                        xmlWriter.writeCharacters(BASE64.encode(value.asBytes()));
                     } else {
-                        content = value.asString();
+                        xmlWriter.writeCharacters(value.asString());
                     }
-                    xmlWriter.writeCharacters(content);
                     xmlWriter.writeEndElement();
                 }
                 i++;
@@ -123,6 +127,37 @@ public class XmlOutput extends OutputBase implements XmlFormat {
             xmlWriter.writeEndElement();
         } catch (XMLStreamException e) {
             throw new OutputException(e);
+        } catch (IOException e) {
+            throw new OutputException(e);
+        }
+    }
+
+    /**
+     * Streams content of a large object spilled to a file in chunks of chars, the file is read twice for a character
+     * object to check its chars first
+     */
+    protected void writeSpilled(LobValue value, ValueType valueType) throws XMLStreamException, IOException {
+        boolean binary = valueType == BINARY;
+        if (!binary) {
+            Reader reader = value.openReader();
+            try {
+                binary = !isValid(reader);
+            } finally {
+                closeQuietly(reader);
+            }
+            if (binary) {
+                xmlWriter.writeAttribute(ATTRIBUTE_VALUE_TYPE, VALUE_TYPES.toAlias(BINARY));
+            }
+        }
+        Reader reader = binary ? value.openBase64Reader() : value.openReader();
+        try {
+            char[] chars = new char[READ_SIZE];
+            int count;
+            while ((count = reader.read(chars)) >= 0) {
+                xmlWriter.writeCharacters(chars, 0, count);
+            }
+        } finally {
+            closeQuietly(reader);
         }
     }
 
@@ -27,11 +27,16 @@
  */
 package com.nuodb.migrator.backup.format.xml;
 
+import java.io.IOException;
+import java.io.Reader;
+
 /**
  * @author Sergey Bushik
  */
 public class XmlUtils {
 
+    static final int READ_SIZE = 1 << 13;
+
     public static boolean isValid(char value) {
         return (value == 0x9) || (value == 0xA) || (value == 0xD) || ((value >= 0x20) && (value <= 0xD7FF))
                 || ((value >= 0xE000) && (value <= 0xFFFD)) || ((value >= 0x10000) && (value <= 0x10FFFF));
@@ -49,4 +54,26 @@ public class XmlUtils {
         }
         return true;
     }
+
+    /**
+     * Checks chars read from a reader, so that a large value is checked without holding it in heap
+     *
+     * @param reader
+     *            of the chars to check
+     * @return true if all of the chars are valid
+     * @throws IOException
+     *             if read failed
+     */
+    public static boolean isValid(Reader reader) throws IOException {
+        char[] chars = new char[READ_SIZE];
+        int count;
+        while ((count = reader.read(chars)) >= 0) {
+            for (int i = 0; i < count; i++) {
+                if (!isValid(chars[i])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
 }
@@ -89,13 +89,19 @@ import org.slf4j.Logger;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Queue;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static com.google.common.collect.Iterables.*;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
 import static com.google.common.collect.Sets.newHashSet;
+import static com.google.common.collect.Sets.newLinkedHashSet;
+import static com.nuodb.migrator.backup.BackupJournal.LOAD;
+import static com.nuodb.migrator.backup.BackupJournal.openJournal;
 import static com.nuodb.migrator.context.ContextUtils.createService;
 import static com.nuodb.migrator.jdbc.JdbcUtils.closeQuietly;
 import static com.nuodb.migrator.jdbc.metadata.DatabaseInfos.NUODB;
@@ -104,12 +110,15 @@ import static com.nuodb.migrator.jdbc.metadata.MetaDataType.*;
 import static com.nuodb.migrator.jdbc.metadata.generator.HasTablesScriptGenerator.GROUP_SCRIPTS_BY;
 import static com.nuodb.migrator.jdbc.metadata.generator.ScriptGeneratorUtils.getUseSchema;
 import static com.nuodb.migrator.jdbc.query.InsertType.INSERT;
+import static com.nuodb.migrator.jdbc.query.InsertType.REPLACE;
 import static com.nuodb.migrator.jdbc.session.SessionFactories.newSessionFactory;
 import static com.nuodb.migrator.jdbc.type.JdbcTypeOptions.newOptions;
 import static com.nuodb.migrator.utils.Collections.contains;
 import static com.nuodb.migrator.utils.Collections.isEmpty;
 import static com.nuodb.migrator.utils.Collections.removeAll;
 import static com.nuodb.migrator.utils.SequenceUtils.getStandaloneSequences;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.Runtime.getRuntime;
 import static java.lang.String.format;
 import static org.apache.commons.lang3.StringUtils.join;
@@ -138,6 +147,7 @@ public class BackupLoader {
     private IdentifierQuoting identifierQuoting;
     private IdentifierNormalizer identifierNormalizer;
     private InsertTypeFactory insertTypeFactory;
+    private InsertRowsFactory insertRowsFactory;
     private InspectionManager inspectionManager;
     private Parallelizer parallelizer = new TableLevelParallelizer();
     private MetaDataSpec metaDataSpec;
@@ -151,6 +161,7 @@ public class BackupLoader {
     private TimeZone timeZone;
     private TranslationConfig translationConfig;
     private int threads = THREADS;
+    private boolean resume;
     private ScriptExporter scriptExporter;
     private ValueFormatRegistryResolver valueFormatRegistryResolver;
 
@@ -164,6 +175,7 @@ public class BackupLoader {
 
     protected BackupOps createBackupOps(String path) {
         BackupOps backupOps = createService(BackupOps.class);
+        backupOps.setAttributes(getFormatAttributes());
         backupOps.setPath(path);
         return backupOps;
     }
@@ -189,6 +201,7 @@ public class BackupLoader {
         backupLoaderContext.setFormatAttributes(getFormatAttributes());
         backupLoaderContext.setFormatFactory(getFormatFactory());
         backupLoaderContext.setInsertTypeFactory(getInsertTypeFactory());
+        backupLoaderContext.setInsertRowsFactory(getInsertRowsFactory());
         backupLoaderContext.setMigrationModes(getMigrationModes());
         backupLoaderContext.setParallelizer(getParallelizer());
         backupLoaderContext.setRowSetMapper(getRowSetMapper());
@@ -196,6 +209,9 @@ public class BackupLoader {
         backupLoaderContext.setTimeZone(getTimeZone());
         openSourceSession(backupLoaderContext);
         openTargetSession(backupLoaderContext);
+        if (backupLoaderContext.isLoadData()) {
+            backupLoaderContext.setBackupJournal(openJournal(backupOps, LOAD, isResume()));
+        }
         if (backupLoaderContext.isLoadSchema()) {
             backupLoaderContext.setLoadConstraints(createLoadConstraints(backupLoaderContext));
         }
@@ -388,13 +404,20 @@ public class BackupLoader {
                 scriptExporter.exportScripts(scriptGeneratorManager.getScripts(database));
             } else {
                 scriptExporter.exportScripts(getSequencesScripts(database, scriptGeneratorManager));
-                Schema schema = null;
+                // schemas are created ahead of their tables
+                Collection<Schema> schemas = newLinkedHashSet();
+                Queue<Collection<Script>> scripts = new ConcurrentLinkedQueue<Collection<Script>>();
                 for (Table table : tables) {
-                    if (schema == null || !schema.equals(table.getSchema())) {
-                        scriptExporter.exportScript(getUseSchema(schema = table.getSchema(), scriptGeneratorManager));
+                    Script useSchema = getUseSchema(table.getSchema(), scriptGeneratorManager);
+                    if (schemas.add(table.getSchema())) {
+                        scriptExporter.exportScript(useSchema);
                     }
-                    scriptExporter.exportScripts(scriptGeneratorManager.getScripts(table));
+                    Collection<Script> group = newArrayList(useSchema);
+                    group.addAll(scriptGeneratorManager.getScripts(table));
+                    scripts.add(group);
                 }
+                backupLoaderContext.getTargetSession().getConnection().commit();
+                loadSchema(scripts, backupLoaderManager);
             }
             Session targetSession = backupLoaderContext.getTargetSession();
             targetSession.getConnection().commit();
@@ -405,6 +428,47 @@ public class BackupLoader {
         backupLoaderManager.loadSchemaDone();
     }
 
+    /**
+     * Executes groups of table scripts on a pool of target sessions, a table
+     * and its triggers are created by a group in order, groups of distinct
+     * tables are independent
+     *
+     * @param scripts
+     *            groups of scripts to execute
+     * @param backupLoaderManager
+     *            to manage this load
+     * @throws Exception
+     *             if any of the groups failed
+     */
+    protected void loadSchema(Queue<Collection<Script>> scripts, final BackupLoaderManager backupLoaderManager)
+            throws Exception {
+        final BackupLoaderContext backupLoaderContext = backupLoaderManager.getBackupLoaderContext();
+        ExecutorService executor = backupLoaderContext.getExecutorService();
+        int threads = min(max(getThreads(), 1), scripts.size());
+        if (logger.isTraceEnabled()) {
+            logger.trace(format("Loading schema scripts of %d table(s) in %d thread(s)", scripts.size(), threads));
+        }
+        Collection<Future<?>> futures = newArrayList();
+        for (int thread = 0; thread < threads; thread++) {
+            final Work work = new LoadSchemaWork(scripts, backupLoaderManager);
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    backupLoaderManager.execute(work, backupLoaderContext.getTargetSessionFactory());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        Map<Work, Throwable> failures = backupLoaderManager.getFailures();
+        if (!failures.isEmpty()) {
+            Throwable failure = get(failures.values(), 0);
+            throw failure instanceof MigratorException ? (MigratorException) failure
+                    : new BackupLoaderException(failure);
+        }
+    }
+
     protected Collection<Script> getSequencesScripts(HasTables tables, ScriptGeneratorManager scriptGeneratorManager)
             throws Exception {
         Collection<Script> scripts = newArrayList();
@@ -443,7 +507,9 @@ public class BackupLoader {
     }
 
     /**
-     * Load constraints for source tables without row sets
+     * Load constraints for source tables without row sets, constraints of
+     * loaded tables are started by the load constraint listener as their
+     * tables are loaded
      *
      * @param backupLoaderManager
      *            to manage this load
@@ -452,26 +518,33 @@ public class BackupLoader {
      */
     protected void loadConstraints(BackupLoaderManager backupLoaderManager) throws Exception {
         BackupLoaderContext backupLoaderContext = backupLoaderManager.getBackupLoaderContext();
-        LoadConstraints loadConstraints = backupLoaderContext.getLoadConstraints();
-        LoadConstraints loadConstraintsNow = new LoadConstraints(
-                loadConstraints.getLoadConstraints(INDEX, PRIMARY_KEY));
+        Collection<Table> tables = newArrayList();
         LoadTables loadTables = backupLoaderContext.getLoadTables();
         if (!isEmpty(loadTables)) {
             for (LoadTable loadTable : loadTables) {
                 Table table = getTable(loadTable, backupLoaderContext);
                 if (table != null) {
-                    loadConstraintsNow.getLoadConstraints().removeAll(table);
+                    tables.add(table);
                 }
             }
         }
-        for (LoadConstraint loadConstraint : loadConstraintsNow) {
-            loadConstraint(loadConstraint, backupLoaderManager);
-        }
-        if (isEmpty(loadConstraints)) {
+        LoadConstraintListener loadConstraintListener = getLoadConstraintListener(backupLoaderManager);
+        if (loadConstraintListener != null) {
+            loadConstraintListener.loadConstraints(tables);
+        } else if (isEmpty(backupLoaderContext.getLoadConstraints())) {
             backupLoaderManager.loadConstraintsDone();
         }
     }
 
+    protected LoadConstraintListener getLoadConstraintListener(BackupLoaderManager backupLoaderManager) {
+        for (BackupLoaderListener listener : backupLoaderManager.getListeners()) {
+            if (listener instanceof LoadConstraintListener) {
+                return (LoadConstraintListener) listener;
+            }
+        }
+        return null;
+    }
+
     protected void loadConstraint(LoadConstraint loadConstraint, BackupLoaderManager backupLoaderManager) {
         Work work = createWork(loadConstraint, backupLoaderManager);
         executeWork(work, backupLoaderManager);
@@ -645,13 +718,50 @@ public class BackupLoader {
         return table;
     }
 
+    /**
+     * Checks whether row set is a delta of incremental backup, which rows
+     * replace the rows loaded from the parent backups.
+     */
+    protected boolean isDelta(RowSet rowSet) {
+        return rowSet.getBackup().getParent() != null && rowSet instanceof TableRowSet
+                && ((TableRowSet) rowSet).getWatermarkColumn() != null;
+    }
+
+    /**
+     * Checks whether table has primary key or unique index, so that replaced
+     * rows of a delta are matched with the loaded rows instead of being
+     * inserted once again.
+     */
+    protected boolean hasUniqueKey(Table table) {
+        if (table.getPrimaryKey() != null) {
+            return true;
+        }
+        for (Index index : table.getIndexes()) {
+            if (index.isUnique()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected Query createQuery(RowSet rowSet, Table table, BackupLoaderContext backupLoaderContext) {
         InsertTypeFactory insertTypeFactory = backupLoaderContext.getInsertTypeFactory();
         InsertType insertType = insertTypeFactory != null
                 ? insertTypeFactory.createInsertType(table, backupLoaderContext)
                 : INSERT;
+        if (isDelta(rowSet)) {
+            if (!hasUniqueKey(table)) {
+                throw new BackupLoaderException(format(
+                        "Delta of %s table can't be loaded as it has no primary key or unique index to replace rows",
+                        table.getQualifiedName(null)));
+            }
+            insertType = REPLACE;
+        }
+        InsertRowsFactory insertRowsFactory = backupLoaderContext.getInsertRowsFactory();
+        int insertRows = insertRowsFactory != null ? insertRowsFactory.createInsertRows(table, backupLoaderContext)
+                : 1;
         InsertQueryBuilder builder = new InsertQueryBuilder();
-        builder.insertType(insertType).into(table);
+        builder.insertType(insertType).into(table).rows(max(insertRows, 1));
         builder.columns(newArrayList(transform(rowSet.getColumns(), new Function<Column, String>() {
             @Override
             public String apply(Column column) {
@@ -767,6 +877,14 @@ public class BackupLoader {
         this.insertTypeFactory = insertTypeFactory;
     }
 
+    public InsertRowsFactory getInsertRowsFactory() {
+        return insertRowsFactory;
+    }
+
+    public void setInsertRowsFactory(InsertRowsFactory insertRowsFactory) {
+        this.insertRowsFactory = insertRowsFactory;
+    }
+
     public InspectionManager getInspectionManager() {
         return inspectionManager;
     }
@@ -868,6 +986,21 @@ public class BackupLoader {
         this.translationConfig = translationConfig;
     }
 
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * Makes load skip chunks and leading rows of the chunks recorded as
+     * committed by the journal of the previous load of the same backup.
+     *
+     * @param resume
+     *            true to resume previous load.
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
     public int getThreads() {
         return threads;
     }
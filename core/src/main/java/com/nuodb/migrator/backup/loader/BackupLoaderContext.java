@@ -28,6 +28,7 @@
 package com.nuodb.migrator.backup.loader;
 
 import com.nuodb.migrator.backup.Backup;
+import com.nuodb.migrator.backup.BackupJournal;
 import com.nuodb.migrator.backup.BackupOps;
 import com.nuodb.migrator.backup.format.FormatFactory;
 import com.nuodb.migrator.backup.format.value.ValueFormatRegistry;
@@ -67,6 +68,10 @@ public interface BackupLoaderContext {
 
     void setBackupOpsContext(Map backupOpsContext);
 
+    BackupJournal getBackupJournal();
+
+    void setBackupJournal(BackupJournal backupJournal);
+
     CommitStrategy getCommitStrategy();
 
     void setCommitStrategy(CommitStrategy commitStrategy);
@@ -95,6 +100,10 @@ public interface BackupLoaderContext {
 
     void setInsertTypeFactory(InsertTypeFactory insertTypeFactory);
 
+    InsertRowsFactory getInsertRowsFactory();
+
+    void setInsertRowsFactory(InsertRowsFactory insertRowsFactory);
+
     LoadConstraints getLoadConstraints();
 
     void setLoadConstraints(LoadConstraints loadConstraints);
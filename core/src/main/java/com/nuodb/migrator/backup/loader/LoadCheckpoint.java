@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.loader;
+
+import com.nuodb.migrator.backup.BackupJournal;
+import com.nuodb.migrator.backup.Chunk;
+import com.nuodb.migrator.backup.format.value.Row;
+import com.nuodb.migrator.backup.format.value.RowReader;
+
+import java.util.Map;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Maps.newLinkedHashMap;
+import static java.lang.Math.min;
+
+/**
+ * Checkpoint of the rows read by a reader shared by the threads loading a table. Rows of a chunk are read in order,
+ * but are committed by different threads, so the rows preceding the first row read and not yet committed by any of
+ * the threads are recorded as committed.
+ *
+ * @author Sergey Bushik
+ */
+public class LoadCheckpoint {
+
+    private final RowReader rowReader;
+    private final BackupJournal backupJournal;
+    /**
+     * Row following the last row read from each chunk
+     */
+    private final Map<Chunk, Long> readRows = newLinkedHashMap();
+    /**
+     * Number of leading rows of each chunk recorded as committed
+     */
+    private final Map<Chunk, Long> committedRows = newHashMap();
+    /**
+     * First row of each chunk read and not committed yet by each of the threads
+     */
+    private final Map<Integer, Map<Chunk, Long>> uncommittedRows = newHashMap();
+
+    public LoadCheckpoint(RowReader rowReader, BackupJournal backupJournal) {
+        this.rowReader = rowReader;
+        this.backupJournal = backupJournal;
+    }
+
+    /**
+     * Reads next row of the shared reader on behalf of the thread.
+     */
+    public synchronized Row readRow(int thread) {
+        Row row = rowReader.readRow();
+        if (row != null) {
+            Map<Chunk, Long> uncommittedRows = getUncommittedRows(thread);
+            if (!uncommittedRows.containsKey(row.getChunk())) {
+                uncommittedRows.put(row.getChunk(), row.getNumber());
+            }
+            readRows.put(row.getChunk(), row.getNumber() + 1);
+        }
+        return row;
+    }
+
+    /**
+     * Records rows committed by the thread. All rows read by the thread are committed except the bound rows, which
+     * are not executed yet.
+     *
+     * @param thread
+     *            which committed its rows.
+     * @param boundChunks
+     *            chunks of the bound rows.
+     * @param boundNumbers
+     *            numbers of the bound rows.
+     * @param boundRows
+     *            number of the bound rows.
+     */
+    public synchronized void commit(int thread, Chunk[] boundChunks, long[] boundNumbers, int boundRows) {
+        Map<Chunk, Long> uncommittedRows = getUncommittedRows(thread);
+        uncommittedRows.clear();
+        for (int row = 0; row < boundRows; row++) {
+            Long number = uncommittedRows.get(boundChunks[row]);
+            if (number == null || boundNumbers[row] < number) {
+                uncommittedRows.put(boundChunks[row], boundNumbers[row]);
+            }
+        }
+        for (Map.Entry<Chunk, Long> readRows : this.readRows.entrySet()) {
+            Chunk chunk = readRows.getKey();
+            long rows = readRows.getValue();
+            for (Map<Chunk, Long> threadRows : this.uncommittedRows.values()) {
+                Long number = threadRows.get(chunk);
+                if (number != null) {
+                    rows = min(rows, number);
+                }
+            }
+            Long committedRows = this.committedRows.get(chunk);
+            if (rows > (committedRows != null ? committedRows : 0)) {
+                backupJournal.writeLoad(chunk, committedRows != null ? committedRows : 0, rows);
+                this.committedRows.put(chunk, rows);
+            }
+        }
+    }
+
+    protected Map<Chunk, Long> getUncommittedRows(int thread) {
+        Map<Chunk, Long> uncommittedRows = this.uncommittedRows.get(thread);
+        if (uncommittedRows == null) {
+            this.uncommittedRows.put(thread, uncommittedRows = newHashMap());
+        }
+        return uncommittedRows;
+    }
+
+    public RowReader getRowReader() {
+        return rowReader;
+    }
+}
@@ -28,19 +28,30 @@
 package com.nuodb.migrator.backup.loader;
 
 import com.google.common.collect.Multimap;
+import com.nuodb.migrator.jdbc.metadata.Column;
+import com.nuodb.migrator.jdbc.metadata.Constraint;
+import com.nuodb.migrator.jdbc.metadata.ForeignKey;
+import com.nuodb.migrator.jdbc.metadata.Index;
+import com.nuodb.migrator.jdbc.metadata.PrimaryKey;
 import com.nuodb.migrator.jdbc.metadata.Table;
 import com.nuodb.migrator.jdbc.session.Work;
 import com.nuodb.migrator.jdbc.session.WorkEvent;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Collection;
+import java.util.Set;
 
 import static com.google.common.collect.ArrayListMultimap.create;
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Multimaps.synchronizedListMultimap;
+import static com.google.common.collect.Sets.newHashSet;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.*;
 
 /**
- * TODO: Refactor and replace with fork join task
+ * Schedules constraints by their own prerequisites rather than by a barrier
+ * across all tables. Indexes and primary keys of a table are loaded once the
+ * data of the table is loaded, a foreign key is loaded once the data of both
+ * the referencing and the referenced tables is loaded and the primary key or
+ * unique index of the referenced columns is loaded, so that constraints
+ * overlap with the rest of the data load and with unrelated indexes.
  *
  * @author Sergey Bushik
  */
@@ -50,22 +61,47 @@ public class LoadConstraintListener extends BackupLoaderAdapter {
     private final BackupLoaderManager backupLoaderManager;
     private final Multimap<Table, LoadConstraint> loadIndexes;
     private final Multimap<Table, LoadConstraint> loadForeignKeys;
-    private final AtomicBoolean loadForeignKeysStart = new AtomicBoolean();
+    private final Set<LoadConstraint> startedForeignKeys = newHashSet();
+    private final Set<Table> loadedTables = newHashSet();
+    private Set<Table> loadingTables;
 
     public LoadConstraintListener(BackupLoader backupLoader, BackupLoaderManager backupLoaderManager) {
         this.backupLoader = backupLoader;
         this.backupLoaderManager = backupLoaderManager;
 
         LoadConstraints loadConstraints = backupLoaderManager.getBackupLoaderContext().getLoadConstraints();
-        this.loadIndexes = synchronizedListMultimap(create(loadConstraints.getLoadConstraints(INDEX, PRIMARY_KEY)));
-        this.loadForeignKeys = synchronizedListMultimap(create(loadConstraints.getLoadConstraints(FOREIGN_KEY)));
+        this.loadIndexes = create(loadConstraints.getLoadConstraints(INDEX, PRIMARY_KEY));
+        this.loadForeignKeys = create(loadConstraints.getLoadConstraints(FOREIGN_KEY));
     }
 
     /**
-     * Tracks completion of load constraint work and updates list of queued
-     * indexes, primary keys & foreign keys. Once indexes are loaded foreign
-     * keys are started, eventually when all constraints are loaded
-     * corresponding signal will be called on sync object.
+     * Starts indexes & primary keys of tables which have no data to load, once
+     * tables to load data into are known.
+     *
+     * @param tables
+     *            source tables data is loaded into
+     */
+    public void loadConstraints(Collection<Table> tables) {
+        Collection<LoadConstraint> loadConstraints = newArrayList();
+        synchronized (this) {
+            loadingTables = newHashSet(tables);
+            loadingTables.removeAll(loadedTables);
+            for (Table table : loadIndexes.keySet()) {
+                if (!tables.contains(table)) {
+                    loadConstraints.addAll(loadIndexes.get(table));
+                }
+            }
+            loadConstraints.addAll(getForeignKeys());
+        }
+        backupLoader.loadConstraints(loadConstraints, backupLoaderManager);
+        loadConstraintsDone();
+    }
+
+    /**
+     * Tracks completion of table loads & load constraint works, starts indexes
+     * & primary keys of the loaded table and foreign keys whose tables are
+     * ready, eventually when all constraints are loaded corresponding signal
+     * will be called on sync object.
      *
      * @param event
      *            defining work completion
@@ -73,35 +109,90 @@ public class LoadConstraintListener extends BackupLoaderAdapter {
     @Override
     public void onExecuteEnd(WorkEvent event) {
         Work work = event.getWork();
+        Collection<LoadConstraint> loadConstraints = newArrayList();
         if (work instanceof LoadTableWork) {
             LoadTableWork loadTableWork = (LoadTableWork) work;
             LoadTable loadTable = loadTableWork.getLoadTable();
             Table table = backupLoader.getTable(loadTable, backupLoaderManager.getBackupLoaderContext());
             if (table != null) {
-                backupLoader.loadConstraints(newArrayList(loadIndexes.get(table)), backupLoaderManager);
+                synchronized (this) {
+                    loadedTables.add(table);
+                    if (loadingTables != null) {
+                        loadingTables.remove(table);
+                    }
+                    loadConstraints.addAll(loadIndexes.get(table));
+                    loadConstraints.addAll(getForeignKeys());
+                }
             }
         } else if (work instanceof LoadConstraintWork) {
             LoadConstraintWork loadConstraintWork = (LoadConstraintWork) work;
             LoadConstraint loadConstraint = loadConstraintWork.getLoadConstraint();
-            loadIndexes.remove(loadConstraint.getTable(), loadConstraint);
-            loadForeignKeys.remove(loadConstraint.getTable(), loadConstraint);
+            synchronized (this) {
+                loadIndexes.remove(loadConstraint.getTable(), loadConstraint);
+                loadForeignKeys.remove(loadConstraint.getTable(), loadConstraint);
+                loadConstraints.addAll(getForeignKeys());
+            }
         }
-        loadForeignKeys();
+        backupLoader.loadConstraints(loadConstraints, backupLoaderManager);
         loadConstraintsDone();
     }
 
-    protected void loadForeignKeys() {
-        if (loadIndexes.isEmpty() && loadForeignKeysStart.compareAndSet(false, true)) {
-            for (LoadConstraint loadForeignKey : loadForeignKeys.values()) {
-                backupLoader.loadConstraint(loadForeignKey, backupLoaderManager);
+    /**
+     * Marks foreign keys whose referencing & referenced tables are ready as
+     * started.
+     *
+     * @return foreign keys to start
+     */
+    protected Collection<LoadConstraint> getForeignKeys() {
+        Collection<LoadConstraint> foreignKeys = newArrayList();
+        for (LoadConstraint loadForeignKey : loadForeignKeys.values()) {
+            if (startedForeignKeys.contains(loadForeignKey)) {
+                continue;
+            }
+            if (isReady(loadForeignKey)) {
+                startedForeignKeys.add(loadForeignKey);
+                foreignKeys.add(loadForeignKey);
             }
         }
+        return foreignKeys;
+    }
+
+    /**
+     * Foreign key is ready if data of both tables is loaded and no primary key
+     * or unique index on the referenced columns is left to load, as the target
+     * database requires the referenced columns to be unique. Other indexes of
+     * both tables don't hold the foreign key.
+     */
+    protected boolean isReady(LoadConstraint loadForeignKey) {
+        ForeignKey foreignKey = (ForeignKey) loadForeignKey.getConstraint();
+        Table primaryTable = foreignKey.getPrimaryTable();
+        if (!isLoaded(loadForeignKey.getTable()) || !isLoaded(primaryTable)) {
+            return false;
+        }
+        Collection<Column> primaryColumns = foreignKey.getPrimaryColumns();
+        for (LoadConstraint loadIndex : loadIndexes.get(primaryTable)) {
+            Constraint constraint = loadIndex.getConstraint();
+            boolean unique = constraint instanceof PrimaryKey
+                    || (constraint instanceof Index && ((Index) constraint).isUnique());
+            if (unique && primaryColumns.containsAll(constraint.getColumns())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected boolean isLoaded(Table table) {
+        return loadingTables != null && !loadingTables.contains(table);
     }
 
     protected void loadConstraintsDone() {
         // once all indexes & foreign keys are loaded shutdown pool and await
         // for termination
-        if (loadIndexes.isEmpty() && loadForeignKeys.isEmpty()) {
+        boolean done;
+        synchronized (this) {
+            done = loadingTables != null && loadIndexes.isEmpty() && loadForeignKeys.isEmpty();
+        }
+        if (done) {
             backupLoaderManager.loadConstraintsDone();
         }
     }
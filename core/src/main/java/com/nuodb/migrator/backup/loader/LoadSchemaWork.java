@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.loader;
+
+import com.nuodb.migrator.jdbc.metadata.generator.CompositeScriptExporter;
+import com.nuodb.migrator.jdbc.metadata.generator.ProxyScriptExporter;
+import com.nuodb.migrator.jdbc.metadata.generator.Script;
+import com.nuodb.migrator.jdbc.metadata.generator.ScriptExporter;
+import com.nuodb.migrator.jdbc.metadata.generator.SessionScriptExporter;
+import com.nuodb.migrator.jdbc.session.WorkBase;
+
+import java.util.Collection;
+import java.util.Queue;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.nuodb.migrator.backup.BackupMessages.LOAD_SCHEMA_WORK;
+import static com.nuodb.migrator.context.ContextUtils.getMessage;
+import static com.nuodb.migrator.jdbc.JdbcUtils.closeQuietly;
+
+/**
+ * Loads groups of schema scripts taken from a queue shared with the other
+ * works, each group is executed on the session of this work in order and is
+ * committed on its own, so that a pool of works executes independent groups in
+ * parallel
+ *
+ * @author Sergey Bushik
+ */
+public class LoadSchemaWork extends WorkBase {
+
+    private Queue<Collection<Script>> scripts;
+    private BackupLoaderManager backupLoaderManager;
+    private BackupLoaderContext backupLoaderContext;
+    private ScriptExporter scriptExporter;
+
+    public LoadSchemaWork(Queue<Collection<Script>> scripts, BackupLoaderManager backupLoaderManager) {
+        this.scripts = scripts;
+        this.backupLoaderManager = backupLoaderManager;
+    }
+
+    @Override
+    public String getName() {
+        return getMessage(LOAD_SCHEMA_WORK);
+    }
+
+    @Override
+    protected void init() throws Exception {
+        backupLoaderContext = backupLoaderManager.getBackupLoaderContext();
+        scriptExporter = createScriptExporter();
+        scriptExporter.open();
+    }
+
+    protected ScriptExporter createScriptExporter() throws Exception {
+        Collection<ScriptExporter> scriptExporters = newArrayList();
+        ScriptExporter scriptExporter = backupLoaderContext.getScriptExporter();
+        if (scriptExporter != null) {
+            // will close underlying script exporter later manually
+            scriptExporters.add(new ProxyScriptExporter(scriptExporter, false));
+        }
+        scriptExporters.add(new SessionScriptExporter(getSession()));
+        return new CompositeScriptExporter(scriptExporters);
+    }
+
+    @Override
+    public void execute() throws Exception {
+        Collection<Script> group;
+        while (backupLoaderManager.canExecute(this) && (group = scripts.poll()) != null) {
+            scriptExporter.exportScripts(group);
+            getSession().getConnection().commit();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        closeQuietly(scriptExporter);
+        super.close();
+    }
+
+    public Queue<Collection<Script>> getScripts() {
+        return scripts;
+    }
+}
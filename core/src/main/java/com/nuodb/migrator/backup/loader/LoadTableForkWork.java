@@ -28,21 +28,31 @@
 package com.nuodb.migrator.backup.loader;
 
 import com.google.common.base.Function;
+import com.nuodb.migrator.backup.BackupJournal;
+import com.nuodb.migrator.backup.Chunk;
 import com.nuodb.migrator.backup.Column;
 import com.nuodb.migrator.backup.format.value.Row;
 import com.nuodb.migrator.backup.format.value.RowReader;
 import com.nuodb.migrator.backup.format.value.Value;
-import com.nuodb.migrator.backup.format.value.ValueHandle;
+import com.nuodb.migrator.backup.format.value.ValueAccessor;
+import com.nuodb.migrator.backup.format.value.ValueSlot;
 import com.nuodb.migrator.backup.format.value.ValueHandleList;
 import com.nuodb.migrator.backup.format.value.ValueHandleListBuilder;
 import com.nuodb.migrator.jdbc.commit.BatchCommitStrategy;
 import com.nuodb.migrator.jdbc.commit.CommitExecutor;
 import com.nuodb.migrator.jdbc.commit.CommitStrategy;
 import com.nuodb.migrator.jdbc.model.Field;
+import com.nuodb.migrator.jdbc.query.BasicQuery;
+import com.nuodb.migrator.jdbc.query.InsertQuery;
+import com.nuodb.migrator.jdbc.query.Query;
 import com.nuodb.migrator.jdbc.session.WorkForkJoinTaskBase;
 import org.slf4j.Logger;
 
 import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 
 import static com.google.common.collect.Iterables.transform;
 import static com.google.common.collect.Lists.newArrayList;
@@ -53,7 +63,8 @@ import static com.nuodb.migrator.jdbc.JdbcUtils.closeQuietly;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
- * Table loader parallelized on row level
+ * Table loader parallelized on row level. Rows are bound to a statement inserting the number of rows of the insert
+ * query, rows left after the last full statement are inserted by a statement of their number.
  *
  * @author Sergey Bushik
  */
@@ -65,17 +76,41 @@ public class LoadTableForkWork extends WorkForkJoinTaskBase {
     private LoadTable loadTable;
     private RowReader rowReader;
     private int thread;
+    private LoadCheckpoint loadCheckpoint;
     private BackupLoaderManager backupLoaderManager;
     private BackupLoaderContext backupLoaderContext;
     private PreparedStatement statement;
+    private CommitStrategy commitStrategy;
     private CommitExecutor commitExecutor;
-    private ValueHandleList valueHandleList;
+    private ValueAccessor[] valueAccessors;
+    private int insertRows;
+    private int boundRows;
+    private ValueSlot[][] boundValues;
+    private Chunk[] boundChunks;
+    private long[] boundNumbers;
+    private BackupJournal backupJournal;
+    private Collection<ExecutedRows> executedRows = newArrayList();
+    private ExecutedRows lastExecutedRows;
+    private Chunk chunk;
+    private NavigableMap<Long, Long> loadedRanges;
 
     public LoadTableForkWork(LoadTable loadTable, RowReader rowReader, int thread,
             BackupLoaderManager backupLoaderManager) {
+        this(loadTable, rowReader, thread, null, backupLoaderManager);
+    }
+
+    /**
+     * @param loadCheckpoint
+     *            checkpoint of the reader shared with other works or null if
+     *            rows read by this work are read by no other work, so that
+     *            ranges of rows it committed are journaled as they are.
+     */
+    public LoadTableForkWork(LoadTable loadTable, RowReader rowReader, int thread, LoadCheckpoint loadCheckpoint,
+            BackupLoaderManager backupLoaderManager) {
         super(backupLoaderManager, backupLoaderManager.getBackupLoaderContext().getTargetSessionFactory());
         this.thread = thread;
         this.rowReader = rowReader;
+        this.loadCheckpoint = loadCheckpoint;
         this.loadTable = loadTable;
         this.backupLoaderManager = backupLoaderManager;
     }
@@ -89,29 +124,59 @@ public class LoadTableForkWork extends WorkForkJoinTaskBase {
     protected void init() throws Exception {
         backupLoaderContext = backupLoaderManager.getBackupLoaderContext();
         statement = getSession().getConnection().prepareStatement(loadTable.getQuery().toString());
-        CommitStrategy commitStrategy = backupLoaderContext.getCommitStrategy() != null
-                ? backupLoaderContext.getCommitStrategy()
+        commitStrategy = backupLoaderContext.getCommitStrategy() != null ? backupLoaderContext.getCommitStrategy()
                 : new BatchCommitStrategy();
         commitExecutor = commitStrategy.createCommitExecutor(statement, loadTable.getQuery());
+        Query query = loadTable.getQuery();
+        insertRows = query instanceof InsertQuery ? ((InsertQuery) query).getRows() : 1;
+        boundValues = insertRows > 1 ? new ValueSlot[insertRows][] : null;
+        boundChunks = new Chunk[insertRows];
+        boundNumbers = new long[insertRows];
+        backupJournal = backupLoaderContext.getBackupJournal();
     }
 
     @Override
     public void execute() throws Exception {
         try {
             Row row;
-            while ((row = rowReader.readRow()) != null && backupLoaderManager.canExecute(this)) {
+            while ((row = readRow()) != null && backupLoaderManager.canExecute(this)) {
+                if (isLoaded(row)) {
+                    if (loadCheckpoint == null) {
+                        addExecutedRow(row.getChunk(), row.getNumber());
+                    }
+                    continue;
+                }
                 backupLoaderManager.beforeLoadRow(this, loadTable, row);
-                int index = 0;
                 Value[] values = row.getValues();
-                initValueHandleList();
-                for (ValueHandle valueHandle : valueHandleList) {
-                    valueHandle.getValueFormat().setValue(values[index++], valueHandle.getJdbcValueAccess(),
-                            valueHandle.getJdbcValueAccessOptions());
+                if (valueAccessors == null) {
+                    valueAccessors = createValueAccessors(statement, insertRows);
+                }
+                int offset = boundRows * values.length;
+                for (int index = 0; index < values.length; index++) {
+                    valueAccessors[offset + index].setValue(values[index]);
+                }
+                if (boundValues != null) {
+                    bindValues(boundRows, values);
+                }
+                boundChunks[boundRows] = row.getChunk();
+                boundNumbers[boundRows] = row.getNumber();
+                if (++boundRows == insertRows) {
+                    addExecutedRows();
+                    if (commitExecutor.execute()) {
+                        writeCommittedRows();
+                    }
                 }
-                commitExecutor.execute();
                 backupLoaderManager.afterLoadRow(this, loadTable, row);
             }
+            // rows executed or bound by the cancelled work are neither committed nor inserted
+            if (!backupLoaderManager.canExecute(this)) {
+                return;
+            }
             commitExecutor.finish();
+            writeCommittedRows();
+            if (boundRows > 0) {
+                executeBoundRows();
+            }
         } catch (Exception exception) {
             System.out.println("--> LoadTableForkWork.execute: " + this.getLoadTable().getTable().getQualifiedName());
             exception.printStackTrace();
@@ -119,20 +184,160 @@ public class LoadTableForkWork extends WorkForkJoinTaskBase {
         }
     }
 
-    protected void initValueHandleList() {
-        if (valueHandleList == null) {
-            ValueHandleListBuilder builder = newBuilder(getSession().getConnection(), statement);
-            builder.withDialect(getSession().getDialect());
-            builder.withFields(
-                    newArrayList(transform(loadTable.getRowSet().getColumns(), new Function<Column, Field>() {
-                        @Override
-                        public Field apply(Column column) {
-                            return loadTable.getTable().getColumn(column.getName());
-                        }
-                    })));
-            builder.withTimeZone(backupLoaderContext.getTimeZone());
-            builder.withValueFormatRegistry(backupLoaderContext.getValueFormatRegistry());
-            valueHandleList = builder.build();
+    /**
+     * Keeps values of the bound row for the statement of the rows left after
+     * the last full statement, the values are copied to the slots allocated
+     * once, as the row values can be refilled by the reader.
+     */
+    protected void bindValues(int row, Value[] values) {
+        ValueSlot[] slots = boundValues[row];
+        if (slots == null) {
+            boundValues[row] = slots = new ValueSlot[values.length];
+            for (int index = 0; index < slots.length; index++) {
+                slots[index] = new ValueSlot();
+            }
+        }
+        for (int index = 0; index < values.length; index++) {
+            slots[index].setValue(values[index]);
+        }
+    }
+
+    protected Row readRow() {
+        return loadCheckpoint != null ? loadCheckpoint.readRow(thread) : rowReader.readRow();
+    }
+
+    /**
+     * Checks whether the row is among the rows of its chunk committed by the
+     * previous run.
+     */
+    protected boolean isLoaded(Row row) {
+        if (backupJournal == null) {
+            return false;
+        }
+        if (chunk != row.getChunk()) {
+            chunk = row.getChunk();
+            loadedRanges = backupJournal.getLoadedRanges(chunk);
+        }
+        if (loadedRanges.isEmpty()) {
+            return false;
+        }
+        Map.Entry<Long, Long> loadedRange = loadedRanges.floorEntry(row.getNumber());
+        return loadedRange != null && row.getNumber() < loadedRange.getValue();
+    }
+
+    /**
+     * Bound rows are executed, so that they are committed with the next commit.
+     */
+    protected void addExecutedRows() {
+        if (loadCheckpoint == null) {
+            for (int row = 0; row < boundRows; row++) {
+                addExecutedRow(boundChunks[row], boundNumbers[row]);
+            }
+        }
+        boundRows = 0;
+    }
+
+    /**
+     * Adds row to the ranges of executed rows, a row following the last row
+     * of the last range extends it.
+     */
+    protected void addExecutedRow(Chunk chunk, long number) {
+        if (backupJournal == null) {
+            return;
+        }
+        ExecutedRows executedRows = lastExecutedRows;
+        if (executedRows != null && executedRows.chunk == chunk && executedRows.to == number) {
+            executedRows.to++;
+        } else {
+            this.executedRows.add(lastExecutedRows = new ExecutedRows(chunk, number));
+        }
+    }
+
+    /**
+     * Journals rows executed so far, which are committed, bound rows are left
+     * as they are not executed yet.
+     */
+    protected void writeCommittedRows() {
+        if (backupJournal == null) {
+            return;
+        }
+        if (loadCheckpoint != null) {
+            loadCheckpoint.commit(thread, boundChunks, boundNumbers, boundRows);
+            return;
+        }
+        for (ExecutedRows executedRows : this.executedRows) {
+            backupJournal.writeLoad(executedRows.chunk, executedRows.from, executedRows.to);
+        }
+        this.executedRows.clear();
+        if (lastExecutedRows != null) {
+            // the next row following the last range continues it from the row after the journaled ones
+            lastExecutedRows.from = lastExecutedRows.to;
+            this.executedRows.add(lastExecutedRows);
+        }
+    }
+
+    /**
+     * Inserts rows bound after the last full statement with a statement of their number and commits them.
+     */
+    protected void executeBoundRows() throws Exception {
+        Query query = new BasicQuery(((InsertQuery) loadTable.getQuery()).toString(boundRows));
+        PreparedStatement statement = getSession().getConnection().prepareStatement(query.toString());
+        try {
+            ValueAccessor[] valueAccessors = createValueAccessors(statement, boundRows);
+            int offset = 0;
+            for (int row = 0; row < boundRows; row++) {
+                ValueSlot[] values = boundValues[row];
+                for (int index = 0; index < values.length; index++) {
+                    valueAccessors[offset++].setValue(values[index]);
+                }
+            }
+            CommitExecutor commitExecutor = commitStrategy.createCommitExecutor(statement, query);
+            commitExecutor.execute();
+            addExecutedRows();
+            commitExecutor.finish();
+            writeCommittedRows();
+        } finally {
+            closeQuietly(statement);
+        }
+    }
+
+    /**
+     * Creates accessors of parameters of each of the rows inserted by the statement.
+     */
+    protected ValueAccessor[] createValueAccessors(PreparedStatement statement, int rows) {
+        Collection<Field> fields = newArrayList(
+                transform(loadTable.getRowSet().getColumns(), new Function<Column, Field>() {
+                    @Override
+                    public Field apply(Column column) {
+                        return loadTable.getTable().getColumn(column.getName());
+                    }
+                }));
+        List<Field> rowsFields = newArrayList();
+        for (int row = 0; row < rows; row++) {
+            rowsFields.addAll(fields);
+        }
+        ValueHandleListBuilder builder = newBuilder(getSession().getConnection(), statement);
+        builder.withDialect(getSession().getDialect());
+        builder.withFields(rowsFields);
+        builder.withTimeZone(backupLoaderContext.getTimeZone());
+        builder.withValueFormatRegistry(backupLoaderContext.getValueFormatRegistry());
+        ValueHandleList valueHandleList = builder.build();
+        return valueHandleList.getValueAccessors();
+    }
+
+    /**
+     * Range of rows of a chunk executed by the work.
+     */
+    private static class ExecutedRows {
+
+        private final Chunk chunk;
+        private long from;
+        private long to;
+
+        public ExecutedRows(Chunk chunk, long number) {
+            this.chunk = chunk;
+            this.from = number;
+            this.to = number + 1;
         }
     }
 
@@ -27,17 +27,34 @@
  */
 package com.nuodb.migrator.backup.loader;
 
+import com.nuodb.migrator.backup.BackupJournal;
+import com.nuodb.migrator.backup.BackupOps;
+import com.nuodb.migrator.backup.Chunk;
+import com.nuodb.migrator.backup.RowSet;
+import com.nuodb.migrator.backup.format.Input;
+import com.nuodb.migrator.backup.format.InputRange;
+import com.nuodb.migrator.backup.format.SplittableInput;
+import com.nuodb.migrator.backup.format.value.ChunkRange;
 import com.nuodb.migrator.backup.format.value.RowReader;
 import com.nuodb.migrator.jdbc.session.WorkForkJoinTaskBase;
 import org.slf4j.Logger;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.nuodb.migrator.backup.BackupMessages.LOAD_TABLE_WORK;
-import static com.nuodb.migrator.backup.format.value.RowReaders.newSequentialRowReader;
+import static com.nuodb.migrator.backup.format.value.RowReaders.newChunkQueueRowReader;
+import static com.nuodb.migrator.backup.format.value.RowReaders.newChunkRangeQueueRowReader;
 import static com.nuodb.migrator.backup.format.value.RowReaders.newSynchronizedRowReader;
 import static com.nuodb.migrator.context.ContextUtils.getMessage;
+import static java.lang.Long.MAX_VALUE;
+import static java.lang.Math.max;
+import static java.lang.String.format;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -49,11 +66,22 @@ import static org.slf4j.LoggerFactory.getLogger;
 @SuppressWarnings("all")
 public class LoadTableWork extends WorkForkJoinTaskBase {
 
+    /**
+     * Smaller chunks are not split.
+     */
+    public static final long MIN_RANGE_SIZE = 1L << 22;
+    public static final int RANGES_PER_THREAD = 2;
+
     private transient Logger logger = getLogger(getClass());
 
     private LoadTable loadTable;
     private BackupLoaderManager backupLoaderManager;
     private RowReader rowReader;
+    private Collection<Chunk> loadChunks;
+    private Queue<Chunk> chunks;
+    private Queue<ChunkRange> chunkRanges;
+    private Collection<RowReader> rowReaders = newArrayList();
+    private LoadCheckpoint loadCheckpoint;
 
     public LoadTableWork(LoadTable loadTable, BackupLoaderManager backupLoaderManager) {
         super(backupLoaderManager, backupLoaderManager.getBackupLoaderContext().getTargetSession());
@@ -66,36 +94,247 @@ public class LoadTableWork extends WorkForkJoinTaskBase {
         return getMessage(LOAD_TABLE_WORK, loadTable.getRowSet().getName());
     }
 
+    /**
+     * Threads take whole chunks from a lock free queue if there are enough
+     * chunks to keep all of them busy. Otherwise chunks are split into ranges
+     * of rows taken from a queue the same way, and if the format can't split
+     * them threads share a single synchronized row reader. Chunks recorded as
+     * loaded by the journal are left out, and so are the row groups of a
+     * partially loaded chunk.
+     */
     @Override
     protected void init() throws Exception {
-        BackupLoaderContext backupLoaderContext = backupLoaderManager.getBackupLoaderContext();
-        RowReader rowReader = newSequentialRowReader(loadTable.getRowSet(), backupLoaderContext.getBackupOps(),
-                backupLoaderContext.getFormatFactory(), backupLoaderContext.getFormatAttributes());
         int threads = loadTable.getThreads();
-        if (threads > 1) {
-            rowReader = newSynchronizedRowReader(rowReader);
+        BackupJournal backupJournal = backupLoaderManager.getBackupLoaderContext().getBackupJournal();
+        if (backupJournal != null) {
+            initJournal(backupJournal);
+        }
+        loadChunks = getLoadChunks();
+        chunks = new ConcurrentLinkedQueue<Chunk>(loadChunks);
+        if ((threads > 1 && loadChunks.size() < threads) || backupJournal != null) {
+            chunkRanges = getChunkRanges(threads);
+        }
+        if (chunkRanges == null && (threads <= 1 || loadChunks.size() < threads)) {
+            RowReader rowReader = createRowReader(threads <= 1);
+            if (threads > 1) {
+                if (backupJournal != null) {
+                    loadCheckpoint = new LoadCheckpoint(rowReader, backupJournal);
+                }
+                rowReader = newSynchronizedRowReader(rowReader, loadCheckpoint != null ? loadCheckpoint : rowReader);
+            }
+            this.rowReader = rowReader;
+        }
+    }
+
+    /**
+     * Refuses to resume load of the table started by the previous run if none
+     * of its chunks has a checkpoint, as rows it committed can't be told.
+     * Otherwise start of the table load is recorded.
+     */
+    protected void initJournal(BackupJournal backupJournal) {
+        RowSet rowSet = loadTable.getRowSet();
+        if (backupJournal.isTableStarted(rowSet.getName())) {
+            boolean checkpoint = rowSet.getChunks().isEmpty();
+            for (Chunk chunk : rowSet.getChunks()) {
+                checkpoint |= backupJournal.isChunkStarted(chunk);
+            }
+            if (!checkpoint) {
+                throw new BackupLoaderException(format("Load of %s table started by the previous run has no "
+                        + "checkpoint in %s journal and can't be resumed without duplicating rows, empty the table "
+                        + "and load it without resume", rowSet.getName(), backupJournal.getFile().getPath()));
+            }
+        } else {
+            backupJournal.writeTable(rowSet.getName());
+        }
+    }
+
+    protected Collection<Chunk> getLoadChunks() {
+        BackupJournal backupJournal = backupLoaderManager.getBackupLoaderContext().getBackupJournal();
+        Collection<Chunk> loadChunks = newArrayList();
+        for (Chunk chunk : loadTable.getRowSet().getChunks()) {
+            if (backupJournal == null || !backupJournal.isChunkLoaded(chunk)) {
+                loadChunks.add(chunk);
+            } else if (logger.isDebugEnabled()) {
+                logger.debug(format("Chunk %s is loaded by the previous run", chunk.getName()));
+            }
+        }
+        return loadChunks;
+    }
+
+    /**
+     * Splits uncompressed chunks of a splittable format into ranges of rows,
+     * which are at least {@link #MIN_RANGE_SIZE} bytes each, if there are
+     * fewer chunks than threads. Row groups recorded for a chunk are merged
+     * into ranges instead of scanning the chunk, and the ones within the row
+     * ranges committed by the previous run are not read at all. Rows of
+     * ranges are journaled as ranges of committed rows, so rows committed by
+     * the previous run are skipped by the load works otherwise.
+     *
+     * @return queue of chunk ranges or null if chunks are read as a whole.
+     */
+    protected Queue<ChunkRange> getChunkRanges(int threads) {
+        BackupLoaderContext backupLoaderContext = backupLoaderManager.getBackupLoaderContext();
+        BackupOps backupOps = backupLoaderContext.getBackupOps();
+        BackupJournal backupJournal = backupLoaderContext.getBackupJournal();
+        long size = 0;
+        for (Chunk chunk : loadChunks) {
+            if (chunk.getCodec() != null) {
+                return null;
+            }
+            size += chunk.getSize(backupOps);
         }
-        this.rowReader = rowReader;
+        boolean split = threads > 1 && loadChunks.size() < threads;
+        long rangeSize = split ? max(size / (threads * RANGES_PER_THREAD), MIN_RANGE_SIZE) : MAX_VALUE;
+        boolean seek = false;
+        Queue<ChunkRange> chunkRanges = new ConcurrentLinkedQueue<ChunkRange>();
+        for (Chunk chunk : loadChunks) {
+            Input input = backupLoaderContext.getFormatFactory().createInput(
+                    loadTable.getRowSet().getBackup().getFormat(), backupLoaderContext.getFormatAttributes());
+            if (!(input instanceof SplittableInput) || !((SplittableInput) input).isSplittable()) {
+                return null;
+            }
+            if (isIndexed(chunk, backupOps)) {
+                NavigableMap<Long, Long> loadedRanges = backupJournal != null
+                        ? backupJournal.getLoadedRanges(chunk)
+                        : null;
+                InputRange inputRange = null;
+                for (InputRange rowGroup : chunk.getRowGroups()) {
+                    if (isLoaded(rowGroup, loadedRanges)) {
+                        if (inputRange != null) {
+                            chunkRanges.add(new ChunkRange(chunk, inputRange));
+                            inputRange = null;
+                        }
+                        seek = true;
+                        continue;
+                    }
+                    inputRange = inputRange == null ? rowGroup
+                            : new InputRange(inputRange.getOffset(), inputRange.getLength() + rowGroup.getLength(),
+                                    inputRange.getRow(), inputRange.getRows() + rowGroup.getRows());
+                    if (inputRange.getLength() >= rangeSize) {
+                        chunkRanges.add(new ChunkRange(chunk, inputRange));
+                        inputRange = null;
+                    }
+                }
+                if (inputRange != null) {
+                    chunkRanges.add(new ChunkRange(chunk, inputRange));
+                }
+            } else if (!split || chunk.getSize(backupOps) < rangeSize * 2) {
+                chunkRanges.add(new ChunkRange(chunk, null));
+            } else {
+                addChunkRanges(chunkRanges, chunk, (SplittableInput) input, rangeSize);
+            }
+        }
+        return seek || chunkRanges.size() > loadChunks.size() ? chunkRanges : null;
+    }
+
+    /**
+     * Checks whether all rows of the row group are within a range of rows
+     * committed by the previous run.
+     */
+    protected boolean isLoaded(InputRange rowGroup, NavigableMap<Long, Long> loadedRanges) {
+        if (loadedRanges == null) {
+            return false;
+        }
+        Map.Entry<Long, Long> loadedRange = loadedRanges.floorEntry(rowGroup.getRow());
+        return loadedRange != null && rowGroup.getRow() + rowGroup.getRows() <= loadedRange.getValue();
+    }
+
+    /**
+     * Row groups are used if they cover all rows and bytes of the chunk, which
+     * also tells that the chunk was written completely.
+     */
+    protected boolean isIndexed(Chunk chunk, BackupOps backupOps) {
+        List<InputRange> rowGroups = chunk.getRowGroups();
+        if (rowGroups == null || rowGroups.isEmpty()) {
+            return false;
+        }
+        InputRange rowGroup = rowGroups.get(rowGroups.size() - 1);
+        boolean indexed = rowGroup.getRow() + rowGroup.getRows() == chunk.getRowCount()
+                && rowGroup.getOffset() + rowGroup.getLength() <= chunk.getSize(backupOps);
+        if (!indexed && logger.isWarnEnabled()) {
+            logger.warn(format("Row groups of chunk %s don't match its rows or size", chunk.getName()));
+        }
+        return indexed;
+    }
+
+    /**
+     * Scans the chunk to split it into ranges. The scan doesn't decode values,
+     * but it reads the whole chunk once more before the ranges are decoded, so
+     * chunks written with row groups are split without it.
+     */
+    protected void addChunkRanges(Queue<ChunkRange> chunkRanges, Chunk chunk, SplittableInput input,
+            long rangeSize) {
+        BackupOps backupOps = backupLoaderManager.getBackupLoaderContext().getBackupOps();
+        input.setRowSet(loadTable.getRowSet());
+        input.setInputStream(backupOps.openInput(chunk.getName()));
+        try {
+            List<InputRange> inputRanges = input.split(rangeSize);
+            if (inputRanges.size() == 1) {
+                // a single range is read as the whole chunk
+                chunkRanges.add(new ChunkRange(chunk, null));
+            } else {
+                for (InputRange inputRange : inputRanges) {
+                    chunkRanges.add(new ChunkRange(chunk, inputRange));
+                }
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug(format("Chunk %s is split into %d ranges", chunk.getName(), inputRanges.size()));
+            }
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    /**
+     * Creates reader taking chunks or chunk ranges from the shared queue, a
+     * single reader reads them sequentially.
+     *
+     * @param reuseRows
+     *            true if the reader is used by a single thread, so that the
+     *            row can be refilled on every read.
+     */
+    protected RowReader createRowReader(boolean reuseRows) {
+        BackupLoaderContext backupLoaderContext = backupLoaderManager.getBackupLoaderContext();
+        if (chunkRanges != null) {
+            return newChunkRangeQueueRowReader(loadTable.getRowSet(), chunkRanges,
+                    backupLoaderContext.getBackupOps(), backupLoaderContext.getFormatFactory(),
+                    backupLoaderContext.getFormatAttributes(), reuseRows);
+        }
+        return newChunkQueueRowReader(loadTable.getRowSet(), chunks, backupLoaderContext.getBackupOps(),
+                backupLoaderContext.getFormatFactory(), backupLoaderContext.getFormatAttributes(), reuseRows);
     }
 
     @Override
     public void execute() throws Exception {
         Collection<LoadTableForkWork> loadTableForkWorks = newArrayList();
         for (int thread = 0; thread < loadTable.getThreads(); thread++) {
+            RowReader rowReader = this.rowReader;
+            if (rowReader == null) {
+                rowReaders.add(rowReader = createRowReader(true));
+            }
             LoadTableForkWork loadTableForkWork = new LoadTableForkWork(loadTable, rowReader, thread,
-                    backupLoaderManager);
+                    loadCheckpoint, backupLoaderManager);
             loadTableForkWork.fork();
             loadTableForkWorks.add(loadTableForkWork);
         }
         for (LoadTableForkWork loadTableForkWork : loadTableForkWorks) {
             loadTableForkWork.join();
         }
+        BackupJournal backupJournal = backupLoaderManager.getBackupLoaderContext().getBackupJournal();
+        if (backupJournal != null && backupLoaderManager.canExecute(this)) {
+            for (Chunk chunk : loadChunks) {
+                backupJournal.writeLoad(chunk, chunk.getRowCount());
+            }
+        }
     }
 
     @Override
     public void close() throws Exception {
         super.close();
         closeQuietly(rowReader);
+        for (RowReader rowReader : rowReaders) {
+            closeQuietly(rowReader);
+        }
     }
 
     public LoadTable getLoadTable() {
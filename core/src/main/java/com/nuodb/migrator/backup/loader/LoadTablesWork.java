@@ -27,14 +27,20 @@
  */
 package com.nuodb.migrator.backup.loader;
 
+import com.google.common.primitives.Longs;
+import com.nuodb.migrator.backup.BackupOps;
 import com.nuodb.migrator.jdbc.session.WorkRunnableBase;
-import com.nuodb.migrator.utils.concurrent.ForkJoinTask;
 
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
 import static com.nuodb.migrator.backup.BackupMessages.LOAD_TABLES_WORK;
 import static com.nuodb.migrator.context.ContextUtils.getMessage;
+import static java.util.Collections.sort;
 
 /**
  * @author Sergey Bushik
@@ -55,7 +61,10 @@ public class LoadTablesWork extends WorkRunnableBase {
 
     @Override
     public void execute() throws Exception {
-        LoadTables loadTables = backupLoaderManager.getBackupLoaderContext().getLoadTables();
+        BackupLoaderContext backupLoaderContext = backupLoaderManager.getBackupLoaderContext();
+        BackupOps backupOps = backupLoaderContext.getBackupOps();
+        List<LoadTable> loadTables = newArrayList(backupLoaderContext.getLoadTables());
+        sortLoadTables(loadTables, backupOps);
         Collection<LoadTableWork> loadTableWorks = newArrayList();
         for (LoadTable loadTable : loadTables) {
             LoadTableWork loadTableWork = new LoadTableWork(loadTable, backupLoaderManager);
@@ -67,4 +76,40 @@ public class LoadTablesWork extends WorkRunnableBase {
         }
         backupLoaderManager.loadDataDone();
     }
+
+    /**
+     * Sorts tables by size of their row sets in largest first order, so that small tables fill the gaps at the end.
+     * Tables of unknown size are loaded after the tables of known sizes, same as queries of unknown costs are written
+     * by {@link com.nuodb.migrator.backup.writer.WriteQueriesWork}. The sort is stable, so tables of equal or unknown
+     * sizes keep their order.
+     *
+     * @param loadTables
+     *            to sort
+     * @param backupOps
+     *            to read sizes of the chunks
+     */
+    protected void sortLoadTables(List<LoadTable> loadTables, BackupOps backupOps) {
+        final Map<LoadTable, Long> sizes = newHashMap();
+        for (LoadTable loadTable : loadTables) {
+            sizes.put(loadTable, getSize(loadTable, backupOps));
+        }
+        sort(loadTables, new Comparator<LoadTable>() {
+            @Override
+            public int compare(LoadTable loadTable1, LoadTable loadTable2) {
+                Long size1 = sizes.get(loadTable1);
+                Long size2 = sizes.get(loadTable2);
+                if (size1 == null || size2 == null) {
+                    return size1 == null ? (size2 == null ? 0 : 1) : -1;
+                }
+                return Longs.compare(size2, size1);
+            }
+        });
+    }
+
+    /**
+     * @return size of the row set of the table or null if it's unknown
+     */
+    protected Long getSize(LoadTable loadTable, BackupOps backupOps) {
+        return loadTable.getRowSet().getSize(backupOps);
+    }
 }
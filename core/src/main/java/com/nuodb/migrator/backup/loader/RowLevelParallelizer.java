@@ -40,8 +40,12 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 
 /**
  * Forking on row level where the number of workers is proportional to the size
- * of the largest row set. Notice row level parallelization may (and typically
- * does) reorder of the rows in the loaded table.
+ * of the largest row set. The number of workers isn't limited by the number of
+ * chunks: row set with fewer chunks than workers is split into ranges of rows
+ * parsed independently, and if its chunks can't be split workers share a
+ * single reader and still insert in parallel. Notice row level
+ * parallelization may (and typically does) reorder of the rows in the loaded
+ * table.
  *
  * @author Sergey Bushik
  */
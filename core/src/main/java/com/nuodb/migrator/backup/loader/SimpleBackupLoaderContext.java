@@ -28,6 +28,7 @@
 package com.nuodb.migrator.backup.loader;
 
 import com.nuodb.migrator.backup.Backup;
+import com.nuodb.migrator.backup.BackupJournal;
 import com.nuodb.migrator.backup.BackupOps;
 import com.nuodb.migrator.backup.format.FormatFactory;
 import com.nuodb.migrator.backup.format.value.ValueFormatRegistry;
@@ -62,12 +63,14 @@ public class SimpleBackupLoaderContext implements BackupLoaderContext {
     private Backup backup;
     private BackupOps backupOps;
     private Map backupOpsContext;
+    private BackupJournal backupJournal;
     private CommitStrategy commitStrategy;
     private Database database;
     private ExecutorService executorService;
     private FormatFactory formatFactory;
     private Map<String, Object> formatAttributes;
     private InsertTypeFactory insertTypeFactory;
+    private InsertRowsFactory insertRowsFactory;
     private LoadConstraints loadConstraints;
     private LoadTables loadTables;
     private Parallelizer parallelizer;
@@ -125,6 +128,16 @@ public class SimpleBackupLoaderContext implements BackupLoaderContext {
         this.backupOpsContext = backupOpsContext;
     }
 
+    @Override
+    public BackupJournal getBackupJournal() {
+        return backupJournal;
+    }
+
+    @Override
+    public void setBackupJournal(BackupJournal backupJournal) {
+        this.backupJournal = backupJournal;
+    }
+
     @Override
     public CommitStrategy getCommitStrategy() {
         return commitStrategy;
@@ -195,6 +208,16 @@ public class SimpleBackupLoaderContext implements BackupLoaderContext {
         this.insertTypeFactory = insertTypeFactory;
     }
 
+    @Override
+    public InsertRowsFactory getInsertRowsFactory() {
+        return insertRowsFactory;
+    }
+
+    @Override
+    public void setInsertRowsFactory(InsertRowsFactory insertRowsFactory) {
+        this.insertRowsFactory = insertRowsFactory;
+    }
+
     @Override
     public LoadConstraints getLoadConstraints() {
         return loadConstraints;
@@ -85,7 +85,10 @@ public class SimpleBackupLoaderManager extends SimpleWorkManager<BackupLoaderLis
                 onEndChunk(new LoadChunkEvent(work, loadTable, row.getChunk()));
             }
         }
-        onLoadRow(new LoadRowEvent(work, loadTable, row));
+        // event is created only if there is someone to receive it
+        if (hasListeners()) {
+            onLoadRow(new LoadRowEvent(work, loadTable, row));
+        }
     }
 
     protected void onEndChunk(LoadChunkEvent loadChunkEvent) {
@@ -170,6 +173,9 @@ public class SimpleBackupLoaderManager extends SimpleWorkManager<BackupLoaderLis
             closeQuietly(backupLoaderContext.getSourceSession());
             closeQuietly(backupLoaderContext.getTargetSession());
             closeQuietly(backupLoaderContext.getScriptExporter());
+            if (backupLoaderContext.getBackupJournal() != null) {
+                backupLoaderContext.getBackupJournal().close();
+            }
         }
         super.close();
     }
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.loader;
+
+import com.nuodb.migrator.jdbc.metadata.Database;
+import com.nuodb.migrator.jdbc.metadata.Table;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * @author Sergey Bushik
+ */
+public class SimpleInsertRowsFactory implements InsertRowsFactory {
+
+    private int insertRows;
+    private Map<String, Integer> tableInsertRows;
+
+    public SimpleInsertRowsFactory(int insertRows, Map<String, Integer> tableInsertRows) {
+        this.insertRows = insertRows;
+        this.tableInsertRows = tableInsertRows;
+    }
+
+    @Override
+    public int createInsertRows(Table table, BackupLoaderContext backupLoaderContext) {
+        Database database = table.getDatabase();
+        int insertRows = getInsertRows();
+        Map<String, Integer> tableInsertRows = getTableInsertRows();
+        if (tableInsertRows != null) {
+            for (Map.Entry<String, Integer> entry : tableInsertRows.entrySet()) {
+                final Collection<Table> tables = database.findTables(entry.getKey());
+                if (tables.contains(table)) {
+                    insertRows = entry.getValue();
+                    break;
+                }
+            }
+        }
+        return insertRows;
+    }
+
+    public int getInsertRows() {
+        return insertRows;
+    }
+
+    public Map<String, Integer> getTableInsertRows() {
+        return tableInsertRows;
+    }
+}
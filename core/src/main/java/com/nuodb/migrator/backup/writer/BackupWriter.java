@@ -31,11 +31,14 @@ import com.nuodb.migrator.MigratorException;
 import com.nuodb.migrator.backup.Backup;
 import com.nuodb.migrator.backup.BackupOps;
 import com.nuodb.migrator.backup.QueryRowSet;
+import com.nuodb.migrator.backup.RowSet;
 import com.nuodb.migrator.backup.TableRowSet;
+import com.nuodb.migrator.backup.XmlInspectionCache;
 import com.nuodb.migrator.backup.format.FormatFactory;
 import com.nuodb.migrator.backup.format.csv.CsvFormat;
 import com.nuodb.migrator.backup.format.value.ValueFormatRegistry;
 import com.nuodb.migrator.backup.format.value.ValueFormatRegistryResolver;
+import com.nuodb.migrator.backup.format.value.ValueType;
 import com.nuodb.migrator.jdbc.dialect.Dialect;
 import com.nuodb.migrator.jdbc.metadata.Column;
 import com.nuodb.migrator.jdbc.metadata.Database;
@@ -44,9 +47,11 @@ import com.nuodb.migrator.jdbc.metadata.Identifier;
 import com.nuodb.migrator.jdbc.metadata.MetaDataType;
 import com.nuodb.migrator.jdbc.metadata.Table;
 import com.nuodb.migrator.jdbc.metadata.filter.MetaDataFilter;
+import com.nuodb.migrator.jdbc.metadata.inspector.InspectionCache;
 import com.nuodb.migrator.jdbc.metadata.inspector.InspectionManager;
 import com.nuodb.migrator.jdbc.metadata.inspector.InspectionScope;
 import com.nuodb.migrator.jdbc.metadata.inspector.TableInspectionScope;
+import com.nuodb.migrator.jdbc.query.ParametersBinder;
 import com.nuodb.migrator.jdbc.query.Query;
 import com.nuodb.migrator.jdbc.query.QueryLimit;
 import com.nuodb.migrator.jdbc.session.Session;
@@ -57,11 +62,22 @@ import com.nuodb.migrator.spec.ConnectionSpec;
 import com.nuodb.migrator.spec.MetaDataSpec;
 import com.nuodb.migrator.spec.MigrationMode;
 import com.nuodb.migrator.spec.QuerySpec;
+import com.nuodb.migrator.spec.TableSpec;
 import com.nuodb.migrator.utils.concurrent.ForkJoinPool;
 import com.nuodb.migrator.utils.concurrent.ForkJoinTask;
 import org.slf4j.Logger;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.ExecutorService;
@@ -69,18 +85,25 @@ import java.util.concurrent.ExecutorService;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
 import static com.google.common.collect.Sets.newHashSet;
+import static com.nuodb.migrator.backup.BackupJournal.DUMP;
+import static com.nuodb.migrator.backup.BackupJournal.openJournal;
 import static com.nuodb.migrator.backup.XmlMetaDataHandlerBase.INSPECTION_SCOPE;
 import static com.nuodb.migrator.backup.XmlMetaDataHandlerBase.META_DATA_SPEC;
+import static com.nuodb.migrator.backup.format.value.ValueType.*;
 import static com.nuodb.migrator.context.ContextUtils.createService;
 import static com.nuodb.migrator.jdbc.JdbcUtils.closeQuietly;
 import static com.nuodb.migrator.jdbc.dialect.RowCountType.EXACT;
 import static com.nuodb.migrator.jdbc.metadata.Identifier.valueOf;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.DATABASE;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionCacheBase.getLiveTypes;
 import static com.nuodb.migrator.jdbc.query.Queries.newQuery;
 import static com.nuodb.migrator.jdbc.split.QuerySplitters.*;
 import static com.nuodb.migrator.jdbc.split.RowCountStrategies.newCachingStrategy;
 import static com.nuodb.migrator.jdbc.split.RowCountStrategies.newHandlerStrategy;
 import static com.nuodb.migrator.utils.Collections.isEmpty;
+import static org.apache.commons.lang3.StringUtils.join;
+import static org.apache.commons.lang3.StringUtils.lowerCase;
+import static org.apache.commons.lang3.StringUtils.replace;
 import static java.lang.Runtime.getRuntime;
 import static java.lang.String.format;
 import static org.apache.commons.lang3.ArrayUtils.indexOf;
@@ -109,6 +132,9 @@ public class BackupWriter {
     private Collection<MigrationMode> migrationModes = MIGRATION_MODES;
     private QueryLimit queryLimit;
     private Collection<QuerySpec> querySpecs;
+    private Collection<TableSpec> tableSpecs;
+    private String parent;
+    private boolean resume;
     private ConnectionSpec sourceSpec;
     private SessionFactory sourceSessionFactory;
     private TimeZone timeZone;
@@ -223,6 +249,7 @@ public class BackupWriter {
 
     protected BackupOps createBackupOps(String path) {
         BackupOps backupOps = createService(BackupOps.class);
+        backupOps.setAttributes(getFormatAttributes());
         backupOps.setPath(path);
         return backupOps;
     }
@@ -242,6 +269,9 @@ public class BackupWriter {
         backupWriterContext.setThreads(getThreads());
         backupWriterContext.setTimeZone(getTimeZone());
         openSourceSession(backupWriterContext);
+        if (backupWriterContext.isWriteData()) {
+            backupWriterContext.setBackupJournal(openJournal(backupOps, DUMP, isResume()));
+        }
         return backupWriterContext;
     }
 
@@ -257,6 +287,7 @@ public class BackupWriter {
     protected Backup createBackup() {
         Backup backup = new Backup();
         backup.setFormat(getFormat());
+        backup.setParent(getParent());
         return backup;
     }
 
@@ -298,9 +329,31 @@ public class BackupWriter {
 
     protected Database openDatabase(BackupWriterContext backupWriterContext) throws Exception {
         Session session = backupWriterContext.getSourceSession();
-        return getInspectionManager()
-                .inspect(session.getConnection(), getInspectionScope(), getObjectTypes().toArray(new MetaDataType[0]))
-                .getObject(DATABASE);
+        InspectionScope inspectionScope = getInspectionScope();
+        MetaDataType[] objectTypes = getObjectTypes().toArray(new MetaDataType[0]);
+        InspectionCache inspectionCache = createInspectionCache();
+        Database database = inspectionCache != null ? inspectionCache.read(session, inspectionScope, objectTypes)
+                : null;
+        if (database == null) {
+            database = getInspectionManager()
+                    .inspect(session.getConnection(), inspectionScope, backupWriterContext.getSourceSessionFactory(),
+                            backupWriterContext.getExecutorService(), getThreads(), objectTypes)
+                    .getObject(DATABASE);
+            if (inspectionCache != null) {
+                inspectionCache.write(session, inspectionScope, database, objectTypes);
+            }
+        } else {
+            MetaDataType[] liveTypes = getLiveTypes(objectTypes);
+            if (liveTypes.length > 0) {
+                getInspectionManager().inspect(session.getConnection(), database, inspectionScope, liveTypes);
+            }
+        }
+        return database;
+    }
+
+    protected InspectionCache createInspectionCache() {
+        String inspectionCache = getInspectionCache();
+        return inspectionCache != null ? new XmlInspectionCache(inspectionCache) : null;
     }
 
     protected Backup write(BackupWriterManager backupWriterManager) throws Exception {
@@ -361,13 +414,17 @@ public class BackupWriter {
         }
     }
 
-    protected Collection<WriteQuery> createWriteQueries(BackupWriterContext backupWriterContext) {
+    protected Collection<WriteQuery> createWriteQueries(BackupWriterContext backupWriterContext) throws Exception {
         Collection<WriteQuery> writeQueries = newArrayList(getWriteQueries());
         Database database = backupWriterContext.getDatabase();
         MetaDataFilter tableFilter = getMetaDataFilter(MetaDataType.TABLE);
+        Backup parentBackup = getParent() != null ? createBackupOps(getParent()).read() : null;
         for (Table table : database.getTables()) {
             if (tableFilter == null || tableFilter.accepts(table)) {
-                WriteQuery writeQuery = createWriteQuery(table, table.getColumns(), null, getQueryLimit());
+                TableSpec tableSpec = getTableSpec(table);
+                WriteQuery writeQuery = tableSpec != null
+                        ? createWriteQuery(table, tableSpec, parentBackup, backupWriterContext)
+                        : createWriteQuery(table, table.getColumns(), null, getQueryLimit());
                 writeQueries.add(writeQuery);
             }
         }
@@ -395,17 +452,209 @@ public class BackupWriter {
                 new TableRowSet(table));
     }
 
+    protected TableSpec getTableSpec(Table table) {
+        Collection<TableSpec> tableSpecs = getTableSpecs();
+        if (tableSpecs != null) {
+            for (TableSpec tableSpec : tableSpecs) {
+                if (table.getDatabase().findTables(tableSpec.getTable()).contains(table)) {
+                    return tableSpec;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates write query for the table spec. If the spec has watermark column
+     * only rows past the watermark of the parent backup up to the current
+     * maximum of the column are written, the maximum is recorded as the new
+     * watermark. Rows with null watermark column are not written. Watermarks
+     * are bound to the filter as typed parameters.
+     */
+    protected WriteQuery createWriteQuery(Table table, TableSpec tableSpec, Backup parentBackup,
+            BackupWriterContext backupWriterContext) throws Exception {
+        String filter = tableSpec.getFilter();
+        String watermarkColumn = tableSpec.getWatermark();
+        Object watermark = null;
+        ParametersBinder parametersBinder = null;
+        if (watermarkColumn != null) {
+            Dialect dialect = table.getDatabase().getDialect();
+            String column = table.getColumn(watermarkColumn).getName(dialect);
+            Object parentWatermark = getWatermark(parentBackup, table);
+            watermark = getMaxValue(table, column, filter, backupWriterContext.getSourceSession().getConnection());
+            Collection<String> filters = newArrayList();
+            List<Object> parameters = newArrayList();
+            if (filter != null) {
+                filters.add("(" + filter + ")");
+            }
+            if (parentWatermark != null) {
+                filters.add(column + " > ?");
+                parameters.add(parentWatermark);
+            }
+            if (watermark != null) {
+                filters.add(column + " <= ?");
+                parameters.add(watermark);
+            } else {
+                watermark = parentWatermark;
+            }
+            filter = filters.isEmpty() ? null : join(filters, " AND ");
+            parametersBinder = parameters.isEmpty() ? null : createParametersBinder(parameters);
+            if (logger.isDebugEnabled()) {
+                logger.debug(format("Table %s is written past %s watermark up to %s", table.getQualifiedName(null),
+                        parentWatermark, watermark));
+            }
+        }
+        Collection<Column> columns = table.getColumns();
+        WriteQuery writeQuery = new WriteTable(table, columns, filter,
+                createQuerySplitter(table, columns, filter, getQueryLimit(), parametersBinder),
+                new TableRowSet(table));
+        if (watermarkColumn != null) {
+            TableRowSet rowSet = (TableRowSet) writeQuery.getRowSet();
+            rowSet.setWatermarkColumn(watermarkColumn);
+            rowSet.setWatermark(formatWatermark(watermark));
+            rowSet.setWatermarkType(getWatermarkType(watermark));
+        }
+        return writeQuery;
+    }
+
+    protected ParametersBinder createParametersBinder(final List<Object> parameters) {
+        return new ParametersBinder() {
+            @Override
+            public int bindParameters(PreparedStatement statement, int column) throws SQLException {
+                for (Object parameter : parameters) {
+                    statement.setObject(column++, parameter);
+                }
+                return parameters.size();
+            }
+        };
+    }
+
+    protected Object getWatermark(Backup parentBackup, Table table) {
+        if (parentBackup != null) {
+            String rowSetName = lowerCase(table.getQualifiedName(null));
+            for (RowSet rowSet : parentBackup.getRowSets()) {
+                if (rowSet instanceof TableRowSet && rowSetName.equals(rowSet.getName())) {
+                    TableRowSet tableRowSet = (TableRowSet) rowSet;
+                    return parseWatermark(tableRowSet.getWatermark(), tableRowSet.getWatermarkType());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Selects maximum value of the column normalized to a long, double,
+     * decimal, boolean, timestamp or string value, which can be written to the
+     * catalog and bound back to the filter of the next incremental backup.
+     */
+    protected Object getMaxValue(Table table, String column, String filter, Connection connection)
+            throws Exception {
+        String query = "SELECT MAX(" + column + ") FROM " + table.getQualifiedName(table.getDatabase().getDialect())
+                + (filter != null ? " WHERE " + filter : "");
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet resultSet = statement.executeQuery(query);
+            Object value = resultSet.next() ? resultSet.getObject(1) : null;
+            if (value == null || value instanceof BigDecimal || value instanceof Boolean) {
+                return value;
+            } else if (value instanceof BigInteger) {
+                return new BigDecimal((BigInteger) value);
+            } else if (value instanceof Float || value instanceof Double) {
+                return ((Number) value).doubleValue();
+            } else if (value instanceof Number) {
+                return ((Number) value).longValue();
+            } else if (value instanceof Timestamp) {
+                return value;
+            } else if (value instanceof Date) {
+                return new Timestamp(((Date) value).getTime());
+            } else {
+                return resultSet.getString(1);
+            }
+        } finally {
+            closeQuietly(statement);
+        }
+    }
+
+    protected static ValueType getWatermarkType(Object watermark) {
+        if (watermark == null) {
+            return null;
+        } else if (watermark instanceof Long) {
+            return LONG;
+        } else if (watermark instanceof Double) {
+            return DOUBLE;
+        } else if (watermark instanceof BigDecimal) {
+            return DECIMAL;
+        } else if (watermark instanceof Boolean) {
+            return BOOLEAN;
+        } else if (watermark instanceof Timestamp) {
+            return TIMESTAMP;
+        } else {
+            return STRING;
+        }
+    }
+
+    protected static String formatWatermark(Object watermark) {
+        if (watermark == null) {
+            return null;
+        } else if (watermark instanceof BigDecimal) {
+            return ((BigDecimal) watermark).toPlainString();
+        } else {
+            return watermark.toString();
+        }
+    }
+
+    /**
+     * Parses watermark written by {@link #formatWatermark(Object)}. Watermarks
+     * of older backups have no type and are SQL literals, quoted strings are
+     * unquoted and the rest are treated as numbers.
+     */
+    protected static Object parseWatermark(String watermark, ValueType watermarkType) {
+        if (watermark == null) {
+            return null;
+        }
+        if (watermarkType == null) {
+            return watermark.length() > 1 && watermark.startsWith("'") && watermark.endsWith("'")
+                    ? replace(watermark.substring(1, watermark.length() - 1), "''", "'")
+                    : new BigDecimal(watermark);
+        }
+        switch (watermarkType) {
+            case LONG:
+                return Long.valueOf(watermark);
+            case DOUBLE:
+                return Double.valueOf(watermark);
+            case DECIMAL:
+                return new BigDecimal(watermark);
+            case BOOLEAN:
+                return Boolean.valueOf(watermark);
+            case TIMESTAMP:
+                return Timestamp.valueOf(watermark);
+            default:
+                return watermark;
+        }
+    }
+
     protected QuerySplitter createQuerySplitter(Table table, Collection<Column> columns, String filter,
             QueryLimit queryLimit) {
+        return createQuerySplitter(table, columns, filter, queryLimit, null);
+    }
+
+    /**
+     * Limit splitter counts rows with the filter, so it's not used for filters
+     * with parameters.
+     */
+    protected QuerySplitter createQuerySplitter(Table table, Collection<Column> columns, String filter,
+            QueryLimit queryLimit, ParametersBinder parametersBinder) {
         QuerySplitter querySplitter;
         Query query = newQuery(table, columns, filter);
         Dialect dialect = table.getDatabase().getDialect();
-        if (queryLimit != null && supportsLimitSplitter(dialect, table, filter)) {
+        if (queryLimit != null && supportsKeyRangeSplitter(dialect, table)) {
+            querySplitter = newKeyRangeSplitter(dialect, table, columns, filter, query, queryLimit, parametersBinder);
+        } else if (queryLimit != null && parametersBinder == null && supportsLimitSplitter(dialect, table, filter)) {
             querySplitter = newLimitSplitter(dialect,
                     newCachingStrategy(newHandlerStrategy(dialect.createRowCountHandler(table, null, filter, EXACT))),
                     query, queryLimit);
         } else {
-            querySplitter = newNoLimitSplitter(query);
+            querySplitter = newNoLimitSplitter(query, parametersBinder);
         }
         return querySplitter;
     }
@@ -420,6 +669,11 @@ public class BackupWriter {
         return metaDataSpec != null ? metaDataSpec.getTableTypes() : null;
     }
 
+    protected String getInspectionCache() {
+        final MetaDataSpec metaDataSpec = getMetaDataSpec();
+        return metaDataSpec != null ? metaDataSpec.getInspectionCache() : null;
+    }
+
     protected MetaDataFilter getMetaDataFilter(MetaDataType objectType) {
         final MetaDataSpec metaDataSpec = getMetaDataSpec();
         return metaDataSpec != null ? metaDataSpec.getMetaDataFilter(objectType) : null;
@@ -489,6 +743,44 @@ public class BackupWriter {
         this.metaDataSpec = metaDataSpec;
     }
 
+    public Collection<TableSpec> getTableSpecs() {
+        return tableSpecs;
+    }
+
+    public void setTableSpecs(Collection<TableSpec> tableSpecs) {
+        this.tableSpecs = tableSpecs;
+    }
+
+    public String getParent() {
+        return parent;
+    }
+
+    /**
+     * Sets path to the parent backup, which watermarks tables with watermark
+     * column are written from.
+     *
+     * @param parent
+     *            path to the parent backup or null to write tables fully.
+     */
+    public void setParent(String parent) {
+        this.parent = parent;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * Makes dump skip query splits recorded as written by the journal of the
+     * previous run to the same path.
+     *
+     * @param resume
+     *            true to resume previous dump.
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
     public Collection<MigrationMode> getMigrationModes() {
         return migrationModes;
     }
@@ -28,6 +28,7 @@
 package com.nuodb.migrator.backup.writer;
 
 import com.nuodb.migrator.backup.Backup;
+import com.nuodb.migrator.backup.BackupJournal;
 import com.nuodb.migrator.backup.BackupOps;
 import com.nuodb.migrator.backup.format.FormatFactory;
 import com.nuodb.migrator.backup.format.value.ValueFormatRegistry;
@@ -62,6 +63,10 @@ public interface BackupWriterContext {
 
     void setBackupOpsContext(Map backupOpsContext);
 
+    BackupJournal getBackupJournal();
+
+    void setBackupJournal(BackupJournal backupJournal);
+
     Database getDatabase();
 
     void setDatabase(Database database);
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.writer;
+
+import com.nuodb.migrator.backup.format.value.Value;
+import com.nuodb.migrator.backup.format.value.ValueType;
+
+import java.math.BigDecimal;
+
+import static java.lang.Double.isInfinite;
+import static java.lang.Double.isNaN;
+
+/**
+ * Tracks the lowest and the highest key value of the rows of a row group.
+ * Keys are compared in their native representation, so only numeric keys are
+ * tracked, as string order of the database depends on its collation. Value
+ * type of the group is taken from its first key, bounds are unknown once a
+ * key of another type is added.
+ *
+ * @author Sergey Bushik
+ */
+class KeyBounds {
+
+    private ValueType valueType;
+    private boolean empty = true;
+    private boolean unknown;
+    private long minLong;
+    private long maxLong;
+    private double minDouble;
+    private double maxDouble;
+    private BigDecimal minDecimal;
+    private BigDecimal maxDecimal;
+
+    void add(Value value) {
+        if (unknown || value.isNull()) {
+            return;
+        }
+        if (empty) {
+            valueType = value.getValueType();
+        } else if (value.getValueType() != valueType) {
+            unknown = true;
+            return;
+        }
+        switch (valueType) {
+        case LONG:
+            long longValue = value.asLong();
+            if (empty || longValue < minLong) {
+                minLong = longValue;
+            }
+            if (empty || longValue > maxLong) {
+                maxLong = longValue;
+            }
+            break;
+        case DOUBLE:
+            double doubleValue = value.asDouble();
+            if (isNaN(doubleValue) || isInfinite(doubleValue)) {
+                unknown = true;
+                return;
+            }
+            if (empty || doubleValue < minDouble) {
+                minDouble = doubleValue;
+            }
+            if (empty || doubleValue > maxDouble) {
+                maxDouble = doubleValue;
+            }
+            break;
+        case DECIMAL:
+            BigDecimal decimalValue = value.asDecimal();
+            if (empty || decimalValue.compareTo(minDecimal) < 0) {
+                minDecimal = decimalValue;
+            }
+            if (empty || decimalValue.compareTo(maxDecimal) > 0) {
+                maxDecimal = decimalValue;
+            }
+            break;
+        default:
+            unknown = true;
+            return;
+        }
+        empty = false;
+    }
+
+    String getMin() {
+        return empty || unknown ? null : format(minLong, minDouble, minDecimal);
+    }
+
+    String getMax() {
+        return empty || unknown ? null : format(maxLong, maxDouble, maxDecimal);
+    }
+
+    private String format(long longValue, double doubleValue, BigDecimal decimalValue) {
+        switch (valueType) {
+        case DOUBLE:
+            return Double.toString(doubleValue);
+        case DECIMAL:
+            return decimalValue.toPlainString();
+        default:
+            return Long.toString(longValue);
+        }
+    }
+
+    void clear() {
+        empty = true;
+        unknown = false;
+        minDecimal = null;
+        maxDecimal = null;
+    }
+}
@@ -0,0 +1,353 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.writer;
+
+import com.nuodb.migrator.backup.Chunk;
+import com.nuodb.migrator.backup.format.value.Value;
+import com.nuodb.migrator.jdbc.split.QuerySplit;
+import com.nuodb.migrator.utils.concurrent.ForkJoinPool.ManagedBlocker;
+
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.nuodb.migrator.utils.concurrent.ForkJoinPool.managedBlock;
+import static java.lang.Boolean.parseBoolean;
+import static java.lang.Integer.parseInt;
+import static java.lang.String.format;
+import static java.lang.String.valueOf;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Writes query split in two stages connected with a bounded queue of row
+ * batches. The fetch stage runs on the work thread, it advances the result set
+ * and reads values, while the encode stage is submitted to the executor of the
+ * backup writer and writes batches to the output. Both stages wait for the
+ * queues as managed blockers, so that the fork join pool activates a spare
+ * thread instead of starving the encode stage when all workers are fetching.
+ * Written batches are returned to the fetch stage through the queue of free
+ * batches and their value arrays are refilled. The queue applies backpressure
+ * to the faster stage and its occupancy is logged once split is written:
+ * mostly empty queue means the source is the bottleneck, mostly full queue
+ * means the format encoding is.
+ *
+ * @author Sergey Bushik
+ */
+public class PipelinedWriteQueryWork extends WriteQueryWork {
+
+    /**
+     * Output attribute enabling pipelined write, default is false
+     */
+    public static final String ATTRIBUTE_PIPELINE = "pipeline";
+    /**
+     * Output attribute setting max number of row batches queued for the encode
+     * stage
+     */
+    public static final String ATTRIBUTE_PIPELINE_QUEUE_SIZE = "pipeline.queue.size";
+    /**
+     * Output attribute setting number of rows per batch
+     */
+    public static final String ATTRIBUTE_PIPELINE_BATCH_SIZE = "pipeline.batch.size";
+
+    public static final boolean PIPELINE = false;
+    public static final int PIPELINE_QUEUE_SIZE = 16;
+    public static final int PIPELINE_BATCH_SIZE = 256;
+
+    private static final long POLL_TIMEOUT = 100L;
+    private static final RowBatch END = new RowBatch(0, 0);
+
+    private BlockingQueue<RowBatch> queue;
+    private BlockingQueue<RowBatch> free;
+    private int queueSize;
+    private int batchSize;
+    private int batchCount;
+    private volatile boolean failed;
+    private volatile Exception encodeFailure;
+
+    private long fetchStalls;
+    private long encodeStalls;
+    private long batches;
+    private long occupancy;
+
+    public PipelinedWriteQueryWork(WriteQuery writeQuery, QuerySplit querySplit, boolean hasNextQuerySplit,
+            BackupWriterManager backupWriterManager) {
+        super(writeQuery, querySplit, hasNextQuerySplit, backupWriterManager);
+    }
+
+    public static boolean isPipeline(Map<String, Object> attributes) {
+        Object pipeline = attributes != null ? attributes.get(ATTRIBUTE_PIPELINE) : null;
+        return pipeline != null ? parseBoolean(valueOf(pipeline)) : PIPELINE;
+    }
+
+    protected static int getAttribute(Map<String, Object> attributes, String attribute, int defaultValue) {
+        Object value = attributes != null ? attributes.get(attribute) : null;
+        return value != null ? parseInt(valueOf(value)) : defaultValue;
+    }
+
+    @Override
+    public void init() throws Exception {
+        super.init();
+        initPipeline(getBackupWriterContext().getFormatAttributes());
+    }
+
+    /**
+     * Creates queue of the batches to encode and queue of the free batches,
+     * there are at most two more batches than the queue holds: one filled by
+     * the fetch stage and one written by the encode stage.
+     */
+    protected void initPipeline(Map<String, Object> attributes) {
+        queueSize = getAttribute(attributes, ATTRIBUTE_PIPELINE_QUEUE_SIZE, PIPELINE_QUEUE_SIZE);
+        queue = new ArrayBlockingQueue<RowBatch>(queueSize + 1);
+        free = new ArrayBlockingQueue<RowBatch>(queueSize + 2);
+        batchSize = getAttribute(attributes, ATTRIBUTE_PIPELINE_BATCH_SIZE, PIPELINE_BATCH_SIZE);
+        batchCount = 0;
+        failed = false;
+        encodeFailure = null;
+    }
+
+    @Override
+    protected void writeRows() throws Exception {
+        Future<?> encoder = getExecutorService().submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                try {
+                    encode();
+                } catch (Exception exception) {
+                    encodeFailure = exception;
+                    failed = true;
+                }
+                return null;
+            }
+        });
+        Throwable failure = null;
+        try {
+            fetch();
+        } catch (Throwable exception) {
+            failed = true;
+            failure = exception;
+        }
+        try {
+            encoder.get();
+        } catch (ExecutionException exception) {
+            if (failure == null) {
+                failure = exception.getCause();
+            }
+        }
+        if (failure == null) {
+            failure = encodeFailure;
+        }
+        if (failure != null) {
+            throw failure instanceof Exception ? (Exception) failure : new Exception(failure);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(format("%s queue occupancy %.1f of %d, fetch stalls %d, encode stalls %d", getName(),
+                    getQueueOccupancy(), queueSize, fetchStalls, encodeStalls));
+        }
+    }
+
+    protected ExecutorService getExecutorService() {
+        return getBackupWriterContext().getExecutorService();
+    }
+
+    protected void fetch() throws Exception {
+        BackupWriterManager backupWriterManager = getBackupWriterManager();
+        ResultSet resultSet = getResultSet();
+        RowBatch batch = null;
+        while (!failed && backupWriterManager.canExecute(this) && resultSet.next()) {
+            if (batch == null && (batch = takeFree()) == null) {
+                break;
+            }
+            readValues(batch.next());
+            if (batch.isFull()) {
+                put(batch);
+                batch = null;
+            }
+        }
+        if (batch != null && !batch.isEmpty()) {
+            put(batch);
+        }
+        put(END);
+    }
+
+    /**
+     * Takes written batch to refill, a new batch is created until there are as
+     * many batches as the pipeline can hold at once.
+     *
+     * @return batch to fill or null if the encode stage failed.
+     */
+    protected RowBatch takeFree() throws InterruptedException {
+        RowBatch batch = free.poll();
+        if (batch == null && batchCount < queueSize + 2) {
+            batchCount++;
+            batch = new RowBatch(batchSize, getColumnCount());
+        }
+        return batch != null ? batch : take(free);
+    }
+
+    protected int getColumnCount() {
+        return getValueHandleList().size();
+    }
+
+    protected void put(RowBatch batch) throws InterruptedException {
+        if (!queue.offer(batch)) {
+            fetchStalls++;
+            put(queue, batch);
+        }
+    }
+
+    protected void encode() throws Exception {
+        Chunk chunk = null;
+        RowBatch batch;
+        while ((batch = take()) != END && batch != null) {
+            for (int index = 0; index < batch.size; index++) {
+                chunk = writeValues(chunk, batch.rows[index]);
+            }
+            batch.clear();
+            free.offer(batch);
+        }
+        if (chunk != null && batch == END) {
+            writeEnd(chunk);
+        }
+    }
+
+    /**
+     * Takes next batch to encode.
+     *
+     * @return batch to encode, end of rows marker or null if the fetch stage
+     *         failed.
+     */
+    protected RowBatch take() throws InterruptedException {
+        RowBatch batch = queue.poll();
+        if (batch == null) {
+            encodeStalls++;
+            batch = take(queue);
+        }
+        if (batch != null) {
+            batches++;
+            occupancy += queue.size();
+        }
+        return batch;
+    }
+
+    /**
+     * Waits for the batch as a managed blocker until it's available or either
+     * stage fails.
+     *
+     * @return batch or null if the pipeline failed.
+     */
+    protected RowBatch take(final BlockingQueue<RowBatch> queue) throws InterruptedException {
+        final RowBatch[] batch = new RowBatch[1];
+        managedBlock(new ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                batch[0] = queue.poll(POLL_TIMEOUT, MILLISECONDS);
+                return isReleasable();
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return batch[0] != null || failed || (batch[0] = queue.poll()) != null;
+            }
+        });
+        return batch[0];
+    }
+
+    /**
+     * Waits for the room in the queue as a managed blocker until the batch is
+     * queued or either stage fails.
+     */
+    protected void put(final BlockingQueue<RowBatch> queue, final RowBatch batch) throws InterruptedException {
+        managedBlock(new ManagedBlocker() {
+            private boolean offered;
+
+            @Override
+            public boolean block() throws InterruptedException {
+                offered = queue.offer(batch, POLL_TIMEOUT, MILLISECONDS);
+                return isReleasable();
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return offered || failed || (offered = queue.offer(batch));
+            }
+        });
+    }
+
+    /**
+     * Average number of batches waiting in the queue when the encode stage takes
+     * the next one.
+     *
+     * @return average queue occupancy.
+     */
+    public double getQueueOccupancy() {
+        return batches > 0 ? (double) occupancy / batches : 0;
+    }
+
+    public long getFetchStalls() {
+        return fetchStalls;
+    }
+
+    public long getEncodeStalls() {
+        return encodeStalls;
+    }
+
+    /**
+     * Batch of rows owning its value arrays, which are refilled each time the
+     * batch is reused.
+     */
+    static class RowBatch {
+
+        private final Value[][] rows;
+        private int size;
+
+        RowBatch(int capacity, int columns) {
+            this.rows = new Value[capacity][columns];
+        }
+
+        Value[] next() {
+            return rows[size++];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isFull() {
+            return size == rows.length;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
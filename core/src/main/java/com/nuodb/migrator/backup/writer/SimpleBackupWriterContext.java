@@ -28,6 +28,7 @@
 package com.nuodb.migrator.backup.writer;
 
 import com.nuodb.migrator.backup.Backup;
+import com.nuodb.migrator.backup.BackupJournal;
 import com.nuodb.migrator.backup.BackupOps;
 import com.nuodb.migrator.backup.format.FormatFactory;
 import com.nuodb.migrator.backup.format.value.ValueFormatRegistry;
@@ -57,6 +58,7 @@ public class SimpleBackupWriterContext implements BackupWriterContext {
     private Backup backup;
     private BackupOps backupOps;
     private Map backupOpsContext;
+    private BackupJournal backupJournal;
     private Database database;
     private ExecutorService executorService;
     private String format;
@@ -110,6 +112,16 @@ public class SimpleBackupWriterContext implements BackupWriterContext {
         this.backupOpsContext = backupOpsContext;
     }
 
+    @Override
+    public BackupJournal getBackupJournal() {
+        return backupJournal;
+    }
+
+    @Override
+    public void setBackupJournal(BackupJournal backupJournal) {
+        this.backupJournal = backupJournal;
+    }
+
     @Override
     public Database getDatabase() {
         return database;
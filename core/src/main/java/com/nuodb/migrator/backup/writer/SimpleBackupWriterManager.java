@@ -206,6 +206,9 @@ public class SimpleBackupWriterManager extends SimpleWorkManager<BackupWriterLis
                 }
             }
             closeQuietly(backupWriterContext.getSourceSession());
+            if (backupWriterContext.getBackupJournal() != null) {
+                backupWriterContext.getBackupJournal().close();
+            }
         }
         super.close();
     }
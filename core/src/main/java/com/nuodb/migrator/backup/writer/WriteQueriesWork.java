@@ -27,24 +27,42 @@
  */
 package com.nuodb.migrator.backup.writer;
 
+import com.google.common.primitives.Longs;
 import com.nuodb.migrator.backup.Backup;
+import com.nuodb.migrator.backup.BackupJournal;
+import com.nuodb.migrator.jdbc.dialect.RowCountHandler;
+import com.nuodb.migrator.jdbc.metadata.Table;
 import com.nuodb.migrator.jdbc.session.Session;
 import com.nuodb.migrator.jdbc.session.WorkRunnableBase;
 import com.nuodb.migrator.jdbc.split.QuerySplit;
 import com.nuodb.migrator.jdbc.split.QuerySplitter;
+import com.nuodb.migrator.jdbc.split.QuerySplitterBase;
+import org.slf4j.Logger;
 
+import java.io.Serializable;
 import java.sql.Connection;
-import java.util.Collection;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
 import static com.nuodb.migrator.backup.BackupMessages.WRITE_QUERIES_WORK;
+import static com.nuodb.migrator.backup.writer.PipelinedWriteQueryWork.isPipeline;
+import static com.nuodb.migrator.backup.writer.WriteQueryWork.getRowSetName;
 import static com.nuodb.migrator.context.ContextUtils.getMessage;
+import static com.nuodb.migrator.jdbc.dialect.RowCountType.APPROX;
+import static java.lang.String.format;
+import static java.util.Collections.sort;
+import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * @author Sergey Bushik
  */
 public class WriteQueriesWork extends WorkRunnableBase {
 
+    private transient Logger logger = getLogger(getClass());
     private final BackupWriterManager backupWriterManager;
 
     public WriteQueriesWork(BackupWriterManager backupWriterManager) {
@@ -57,22 +75,39 @@ public class WriteQueriesWork extends WorkRunnableBase {
         return getMessage(WRITE_QUERIES_WORK);
     }
 
+    /**
+     * Orders write queries by row count estimated from the catalog in largest
+     * processing time first order, so that the biggest queries are not started
+     * when other threads are about to become idle. Queries are split lazily in
+     * this order and each split is forked as soon as it's created, so that
+     * splits of the biggest query are written while the rest are being split.
+     * Queries which row count can't be estimated are written last, see
+     * {@link #sortWriteQueries(List, Map)}.
+     */
     @Override
     public void execute() throws Exception {
         BackupWriterContext backupWriterContext = backupWriterManager.getBackupWriterContext();
         Backup backup = backupWriterContext.getBackup();
         Session session = backupWriterContext.getSourceSession();
         Connection connection = session.getConnection();
-        Collection<WriteQueryWork> writeQueryWorks = newArrayList();
-
+        List<WriteQuery> writeQueries = newArrayList();
+        Map<WriteQuery, Long> costs = newHashMap();
         for (WriteQuery writeQuery : backupWriterContext.getWriteQueries()) {
             backup.addRowSet(writeQuery.getRowSet());
+            costs.put(writeQuery, getRowCount(writeQuery, connection));
+            writeQueries.add(writeQuery);
+        }
+        sortWriteQueries(writeQueries, costs);
+        List<WriteQueryWork> writeQueryWorks = newArrayList();
+        for (WriteQuery writeQuery : writeQueries) {
             QuerySplitter querySplitter = writeQuery.getQuerySplitter();
-            while (writeQuery.getQuerySplitter().hasNextQuerySplit(session.getConnection())) {
+            if (backupWriterContext.getBackupJournal() != null) {
+                initSplitBounds(writeQuery, backupWriterContext.getBackupJournal(), connection);
+            }
+            while (querySplitter.hasNextQuerySplit(connection)) {
                 QuerySplit nextQuerySplit = querySplitter.getNextQuerySplit(connection);
                 boolean hasNextQuerySplit = querySplitter.hasNextQuerySplit(connection);
-                WriteQueryWork writeQueryWork = new WriteQueryWork(writeQuery, nextQuerySplit, hasNextQuerySplit,
-                        backupWriterManager);
+                WriteQueryWork writeQueryWork = createWriteQueryWork(writeQuery, nextQuerySplit, hasNextQuerySplit);
                 writeQueryWork.fork();
                 writeQueryWorks.add(writeQueryWork);
             }
@@ -82,4 +117,82 @@ public class WriteQueriesWork extends WorkRunnableBase {
         }
         backupWriterManager.writeDataDone();
     }
+
+    /**
+     * Sorts write queries by their costs in largest first order. Queries of unknown costs, such as custom queries or
+     * tables without statistics, are scheduled after all queries of known costs: an unknown cost isn't taken for the
+     * highest one, so that a guess doesn't push the largest known queries back to the end. The sort is stable, so
+     * queries of equal or unknown costs keep their catalog order.
+     *
+     * @param writeQueries
+     *            to sort
+     * @param costs
+     *            estimated row counts of the queries, null if the row count is unknown
+     */
+    protected void sortWriteQueries(List<WriteQuery> writeQueries, final Map<WriteQuery, Long> costs) {
+        sort(writeQueries, new Comparator<WriteQuery>() {
+            @Override
+            public int compare(WriteQuery writeQuery1, WriteQuery writeQuery2) {
+                Long cost1 = costs.get(writeQuery1);
+                Long cost2 = costs.get(writeQuery2);
+                if (cost1 == null || cost2 == null) {
+                    return cost1 == null ? (cost2 == null ? 0 : 1) : -1;
+                }
+                return Longs.compare(cost2, cost1);
+            }
+        });
+    }
+
+    /**
+     * Splits the query by the bounds recorded by the journal of the previous run, so that written splits match the
+     * splits left to write. Otherwise the bounds are recorded before any split is written.
+     */
+    protected void initSplitBounds(WriteQuery writeQuery, BackupJournal backupJournal, Connection connection)
+            throws SQLException {
+        String rowSetName = getRowSetName(writeQuery);
+        QuerySplitter querySplitter = writeQuery.getQuerySplitter();
+        Serializable splitBounds = backupJournal.getSplitBounds(rowSetName);
+        if (splitBounds != null) {
+            querySplitter.setSplitBounds(splitBounds);
+        } else if ((splitBounds = querySplitter.getSplitBounds(connection)) != null) {
+            backupJournal.writeSplitBounds(rowSetName, splitBounds);
+        }
+    }
+
+    /**
+     * Estimates number of rows written by the query from the approximate row
+     * count of the table, which is taken from the catalog statistics or the
+     * query plan and doesn't scan the table. Filters with parameters can't be
+     * estimated, so the row count of the whole table is taken for them.
+     *
+     * @return estimated number of rows or null if it can't be estimated.
+     */
+    protected Long getRowCount(WriteQuery writeQuery, Connection connection) {
+        if (!(writeQuery instanceof WriteTable)) {
+            return null;
+        }
+        WriteTable writeTable = (WriteTable) writeQuery;
+        Table table = writeTable.getTable();
+        QuerySplitter querySplitter = writeTable.getQuerySplitter();
+        String filter = querySplitter instanceof QuerySplitterBase
+                && ((QuerySplitterBase) querySplitter).isParameterized() ? null : writeTable.getFilter();
+        try {
+            RowCountHandler rowCountHandler = table.getDatabase().getDialect().createRowCountHandler(table, null,
+                    filter, APPROX);
+            return rowCountHandler.getRowCountQuery() != null ? rowCountHandler.getRowCount(connection) : null;
+        } catch (Exception exception) {
+            if (logger.isTraceEnabled()) {
+                logger.trace(format("Can't estimate row count of %s", table.getQualifiedName(null)), exception);
+            }
+            return null;
+        }
+    }
+
+    protected WriteQueryWork createWriteQueryWork(WriteQuery writeQuery, QuerySplit querySplit,
+            boolean hasNextQuerySplit) {
+        BackupWriterContext backupWriterContext = backupWriterManager.getBackupWriterContext();
+        return isPipeline(backupWriterContext.getFormatAttributes())
+                ? new PipelinedWriteQueryWork(writeQuery, querySplit, hasNextQuerySplit, backupWriterManager)
+                : new WriteQueryWork(writeQuery, querySplit, hasNextQuerySplit, backupWriterManager);
+    }
 }
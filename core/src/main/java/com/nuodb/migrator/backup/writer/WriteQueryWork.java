@@ -27,13 +27,20 @@
  */
 package com.nuodb.migrator.backup.writer;
 
+import com.nuodb.migrator.backup.BackupJournal;
+import com.nuodb.migrator.backup.BackupOps;
 import com.nuodb.migrator.backup.Chunk;
 import com.nuodb.migrator.backup.Column;
 import com.nuodb.migrator.backup.QueryRowSet;
 import com.nuodb.migrator.backup.RowSet;
+import com.nuodb.migrator.backup.format.InputRange;
 import com.nuodb.migrator.backup.format.Output;
+import com.nuodb.migrator.backup.format.RowGroup;
+import com.nuodb.migrator.backup.format.SplittableOutput;
+import com.nuodb.migrator.backup.format.value.LobBuffer;
 import com.nuodb.migrator.backup.format.value.Row;
 import com.nuodb.migrator.backup.format.value.Value;
+import com.nuodb.migrator.backup.format.value.ValueAccessor;
 import com.nuodb.migrator.backup.format.value.ValueHandle;
 import com.nuodb.migrator.backup.format.value.ValueHandleList;
 import com.nuodb.migrator.jdbc.dialect.Dialect;
@@ -43,27 +50,46 @@ import com.nuodb.migrator.jdbc.model.Field;
 import com.nuodb.migrator.jdbc.query.StatementCallback;
 import com.nuodb.migrator.jdbc.session.WorkForkJoinTaskBase;
 import com.nuodb.migrator.jdbc.split.QuerySplit;
+import com.nuodb.migrator.utils.ChecksumOutputStream;
+import com.nuodb.migrator.utils.CountingOutputStream;
 import com.nuodb.migrator.utils.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
 
+import java.io.OutputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.indexOf;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.nuodb.migrator.backup.BackupMessages.WRITE_QUERY_WORK;
+import static com.nuodb.migrator.backup.format.Format.ATTRIBUTE_CODEC;
+import static com.nuodb.migrator.backup.format.Format.ATTRIBUTE_ROW_GROUP_BYTES;
+import static com.nuodb.migrator.backup.format.Format.ATTRIBUTE_ROW_GROUP_COUNT;
+import static com.nuodb.migrator.backup.format.Format.ROW_GROUP_BYTES;
+import static com.nuodb.migrator.backup.format.Format.ROW_GROUP_COUNT;
+import static com.nuodb.migrator.backup.format.value.LobBuffer.newLobBuffer;
 import static com.nuodb.migrator.backup.format.value.ValueHandleListBuilder.newBuilder;
 import static com.nuodb.migrator.context.ContextUtils.getMessage;
 import static com.nuodb.migrator.jdbc.JdbcUtils.closeQuietly;
 import static com.nuodb.migrator.jdbc.model.FieldFactory.newFieldList;
+import static com.nuodb.migrator.jdbc.split.QuerySplitters.getKeyRangeColumn;
+import static com.nuodb.migrator.jdbc.split.QuerySplitters.supportsKeyRangeSplitter;
 import static com.nuodb.migrator.utils.Collections.isEmpty;
 import static com.nuodb.migrator.utils.Predicates.equalTo;
 import static com.nuodb.migrator.utils.Predicates.instanceOf;
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.lang.Math.max;
+import static java.lang.String.format;
 import static java.util.Arrays.asList;
 import static org.apache.commons.lang3.StringUtils.lowerCase;
+import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Work executed by a thread, which exports table rows to a row set. Row set is
@@ -76,6 +102,8 @@ public class WriteQueryWork extends WorkForkJoinTaskBase {
 
     private static final String QUERY = "query";
 
+    protected final transient Logger logger = getLogger(getClass());
+
     private final BackupWriterManager backupWriterManager;
     private final WriteQuery writeQuery;
     private final QuerySplit querySplit;
@@ -86,6 +114,20 @@ public class WriteQueryWork extends WorkForkJoinTaskBase {
     private Collection<Chunk> chunks;
     private BackupWriterContext backupWriterContext;
     private ValueHandleList valueHandleList;
+    private ValueAccessor[] valueAccessors;
+    private LobBuffer lobBuffer;
+    private BackupJournal backupJournal;
+    private ChecksumOutputStream checksumOutput;
+    private CountingOutputStream rowGroupOutput;
+    private long rowGroupSize;
+    private long chunkRowGroupSize;
+    private int rowGroupCount;
+    private int keyIndex = -1;
+    private KeyBounds keyBounds;
+    private long rowGroupOffset;
+    private long rowGroupRow;
+    private boolean resumed;
+    private long number;
 
     public WriteQueryWork(WriteQuery writeQuery, QuerySplit querySplit, boolean hasNextQuerySplit,
             BackupWriterManager backupWriterManager) {
@@ -104,6 +146,12 @@ public class WriteQueryWork extends WorkForkJoinTaskBase {
     @Override
     public void init() throws Exception {
         backupWriterContext = backupWriterManager.getBackupWriterContext();
+        backupJournal = backupWriterContext.getBackupJournal();
+        if (backupJournal != null
+                && backupJournal.isSplitVerified(getSplitName(), backupWriterContext.getBackupOps())) {
+            initResumed();
+            return;
+        }
 
         final Dialect dialect = getSession().getDialect();
         resultSet = querySplit.getResultSet(getSession().getConnection(), new StatementCallback() {
@@ -117,9 +165,12 @@ public class WriteQueryWork extends WorkForkJoinTaskBase {
         Collection<? extends Field> fields = writeQuery.getColumns() != null ? writeQuery.getColumns()
                 : newFieldList(resultSet);
 
+        lobBuffer = newLobBuffer(backupWriterContext.getFormatAttributes());
         valueHandleList = newBuilder(getSession().getConnection(), resultSet).withDialect(dialect).withFields(fields)
                 .withTimeZone(backupWriterContext.getTimeZone())
-                .withValueFormatRegistry(backupWriterContext.getValueFormatRegistry()).build();
+                .withValueFormatRegistry(backupWriterContext.getValueFormatRegistry()).withLobBuffer(lobBuffer)
+                .build();
+        valueAccessors = valueHandleList.getValueAccessors();
 
         RowSet rowSet = writeQuery.getRowSet();
         if (isEmpty(rowSet.getColumns())) {
@@ -134,58 +185,242 @@ public class WriteQueryWork extends WorkForkJoinTaskBase {
         output = backupWriterContext.getFormatFactory().createOutput(backupWriterContext.getFormat(),
                 backupWriterContext.getFormatAttributes());
         output.setRowSet(rowSet);
+        rowGroupSize = getRowGroupSize();
+        rowGroupCount = getRowGroupCount();
+        if (rowGroupSize > 0) {
+            initKeyBounds();
+        }
 
         chunks = newArrayList();
     }
 
+    protected int getRowGroupCount() {
+        Map<String, Object> formatAttributes = backupWriterContext.getFormatAttributes();
+        Object rowGroupCount = formatAttributes != null ? formatAttributes.get(ATTRIBUTE_ROW_GROUP_COUNT) : null;
+        return rowGroupCount != null ? max(parseInt(rowGroupCount.toString()), 2) : ROW_GROUP_COUNT;
+    }
+
+    /**
+     * Tracks bounds of the key range column of the table in row groups, if the
+     * column is written.
+     */
+    protected void initKeyBounds() {
+        String keyColumn = getKeyColumn();
+        int index = 0;
+        for (ValueHandle valueHandle : valueHandleList) {
+            if (keyColumn != null && keyColumn.equalsIgnoreCase(valueHandle.getName())) {
+                keyIndex = index;
+                keyBounds = new KeyBounds();
+                break;
+            }
+            index++;
+        }
+    }
+
+    protected String getKeyColumn() {
+        if (!(writeQuery instanceof WriteTable)) {
+            return null;
+        }
+        Table table = ((WriteTable) writeQuery).getTable();
+        return supportsKeyRangeSplitter(table) ? getKeyRangeColumn(table).getName() : null;
+    }
+
+    /**
+     * Row groups are recorded for uncompressed chunks, if the output can end
+     * on a row boundary.
+     *
+     * @return approximate number of bytes in a row group or 0 if chunks are
+     *         not split into row groups.
+     */
+    protected long getRowGroupSize() {
+        if (getCodec() != null || !(output instanceof SplittableOutput)
+                || !((SplittableOutput) output).isSplittable()) {
+            return 0;
+        }
+        Map<String, Object> formatAttributes = backupWriterContext.getFormatAttributes();
+        Object rowGroupSize = formatAttributes != null ? formatAttributes.get(ATTRIBUTE_ROW_GROUP_BYTES) : null;
+        return rowGroupSize != null ? parseLong(rowGroupSize.toString()) : ROW_GROUP_BYTES;
+    }
+
+    /**
+     * Takes chunks and columns of the split written by the previous run from
+     * the journal instead of executing the query.
+     */
+    protected void initResumed() {
+        RowSet rowSet = writeQuery.getRowSet();
+        if (isEmpty(rowSet.getColumns())) {
+            rowSet.setColumns(newArrayList(backupJournal.getSplitColumns(getSplitName())));
+        }
+        rowSet.setName(getRowSetName());
+        chunks = backupJournal.getSplitChunks(getSplitName());
+        String keyColumn = getKeyColumn();
+        for (Chunk chunk : chunks) {
+            if (!isEmpty(filter(chunk.getRowGroups(), instanceOf(RowGroup.class)))) {
+                chunk.setKeyColumn(keyColumn);
+            }
+        }
+        resumed = true;
+        if (logger.isDebugEnabled()) {
+            logger.debug(format("%s split %s is resumed from the journal with %d chunk(s)", getName(),
+                    getSplitName(), chunks.size()));
+        }
+    }
+
     @Override
     public void execute() throws Exception {
         backupWriterManager.writeStart(this, writeQuery);
+        if (!resumed) {
+            writeRows();
+            if (backupJournal != null && backupWriterManager.canExecute(this)) {
+                backupJournal.writeSplit(getSplitName(), writeQuery.getRowSet().getColumns());
+            }
+        }
+        backupWriterManager.writeEnd(this, writeQuery);
+    }
+
+    /**
+     * Writes all rows of the query split to the chunks.
+     */
+    protected void writeRows() throws Exception {
         ResultSet resultSet = getResultSet();
-        Output output = getOutput();
         Chunk chunk = null;
-        long number = 0;
         Value[] values = new Value[valueHandleList.size()];
         while (backupWriterManager.canExecute(this) && resultSet.next()) {
-            if (chunk == null) {
-                writeStart(chunk = addChunk());
-            }
-            if (!output.canWrite()) {
-                writeEnd(chunk);
-                writeStart(chunk = addChunk());
-            }
-            Row row = new Row(chunk, values, number);
-            int index = 0;
-            for (ValueHandle valueHandle : valueHandleList) {
-                values[index++] = valueHandle.getValueFormat().getValue(valueHandle.getJdbcValueAccess(),
-                        valueHandle.getJdbcValueAccessOptions());
-            }
-            output.writeValues(values);
-            chunk.incrementRowCount();
-            backupWriterManager.writeRow(this, writeQuery, row);
+            chunk = writeValues(chunk, readValues(values));
         }
         if (chunk != null) {
             writeEnd(chunk);
         }
-        backupWriterManager.writeEnd(this, writeQuery);
+    }
+
+    /**
+     * Reads values of the current row of the result set into the provided
+     * array.
+     *
+     * @param values
+     *            array to fill with the values.
+     * @return filled array of values.
+     */
+    protected Value[] readValues(Value[] values) throws Exception {
+        ValueAccessor[] valueAccessors = this.valueAccessors;
+        for (int index = 0; index < valueAccessors.length; index++) {
+            values[index] = valueAccessors[index].getValue();
+        }
+        return values;
+    }
+
+    /**
+     * Writes values to the output starting a new chunk if the current one is
+     * absent or full.
+     *
+     * @param chunk
+     *            current chunk or null if no chunk was started yet.
+     * @param values
+     *            row values to write.
+     * @return chunk the values were written to.
+     */
+    protected Chunk writeValues(Chunk chunk, Value[] values) throws Exception {
+        if (chunk == null) {
+            writeStart(chunk = addChunk());
+        }
+        if (!output.canWrite()) {
+            writeEnd(chunk);
+            writeStart(chunk = addChunk());
+        }
+        output.writeValues(values);
+        if (keyBounds != null) {
+            keyBounds.add(values[keyIndex]);
+        }
+        lobBuffer.release(values);
+        chunk.incrementRowCount();
+        // bytes buffered by the output are not counted yet, so the row group ends a few rows past its size
+        if (rowGroupOutput != null && rowGroupOutput.getCount() - rowGroupOffset >= chunkRowGroupSize) {
+            addRowGroup(chunk);
+        }
+        backupWriterManager.writeRow(this, writeQuery, new Row(chunk, values, number++));
+        return chunk;
     }
 
     @Override
     public void close() throws Exception {
         super.close();
         closeQuietly(resultSet);
+        if (lobBuffer != null) {
+            lobBuffer.close();
+        }
     }
 
     protected void writeStart(Chunk chunk) throws Exception {
-        output.setOutputStream(backupWriterContext.getBackupOps().openOutput(chunk.getName()));
+        OutputStream outputStream = backupWriterContext.getBackupOps().openOutput(chunk.getName(), chunk.getCodec());
+        if (backupJournal != null) {
+            outputStream = checksumOutput = new ChecksumOutputStream(outputStream);
+        }
+        if (rowGroupSize > 0) {
+            outputStream = rowGroupOutput = new CountingOutputStream(outputStream);
+        }
+        output.setOutputStream(outputStream);
         output.init();
         output.writeStart();
+        if (rowGroupOutput != null) {
+            rowGroupOffset = ((SplittableOutput) output).getOffset();
+            rowGroupRow = 0;
+            chunkRowGroupSize = rowGroupSize;
+            if (keyBounds != null) {
+                keyBounds.clear();
+                chunk.setKeyColumn(getKeyColumn());
+            }
+        }
         backupWriterManager.writeStart(this, writeQuery, chunk);
     }
 
+    /**
+     * Ends row group at the last written row of the chunk. Once the chunk has
+     * the maximum number of row groups, adjacent groups are merged and the
+     * following groups of the chunk are twice as large, which keeps the number
+     * of row-group elements per chunk in the catalog bounded.
+     */
+    protected void addRowGroup(Chunk chunk) {
+        long offset = ((SplittableOutput) output).getOffset();
+        long rows = chunk.getRowCount() - rowGroupRow;
+        String minKey = keyBounds != null ? keyBounds.getMin() : null;
+        String maxKey = keyBounds != null ? keyBounds.getMax() : null;
+        chunk.addRowGroup(minKey != null && maxKey != null
+                ? new RowGroup(rowGroupOffset, offset - rowGroupOffset, rowGroupRow, rows, minKey, maxKey)
+                : new InputRange(rowGroupOffset, offset - rowGroupOffset, rowGroupRow, rows));
+        if (keyBounds != null) {
+            keyBounds.clear();
+        }
+        rowGroupOffset = offset;
+        rowGroupRow = chunk.getRowCount();
+        if (chunk.getRowGroups().size() >= rowGroupCount) {
+            mergeRowGroups(chunk);
+            chunkRowGroupSize *= 2;
+        }
+    }
+
+    protected static void mergeRowGroups(Chunk chunk) {
+        List<InputRange> rowGroups = chunk.getRowGroups();
+        List<InputRange> merged = newArrayList();
+        for (int index = 0; index < rowGroups.size(); index += 2) {
+            merged.add(index + 1 < rowGroups.size() ? RowGroup.merge(rowGroups.get(index), rowGroups.get(index + 1))
+                    : rowGroups.get(index));
+        }
+        chunk.setRowGroups(merged);
+    }
+
     protected void writeEnd(Chunk chunk) throws Exception {
+        if (rowGroupOutput != null && chunk.getRowCount() > rowGroupRow) {
+            addRowGroup(chunk);
+        }
         output.writeEnd();
         output.close();
+        lobBuffer.flush();
+        if (backupJournal != null) {
+            BackupOps backupOps = backupWriterContext.getBackupOps();
+            backupOps.sync(chunk.getName());
+            chunk.setSize(backupOps.getLength(chunk.getName()));
+            backupJournal.writeChunk(getSplitName(), chunk, checksumOutput.getChecksum().getValue());
+        }
         backupWriterManager.writeEnd(this, writeQuery, chunk);
     }
 
@@ -197,10 +432,23 @@ public class WriteQueryWork extends WorkForkJoinTaskBase {
 
     protected Chunk createChunk(int chunkIndex) {
         Chunk chunk = new Chunk();
-        chunk.setName(getChunkName(chunkIndex));
+        String codec = getCodec();
+        if (codec != null) {
+            String extension = backupWriterContext.getBackupOps().getCodecFactory().createCodec(codec).getExtension();
+            chunk.setName(getChunkName(chunkIndex) + "." + extension);
+            chunk.setCodec(codec);
+        } else {
+            chunk.setName(getChunkName(chunkIndex));
+        }
         return chunk;
     }
 
+    protected String getCodec() {
+        Map<String, Object> formatAttributes = backupWriterContext.getFormatAttributes();
+        String codec = formatAttributes != null ? (String) formatAttributes.get(ATTRIBUTE_CODEC) : null;
+        return StringUtils.isEmpty(codec) ? null : codec;
+    }
+
     protected String getChunkName(int chunkIndex) {
         Collection names = newArrayList(getRowSetName());
         int splitIndex = getQuerySplit().getSplitIndex();
@@ -214,7 +462,23 @@ public class WriteQueryWork extends WorkForkJoinTaskBase {
         return lowerCase(StringUtils.join(names, "."));
     }
 
+    /**
+     * Name identifying query split in the journal, which is the name of its
+     * first chunk without codec extension.
+     */
+    protected String getSplitName() {
+        return getChunkName(0);
+    }
+
     protected String getRowSetName() {
+        return getRowSetName(writeQuery);
+    }
+
+    /**
+     * Name of the row set written by the query, which is the qualified name of the table or the query index among
+     * the query row sets of the backup.
+     */
+    protected static String getRowSetName(WriteQuery writeQuery) {
         String rowSetName;
         if (writeQuery instanceof WriteTable) {
             Table table = ((WriteTable) writeQuery).getTable();
@@ -240,6 +504,18 @@ public class WriteQueryWork extends WorkForkJoinTaskBase {
         return hasNextQuerySplit;
     }
 
+    protected BackupWriterManager getBackupWriterManager() {
+        return backupWriterManager;
+    }
+
+    protected BackupWriterContext getBackupWriterContext() {
+        return backupWriterContext;
+    }
+
+    protected ValueHandleList getValueHandleList() {
+        return valueHandleList;
+    }
+
     protected ResultSet getResultSet() {
         return resultSet;
     }
@@ -248,6 +524,14 @@ public class WriteQueryWork extends WorkForkJoinTaskBase {
         return output;
     }
 
+    protected BackupJournal getBackupJournal() {
+        return backupJournal;
+    }
+
+    protected boolean isResumed() {
+        return resumed;
+    }
+
     protected Collection<Chunk> getChunks() {
         return chunks;
     }
@@ -101,6 +101,7 @@ public interface CliMessages {
     final String EXECUTOR_GROUP_NAME = "com.nuodb.migrator.executor.group.name";
     final String THREADS_OPTION_DESCRIPTION = "com.nuodb.migrator.threads.option.description";
     final String THREADS_ARGUMENT_NAME = "com.nuodb.migrator.threads.argument.name";
+    final String RESUME_OPTION_DESCRIPTION = "com.nuodb.migrator.resume.option.description";
     final String PARALLELIZER_OPTION_DESCRIPTION = "com.nuodb.migrator.parallelizer.option.description";
     final String PARALLELIZER_ARGUMENT_NAME = "com.nuodb.migrator.parallelizer.argument.name";
     final String PARALLELIZER_ATTRIBUTES_OPTION_DESCRIPTION = "com.nuodb.migrator.parallelizer.attributes.option.description";
@@ -108,6 +109,11 @@ public interface CliMessages {
 
     final String QUERY_LIMIT_OPTION_DESCRIPTION = "com.nuodb.migrator.query.limit.option.description";
     final String QUERY_LIMIT_ARGUMENT_NAME = "com.nuodb.migrator.query.limit.argument.name";
+    final String WATERMARK_GROUP_NAME = "com.nuodb.migrator.watermark.group.name";
+    final String TABLE_WATERMARK_OPTION_DESCRIPTION = "com.nuodb.migrator.table.watermark.option.description";
+    final String TABLE_WATERMARK_ARGUMENT_NAME = "com.nuodb.migrator.table.watermark.argument.name";
+    final String PARENT_OPTION_DESCRIPTION = "com.nuodb.migrator.parent.option.description";
+    final String PARENT_ARGUMENT_NAME = "com.nuodb.migrator.parent.argument.name";
 
     final String LOAD_GROUP_NAME = "com.nuodb.migrator.load.group.name";
     final String TARGET_GROUP_NAME = "com.nuodb.migrator.target.group.name";
@@ -144,6 +150,8 @@ public interface CliMessages {
     final String SCHEMA_OUTPUT_GROUP_NAME = "com.nuodb.migrator.schema.output.group.name";
     final String META_DATA_OPTION_DESCRIPTION = "com.nuodb.migrator.meta.data.option.description";
     final String META_DATA_ARGUMENT_NAME = "com.nuodb.migrator.meta.data.argument.name";
+    final String INSPECTION_CACHE_OPTION_DESCRIPTION = "com.nuodb.migrator.inspection.cache.option.description";
+    final String INSPECTION_CACHE_ARGUMENT_NAME = "com.nuodb.migrator.inspection.cache.argument.name";
     final String NAMING_STRATEGY_OPTION_DESCRIPTION = "com.nuodb.migrator.naming.strategy.option.description";
     final String NAMING_STRATEGY_ARGUMENT_NAME = "com.nuodb.migrator.naming.strategy.argument.name";
 
@@ -180,4 +188,7 @@ public interface CliMessages {
     final String INSERT_TYPE_GROUP_NAME = "com.nuodb.migrator.insert.type.group.name";
     final String TABLE_REPLACE_OPTION_DESCRIPTION = "com.nuodb.migrator.table.replace.option.description";
     final String TABLE_INSERT_OPTION_DESCRIPTION = "com.nuodb.migrator.table.insert.option.description";
+    final String INSERT_ROWS_OPTION_DESCRIPTION = "com.nuodb.migrator.insert.rows.option.description";
+    final String INSERT_ROWS_ARGUMENT_NAME = "com.nuodb.migrator.insert.rows.argument.name";
+    final String TABLE_INSERT_ROWS_OPTION_DESCRIPTION = "com.nuodb.migrator.table.insert.rows.option.description";
 }
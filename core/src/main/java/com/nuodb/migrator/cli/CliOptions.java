@@ -83,9 +83,13 @@ public interface CliOptions {
     final String TABLE_TYPE = "table.type";
     final String TABLE_INSERT = "table.*.insert";
     final String TABLE_REPLACE = "table.*.replace";
+    final String TABLE_INSERT_ROWS = "table.*.rows";
+    final String TABLE_WATERMARK = "table.*.watermark";
+    final String PARENT = "parent";
 
     final String THREADS = "threads";
     final String THREADS_SHORT = "t";
+    final String RESUME = "resume";
 
     final String QUERY_LIMIT = "query.limit";
 
@@ -101,6 +105,7 @@ public interface CliOptions {
 
     final String REPLACE = "replace";
     final String REPLACE_SHORT = "r";
+    final String INSERT_ROWS = "insert.rows";
 
     final String COMMIT_STRATEGY = "commit.strategy";
     final String COMMIT_STRATEGY_ATTRIBUTES = "commit.*";
@@ -112,6 +117,7 @@ public interface CliOptions {
     final String INPUT_PATH = "input.path";
 
     final String META_DATA = "meta.data.*";
+    final String INSPECTION_CACHE = "inspection.cache";
     final String FAIL_ON_EMPTY_DATABASE = "fail.on.empty.database";
     final String NAMING_STRATEGY = "naming.strategy";
     final String SCRIPT_TYPE = "script.type";
@@ -35,6 +35,7 @@ import com.nuodb.migrator.cli.parse.option.OptionFormat;
 import com.nuodb.migrator.jdbc.query.QueryLimit;
 import com.nuodb.migrator.spec.DumpJobSpec;
 import com.nuodb.migrator.spec.QuerySpec;
+import com.nuodb.migrator.spec.TableSpec;
 
 import java.util.Collection;
 import java.util.List;
@@ -93,6 +94,25 @@ public class CliDumpJob extends CliJob<DumpJobSpec> {
         group.withOption(createQueryGroup());
         group.withOption(createTimeZoneOption());
         group.withOption(createQueryLimitOption());
+        group.withOption(createWatermarkGroup());
+        return group.build();
+    }
+
+    protected Option createWatermarkGroup() {
+        GroupBuilder group = newGroupBuilder().withName(getMessage(WATERMARK_GROUP_NAME));
+
+        OptionFormat optionFormat = new OptionFormat(getOptionFormat());
+        optionFormat.setValuesSeparator(null);
+        Option watermark = newRegexOptionBuilder().withName(TABLE_WATERMARK)
+                .withDescription(getMessage(TABLE_WATERMARK_OPTION_DESCRIPTION)).withRegex(TABLE_WATERMARK, 1, LOW)
+                .withArgument(newArgumentBuilder().withName(getMessage(TABLE_WATERMARK_ARGUMENT_NAME))
+                        .withOptionFormat(optionFormat).withMinimum(1).withMaximum(MAX_VALUE).build())
+                .build();
+        group.withOption(watermark);
+
+        Option parent = newBasicOptionBuilder().withName(PARENT).withDescription(getMessage(PARENT_OPTION_DESCRIPTION))
+                .withArgument(newArgumentBuilder().withName(getMessage(PARENT_ARGUMENT_NAME)).build()).build();
+        group.withOption(parent);
         return group.build();
     }
 
@@ -120,7 +140,21 @@ public class CliDumpJob extends CliJob<DumpJobSpec> {
         jobSpec.setQuerySpecs(parseQueryGroup(optionSet));
         jobSpec.setTimeZone(parseTimeZoneOption(optionSet, this));
         jobSpec.setThreads(parseThreadsOption(optionSet, this));
+        jobSpec.setResume(parseResumeOption(optionSet, this));
         jobSpec.setQueryLimit(parseQueryLimitOption(optionSet, this));
+        parseWatermarkGroup(optionSet, jobSpec);
+    }
+
+    protected void parseWatermarkGroup(OptionSet optionSet, DumpJobSpec jobSpec) {
+        Collection<TableSpec> tableSpecs = newArrayList();
+        for (Map.Entry<String, Object> watermark : parseAttributes(optionSet.<String>getValues(TABLE_WATERMARK),
+                optionSet.getOption(TABLE_WATERMARK)).entrySet()) {
+            TableSpec tableSpec = new TableSpec(watermark.getKey());
+            tableSpec.setWatermark((String) watermark.getValue());
+            tableSpecs.add(tableSpec);
+        }
+        jobSpec.setTableSpecs(tableSpecs);
+        jobSpec.setParent((String) optionSet.getValue(PARENT));
     }
 
     protected Collection<QuerySpec> parseQueryGroup(OptionSet optionSet) {
@@ -155,6 +189,12 @@ public class CliDumpJob extends CliJob<DumpJobSpec> {
                         .withOptionFormat(optionFormat).withMinimum(1).withMaximum(MAX_VALUE).build())
                 .build();
         group.withOption(metaData);
+
+        Option inspectionCache = newBasicOptionBuilder().withName(INSPECTION_CACHE)
+                .withDescription(getMessage(INSPECTION_CACHE_OPTION_DESCRIPTION)).withArgument(newArgumentBuilder()
+                        .withName(getMessage(INSPECTION_CACHE_ARGUMENT_NAME)).withMinimum(1).withRequired(true).build())
+                .build();
+        group.withOption(inspectionCache);
         return group.build();
     }
 
@@ -163,5 +203,6 @@ public class CliDumpJob extends CliJob<DumpJobSpec> {
             jobSpec.setObjectTypes(parseObjectTypes(optionSet));
         }
         jobSpec.setTableTypes(parseTableTypes(optionSet));
+        jobSpec.setInspectionCache((String) optionSet.getValue(INSPECTION_CACHE));
     }
 }
@@ -32,6 +32,7 @@ import com.nuodb.migrator.backup.loader.Parallelizer;
 import com.nuodb.migrator.backup.loader.RowLevelParallelizer;
 import com.nuodb.migrator.backup.loader.TableLevelParallelizer;
 import com.nuodb.migrator.cli.parse.Option;
+import com.nuodb.migrator.cli.parse.OptionException;
 import com.nuodb.migrator.cli.parse.OptionSet;
 import com.nuodb.migrator.cli.parse.option.GroupBuilder;
 import com.nuodb.migrator.cli.parse.option.OptionFormat;
@@ -46,6 +47,7 @@ import static com.nuodb.migrator.utils.Priority.LOW;
 import static com.nuodb.migrator.utils.ReflectionUtils.newInstance;
 import static java.lang.Integer.MAX_VALUE;
 import static java.lang.String.CASE_INSENSITIVE_ORDER;
+import static java.lang.String.format;
 
 /**
  * @author Sergey Bushik
@@ -112,6 +114,21 @@ public class CliLoadJob extends CliJob<LoadJobSpec> {
                 .withDescription(getMessage(TABLE_INSERT_OPTION_DESCRIPTION)).withRegex(TABLE_INSERT, 1, LOW).build();
         group.withOption(insertType);
 
+        Option insertRows = newBasicOptionBuilder().withName(INSERT_ROWS)
+                .withDescription(getMessage(INSERT_ROWS_OPTION_DESCRIPTION))
+                .withArgument(newArgumentBuilder().withName(getMessage(INSERT_ROWS_ARGUMENT_NAME)).build()).build();
+        group.withOption(insertRows);
+
+        OptionFormat optionFormat = new OptionFormat(getOptionFormat());
+        optionFormat.setValuesSeparator(null);
+        Option tableInsertRows = newRegexOptionBuilder().withName(TABLE_INSERT_ROWS)
+                .withDescription(getMessage(TABLE_INSERT_ROWS_OPTION_DESCRIPTION))
+                .withRegex(TABLE_INSERT_ROWS, 1, LOW)
+                .withArgument(newArgumentBuilder().withName(getMessage(INSERT_ROWS_ARGUMENT_NAME))
+                        .withOptionFormat(optionFormat).withMinimum(1).withMaximum(MAX_VALUE).build())
+                .build();
+        group.withOption(tableInsertRows);
+
         return group.build();
     }
 
@@ -154,10 +171,35 @@ public class CliLoadJob extends CliJob<LoadJobSpec> {
             tableInsertTypes.put(table, InsertType.REPLACE);
         }
         loadJobSpec.setTableInsertTypes(tableInsertTypes);
+
+        String insertRows = (String) optionSet.getValue(INSERT_ROWS);
+        if (insertRows != null) {
+            loadJobSpec.setInsertRows(parseInsertRows(optionSet.getOption(INSERT_ROWS), insertRows));
+        }
+        Map<String, Integer> tableInsertRows = Maps.newHashMap();
+        for (Map.Entry<String, Object> entry : parseAttributes(optionSet.<String>getValues(TABLE_INSERT_ROWS),
+                optionSet.getOption(TABLE_INSERT_ROWS)).entrySet()) {
+            tableInsertRows.put(entry.getKey(),
+                    parseInsertRows(optionSet.getOption(TABLE_INSERT_ROWS), (String) entry.getValue()));
+        }
+        loadJobSpec.setTableInsertRows(tableInsertRows);
+    }
+
+    protected int parseInsertRows(Option option, String value) {
+        try {
+            int insertRows = Integer.parseInt(value);
+            if (insertRows < 1) {
+                throw new OptionException(format("Number of rows %d is not positive", insertRows), option);
+            }
+            return insertRows;
+        } catch (NumberFormatException exception) {
+            throw new OptionException(exception.getMessage(), exception, option);
+        }
     }
 
     protected void parseExecutorGroup(OptionSet optionSet, LoadJobSpec jobSpec) {
         jobSpec.setThreads(parseThreadsOption(optionSet, this));
+        jobSpec.setResume(parseResumeOption(optionSet, this));
         String parallelizerValue = (String) optionSet.getValue(PARALLELIZER, PARALLELIZER_TABLE_LEVEL);
         Parallelizer parallelizer = createParallelizerMapping().get(parallelizerValue);
         if (parallelizer == null) {
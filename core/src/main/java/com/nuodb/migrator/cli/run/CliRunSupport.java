@@ -515,6 +515,10 @@ public class CliRunSupport extends CliSupport {
                 .withDescription(getMessage(THREADS_OPTION_DESCRIPTION))
                 .withArgument(newArgumentBuilder().withName(getMessage(THREADS_ARGUMENT_NAME)).build()).build();
         group.withOption(threads);
+
+        Option resume = newBasicOptionBuilder().withName(RESUME)
+                .withDescription(getMessage(RESUME_OPTION_DESCRIPTION)).build();
+        group.withOption(resume);
     }
 
     protected MetaDataFilterManager parseMetaDataFilterManagerGroup(OptionSet optionSet, Option option) {
@@ -850,6 +854,10 @@ public class CliRunSupport extends CliSupport {
         return objectTypes;
     }
 
+    protected boolean parseResumeOption(OptionSet optionSet, Option option) {
+        return optionSet.hasOption(RESUME);
+    }
+
     protected Integer parseThreadsOption(OptionSet optionSet, Option option) {
         String threadsValue = (String) optionSet.getValue(THREADS);
         return !StringUtils.isEmpty(threadsValue) ? parseInt(threadsValue) : null;
@@ -86,6 +86,12 @@ public class CliSchemaJob extends CliJob<SchemaJobSpec> {
                 .withArgument(newArgumentBuilder().withName(getMessage(FAIL_ON_EMPTY_DATABASE_ARGUMENT_NAME)).build())
                 .build();
         group.addOption(failOnEmptyDatabase);
+
+        Option inspectionCache = newBasicOptionBuilder().withName(INSPECTION_CACHE)
+                .withDescription(getMessage(INSPECTION_CACHE_OPTION_DESCRIPTION)).withArgument(newArgumentBuilder()
+                        .withName(getMessage(INSPECTION_CACHE_ARGUMENT_NAME)).withMinimum(1).withRequired(true).build())
+                .build();
+        group.addOption(inspectionCache);
         return group;
     }
 
@@ -104,6 +110,7 @@ public class CliSchemaJob extends CliJob<SchemaJobSpec> {
         super.parseSchemaMigrationGroup(optionSet, jobSpec, option);
         String value = (String) optionSet.getValue(FAIL_ON_EMPTY_DATABASE);
         jobSpec.setFailOnEmptyDatabase(!isEmpty(value) ? parseBoolean(value) : FAIL_ON_EMPTY_DATABASE_DEFAULT);
+        jobSpec.setInspectionCache((String) optionSet.getValue(INSPECTION_CACHE));
     }
 
     @Override
@@ -85,6 +85,9 @@ public class DumpJob extends HasServicesJobBase<DumpJobSpec> {
         backupWriter.setSourceSessionFactory(createSourceSessionFactory());
         backupWriter.setTimeZone(getTimeZone());
         backupWriter.setThreads(getThreads() != null ? getThreads() : THREADS);
+        backupWriter.setResume(isResume());
+        backupWriter.setTableSpecs(getJobSpec().getTableSpecs());
+        backupWriter.setParent(getJobSpec().getParent());
         backupWriter.setValueFormatRegistryResolver(createValueFormatRegistryResolver());
         setBackupWriter(backupWriter);
     }
@@ -171,4 +174,8 @@ public class DumpJob extends HasServicesJobBase<DumpJobSpec> {
     protected Integer getThreads() {
         return getJobSpec().getThreads();
     }
+
+    protected boolean isResume() {
+        return getJobSpec().isResume();
+    }
 }
@@ -0,0 +1,285 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.jdbc.commit;
+
+import com.nuodb.migrator.jdbc.query.Query;
+import org.slf4j.Logger;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static com.google.common.collect.Maps.newConcurrentMap;
+import static com.nuodb.migrator.utils.ValidationUtils.instanceOf;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Batch commit strategy sizing batches by the observed latency of executing and committing a batch. The batch grows
+ * by a step while the latency is under the target and the rows per second don't fall well below their moving average,
+ * and it's halved otherwise, staying within the configured bounds. The size reached for a statement is kept for the
+ * next executors of the same statement, so that forks loading the same table start from it. Time of a commit is
+ * spread over the batches it commits, so that a batch closing a commit interval isn't taken for a congestion.
+ *
+ * @author Sergey Bushik
+ */
+public class AdaptiveCommitStrategy extends BatchCommitStrategy {
+
+    public static final String ATTRIBUTE_BATCH_SIZE_MIN = "batch.size.min";
+
+    public static final String ATTRIBUTE_BATCH_SIZE_MAX = "batch.size.max";
+
+    public static final String ATTRIBUTE_BATCH_SIZE_STEP = "batch.size.step";
+
+    /**
+     * Target latency of executing and committing a batch in milliseconds
+     */
+    public static final String ATTRIBUTE_BATCH_LATENCY = "batch.latency";
+
+    public static final long BATCH_SIZE_MIN = 100;
+
+    public static final long BATCH_SIZE_MAX = 100000;
+
+    public static final long BATCH_SIZE_STEP = 100;
+
+    public static final long BATCH_LATENCY = 1000;
+
+    /**
+     * Rows per second falling below this share of the moving average of rows per second are taken for a congestion
+     */
+    private static final double THROUGHPUT_DROP = 0.5;
+
+    /**
+     * Weight of the last batch in the exponentially weighted moving average of rows per second, so that the average
+     * follows the throughput as the load changes rather than holding its peak
+     */
+    private static final double THROUGHPUT_WEIGHT = 0.25;
+
+    private transient Logger logger = getLogger(getClass());
+
+    private long batchSizeMin = BATCH_SIZE_MIN;
+    private long batchSizeMax = BATCH_SIZE_MAX;
+    private long batchSizeStep = BATCH_SIZE_STEP;
+    private long batchLatency = BATCH_LATENCY;
+    private final Map<String, Long> batchSizes = newConcurrentMap();
+
+    @Override
+    public void setAttributes(Map<String, Object> attributes) {
+        super.setAttributes(attributes);
+        Long batchSizeMin = getLong(attributes, ATTRIBUTE_BATCH_SIZE_MIN);
+        if (batchSizeMin != null) {
+            setBatchSizeMin(batchSizeMin);
+        }
+        Long batchSizeMax = getLong(attributes, ATTRIBUTE_BATCH_SIZE_MAX);
+        if (batchSizeMax != null) {
+            setBatchSizeMax(batchSizeMax);
+        }
+        Long batchSizeStep = getLong(attributes, ATTRIBUTE_BATCH_SIZE_STEP);
+        if (batchSizeStep != null) {
+            setBatchSizeStep(batchSizeStep);
+        }
+        Long batchLatency = getLong(attributes, ATTRIBUTE_BATCH_LATENCY);
+        if (batchLatency != null) {
+            setBatchLatency(batchLatency);
+        }
+    }
+
+    @Override
+    public CommitExecutor createCommitExecutor(Statement statement, Query query) {
+        instanceOf(statement, PreparedStatement.class);
+        Long batchSize = batchSizes.get(query.toString());
+        return new AdaptiveCommitExecutor((PreparedStatement) statement, query,
+                bound(batchSize != null ? batchSize : getBatchSize()));
+    }
+
+    /**
+     * Times every full batch and its commit if it's due, and sizes the next batch by the time.
+     */
+    protected class AdaptiveCommitExecutor extends BatchCommitExecutor {
+
+        private long rows;
+        private long time;
+        private double averageThroughput;
+        private long commitShare;
+
+        public AdaptiveCommitExecutor(PreparedStatement statement, Query query, long batchSize) {
+            super(statement, query, batchSize);
+        }
+
+        @Override
+        protected boolean isFull() {
+            return batches >= batchSize;
+        }
+
+        /**
+         * Executes the batch and commits if the commit interval is reached. Every batch is timed with its share of the
+         * last commit time, which is the commit time divided by the number of batches committed, so that batches are
+         * compared at the same cost whether they close the commit interval or not.
+         */
+        @Override
+        protected boolean flush() throws SQLException {
+            long rows = batches * statementRows;
+            long start = nanoTime();
+            executeBatch();
+            long latency = nanoTime() - start;
+            this.time += latency;
+            boolean commit = isCommit();
+            if (commit) {
+                long commitBatches = uncommittedBatches;
+                start = nanoTime();
+                commit();
+                long commitLatency = nanoTime() - start;
+                this.time += commitLatency;
+                commitShare = commitLatency / commitBatches;
+            }
+            latency += commitShare;
+            this.rows += rows;
+            batchSize = nextBatchSize(rows, latency);
+            return commit;
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            super.finish();
+            batchSizes.put(query.toString(), batchSize);
+            if (logger.isInfoEnabled() && rows > 0) {
+                logger.info(format("Batch size converged to %d at %.0f rows per second for %s", batchSize,
+                        getThroughput(rows, time), query));
+            }
+        }
+
+        /**
+         * @param rows
+         *            number of rows in the executed batch.
+         * @param latency
+         *            nanoseconds taken by the batch and its share of the commit.
+         * @return size of the next batch.
+         */
+        protected long nextBatchSize(long rows, long latency) {
+            double throughput = getThroughput(rows, latency);
+            boolean congestion = throughput < averageThroughput * THROUGHPUT_DROP;
+            averageThroughput = averageThroughput > 0
+                    ? averageThroughput + THROUGHPUT_WEIGHT * (throughput - averageThroughput) : throughput;
+            if (NANOSECONDS.toMillis(latency) > getBatchLatency() || congestion) {
+                batchSize = bound(batchSize / 2);
+            } else {
+                batchSize = bound(batchSize + getBatchSizeStep());
+            }
+            if (logger.isTraceEnabled()) {
+                logger.trace(format("Batch executed in %d ms at %.0f rows per second, next batch size is %d",
+                        NANOSECONDS.toMillis(latency), throughput, batchSize));
+            }
+            return batchSize;
+        }
+    }
+
+    protected long bound(long batchSize) {
+        return max(getBatchSizeMin(), min(getBatchSizeMax(), batchSize));
+    }
+
+    protected static double getThroughput(long rows, long nanos) {
+        return nanos > 0 ? rows * (double) SECONDS.toNanos(1) / nanos : rows * (double) SECONDS.toNanos(1);
+    }
+
+    public long getBatchSizeMin() {
+        return batchSizeMin;
+    }
+
+    public void setBatchSizeMin(long batchSizeMin) {
+        this.batchSizeMin = batchSizeMin;
+    }
+
+    public long getBatchSizeMax() {
+        return batchSizeMax;
+    }
+
+    public void setBatchSizeMax(long batchSizeMax) {
+        this.batchSizeMax = batchSizeMax;
+    }
+
+    public long getBatchSizeStep() {
+        return batchSizeStep;
+    }
+
+    public void setBatchSizeStep(long batchSizeStep) {
+        this.batchSizeStep = batchSizeStep;
+    }
+
+    public long getBatchLatency() {
+        return batchLatency;
+    }
+
+    public void setBatchLatency(long batchLatency) {
+        this.batchLatency = batchLatency;
+    }
+
+    /**
+     * @return batch size reached for the statement or null if no batches of the statement were executed.
+     */
+    public Long getBatchSize(Query query) {
+        return batchSizes.get(query.toString());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        if (!super.equals(o))
+            return false;
+
+        AdaptiveCommitStrategy that = (AdaptiveCommitStrategy) o;
+
+        if (batchSizeMin != that.batchSizeMin)
+            return false;
+        if (batchSizeMax != that.batchSizeMax)
+            return false;
+        if (batchSizeStep != that.batchSizeStep)
+            return false;
+        if (batchLatency != that.batchLatency)
+            return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + (int) (batchSizeMin ^ (batchSizeMin >>> 32));
+        result = 31 * result + (int) (batchSizeMax ^ (batchSizeMax >>> 32));
+        result = 31 * result + (int) (batchSizeStep ^ (batchSizeStep >>> 32));
+        result = 31 * result + (int) (batchLatency ^ (batchLatency >>> 32));
+        return result;
+    }
+}
@@ -27,6 +27,7 @@
  */
 package com.nuodb.migrator.jdbc.commit;
 
+import com.nuodb.migrator.jdbc.query.InsertQuery;
 import com.nuodb.migrator.jdbc.query.Query;
 import com.nuodb.migrator.utils.ObjectUtils;
 
@@ -37,60 +38,158 @@ import java.util.Map;
 
 import static com.nuodb.migrator.utils.ValidationUtils.instanceOf;
 import static java.lang.Long.parseLong;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 
 /**
+ * Executes statements in batches of the batch size and commits after a number of rows, batches or milliseconds since
+ * the previous commit, so that small batches don't cost a commit each and batches committed together aren't held by
+ * the driver at once. Each batch is committed if no commit interval is set.
+ *
  * @author Sergey Bushik
  */
 public class BatchCommitStrategy implements CommitStrategy {
 
     public static final String ATTRIBUTE_BATCH_SIZE = "batch.size";
 
+    /**
+     * Number of rows executed since the previous commit to commit after
+     */
+    public static final String ATTRIBUTE_COMMIT_ROWS = "rows";
+
+    /**
+     * Number of batches executed since the previous commit to commit after
+     */
+    public static final String ATTRIBUTE_COMMIT_BATCHES = "batches";
+
+    /**
+     * Milliseconds elapsed since the previous commit to commit after
+     */
+    public static final String ATTRIBUTE_COMMIT_INTERVAL = "interval";
+
     public static final long BATCH_SIZE = 1000;
 
     private long batchSize = BATCH_SIZE;
+    private long commitRows;
+    private long commitBatches;
+    private long commitInterval;
 
     @Override
     public void setAttributes(Map<String, Object> attributes) {
-        Object batchSizeValue = attributes.get(ATTRIBUTE_BATCH_SIZE);
-        if (batchSizeValue instanceof String && !isEmpty((String) batchSizeValue)) {
-            setBatchSize(parseLong((String) batchSizeValue));
+        Long batchSize = getLong(attributes, ATTRIBUTE_BATCH_SIZE);
+        if (batchSize != null) {
+            setBatchSize(batchSize);
+        }
+        Long commitRows = getLong(attributes, ATTRIBUTE_COMMIT_ROWS);
+        if (commitRows != null) {
+            setCommitRows(commitRows);
+        }
+        Long commitBatches = getLong(attributes, ATTRIBUTE_COMMIT_BATCHES);
+        if (commitBatches != null) {
+            setCommitBatches(commitBatches);
         }
+        Long commitInterval = getLong(attributes, ATTRIBUTE_COMMIT_INTERVAL);
+        if (commitInterval != null) {
+            setCommitInterval(commitInterval);
+        }
+    }
+
+    protected Long getLong(Map<String, Object> attributes, String attribute) {
+        Object value = attributes.get(attribute);
+        return value instanceof String && !isEmpty((String) value) ? parseLong((String) value) : null;
     }
 
     @Override
     public CommitExecutor createCommitExecutor(Statement statement, Query query) {
         instanceOf(statement, PreparedStatement.class);
-        return new CommitExecutorBase<PreparedStatement>((PreparedStatement) statement, query) {
-
-            private long batches;
-            private long batchSize = getBatchSize();
-
-            @Override
-            public boolean execute() throws SQLException {
-                statement.addBatch();
-                batches++;
-                if (batches > batchSize) {
-                    executeBatch();
-                    return true;
-                } else {
-                    return false;
-                }
+        return new BatchCommitExecutor((PreparedStatement) statement, query, getBatchSize());
+    }
+
+    public boolean isCommitInterval() {
+        return commitRows > 0 || commitBatches > 0 || commitInterval > 0;
+    }
+
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Adds rows to the batch, executes the full batch and commits if the commit interval is reached. Batch size counts
+     * statements, while executed rows are statements times the rows inserted by a multi-row insert statement.
+     */
+    protected class BatchCommitExecutor extends CommitExecutorBase<PreparedStatement> {
+
+        protected long batches;
+        protected long batchSize;
+        protected long statementRows;
+        protected long uncommittedRows;
+        protected long uncommittedBatches;
+        private long committed = nanoTime();
+
+        public BatchCommitExecutor(PreparedStatement statement, Query query, long batchSize) {
+            super(statement, query);
+            this.batchSize = batchSize;
+            this.statementRows = query instanceof InsertQuery ? ((InsertQuery) query).getRows() : 1;
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+            statement.addBatch();
+            batches++;
+            return isFull() && flush();
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            if (batches > 0) {
+                executeBatch();
             }
+            if (uncommittedBatches > 0) {
+                commit();
+            }
+        }
 
-            @Override
-            public void finish() throws SQLException {
-                if (batches > 0) {
-                    executeBatch();
-                }
+        protected boolean isFull() {
+            return batches > batchSize;
+        }
+
+        /**
+         * Executes the batch and commits if the commit interval is reached.
+         *
+         * @return true if the batch is committed.
+         */
+        protected boolean flush() throws SQLException {
+            executeBatch();
+            if (isCommit()) {
+                commit();
+                return true;
+            } else {
+                return false;
             }
+        }
 
-            protected void executeBatch() throws SQLException {
-                statement.executeBatch();
-                statement.getConnection().commit();
-                batches = 0;
+        protected void executeBatch() throws SQLException {
+            statement.executeBatch();
+            uncommittedRows += batches * statementRows;
+            uncommittedBatches++;
+            batches = 0;
+        }
+
+        protected boolean isCommit() {
+            if (!isCommitInterval()) {
+                return true;
             }
-        };
+            return (commitRows > 0 && uncommittedRows >= commitRows)
+                    || (commitBatches > 0 && uncommittedBatches >= commitBatches)
+                    || (commitInterval > 0 && NANOSECONDS.toMillis(nanoTime() - committed) >= commitInterval);
+        }
+
+        protected void commit() throws SQLException {
+            statement.getConnection().commit();
+            uncommittedRows = 0;
+            uncommittedBatches = 0;
+            committed = nanoTime();
+        }
     }
 
     public long getBatchSize() {
@@ -101,6 +200,30 @@ public class BatchCommitStrategy implements CommitStrategy {
         this.batchSize = batchSize;
     }
 
+    public long getCommitRows() {
+        return commitRows;
+    }
+
+    public void setCommitRows(long commitRows) {
+        this.commitRows = commitRows;
+    }
+
+    public long getCommitBatches() {
+        return commitBatches;
+    }
+
+    public void setCommitBatches(long commitBatches) {
+        this.commitBatches = commitBatches;
+    }
+
+    public long getCommitInterval() {
+        return commitInterval;
+    }
+
+    public void setCommitInterval(long commitInterval) {
+        this.commitInterval = commitInterval;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -112,13 +235,23 @@ public class BatchCommitStrategy implements CommitStrategy {
 
         if (batchSize != that.batchSize)
             return false;
+        if (commitRows != that.commitRows)
+            return false;
+        if (commitBatches != that.commitBatches)
+            return false;
+        if (commitInterval != that.commitInterval)
+            return false;
 
         return true;
     }
 
     @Override
     public int hashCode() {
-        return (int) (batchSize ^ (batchSize >>> 32));
+        int result = (int) (batchSize ^ (batchSize >>> 32));
+        result = 31 * result + (int) (commitRows ^ (commitRows >>> 32));
+        result = 31 * result + (int) (commitBatches ^ (commitBatches >>> 32));
+        result = 31 * result + (int) (commitInterval ^ (commitInterval >>> 32));
+        return result;
     }
 
     @Override
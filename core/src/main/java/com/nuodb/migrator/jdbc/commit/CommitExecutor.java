@@ -41,6 +41,12 @@ public interface CommitExecutor<S extends Statement> {
 
     Query getQuery();
 
+    /**
+     * Executes statement for the current parameters.
+     *
+     * @return true if the statement and all statements executed before it are
+     *         committed.
+     */
     boolean execute() throws SQLException;
 
     void finish() throws SQLException;
@@ -59,7 +59,7 @@ public class SingleCommitStrategy implements CommitStrategy {
                 } else {
                     statement.execute(query.toString());
                 }
-                return true;
+                return false;
             }
 
             @Override
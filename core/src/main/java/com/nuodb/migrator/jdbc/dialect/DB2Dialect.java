@@ -68,6 +68,11 @@ public class DB2Dialect extends SimpleDialect {
         return true;
     }
 
+    @Override
+    public boolean supportsRowNumber() {
+        return true;
+    }
+
     @Override
     public boolean supportsCatalogs() {
         return true;
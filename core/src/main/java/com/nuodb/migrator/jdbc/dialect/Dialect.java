@@ -91,6 +91,8 @@ public interface Dialect {
 
     boolean supportsLimitParameters();
 
+    boolean supportsRowNumber();
+
     boolean supportsCatalogs();
 
     boolean supportsSchemas();
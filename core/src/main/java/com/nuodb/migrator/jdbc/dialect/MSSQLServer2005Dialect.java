@@ -46,6 +46,11 @@ public class MSSQLServer2005Dialect extends MSSQLServerDialect {
         return true;
     }
 
+    @Override
+    public boolean supportsRowNumber() {
+        return true;
+    }
+
     @Override
     public LimitHandler createLimitHandler(String query, QueryLimit queryLimit) {
         return new MSSQLServer2005LimitHandler(this, query, queryLimit);
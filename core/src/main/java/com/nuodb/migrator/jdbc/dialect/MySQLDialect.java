@@ -253,6 +253,12 @@ public class MySQLDialect extends SimpleDialect {
         return true;
     }
 
+    @Override
+    public boolean supportsRowNumber() {
+        Integer majorVersion = getDatabaseInfo().getMajorVersion();
+        return majorVersion != null && majorVersion >= 8;
+    }
+
     @Override
     public boolean supportsLimitParameters() {
         return true;
@@ -272,6 +272,11 @@ public class OracleDialect extends SimpleDialect {
         return true;
     }
 
+    @Override
+    public boolean supportsRowNumber() {
+        return true;
+    }
+
     @Override
     public boolean supportsLimitParameters() {
         return true;
@@ -151,6 +151,11 @@ public class PostgreSQLDialect extends SimpleDialect {
         return true;
     }
 
+    @Override
+    public boolean supportsRowNumber() {
+        return true;
+    }
+
     /**
      * http://jdbc.postgresql.org/documentation/head/query.html#query-with-cursor
      *
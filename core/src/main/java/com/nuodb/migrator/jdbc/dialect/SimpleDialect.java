@@ -475,6 +475,16 @@ public class SimpleDialect extends SimpleServiceResolverAware<Dialect> implement
         return false;
     }
 
+    /**
+     * Supports ROW_NUMBER() OVER (ORDER BY {column}) window function.
+     *
+     * @return true if row number window function is supported.
+     */
+    @Override
+    public boolean supportsRowNumber() {
+        return false;
+    }
+
     @Override
     public boolean supportsCatalogs() {
         return false;
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.jdbc.metadata.inspector;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
+
+/**
+ * Fingerprint joining fingerprints of several catalog queries, each query is
+ * filtered by its own columns
+ *
+ * @author Sergey Bushik
+ */
+public class CompositeInspectionFingerprint implements InspectionFingerprint {
+
+    private Collection<InspectionFingerprint> fingerprints = newArrayList();
+
+    public CompositeInspectionFingerprint(InspectionFingerprint... fingerprints) {
+        this.fingerprints.addAll(asList(fingerprints));
+    }
+
+    @Override
+    public String getFingerprint(Connection connection, InspectionScope inspectionScope) throws SQLException {
+        StringBuilder fingerprint = new StringBuilder();
+        for (InspectionFingerprint inspectionFingerprint : fingerprints) {
+            if (fingerprint.length() > 0) {
+                fingerprint.append(':');
+            }
+            fingerprint.append(inspectionFingerprint.getFingerprint(connection, inspectionScope));
+        }
+        return fingerprint.toString();
+    }
+
+    public void addFingerprint(InspectionFingerprint fingerprint) {
+        fingerprints.add(fingerprint);
+    }
+
+    public Collection<InspectionFingerprint> getFingerprints() {
+        return fingerprints;
+    }
+
+    public void setFingerprints(Collection<InspectionFingerprint> fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.jdbc.metadata.inspector;
+
+import com.nuodb.migrator.jdbc.metadata.Column;
+import com.nuodb.migrator.jdbc.metadata.Database;
+import com.nuodb.migrator.jdbc.metadata.DatabaseInfo;
+import com.nuodb.migrator.jdbc.metadata.MetaDataType;
+import com.nuodb.migrator.jdbc.metadata.Schema;
+import com.nuodb.migrator.jdbc.metadata.Sequence;
+import com.nuodb.migrator.jdbc.metadata.resolver.ServiceResolver;
+import com.nuodb.migrator.jdbc.metadata.resolver.SimpleServiceResolver;
+import com.nuodb.migrator.jdbc.session.Session;
+import org.slf4j.Logger;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.nuodb.migrator.jdbc.metadata.DatabaseInfos.*;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataType.SEQUENCE;
+import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Caches inspected databases by a key made of the connection url, user, scope
+ * and object types. A cached database is valid while the dialect specific
+ * fingerprint of the source matches the fingerprint taken before the database
+ * was inspected. Sources without a registered fingerprint are never cached.
+ * Sequences are not cached, as their values change with the data and not with
+ * the definitions caught by fingerprints. They are inspected live into cached
+ * databases instead.
+ *
+ * @author Sergey Bushik
+ */
+public abstract class InspectionCacheBase implements InspectionCache {
+
+    /**
+     * Types of objects left out of cached databases and inspected on every run
+     */
+    public static final MetaDataType[] LIVE_TYPES = new MetaDataType[] { SEQUENCE };
+
+    protected final transient Logger logger = getLogger(getClass());
+
+    private final Map<String, String> fingerprints = newHashMap();
+    private ServiceResolver<InspectionFingerprint> fingerprintResolver =
+            new SimpleServiceResolver<InspectionFingerprint>();
+
+    public InspectionCacheBase() {
+        register(ORACLE, new QueryInspectionFingerprint("SELECT COUNT(*), MAX(LAST_DDL_TIME) FROM ALL_OBJECTS", null,
+                "OWNER=?"));
+        register(MYSQL, new CompositeInspectionFingerprint(
+                new QueryInspectionFingerprint("SELECT COUNT(*), SUM(CRC32(CONCAT_WS(',', TABLE_NAME, COLUMN_NAME, "
+                        + "COLUMN_TYPE, IS_NULLABLE, COLUMN_DEFAULT, COLUMN_KEY, EXTRA))) "
+                        + "FROM INFORMATION_SCHEMA.COLUMNS", "TABLE_SCHEMA=?", null),
+                new QueryInspectionFingerprint("SELECT COUNT(*), SUM(CRC32(CONCAT_WS(',', TABLE_NAME, INDEX_NAME, "
+                        + "NON_UNIQUE, SEQ_IN_INDEX, COLUMN_NAME, SUB_PART, INDEX_TYPE))) "
+                        + "FROM INFORMATION_SCHEMA.STATISTICS", "TABLE_SCHEMA=?", null),
+                new QueryInspectionFingerprint("SELECT COUNT(*), SUM(CRC32(CONCAT_WS(',', TABLE_NAME, "
+                        + "CONSTRAINT_NAME, CONSTRAINT_TYPE))) "
+                        + "FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS", "TABLE_SCHEMA=?", null),
+                new QueryInspectionFingerprint("SELECT COUNT(*), SUM(CRC32(CONCAT_WS(',', TABLE_NAME, "
+                        + "CONSTRAINT_NAME, COLUMN_NAME, ORDINAL_POSITION, REFERENCED_TABLE_SCHEMA, "
+                        + "REFERENCED_TABLE_NAME, REFERENCED_COLUMN_NAME))) "
+                        + "FROM INFORMATION_SCHEMA.KEY_COLUMN_USAGE", "TABLE_SCHEMA=?", null),
+                new QueryInspectionFingerprint("SELECT COUNT(*), SUM(CRC32(CONCAT_WS(',', EVENT_OBJECT_TABLE, "
+                        + "TRIGGER_NAME, EVENT_MANIPULATION, ACTION_TIMING, CRC32(ACTION_STATEMENT)))) "
+                        + "FROM INFORMATION_SCHEMA.TRIGGERS", "EVENT_OBJECT_SCHEMA=?", null)));
+        register(POSTGRE_SQL, new CompositeInspectionFingerprint(
+                new QueryInspectionFingerprint("SELECT COUNT(*), "
+                        + "SUM(CAST(CAST(C.XMIN AS TEXT) AS BIGINT)), SUM(CAST(CAST(A.XMIN AS TEXT) AS BIGINT)) "
+                        + "FROM PG_CATALOG.PG_CLASS C INNER JOIN PG_CATALOG.PG_NAMESPACE N ON N.OID=C.RELNAMESPACE "
+                        + "INNER JOIN PG_CATALOG.PG_ATTRIBUTE A ON A.ATTRELID=C.OID", null, "N.NSPNAME=?"),
+                new QueryInspectionFingerprint("SELECT COUNT(*), SUM(CAST(CAST(O.XMIN AS TEXT) AS BIGINT)) "
+                        + "FROM PG_CATALOG.PG_CONSTRAINT O "
+                        + "INNER JOIN PG_CATALOG.PG_NAMESPACE N ON N.OID=O.CONNAMESPACE", null, "N.NSPNAME=?"),
+                new QueryInspectionFingerprint("SELECT COUNT(*), SUM(CAST(CAST(I.XMIN AS TEXT) AS BIGINT)) "
+                        + "FROM PG_CATALOG.PG_INDEX I INNER JOIN PG_CATALOG.PG_CLASS C ON C.OID=I.INDRELID "
+                        + "INNER JOIN PG_CATALOG.PG_NAMESPACE N ON N.OID=C.RELNAMESPACE", null, "N.NSPNAME=?"),
+                new QueryInspectionFingerprint("SELECT COUNT(*), SUM(CAST(CAST(T.XMIN AS TEXT) AS BIGINT)) "
+                        + "FROM PG_CATALOG.PG_TRIGGER T INNER JOIN PG_CATALOG.PG_CLASS C ON C.OID=T.TGRELID "
+                        + "INNER JOIN PG_CATALOG.PG_NAMESPACE N ON N.OID=C.RELNAMESPACE", null, "N.NSPNAME=?"),
+                new QueryInspectionFingerprint("SELECT COUNT(*), SUM(CAST(CAST(D.XMIN AS TEXT) AS BIGINT)) "
+                        + "FROM PG_CATALOG.PG_DESCRIPTION D INNER JOIN PG_CATALOG.PG_CLASS C ON C.OID=D.OBJOID "
+                        + "INNER JOIN PG_CATALOG.PG_NAMESPACE N ON N.OID=C.RELNAMESPACE", null, "N.NSPNAME=?")));
+        register(MSSQL_SERVER, new QueryInspectionFingerprint("SELECT COUNT(*), MAX(O.MODIFY_DATE) FROM SYS.OBJECTS O "
+                + "INNER JOIN SYS.SCHEMAS S ON S.SCHEMA_ID=O.SCHEMA_ID", null, "S.NAME=?"));
+        register(DB2, new QueryInspectionFingerprint("SELECT COUNT(*), MAX(T.ALTER_TIME), MAX(I.CREATE_TIME) "
+                + "FROM SYSCAT.TABLES T LEFT JOIN SYSCAT.INDEXES I ON I.TABSCHEMA=T.TABSCHEMA AND I.TABNAME=T.TABNAME",
+                null, "T.TABSCHEMA=?"));
+    }
+
+    public void register(DatabaseInfo databaseInfo, InspectionFingerprint fingerprint) {
+        fingerprintResolver.register(databaseInfo, fingerprint);
+    }
+
+    /**
+     * Takes the fingerprint of the source and reads the cached database if its
+     * fingerprint is the same. The fingerprint is kept to be stored with the
+     * database inspected after a miss, so changes made during inspection are
+     * caught on the next run. Sequences of the cached database are removed to
+     * be inspected live.
+     */
+    @Override
+    public Database read(Session session, InspectionScope inspectionScope, MetaDataType... objectTypes)
+            throws SQLException {
+        String fingerprint = getFingerprint(session, inspectionScope);
+        if (fingerprint == null) {
+            return null;
+        }
+        String key = getKey(session, inspectionScope, getCachedTypes(objectTypes));
+        fingerprints.put(key, fingerprint);
+        Database database = read(key, fingerprint);
+        if (database != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(format("Inspected database %s is read from cache", key));
+            }
+            database.setDialect(session.getDialect());
+            removeSequences(database);
+        }
+        return database;
+    }
+
+    protected void removeSequences(Database database) {
+        for (Schema schema : database.getSchemas()) {
+            for (Sequence sequence : newArrayList(schema.getSequences())) {
+                for (Column column : sequence.getColumns()) {
+                    column.setSequence(null);
+                }
+                schema.removeSequence(sequence);
+            }
+        }
+    }
+
+    @Override
+    public void write(Session session, InspectionScope inspectionScope, Database database,
+            MetaDataType... objectTypes) throws SQLException {
+        String key = getKey(session, inspectionScope, getCachedTypes(objectTypes));
+        String fingerprint = fingerprints.remove(key);
+        if (fingerprint == null) {
+            fingerprint = getFingerprint(session, inspectionScope);
+        }
+        if (fingerprint != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(format("Writing inspected database %s to cache", key));
+            }
+            write(key, fingerprint, database);
+        }
+    }
+
+    protected String getFingerprint(Session session, InspectionScope inspectionScope) throws SQLException {
+        InspectionFingerprint fingerprint = fingerprintResolver.resolve(session);
+        return fingerprint != null ? fingerprint.getFingerprint(session.getConnection(), inspectionScope) : null;
+    }
+
+    protected String getKey(Session session, InspectionScope inspectionScope, MetaDataType... objectTypes)
+            throws SQLException {
+        DatabaseMetaData metaData = session.getConnection().getMetaData();
+        StringBuilder key = new StringBuilder();
+        key.append(metaData.getURL());
+        key.append('|').append(metaData.getUserName());
+        if (inspectionScope instanceof SchemaInspectionScope) {
+            SchemaInspectionScope schemaInspectionScope = (SchemaInspectionScope) inspectionScope;
+            key.append('|').append(schemaInspectionScope.getCatalog());
+            key.append('|').append(schemaInspectionScope.getSchema());
+        }
+        if (inspectionScope instanceof TableInspectionScope) {
+            TableInspectionScope tableInspectionScope = (TableInspectionScope) inspectionScope;
+            key.append('|').append(tableInspectionScope.getTable());
+            key.append('|').append(Arrays.toString(tableInspectionScope.getTableTypes()));
+        }
+        key.append('|').append(Arrays.toString(objectTypes));
+        return md5Hex(key.toString());
+    }
+
+    /**
+     * Filters out types of objects inspected live
+     *
+     * @param objectTypes
+     *            types of objects to inspect
+     * @return types of objects read from cache
+     */
+    public static MetaDataType[] getCachedTypes(MetaDataType... objectTypes) {
+        Collection<MetaDataType> cachedTypes = newArrayList(objectTypes);
+        cachedTypes.removeAll(asList(LIVE_TYPES));
+        return cachedTypes.toArray(new MetaDataType[cachedTypes.size()]);
+    }
+
+    /**
+     * Filters types of objects inspected live into cached databases
+     *
+     * @param objectTypes
+     *            types of objects to inspect
+     * @return types of objects to inspect live
+     */
+    public static MetaDataType[] getLiveTypes(MetaDataType... objectTypes) {
+        Collection<MetaDataType> liveTypes = newArrayList(objectTypes);
+        liveTypes.retainAll(asList(LIVE_TYPES));
+        return liveTypes.toArray(new MetaDataType[liveTypes.size()]);
+    }
+
+    protected abstract Database read(String key, String fingerprint);
+
+    protected abstract void write(String key, String fingerprint, Database database);
+
+    public ServiceResolver<InspectionFingerprint> getFingerprintResolver() {
+        return fingerprintResolver;
+    }
+
+    public void setFingerprintResolver(ServiceResolver<InspectionFingerprint> fingerprintResolver) {
+        this.fingerprintResolver = fingerprintResolver;
+    }
+}
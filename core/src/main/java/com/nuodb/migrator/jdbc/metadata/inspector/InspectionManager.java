@@ -28,18 +28,35 @@
 package com.nuodb.migrator.jdbc.metadata.inspector;
 
 import com.nuodb.migrator.jdbc.dialect.DialectResolver;
+import com.nuodb.migrator.jdbc.metadata.Column;
 import com.nuodb.migrator.jdbc.metadata.Database;
 import com.nuodb.migrator.jdbc.metadata.MetaData;
 import com.nuodb.migrator.jdbc.metadata.MetaDataType;
+import com.nuodb.migrator.jdbc.metadata.Schema;
+import com.nuodb.migrator.jdbc.metadata.Sequence;
+import com.nuodb.migrator.jdbc.metadata.Table;
+import com.nuodb.migrator.jdbc.session.Session;
+import com.nuodb.migrator.jdbc.session.SessionFactory;
 import org.slf4j.Logger;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
-
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newLinkedHashMap;
 import static com.nuodb.migrator.jdbc.metadata.DatabaseInfos.*;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.*;
 import static com.nuodb.migrator.utils.Collections.newPrioritySet;
+import static java.lang.Math.min;
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -53,6 +70,24 @@ import static org.slf4j.LoggerFactory.getLogger;
  */
 public class InspectionManager {
 
+    /**
+     * Types of tables and their parents, which are inspected before partitions
+     * are created by parallel inspection
+     */
+    public static final MetaDataType[] PARENT_TYPES = new MetaDataType[] { DATABASE, CATALOG, USER_DEFINED_TYPE,
+            SCHEMA, TABLE };
+
+    /**
+     * Types of objects owned by a single table, which are inspected in
+     * partitions by parallel inspection
+     */
+    public static final MetaDataType[] PARTITION_TYPES = new MetaDataType[] { COLUMN, PRIMARY_KEY, INDEX, CHECK };
+
+    /**
+     * Attribute of the context inspecting a partition, set to true
+     */
+    public static final String PARTITION = "partition";
+
     private final transient Logger logger = getLogger(getClass());
     private DialectResolver dialectResolver;
     private Collection<Inspector> inspectors = newPrioritySet();
@@ -92,6 +127,7 @@ public class InspectionManager {
         primaryKeyInspector.register(MYSQL, new MySQLPrimaryKeyInspector());
         primaryKeyInspector.register(NUODB, new NuoDBPrimaryKeyInspector());
         primaryKeyInspector.register(ORACLE, new OraclePrimaryKeyInspector());
+        primaryKeyInspector.register(POSTGRE_SQL, new PostgreSQLPrimaryKeyInspector());
         addInspector(primaryKeyInspector);
 
         InspectorResolver foreignKeyInspector = new InspectorResolver(FOREIGN_KEY, new SimpleForeignKeyInspector());
@@ -160,6 +196,18 @@ public class InspectionManager {
         return inspectionResults;
     }
 
+    /**
+     * Inspects objects of the given types by the scope into the database
+     * inspected before, such as the database read from cache
+     */
+    public InspectionResults inspect(Connection connection, Database database, InspectionScope inspectionScope,
+            MetaDataType... objectTypes) throws SQLException {
+        InspectionResults inspectionResults = createInspectionResults();
+        inspectionResults.addObject(database);
+        inspect(connection, inspectionResults, inspectionScope, objectTypes);
+        return inspectionResults;
+    }
+
     public void inspect(Connection connection, InspectionResults inspectionResults, InspectionScope inspectionScope,
             MetaDataType... objectTypes) throws SQLException {
         InspectionContext inspectionContext = createInspectionContext(connection, inspectionResults, objectTypes);
@@ -200,6 +248,202 @@ public class InspectionManager {
         }
     }
 
+    public InspectionResults inspect(Connection connection, InspectionScope inspectionScope,
+            SessionFactory sessionFactory, ExecutorService executorService, int threads, MetaDataType... objectTypes)
+            throws SQLException {
+        InspectionResults inspectionResults = createInspectionResults();
+        inspect(connection, inspectionResults, inspectionScope, sessionFactory, executorService, threads, objectTypes);
+        return inspectionResults;
+    }
+
+    /**
+     * Parallel inspection. Tables and their parents are inspected on the given
+     * connection, then columns, keys, indexes and checks of the tables are
+     * inspected in partitions on a pool of sessions opened from the session
+     * factory. Tables are partitioned by schema, so that each partition is
+     * inspected in bulk by its schema, tables of a single schema are inspected
+     * in bulk on the given connection. Sequences of the columns inspected in
+     * partitions are added to their schemas on merge. Foreign keys, sequences
+     * and triggers referring objects across partitions are inspected on the
+     * given connection after partitions are merged.
+     *
+     * @param connection
+     *            connection to inspect tables and cross table objects
+     * @param inspectionResults
+     *            results to add inspected objects to
+     * @param inspectionScope
+     *            scope of inspection
+     * @param sessionFactory
+     *            factory to open sessions inspecting partitions
+     * @param executorService
+     *            executor running partition inspections
+     * @param threads
+     *            maximum number of sessions inspecting partitions at a time
+     * @param objectTypes
+     *            types of objects to inspect
+     * @throws SQLException
+     *             if inspection of any of the partitions failed
+     */
+    public void inspect(Connection connection, InspectionResults inspectionResults, InspectionScope inspectionScope,
+            SessionFactory sessionFactory, ExecutorService executorService, int threads,
+            MetaDataType... objectTypes) throws SQLException {
+        List<MetaDataType> parentTypes = newArrayList();
+        List<MetaDataType> partitionTypes = newArrayList();
+        List<MetaDataType> crossTableTypes = newArrayList();
+        for (MetaDataType objectType : objectTypes) {
+            if (asList(PARTITION_TYPES).contains(objectType)) {
+                partitionTypes.add(objectType);
+            } else if (asList(PARENT_TYPES).contains(objectType)) {
+                parentTypes.add(objectType);
+            } else {
+                crossTableTypes.add(objectType);
+            }
+        }
+        if (threads < 2 || sessionFactory == null || executorService == null || partitionTypes.isEmpty()) {
+            inspect(connection, inspectionResults, inspectionScope, objectTypes);
+            return;
+        }
+        inspect(connection, inspectionResults, inspectionScope, toArray(parentTypes));
+        Collection<InspectionPartition> partitions = createPartitions(inspectionResults);
+        if (partitions.size() > 1) {
+            inspect(partitions, sessionFactory, executorService, min(threads, partitions.size()),
+                    toArray(partitionTypes));
+            for (InspectionPartition partition : partitions) {
+                addObjects(inspectionResults, partition);
+            }
+        } else {
+            inspect(connection, inspectionResults, inspectionScope, toArray(partitionTypes));
+        }
+        if (!crossTableTypes.isEmpty()) {
+            inspect(connection, inspectionResults, inspectionScope, toArray(crossTableTypes));
+        }
+    }
+
+    /**
+     * Tables of distinct schemas are partitioned by schema, a single schema is
+     * left to the serial inspection in bulk, as splitting it into partitions
+     * of tables would inspect them table by table.
+     */
+    protected Collection<InspectionPartition> createPartitions(InspectionResults inspectionResults) {
+        Map<Schema, List<Table>> schemas = newLinkedHashMap();
+        Collection<Table> tables = inspectionResults.getObjects(TABLE);
+        for (Table table : tables) {
+            List<Table> schemaTables = schemas.get(table.getSchema());
+            if (schemaTables == null) {
+                schemas.put(table.getSchema(), schemaTables = newArrayList());
+            }
+            schemaTables.add(table);
+        }
+        Collection<InspectionPartition> partitions = newArrayList();
+        if (schemas.size() > 1) {
+            for (Map.Entry<Schema, List<Table>> schemaTables : schemas.entrySet()) {
+                Schema schema = schemaTables.getKey();
+                InspectionScope inspectionScope = new TableInspectionScope(schema.getCatalog().getName(),
+                        schema.getName());
+                partitions.add(createPartition(inspectionResults, inspectionScope, schemaTables.getValue()));
+            }
+        }
+        return partitions;
+    }
+
+    protected InspectionPartition createPartition(InspectionResults inspectionResults,
+            InspectionScope inspectionScope, Collection<Table> tables) {
+        InspectionResults partitionResults = createInspectionResults();
+        partitionResults.addObjects(inspectionResults.getObjects(DATABASE));
+        partitionResults.addObjects(inspectionResults.getObjects(CATALOG));
+        partitionResults.addObjects(inspectionResults.getObjects(SCHEMA));
+        partitionResults.addObjects(tables);
+        return new InspectionPartition(inspectionScope, partitionResults);
+    }
+
+    protected void inspect(Collection<InspectionPartition> partitions, final SessionFactory sessionFactory,
+            ExecutorService executorService, int threads, final MetaDataType... objectTypes) throws SQLException {
+        if (logger.isDebugEnabled()) {
+            logger.debug(format("Inspecting objects %s of %d partition(s) in %d thread(s)", asList(objectTypes),
+                    partitions.size(), threads));
+        }
+        final Queue<InspectionPartition> queue = new ConcurrentLinkedQueue<InspectionPartition>(partitions);
+        Collection<Future<Void>> futures = newArrayList();
+        for (int thread = 0; thread < threads; thread++) {
+            futures.add(executorService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    Session session = sessionFactory.openSession();
+                    try {
+                        InspectionPartition partition;
+                        while ((partition = queue.poll()) != null) {
+                            inspect(session.getConnection(), partition, objectTypes);
+                        }
+                    } catch (Exception exception) {
+                        queue.clear();
+                        throw exception;
+                    } finally {
+                        session.close();
+                    }
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InspectorException(exception);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new InspectorException(cause);
+        }
+    }
+
+    protected void inspect(Connection connection, InspectionPartition partition, MetaDataType... objectTypes)
+            throws SQLException {
+        InspectionContext inspectionContext = createInspectionContext(connection,
+                partition.getInspectionResults(), objectTypes);
+        try {
+            inspectionContext.getAttributes().put(PARTITION, true);
+            inspectionContext.inspect(partition.getInspectionScope(), objectTypes);
+        } finally {
+            closeInspectionContext(inspectionContext);
+        }
+    }
+
+    /**
+     * Merges objects of the partition. Sequences of its columns are added to
+     * their schemas here, as inspectors running in partitions leave them out
+     * of the schemas shared by partitions
+     */
+    protected void addObjects(InspectionResults inspectionResults, InspectionPartition partition) {
+        InspectionResults partitionResults = partition.getInspectionResults();
+        for (Column column : partitionResults.<Column>getObjects(COLUMN)) {
+            Sequence sequence = column.getSequence();
+            if (sequence != null && sequence.getSchema() == null) {
+                column.getTable().getSchema().addSequence(sequence);
+            }
+        }
+        inspectionResults.addObjects(partitionResults.getObjects());
+    }
+
+    /**
+     * Checks whether objects are inspected in a partition concurrently with
+     * other partitions
+     *
+     * @param inspectionContext
+     *            inspection context
+     * @return true if the context inspects a partition
+     */
+    public static boolean isPartition(InspectionContext inspectionContext) {
+        return Boolean.TRUE.equals(inspectionContext.getAttributes().get(PARTITION));
+    }
+
+    private static MetaDataType[] toArray(Collection<MetaDataType> objectTypes) {
+        return objectTypes.toArray(new MetaDataType[objectTypes.size()]);
+    }
+
     protected InspectionResults createInspectionResults() {
         return new SimpleInspectionResults();
     }
@@ -237,4 +481,26 @@ public class InspectionManager {
     public void setDialectResolver(DialectResolver dialectResolver) {
         this.dialectResolver = dialectResolver;
     }
+
+    /**
+     * Tables of a schema inspected in bulk by the scope on a single session
+     */
+    protected static class InspectionPartition {
+
+        private final InspectionScope inspectionScope;
+        private final InspectionResults inspectionResults;
+
+        public InspectionPartition(InspectionScope inspectionScope, InspectionResults inspectionResults) {
+            this.inspectionScope = inspectionScope;
+            this.inspectionResults = inspectionResults;
+        }
+
+        public InspectionScope getInspectionScope() {
+            return inspectionScope;
+        }
+
+        public InspectionResults getInspectionResults() {
+            return inspectionResults;
+        }
+    }
 }
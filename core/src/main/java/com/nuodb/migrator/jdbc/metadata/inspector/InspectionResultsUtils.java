@@ -35,6 +35,7 @@ import com.nuodb.migrator.jdbc.metadata.Table;
 
 import static com.nuodb.migrator.jdbc.metadata.Identifier.valueOf;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.DATABASE;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataType.TABLE;
 
 /**
  * @author Sergey Bushik
@@ -107,4 +108,27 @@ public class InspectionResultsUtils {
         }
         return table;
     }
+
+    /**
+     * Looks up a table which was inspected and added to the results.
+     *
+     * @return inspected table or null if the table is not in the results
+     */
+    public static Table findTable(InspectionResults results, String catalogName, String schemaName,
+            String tableName) {
+        Database database = results.getObject(DATABASE);
+        Identifier catalogId = valueOf(catalogName);
+        if (database == null || !database.hasCatalog(catalogId)) {
+            return null;
+        }
+        Catalog catalog = database.getCatalog(catalogId);
+        Identifier schemaId = valueOf(schemaName);
+        if (!catalog.hasSchema(schemaId)) {
+            return null;
+        }
+        Schema schema = catalog.getSchema(schemaId);
+        Identifier tableId = valueOf(tableName);
+        Table table = schema.hasTable(tableId) ? schema.getTable(tableId) : null;
+        return table != null && results.getObjects(TABLE).contains(table) ? table : null;
+    }
 }
@@ -40,7 +40,6 @@ import java.sql.SQLException;
 import java.util.Collection;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 import static com.nuodb.migrator.jdbc.metadata.inspector.MySQLColumn.getJdbcType;
 import static com.nuodb.migrator.jdbc.query.QueryUtils.where;
 import static org.apache.commons.lang3.StringUtils.containsAny;
@@ -51,10 +50,9 @@ import static org.apache.commons.lang3.StringUtils.containsAny;
 public class MySQLColumnInspector extends SimpleColumnInspector {
 
     @Override
-    protected void processResultSet(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope,
-            ResultSet resultSet) throws SQLException {
+    protected void processResultSet(final InspectionContext inspectionContext,
+            final TableInspectionScope tableInspectionScope, ResultSet resultSet) throws SQLException {
         super.processResultSet(inspectionContext, tableInspectionScope, resultSet);
-        final InspectionResults inspectionResults = inspectionContext.getInspectionResults();
         final StringBuilder query = new StringBuilder(
                 "SELECT TABLE_SCHEMA, TABLE_NAME, COLUMN_NAME, COLUMN_TYPE FROM INFORMATION_SCHEMA.COLUMNS");
         final Collection<String> filters = newArrayList();
@@ -90,8 +88,11 @@ public class MySQLColumnInspector extends SimpleColumnInspector {
                 ResultSet columns = statement.executeQuery();
 
                 while (columns.next()) {
-                    Table table = addTable(inspectionResults, columns.getString("TABLE_SCHEMA"), null,
-                            columns.getString("TABLE_NAME"));
+                    Table table = getTable(inspectionContext, tableInspectionScope,
+                            columns.getString("TABLE_SCHEMA"), null, columns.getString("TABLE_NAME"));
+                    if (table == null) {
+                        continue;
+                    }
                     Column column = table.addColumn(columns.getString("COLUMN_NAME"));
                     column.setJdbcType(getJdbcType(column.getJdbcType(), columns.getString("COLUMN_TYPE")));
                 }
@@ -91,4 +91,12 @@ public class MySQLIndexInspector extends SimpleIndexInspector {
         statisticsIndex.orderBy("INDEX_NAME", "SEQ_IN_INDEX");
         return new ParameterizedQuery(union(statisticsIndex, null), parameters);
     }
+
+    /**
+     * Indexes of all tables of the schema are fetched with a single query if no table is given
+     */
+    @Override
+    protected boolean supportsScope(TableInspectionScope tableInspectionScope) {
+        return true;
+    }
 }
@@ -30,20 +30,55 @@ package com.nuodb.migrator.jdbc.metadata.inspector;
 import com.nuodb.migrator.jdbc.metadata.Identifier;
 import com.nuodb.migrator.jdbc.metadata.PrimaryKey;
 import com.nuodb.migrator.jdbc.metadata.Table;
+import com.nuodb.migrator.jdbc.query.ParameterizedQuery;
+import com.nuodb.migrator.jdbc.query.Query;
+import com.nuodb.migrator.jdbc.query.SelectQuery;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 
-import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.nuodb.migrator.utils.StringUtils.isEmpty;
 
 public class MySQLPrimaryKeyInspector extends SimplePrimaryKeyInspector {
 
+    /**
+     * Builds a query fetching primary keys of all tables from INFORMATION_SCHEMA.KEY_COLUMN_USAGE, primary keys of
+     * a single table are fetched from the database meta data
+     */
     @Override
-    protected void processResultSet(InspectionContext inspectionContext, ResultSet primaryKeys) throws SQLException {
+    protected Query createQuery(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope) {
+        if (!isBulkScope(tableInspectionScope)) {
+            return null;
+        }
+        SelectQuery query = new SelectQuery();
+        Collection<Object> parameters = newArrayList();
+        query.columns("K.TABLE_SCHEMA AS TABLE_CAT", "NULL AS TABLE_SCHEM", "K.TABLE_NAME", "K.COLUMN_NAME",
+                "K.ORDINAL_POSITION AS KEY_SEQ");
+        query.from("INFORMATION_SCHEMA.KEY_COLUMN_USAGE K");
+        query.where("K.CONSTRAINT_NAME='PRIMARY'");
+        String catalog = tableInspectionScope.getCatalog();
+        if (!isEmpty(catalog)) {
+            query.where("K.TABLE_SCHEMA=?");
+            parameters.add(catalog);
+        } else {
+            query.where("K.TABLE_SCHEMA=DATABASE()");
+        }
+        query.orderBy("K.TABLE_NAME", "K.ORDINAL_POSITION");
+        return new ParameterizedQuery(query, parameters);
+    }
+
+    @Override
+    protected void processResultSet(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope,
+            ResultSet primaryKeys) throws SQLException {
         InspectionResults inspectionResults = inspectionContext.getInspectionResults();
         while (primaryKeys.next()) {
-            Table table = addTable(inspectionResults, primaryKeys.getString("TABLE_CAT"),
+            Table table = getTable(inspectionContext, tableInspectionScope, primaryKeys.getString("TABLE_CAT"),
                     primaryKeys.getString("TABLE_SCHEM"), primaryKeys.getString("TABLE_NAME"));
+            if (table == null) {
+                continue;
+            }
 
             final Identifier identifier = Identifier.EMPTY;
             PrimaryKey primaryKey = table.getPrimaryKey();
@@ -54,4 +89,12 @@ public class MySQLPrimaryKeyInspector extends SimplePrimaryKeyInspector {
             primaryKey.addColumn(table.addColumn(primaryKeys.getString("COLUMN_NAME")), primaryKeys.getInt("KEY_SEQ"));
         }
     }
+
+    /**
+     * Primary keys of all tables of the schema are fetched with a single query if no table is given
+     */
+    @Override
+    protected boolean supportsScope(TableInspectionScope tableInspectionScope) {
+        return true;
+    }
 }
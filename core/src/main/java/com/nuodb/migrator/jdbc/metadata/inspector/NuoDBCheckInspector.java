@@ -40,8 +40,9 @@ import java.util.regex.Pattern;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.CHECK;
-import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 import static com.nuodb.migrator.jdbc.query.Queries.newQuery;
+import static com.nuodb.migrator.jdbc.query.QueryUtils.where;
+import static com.nuodb.migrator.utils.StringUtils.isEmpty;
 import static java.util.regex.Pattern.compile;
 import static java.util.regex.Pattern.quote;
 
@@ -50,8 +51,7 @@ import static java.util.regex.Pattern.quote;
  */
 public class NuoDBCheckInspector extends TableInspectorBase<Table, TableInspectionScope> {
 
-    public static final String QUERY = "SELECT T.SCHEMA, T.TABLENAME, T.CONSTRAINTNAME, T.CONSTRAINTTEXT FROM SYSTEM.TABLECONSTRAINTS AS T "
-            + "WHERE T.SCHEMA=? AND T.TABLENAME=?";
+    public static final String QUERY = "SELECT T.SCHEMA, T.TABLENAME, T.CONSTRAINTNAME, T.CONSTRAINTTEXT FROM SYSTEM.TABLECONSTRAINTS AS T";
 
     public NuoDBCheckInspector() {
         super(CHECK, TableInspectionScope.class);
@@ -60,16 +60,28 @@ public class NuoDBCheckInspector extends TableInspectorBase<Table, TableInspecti
     @Override
     protected Query createQuery(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope) {
         Collection<Object> parameters = newArrayList();
-        parameters.add(tableInspectionScope.getSchema());
-        parameters.add(tableInspectionScope.getTable());
-        return new ParameterizedQuery(newQuery(QUERY), parameters);
+        Collection<String> filters = newArrayList();
+        if (!isEmpty(tableInspectionScope.getSchema())) {
+            parameters.add(tableInspectionScope.getSchema());
+            filters.add("T.SCHEMA=?");
+        }
+        if (!isEmpty(tableInspectionScope.getTable())) {
+            parameters.add(tableInspectionScope.getTable());
+            filters.add("T.TABLENAME=?");
+        }
+        return new ParameterizedQuery(newQuery(where(QUERY, filters, "AND")), parameters);
     }
 
     @Override
-    protected void processResultSet(InspectionContext inspectionContext, ResultSet checks) throws SQLException {
+    protected void processResultSet(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope,
+            ResultSet checks) throws SQLException {
         InspectionResults inspectionResults = inspectionContext.getInspectionResults();
         while (checks.next()) {
-            Table table = addTable(inspectionResults, null, checks.getString("SCHEMA"), checks.getString("TABLENAME"));
+            Table table = getTable(inspectionContext, tableInspectionScope, null, checks.getString("SCHEMA"),
+                    checks.getString("TABLENAME"));
+            if (table == null) {
+                continue;
+            }
             String constraint = checks.getString("CONSTRAINTNAME");
             Check check = new Check(constraint);
             check.setTable(table);
@@ -84,8 +96,11 @@ public class NuoDBCheckInspector extends TableInspectorBase<Table, TableInspecti
         }
     }
 
+    /**
+     * Checks of all tables are fetched with a single query if no table is given
+     */
     @Override
     protected boolean supportsScope(TableInspectionScope tableInspectionScope) {
-        return tableInspectionScope.getSchema() != null && tableInspectionScope.getTable() != null;
+        return tableInspectionScope.getTable() == null || tableInspectionScope.getSchema() != null;
     }
 }
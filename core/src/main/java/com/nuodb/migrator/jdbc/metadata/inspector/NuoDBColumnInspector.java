@@ -46,19 +46,18 @@ import java.util.Map;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.nuodb.migrator.jdbc.metadata.DefaultValue.valueOf;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.COLUMN;
-import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionManager.isPartition;
 import static com.nuodb.migrator.jdbc.metadata.inspector.NuoDBColumn.getJdbcType;
 import static com.nuodb.migrator.jdbc.query.Queries.newQuery;
+import static com.nuodb.migrator.jdbc.query.QueryUtils.where;
+import static com.nuodb.migrator.utils.StringUtils.isEmpty;
 
 /**
  * @author Sergey Bushik
  */
 public class NuoDBColumnInspector extends TableInspectorBase<Table, TableInspectionScope> {
 
-    private static final String QUERY = "SELECT * FROM SYSTEM.FIELDS AS F INNER JOIN SYSTEM.DATATYPES AS D ON F.DATATYPE = D.ID\n"
-            + "WHERE F.SCHEMA=? AND F.TABLENAME=? ORDER BY F.FIELDPOSITION ASC";
-    private String schema;
-    private String tableName;
+    private static final String QUERY = "SELECT * FROM SYSTEM.FIELDS AS F INNER JOIN SYSTEM.DATATYPES AS D ON F.DATATYPE = D.ID";
 
     public NuoDBColumnInspector() {
         super(COLUMN, TableInspectionScope.class);
@@ -67,19 +66,28 @@ public class NuoDBColumnInspector extends TableInspectorBase<Table, TableInspect
     @Override
     protected Query createQuery(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope) {
         Collection<Object> parameters = newArrayList();
-        schema = tableInspectionScope.getSchema();
-        tableName = tableInspectionScope.getTable();
-        parameters.add(schema);
-        parameters.add(tableName);
-        return new ParameterizedQuery(newQuery(QUERY), parameters);
+        Collection<String> filters = newArrayList();
+        if (!isEmpty(tableInspectionScope.getSchema())) {
+            parameters.add(tableInspectionScope.getSchema());
+            filters.add("F.SCHEMA=?");
+        }
+        if (!isEmpty(tableInspectionScope.getTable())) {
+            parameters.add(tableInspectionScope.getTable());
+            filters.add("F.TABLENAME=?");
+        }
+        String query = where(QUERY, filters, "AND") + " ORDER BY F.SCHEMA, F.TABLENAME, F.FIELDPOSITION ASC";
+        return new ParameterizedQuery(newQuery(query), parameters);
     }
 
     @Override
-    protected void processResultSet(InspectionContext inspectionContext, ResultSet columns) throws SQLException {
+    protected void processResultSet(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope,
+            ResultSet columns) throws SQLException {
         InspectionResults inspectionResults = inspectionContext.getInspectionResults();
         Dialect dialect = inspectionContext.getDialect();
+        String schema = tableInspectionScope.getSchema();
+        String tableName = tableInspectionScope.getTable();
 
-        // Get the fields' type from databaseMetaData
+        // Get the fields' type from databaseMetaData, for all tables of the schema at once if inspected in bulk
         DatabaseMetaData databaseMetaData = inspectionContext.getConnection().getMetaData();
         Map<String, JdbcTypeDesc> fieldsType = new HashMap<String, JdbcTypeDesc>();
         try (ResultSet columnsFromDatabaseMetaData = databaseMetaData.getColumns(null, schema, tableName, null)) {
@@ -88,24 +96,34 @@ public class NuoDBColumnInspector extends TableInspectorBase<Table, TableInspect
                     JdbcTypeDesc typeDescAlias = dialect.getJdbcTypeAlias(
                             columnsFromDatabaseMetaData.getInt("DATA_TYPE"),
                             columnsFromDatabaseMetaData.getString("TYPE_NAME"));
-                    fieldsType.put(columnsFromDatabaseMetaData.getString("COLUMN_NAME"), typeDescAlias);
+                    fieldsType.put(
+                            getFieldKey(tableInspectionScope, columnsFromDatabaseMetaData.getString("TABLE_SCHEM"),
+                                    columnsFromDatabaseMetaData.getString("TABLE_NAME"),
+                                    columnsFromDatabaseMetaData.getString("COLUMN_NAME")),
+                            typeDescAlias);
                 } while (columnsFromDatabaseMetaData.next());
-            } else {
+            } else if (!isBulkScope(tableInspectionScope)) {
                 throw new SQLException(
                         "Failed to get columns of table " + schema + "." + tableName + " from the database meta data");
             }
         }
 
         while (columns.next()) {
-            Table table = addTable(inspectionResults, null, schema, tableName);
+            Table table = getTable(inspectionContext, tableInspectionScope, null, columns.getString("SCHEMA"),
+                    columns.getString("TABLENAME"));
+            if (table == null) {
+                continue;
+            }
 
             Column column = table.addColumn(columns.getString("FIELD"));
             JdbcType jdbcType = new JdbcType();
 
-            JdbcTypeDesc typeDescAlias = fieldsType.get(columns.getString("FIELD"));
+            JdbcTypeDesc typeDescAlias = fieldsType.get(getFieldKey(tableInspectionScope,
+                    columns.getString("SCHEMA"), columns.getString("TABLENAME"), columns.getString("FIELD")));
             if (typeDescAlias == null) {
-                throw new SQLException("The type of the field " + columns.getString("FIELD") + " of table " + schema
-                        + "." + tableName + " does not exist in the map of fields type: " + fieldsType.toString());
+                throw new SQLException("The type of the field " + columns.getString("FIELD") + " of table "
+                        + columns.getString("SCHEMA") + "." + columns.getString("TABLENAME")
+                        + " does not exist in the map of fields type");
             }
 
             jdbcType.setTypeCode(typeDescAlias.getTypeCode());
@@ -125,7 +143,10 @@ public class NuoDBColumnInspector extends TableInspectorBase<Table, TableInspect
             if (identifier != null) {
                 Sequence sequence = new Sequence(identifier);
                 column.setSequence(sequence);
-                column.getTable().getSchema().addSequence(sequence);
+                // schemas are shared by partitions, which leave sequences to the merge
+                if (!isPartition(inspectionContext)) {
+                    column.getTable().getSchema().addSequence(sequence);
+                }
             }
             column.setAutoIncrement(identifier != null);
 
@@ -133,8 +154,19 @@ public class NuoDBColumnInspector extends TableInspectorBase<Table, TableInspect
         }
     }
 
+    /**
+     * Fields fetched in bulk are qualified with their tables, fields of a single table are keyed by their names
+     */
+    protected String getFieldKey(TableInspectionScope tableInspectionScope, String schema, String table,
+            String field) {
+        return isBulkScope(tableInspectionScope) ? schema + "." + table + "." + field : field;
+    }
+
+    /**
+     * Columns of all tables are fetched with a single query if no table is given
+     */
     @Override
     protected boolean supportsScope(TableInspectionScope tableInspectionScope) {
-        return tableInspectionScope.getSchema() != null && tableInspectionScope.getTable() != null;
+        return tableInspectionScope.getTable() == null || tableInspectionScope.getSchema() != null;
     }
 }
@@ -41,7 +41,9 @@ import java.util.Collection;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 import static com.nuodb.migrator.jdbc.query.Queries.newQuery;
+import static com.nuodb.migrator.jdbc.query.QueryUtils.where;
 import static com.nuodb.migrator.utils.StringUtils.equalsIgnoreCase;
+import static com.nuodb.migrator.utils.StringUtils.isEmpty;
 
 /**
  * @author Sergey Bushik
@@ -62,16 +64,26 @@ public class NuoDBForeignKeyInspector extends ForeignKeyInspectorBase {
             + "INNER JOIN SYSTEM.TABLES FOREIGNTABLE ON FOREIGNTABLEID=FOREIGNTABLE.TABLEID\n"
             + "INNER JOIN SYSTEM.FIELDS FOREIGNFIELD ON FOREIGNTABLE.SCHEMA=FOREIGNFIELD.SCHEMA\n"
             + "AND FOREIGNTABLE.TABLENAME=FOREIGNFIELD.TABLENAME\n"
-            + "AND FOREIGNKEYS.FOREIGNFIELDID=FOREIGNFIELD.FIELDID\n"
-            + "WHERE FOREIGNTABLE.SCHEMA=? AND FOREIGNTABLE.TABLENAME=? ORDER BY PKTABLE_SCHEM, PKTABLE_NAME, "
-            + "KEY_SEQ ASC";
+            + "AND FOREIGNKEYS.FOREIGNFIELDID=FOREIGNFIELD.FIELDID";
+
+    private static final String ORDER_BY = "PKTABLE_SCHEM, PKTABLE_NAME, KEY_SEQ ASC";
+    private static final String ORDER_BY_FOREIGN_TABLE = "FKTABLE_SCHEM, FKTABLE_NAME";
 
     @Override
     protected Query createQuery(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope) {
         Collection<Object> parameters = newArrayList();
-        parameters.add(tableInspectionScope.getSchema());
-        parameters.add(tableInspectionScope.getTable());
-        return new ParameterizedQuery(newQuery(QUERY), parameters);
+        Collection<String> filters = newArrayList();
+        if (!isEmpty(tableInspectionScope.getSchema())) {
+            parameters.add(tableInspectionScope.getSchema());
+            filters.add("FOREIGNTABLE.SCHEMA=?");
+        }
+        if (!isEmpty(tableInspectionScope.getTable())) {
+            parameters.add(tableInspectionScope.getTable());
+            filters.add("FOREIGNTABLE.TABLENAME=?");
+        }
+        // keys of each foreign table are kept together when fetched in bulk
+        String orderBy = isBulkScope(tableInspectionScope) ? ORDER_BY_FOREIGN_TABLE + ", " + ORDER_BY : ORDER_BY;
+        return new ParameterizedQuery(newQuery(where(QUERY, filters, "AND") + " ORDER BY " + orderBy), parameters);
     }
 
     @Override
@@ -80,6 +92,12 @@ public class NuoDBForeignKeyInspector extends ForeignKeyInspectorBase {
         InspectionResults inspectionResults = inspectionContext.getInspectionResults();
         ForeignKey foreignKey = null;
         while (foreignKeys.next()) {
+            Table foreignTable = getTable(inspectionContext, tableInspectionScope, null,
+                    foreignKeys.getString("FKTABLE_SCHEM"), foreignKeys.getString("FKTABLE_NAME"));
+            if (foreignTable == null) {
+                foreignKey = null;
+                continue;
+            }
             String primarySchemaName = foreignKeys.getString("PKTABLE_SCHEM");
             boolean addObject = (tableInspectionScope.getSchema() == null
                     || equalsIgnoreCase(tableInspectionScope.getSchema(), primarySchemaName));
@@ -91,8 +109,6 @@ public class NuoDBForeignKeyInspector extends ForeignKeyInspectorBase {
             final Column primaryColumn = primaryTable.addColumn(foreignKeys.getString("PKCOLUMN_NAME"));
             int position = foreignKeys.getInt("KEY_SEQ");
 
-            Table foreignTable = addTable(inspectionResults, null, foreignKeys.getString("FKTABLE_SCHEM"),
-                    foreignKeys.getString("FKTABLE_NAME"));
             final Column foreignColumn = foreignTable.addColumn(foreignKeys.getString("FKCOLUMN_NAME"));
 
             if (position == 1) {
@@ -110,8 +126,11 @@ public class NuoDBForeignKeyInspector extends ForeignKeyInspectorBase {
         }
     }
 
+    /**
+     * Foreign keys of all tables are fetched with a single query if no table is given
+     */
     @Override
     protected boolean supportsScope(TableInspectionScope tableInspectionScope) {
-        return tableInspectionScope.getSchema() != null && tableInspectionScope.getTable() != null;
+        return tableInspectionScope.getTable() == null || tableInspectionScope.getSchema() != null;
     }
 }
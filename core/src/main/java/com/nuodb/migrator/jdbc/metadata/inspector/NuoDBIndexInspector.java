@@ -37,7 +37,6 @@ import java.sql.SQLException;
 
 import static com.nuodb.migrator.jdbc.metadata.Identifier.valueOf;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.INDEX;
-import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 import static com.nuodb.migrator.jdbc.metadata.inspector.NuoDBIndex.KEY;
 import static com.nuodb.migrator.jdbc.metadata.inspector.NuoDBIndex.UNIQUE;
 import static com.nuodb.migrator.jdbc.metadata.inspector.NuoDBIndex.UNIQUECONSTRAINT;
@@ -57,11 +56,15 @@ public class NuoDBIndexInspector extends TableInspectorBase<Table, TableInspecti
     }
 
     @Override
-    protected void processResultSet(InspectionContext inspectionContext, ResultSet indexes) throws SQLException {
+    protected void processResultSet(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope,
+            ResultSet indexes) throws SQLException {
         InspectionResults inspectionResults = inspectionContext.getInspectionResults();
         while (indexes.next()) {
-            Table table = addTable(inspectionResults, null, indexes.getString("SCHEMA"),
+            Table table = getTable(inspectionContext, tableInspectionScope, null, indexes.getString("SCHEMA"),
                     indexes.getString("TABLENAME"));
+            if (table == null) {
+                continue;
+            }
             Identifier identifier = valueOf(indexes.getString("INDEXNAME"));
             Index index = table.getIndex(identifier);
             if (index == null) {
@@ -75,8 +78,11 @@ public class NuoDBIndexInspector extends TableInspectorBase<Table, TableInspecti
         }
     }
 
+    /**
+     * Indexes of all tables are fetched with a single query if no table is given
+     */
     @Override
     protected boolean supportsScope(TableInspectionScope tableInspectionScope) {
-        return tableInspectionScope.getSchema() != null && tableInspectionScope.getTable() != null;
+        return tableInspectionScope.getTable() == null || tableInspectionScope.getSchema() != null;
     }
 }
@@ -37,7 +37,6 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import static com.nuodb.migrator.jdbc.metadata.Identifier.valueOf;
-import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 import static com.nuodb.migrator.jdbc.metadata.inspector.NuoDBIndex.PRIMARY_KEY;
 
 /**
@@ -55,11 +54,15 @@ public class NuoDBPrimaryKeyInspector extends TableInspectorBase<Table, TableIns
     }
 
     @Override
-    protected void processResultSet(InspectionContext inspectionContext, ResultSet primaryKeys) throws SQLException {
+    protected void processResultSet(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope,
+            ResultSet primaryKeys) throws SQLException {
         InspectionResults inspectionResults = inspectionContext.getInspectionResults();
         while (primaryKeys.next()) {
-            Table table = addTable(inspectionResults, null, primaryKeys.getString("SCHEMA"),
+            Table table = getTable(inspectionContext, tableInspectionScope, null, primaryKeys.getString("SCHEMA"),
                     primaryKeys.getString("TABLENAME"));
+            if (table == null) {
+                continue;
+            }
 
             Identifier identifier = valueOf(primaryKeys.getString("INDEXNAME"));
             PrimaryKey primaryKey = table.getPrimaryKey();
@@ -71,8 +74,11 @@ public class NuoDBPrimaryKeyInspector extends TableInspectorBase<Table, TableIns
         }
     }
 
+    /**
+     * Primary keys of all tables are fetched with a single query if no table is given
+     */
     @Override
     protected boolean supportsScope(TableInspectionScope tableInspectionScope) {
-        return tableInspectionScope.getSchema() != null && tableInspectionScope.getTable() != null;
+        return tableInspectionScope.getTable() == null || tableInspectionScope.getSchema() != null;
     }
 }
@@ -39,7 +39,6 @@ import java.util.Collection;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.CHECK;
-import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 import static com.nuodb.migrator.utils.StringUtils.isEmpty;
 import static org.apache.commons.lang3.StringUtils.containsAny;
 
@@ -76,13 +75,17 @@ public class OracleCheckInspector extends TableInspectorBase<Table, TableInspect
     }
 
     @Override
-    protected void processResultSet(InspectionContext inspectionContext, ResultSet checks) throws SQLException {
+    protected void processResultSet(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope,
+            ResultSet checks) throws SQLException {
         InspectionResults inspectionResults = inspectionContext.getInspectionResults();
         while (checks.next()) {
             String condition = checks.getString("SEARCH_CONDITION");
             if (!condition.endsWith("IS NOT NULL")) {
-                Table table = addTable(inspectionResults, null, checks.getString("OWNER"),
+                Table table = getTable(inspectionContext, tableInspectionScope, null, checks.getString("OWNER"),
                         checks.getString("TABLE_NAME"));
+                if (table == null) {
+                    continue;
+                }
                 Check check = new Check(checks.getString("CONSTRAINT_NAME"));
                 check.setText(condition);
                 table.addCheck(check);
@@ -91,8 +94,11 @@ public class OracleCheckInspector extends TableInspectorBase<Table, TableInspect
         }
     }
 
+    /**
+     * Checks of all tables of the schema are fetched with a single query if no table is given
+     */
     @Override
     protected boolean supportsScope(TableInspectionScope tableInspectionScope) {
-        return tableInspectionScope.getSchema() != null && tableInspectionScope.getTable() != null;
+        return tableInspectionScope.getSchema() != null;
     }
 }
@@ -44,7 +44,6 @@ import static com.nuodb.migrator.jdbc.dialect.OracleDialect.INTERVAL_DAY_TO_SECO
 import static com.nuodb.migrator.jdbc.dialect.OracleDialect.INTERVAL_YEAR_TO_MATCH_REGEX;
 import static com.nuodb.migrator.jdbc.metadata.DefaultValue.valueOf;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.SCHEMA;
-import static com.nuodb.migrator.jdbc.model.FieldFactory.newFieldList;
 import static java.lang.String.format;
 import static org.apache.commons.lang3.StringUtils.*;
 
@@ -117,10 +116,7 @@ public class OracleColumnInspector extends SimpleColumnInspector {
 
         column.setComment(columns.getString("REMARKS"));
         column.setPosition(columns.getInt("ORDINAL_POSITION"));
-        String autoIncrement = newFieldList(columns.getMetaData()).get("IS_AUTOINCREMENT") != null
-                ? columns.getString("IS_AUTOINCREMENT")
-                : null;
-        column.setAutoIncrement("YES".equals(autoIncrement));
+        column.setAutoIncrement("YES".equals(getAutoIncrement(inspectionContext, columns)));
         column.setNullable("YES".equals(columns.getString("IS_NULLABLE")));
         column.setDefaultValue(valueOf(defaultValue, true));
     }
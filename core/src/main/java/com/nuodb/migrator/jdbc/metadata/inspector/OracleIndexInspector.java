@@ -130,4 +130,12 @@ public class OracleIndexInspector extends SimpleIndexInspector {
         }
         return expression;
     }
+
+    /**
+     * Indexes of all tables of the schema are fetched with a single query if no table is given
+     */
+    @Override
+    protected boolean supportsScope(TableInspectionScope tableInspectionScope) {
+        return true;
+    }
 }
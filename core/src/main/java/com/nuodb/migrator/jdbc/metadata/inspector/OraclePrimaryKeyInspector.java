@@ -64,4 +64,12 @@ public class OraclePrimaryKeyInspector extends SimplePrimaryKeyInspector {
         }
         return new ParameterizedQuery(query, parameters);
     }
+
+    /**
+     * Primary keys of all tables of the schema are fetched with a single query if no table is given
+     */
+    @Override
+    protected boolean supportsScope(TableInspectionScope tableInspectionScope) {
+        return true;
+    }
 }
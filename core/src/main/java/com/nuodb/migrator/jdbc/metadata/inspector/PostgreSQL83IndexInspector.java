@@ -28,16 +28,10 @@
 package com.nuodb.migrator.jdbc.metadata.inspector;
 
 import com.nuodb.migrator.jdbc.metadata.Index;
-import com.nuodb.migrator.jdbc.query.ParameterizedQuery;
 import com.nuodb.migrator.jdbc.query.Query;
-import com.nuodb.migrator.jdbc.query.SelectQuery;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Collection;
-
-import static com.google.common.collect.Lists.newArrayList;
-import static org.apache.commons.lang3.StringUtils.isEmpty;
 
 /**
  * @author Sergey Bushik
@@ -46,39 +40,7 @@ public class PostgreSQL83IndexInspector extends PostgreSQLIndexInspector {
 
     @Override
     protected Query createQuery(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope) {
-        SelectQuery query = new SelectQuery();
-        Collection<Object> parameters = newArrayList();
-        query.columns("NULL AS TABLE_CAT", "I.INDISPRIMARY AS PRIMARY");
-        query.columns("N.NSPNAME AS TABLE_SCHEM", "CT.RELNAME AS TABLE_NAME");
-        query.columns("NOT I.INDISUNIQUE AS NON_UNIQUE", "NULL AS INDEX_QUALIFIER");
-        query.column("CI.RELNAME AS INDEX_NAME");
-        query.column(
-                "CASE I.INDISCLUSTERED WHEN TRUE THEN 1 ELSE CASE AM.AMNAME WHEN 'HASH' THEN 2 ELSE 3 END END AS TYPE");
-        query.column("(I.KEYS).N AS ORDINAL_POSITION");
-        query.column("PG_CATALOG.PG_GET_INDEXDEF(CI.OID, (I.KEYS).N, FALSE) AS COLUMN_NAME");
-        query.column("CASE AM.AMCANORDER WHEN TRUE THEN "
-                + "CASE I.INDOPTION [(I.KEYS).N - 1] & 1 WHEN 1 THEN 'D' ELSE 'A' END ELSE NULL END AS ASC_OR_DESC");
-        query.columns("CI.RELTUPLES AS CARDINALITY", "CI.RELPAGES AS PAGES");
-        query.column("PG_CATALOG.PG_GET_EXPR(I.INDPRED, I.INDRELID) AS FILTER_CONDITION");
-        query.from("PG_CATALOG.PG_CLASS CT");
-        query.innerJoin("PG_CATALOG.PG_NAMESPACE N", "CT.RELNAMESPACE = N.OID");
-        query.innerJoin("(SELECT I.INDEXRELID, I.INDRELID, I.INDOPTION, I.INDISPRIMARY, I.INDISUNIQUE, "
-                + "I.INDISCLUSTERED, I.INDPRED, I.INDEXPRS, INFORMATION_SCHEMA._PG_EXPANDARRAY(I.INDKEY) AS KEYS "
-                + "FROM PG_CATALOG.PG_INDEX I) I", "CT.OID = I.INDRELID");
-        query.innerJoin("PG_CATALOG.PG_CLASS CI", "CI.OID = I.INDEXRELID");
-        query.innerJoin("PG_CATALOG.PG_AM AM", "CI.RELAM = AM.OID");
-        String schema = tableInspectionScope.getSchema();
-        if (!isEmpty(schema)) {
-            query.where("N.NSPNAME=?");
-            parameters.add(schema);
-        }
-        String table = tableInspectionScope.getTable();
-        if (!isEmpty(table)) {
-            query.where("CT.RELNAME=?");
-            parameters.add(table);
-        }
-        query.orderBy("NON_UNIQUE", "TYPE", "INDEX_NAME", "ORDINAL_POSITION");
-        return new ParameterizedQuery(query, parameters);
+        return createIndexQuery(tableInspectionScope);
     }
 
     @Override
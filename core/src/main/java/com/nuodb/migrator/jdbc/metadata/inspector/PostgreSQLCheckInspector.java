@@ -38,8 +38,9 @@ import java.util.Collection;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.CHECK;
-import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 import static com.nuodb.migrator.jdbc.query.Queries.newQuery;
+import static com.nuodb.migrator.jdbc.query.QueryUtils.where;
+import static com.nuodb.migrator.utils.StringUtils.isEmpty;
 
 /**
  * @author Sergey Bushik
@@ -49,7 +50,7 @@ public class PostgreSQLCheckInspector extends TableInspectorBase<Table, TableIns
     private static final String QUERY = "SELECT * FROM INFORMATION_SCHEMA.CONSTRAINT_COLUMN_USAGE AS CCU "
             + "INNER JOIN INFORMATION_SCHEMA.CHECK_CONSTRAINTS AS CC ON "
             + "CCU.TABLE_CATALOG = CC.CONSTRAINT_CATALOG AND CCU.TABLE_SCHEMA = CC.CONSTRAINT_SCHEMA "
-            + "AND CCU.CONSTRAINT_NAME = CC.CONSTRAINT_NAME WHERE CCU.TABLE_SCHEMA=? AND CCU.TABLE_NAME=?";
+            + "AND CCU.CONSTRAINT_NAME = CC.CONSTRAINT_NAME";
 
     public PostgreSQLCheckInspector() {
         super(CHECK, TableInspectionScope.class);
@@ -58,21 +59,40 @@ public class PostgreSQLCheckInspector extends TableInspectorBase<Table, TableIns
     @Override
     protected Query createQuery(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope) {
         Collection<Object> parameters = newArrayList();
-        parameters.add(tableInspectionScope.getSchema());
-        parameters.add(tableInspectionScope.getTable());
-        return new ParameterizedQuery(newQuery(QUERY), parameters);
+        Collection<String> filters = newArrayList();
+        if (!isEmpty(tableInspectionScope.getSchema())) {
+            parameters.add(tableInspectionScope.getSchema());
+            filters.add("CCU.TABLE_SCHEMA=?");
+        }
+        if (!isEmpty(tableInspectionScope.getTable())) {
+            parameters.add(tableInspectionScope.getTable());
+            filters.add("CCU.TABLE_NAME=?");
+        }
+        return new ParameterizedQuery(newQuery(where(QUERY, filters, "AND")), parameters);
     }
 
     @Override
-    protected void processResultSet(InspectionContext inspectionContext, ResultSet checks) throws SQLException {
+    protected void processResultSet(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope,
+            ResultSet checks) throws SQLException {
         InspectionResults inspectionResults = inspectionContext.getInspectionResults();
         while (checks.next()) {
-            Table table = addTable(inspectionResults, null, checks.getString("TABLE_SCHEMA"),
+            Table table = getTable(inspectionContext, tableInspectionScope, null, checks.getString("TABLE_SCHEMA"),
                     checks.getString("TABLE_NAME"));
+            if (table == null) {
+                continue;
+            }
             Check check = new Check(checks.getString("CONSTRAINT_NAME"));
             check.setText(checks.getString("CHECK_CLAUSE"));
             table.addCheck(check);
             inspectionResults.addObject(check);
         }
     }
+
+    /**
+     * Checks of all tables of the schema are fetched with a single query if no table is given
+     */
+    @Override
+    protected boolean supportsScope(TableInspectionScope tableInspectionScope) {
+        return tableInspectionScope.getTable() == null || tableInspectionScope.getSchema() != null;
+    }
 }
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.jdbc.metadata.inspector;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.nuodb.migrator.jdbc.JdbcUtils.closeQuietly;
+import static com.nuodb.migrator.jdbc.query.QueryUtils.AND;
+import static com.nuodb.migrator.jdbc.query.QueryUtils.where;
+import static com.nuodb.migrator.utils.StringUtils.isEmpty;
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
+
+/**
+ * Fingerprint made of the values returned by a catalog query, which is
+ * filtered by the catalog and schema of the scope when filters are given
+ *
+ * @author Sergey Bushik
+ */
+public class QueryInspectionFingerprint implements InspectionFingerprint {
+
+    private final String query;
+    private final String catalogFilter;
+    private final String schemaFilter;
+
+    public QueryInspectionFingerprint(String query, String catalogFilter, String schemaFilter) {
+        this.query = query;
+        this.catalogFilter = catalogFilter;
+        this.schemaFilter = schemaFilter;
+    }
+
+    @Override
+    public String getFingerprint(Connection connection, InspectionScope inspectionScope) throws SQLException {
+        Collection<Object> parameters = newArrayList();
+        Collection<String> filters = newArrayList();
+        if (inspectionScope instanceof SchemaInspectionScope) {
+            SchemaInspectionScope schemaInspectionScope = (SchemaInspectionScope) inspectionScope;
+            if (catalogFilter != null && !isEmpty(schemaInspectionScope.getCatalog())) {
+                parameters.add(schemaInspectionScope.getCatalog());
+                filters.add(catalogFilter);
+            }
+            if (schemaFilter != null && !isEmpty(schemaInspectionScope.getSchema())) {
+                parameters.add(schemaInspectionScope.getSchema());
+                filters.add(schemaFilter);
+            }
+        }
+        PreparedStatement statement = connection.prepareStatement(where(query, filters, AND), TYPE_FORWARD_ONLY,
+                CONCUR_READ_ONLY);
+        ResultSet resultSet = null;
+        try {
+            int index = 1;
+            for (Object parameter : parameters) {
+                statement.setObject(index++, parameter);
+            }
+            resultSet = statement.executeQuery();
+            int columns = resultSet.getMetaData().getColumnCount();
+            StringBuilder fingerprint = new StringBuilder();
+            while (resultSet.next()) {
+                for (int column = 1; column <= columns; column++) {
+                    if (fingerprint.length() > 0) {
+                        fingerprint.append(':');
+                    }
+                    fingerprint.append(resultSet.getString(column));
+                }
+            }
+            return fingerprint.toString();
+        } finally {
+            closeQuietly(resultSet);
+            closeQuietly(statement);
+        }
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public String getCatalogFilter() {
+        return catalogFilter;
+    }
+
+    public String getSchemaFilter() {
+        return schemaFilter;
+    }
+}
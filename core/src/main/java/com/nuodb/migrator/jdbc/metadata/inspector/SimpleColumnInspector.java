@@ -37,7 +37,6 @@ import java.sql.SQLException;
 
 import static com.nuodb.migrator.jdbc.metadata.DefaultValue.valueOf;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.COLUMN;
-import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 import static com.nuodb.migrator.utils.StringUtils.isEmpty;
 
 /**
@@ -45,6 +44,8 @@ import static com.nuodb.migrator.utils.StringUtils.isEmpty;
  */
 public class SimpleColumnInspector extends TableInspectorBase<Table, TableInspectionScope> {
 
+    public static final String AUTO_INCREMENT = "IS_AUTOINCREMENT";
+
     public SimpleColumnInspector() {
         super(COLUMN, TableInspectionScope.class);
     }
@@ -57,11 +58,17 @@ public class SimpleColumnInspector extends TableInspectorBase<Table, TableInspec
     }
 
     @Override
-    protected void processResultSet(InspectionContext inspectionContext, ResultSet columns) throws SQLException {
+    protected void processResultSet(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope,
+            ResultSet columns) throws SQLException {
         InspectionResults inspectionResults = inspectionContext.getInspectionResults();
+        // result set meta data is looked up once for the first column rather than for each column
+        inspectionContext.getAttributes().remove(AUTO_INCREMENT);
         while (columns.next()) {
-            Table table = addTable(inspectionResults, columns.getString("TABLE_CAT"), columns.getString("TABLE_SCHEM"),
-                    columns.getString("TABLE_NAME"));
+            Table table = getTable(inspectionContext, tableInspectionScope, columns.getString("TABLE_CAT"),
+                    columns.getString("TABLE_SCHEM"), columns.getString("TABLE_NAME"));
+            if (table == null) {
+                continue;
+            }
             Column column = table.addColumn(columns.getString("COLUMN_NAME"));
             processColumn(inspectionContext, columns, column);
             inspectionResults.addObject(column);
@@ -83,16 +90,28 @@ public class SimpleColumnInspector extends TableInspectorBase<Table, TableInspec
         String comment = columns.getString("REMARKS");
         column.setComment(isEmpty(comment) ? null : comment);
         column.setPosition(columns.getInt("ORDINAL_POSITION"));
-        String autoIncrement = FieldFactory.newFieldList(columns.getMetaData()).get("IS_AUTOINCREMENT") != null
-                ? columns.getString("IS_AUTOINCREMENT")
-                : null;
-        column.setAutoIncrement("YES".equals(autoIncrement));
+        column.setAutoIncrement("YES".equals(getAutoIncrement(inspectionContext, columns)));
         column.setNullable("YES".equals(columns.getString("IS_NULLABLE")));
         column.setDefaultValue(valueOf(columns.getString("COLUMN_DEF")));
     }
 
+    /**
+     * Reads IS_AUTOINCREMENT column if the driver provides it
+     */
+    protected String getAutoIncrement(InspectionContext inspectionContext, ResultSet columns) throws SQLException {
+        Boolean autoIncrement = (Boolean) inspectionContext.getAttributes().get(AUTO_INCREMENT);
+        if (autoIncrement == null) {
+            autoIncrement = FieldFactory.newFieldList(columns.getMetaData()).get(AUTO_INCREMENT) != null;
+            inspectionContext.getAttributes().put(AUTO_INCREMENT, autoIncrement);
+        }
+        return autoIncrement ? columns.getString(AUTO_INCREMENT) : null;
+    }
+
+    /**
+     * Columns of all tables of the schema are fetched with a single call if no table is given
+     */
     @Override
     protected boolean supportsScope(TableInspectionScope tableInspectionScope) {
-        return tableInspectionScope.getTable() != null;
+        return true;
     }
 }
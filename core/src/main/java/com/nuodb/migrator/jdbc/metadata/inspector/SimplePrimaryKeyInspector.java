@@ -35,7 +35,6 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.PRIMARY_KEY;
-import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 
 /**
  * @author Sergey Bushik
@@ -54,11 +53,15 @@ public class SimplePrimaryKeyInspector extends TableInspectorBase<Table, TableIn
     }
 
     @Override
-    protected void processResultSet(InspectionContext inspectionContext, ResultSet primaryKeys) throws SQLException {
+    protected void processResultSet(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope,
+            ResultSet primaryKeys) throws SQLException {
         InspectionResults inspectionResults = inspectionContext.getInspectionResults();
         while (primaryKeys.next()) {
-            Table table = addTable(inspectionResults, primaryKeys.getString("TABLE_CAT"),
+            Table table = getTable(inspectionContext, tableInspectionScope, primaryKeys.getString("TABLE_CAT"),
                     primaryKeys.getString("TABLE_SCHEM"), primaryKeys.getString("TABLE_NAME"));
+            if (table == null) {
+                continue;
+            }
 
             final Identifier identifier = Identifier.valueOf(primaryKeys.getString("PK_NAME"));
             PrimaryKey primaryKey = table.getPrimaryKey();
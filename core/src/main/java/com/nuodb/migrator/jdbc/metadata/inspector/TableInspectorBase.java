@@ -31,6 +31,9 @@ import com.nuodb.migrator.jdbc.metadata.MetaData;
 import com.nuodb.migrator.jdbc.metadata.MetaDataType;
 import com.nuodb.migrator.jdbc.metadata.Table;
 
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.findTable;
+
 /**
  * @author Sergey Bushik
  */
@@ -64,6 +67,31 @@ public abstract class TableInspectorBase<M extends MetaData, T extends TableInsp
         return true;
     }
 
+    /**
+     * Scope without a table is inspected in bulk by the inspectors supporting it, i.e. objects of all tables of the
+     * schema are fetched with a single query instead of a query per table
+     *
+     * @param tableInspectionScope
+     *            scope to check
+     * @return true if objects of all tables in the scope are fetched at once
+     */
+    protected boolean isBulkScope(TableInspectionScope tableInspectionScope) {
+        return tableInspectionScope.getTable() == null;
+    }
+
+    /**
+     * Resolves table of a fetched row. Rows fetched in bulk are matched against the inspected tables, so rows of
+     * filtered out tables or tables of other types are skipped.
+     *
+     * @return table of the row or null if the row should be skipped
+     */
+    protected Table getTable(InspectionContext inspectionContext, TableInspectionScope tableInspectionScope,
+            String catalogName, String schemaName, String tableName) {
+        InspectionResults inspectionResults = inspectionContext.getInspectionResults();
+        return isBulkScope(tableInspectionScope) ? findTable(inspectionResults, catalogName, schemaName, tableName)
+                : addTable(inspectionResults, catalogName, schemaName, tableName);
+    }
+
     public static TableInspectionScope createTableInspectionScope(Table table) {
         return new TableInspectionScope(table.getCatalog().getName(), table.getSchema().getName(), table.getName());
     }
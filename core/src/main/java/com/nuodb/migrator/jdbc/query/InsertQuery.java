@@ -38,6 +38,8 @@ import java.util.Map;
 import static com.nuodb.migrator.jdbc.query.InsertType.INSERT;
 
 /**
+ * Insert query of one or more rows, where rows are inserted with a single statement listing values of each row.
+ *
  * @author Sergey Bushik
  */
 public class InsertQuery extends QueryBase {
@@ -46,6 +48,7 @@ public class InsertQuery extends QueryBase {
     private Dialect dialect;
     private Table into;
     private Map<Column, String> columns = Maps.newLinkedHashMap();
+    private int rows = 1;
 
     public InsertType getInsertType() {
         return insertType;
@@ -79,6 +82,14 @@ public class InsertQuery extends QueryBase {
         this.columns = columns;
     }
 
+    public int getRows() {
+        return rows;
+    }
+
+    public void setRows(int rows) {
+        this.rows = rows;
+    }
+
     public void addColumn(Column column) {
         addColumn(column, "?");
     }
@@ -89,6 +100,19 @@ public class InsertQuery extends QueryBase {
 
     @Override
     public void append(StringBuilder query) {
+        append(query, rows);
+    }
+
+    /**
+     * @return statement inserting the given number of rows, used for the rows left after the last full statement.
+     */
+    public String toString(int rows) {
+        StringBuilder query = new StringBuilder();
+        append(query, rows);
+        return query.toString();
+    }
+
+    protected void append(StringBuilder query, int rows) {
         query.append(insertType == null ? INSERT : insertType.getCommand());
         query.append(" INTO ").append(isQualifyNames() ? into.getQualifiedName(dialect) : into.getName(dialect));
         if (columns.size() == 0) {
@@ -103,15 +127,21 @@ public class InsertQuery extends QueryBase {
                     query.append(", ");
                 }
             }
-            query.append(") VALUES (");
-            Iterator<String> values = columns.values().iterator();
-            while (values.hasNext()) {
-                query.append(values.next());
-                if (values.hasNext()) {
+            query.append(") VALUES ");
+            for (int row = 0; row < rows; row++) {
+                if (row > 0) {
                     query.append(", ");
                 }
+                query.append('(');
+                Iterator<String> values = columns.values().iterator();
+                while (values.hasNext()) {
+                    query.append(values.next());
+                    if (values.hasNext()) {
+                        query.append(", ");
+                    }
+                }
+                query.append(')');
             }
-            query.append(')');
         }
     }
 }
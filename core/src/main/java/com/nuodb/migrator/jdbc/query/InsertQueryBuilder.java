@@ -35,6 +35,9 @@ import com.nuodb.migrator.jdbc.metadata.Table;
 
 import java.util.Collection;
 
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
 /**
  * @author Sergey Bushik
  */
@@ -42,11 +45,17 @@ public class InsertQueryBuilder implements QueryBuilder<InsertQuery> {
 
     private static final boolean QUALIFY_NAMES = true;
 
+    /**
+     * Rows of a statement are limited, so that the statement has no more parameters than drivers commonly accept
+     */
+    public static final int MAX_PARAMETERS = 32767;
+
     private Dialect dialect;
     private InsertType insertType;
     private Table table;
     private boolean qualifyNames = QUALIFY_NAMES;
     private Collection<String> columns = Lists.newArrayList();
+    private int rows = 1;
 
     @Override
     public InsertQuery build() {
@@ -69,6 +78,8 @@ public class InsertQueryBuilder implements QueryBuilder<InsertQuery> {
                 insertQuery.addColumn(column);
             }
         }
+        int columns = insertQuery.getColumns().size();
+        insertQuery.setRows(columns > 0 ? max(1, min(rows, MAX_PARAMETERS / columns)) : 1);
         return insertQuery;
     }
 
@@ -96,4 +107,9 @@ public class InsertQueryBuilder implements QueryBuilder<InsertQuery> {
         this.columns = columns;
         return this;
     }
+
+    public InsertQueryBuilder rows(int rows) {
+        this.rows = rows;
+        return this;
+    }
 }
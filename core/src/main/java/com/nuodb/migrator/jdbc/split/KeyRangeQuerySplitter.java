@@ -0,0 +1,307 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.jdbc.split;
+
+import com.nuodb.migrator.jdbc.dialect.Dialect;
+import com.nuodb.migrator.jdbc.dialect.FetchMode;
+import com.nuodb.migrator.jdbc.metadata.Column;
+import com.nuodb.migrator.jdbc.metadata.Table;
+import com.nuodb.migrator.jdbc.query.ParametersBinder;
+import com.nuodb.migrator.jdbc.query.Query;
+import com.nuodb.migrator.jdbc.query.QueryLimit;
+import com.nuodb.migrator.jdbc.query.SelectQuery;
+import com.nuodb.migrator.jdbc.query.SelectQueryBuilder;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.nuodb.migrator.jdbc.JdbcUtils.closeQuietly;
+import static com.nuodb.migrator.jdbc.query.QueryLimitUtils.getCount;
+import static com.nuodb.migrator.jdbc.query.QueryLimitUtils.getOffset;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
+/**
+ * Splits table into ranges of a single column primary key or unique index, so
+ * that each split is fetched with an index seek {@code WHERE key > ? AND key
+ * <= ?} instead of skipping {@code OFFSET} rows. Range boundaries are the keys
+ * closing each split, which are numbered with {@code ROW_NUMBER()} and picked on
+ * the database side, so that only the boundaries are fetched. Dialects without
+ * the row number window function fall back to a single ordered pass over the key
+ * column, which is why the splitter is created for such dialects explicitly only
+ * and {@link QuerySplitters#supportsKeyRangeSplitter(Dialect, Table)} rejects
+ * them. Boundaries are selected once on the first request for a split.
+ *
+ * @author Sergey Bushik
+ */
+public class KeyRangeQuerySplitter extends QuerySplitterBase<PreparedStatement> {
+
+    private final Dialect dialect;
+    private final Table table;
+    private final Collection<Column> columns;
+    private final String filter;
+    private final Column key;
+
+    private boolean lowerBound;
+    private List<Object> keyBounds;
+    private long rowCount;
+
+    protected KeyRangeQuerySplitter(Dialect dialect, Table table, Collection<Column> columns, String filter,
+            Column key, Query query, QueryLimit queryLimit, ParametersBinder parametersBinder) {
+        super(query, queryLimit, parametersBinder);
+        this.dialect = dialect;
+        this.table = table;
+        this.columns = columns;
+        this.filter = filter;
+        this.key = key;
+    }
+
+    @Override
+    protected boolean hasNextQuerySplit(Connection connection, int splitIndex) throws SQLException {
+        return splitIndex == 0 || splitIndex < getSplitCount(connection);
+    }
+
+    @Override
+    protected QueryLimit createQueryLimit(Connection connection, int splitIndex) throws SQLException {
+        getKeyBounds(connection);
+        long count = getCount(getQueryLimit());
+        long limit = min(count, max(rowCount - getOffset(getQueryLimit()) - splitIndex * count, 0));
+        return new QueryLimit(limit);
+    }
+
+    /**
+     * Number of splits is one more than number of the upper key bounds, the last
+     * split is open ended and fetches the remaining rows.
+     */
+    protected int getSplitCount(Connection connection) throws SQLException {
+        List<Object> keyBounds = getKeyBounds(connection);
+        return lowerBound ? keyBounds.size() : keyBounds.size() + 1;
+    }
+
+    /**
+     * Key bounds along with the lower bound flag and the row count are the bounds of the splits
+     */
+    @Override
+    public Serializable getSplitBounds(Connection connection) throws SQLException {
+        return new Object[] { newArrayList(getKeyBounds(connection)), lowerBound, rowCount };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized void setSplitBounds(Serializable splitBounds) {
+        Object[] bounds = (Object[]) splitBounds;
+        keyBounds = (List<Object>) bounds[0];
+        lowerBound = (Boolean) bounds[1];
+        rowCount = (Long) bounds[2];
+    }
+
+    protected synchronized List<Object> getKeyBounds(Connection connection) throws SQLException {
+        if (keyBounds == null) {
+            keyBounds = createKeyBounds(connection);
+        }
+        return keyBounds;
+    }
+
+    /**
+     * Picks each key closing a split of query limit count rows. Offset is
+     * honored by the extra lower bound, which precedes the upper bounds.
+     */
+    protected List<Object> createKeyBounds(Connection connection) throws SQLException {
+        QueryLimit queryLimit = getQueryLimit();
+        long count = getCount(queryLimit);
+        long offset = getOffset(queryLimit);
+        boolean rowNumber = dialect.supportsRowNumber();
+        SelectQuery query = rowNumber ? createRowNumberQuery(offset, count) : createKeyQuery();
+        List<Object> keyBounds = newArrayList();
+        PreparedStatement statement = connection.prepareStatement(query.toString());
+        ResultSet resultSet = null;
+        try {
+            dialect.setFetchMode(statement, new FetchMode());
+            bindFilterParameters(statement, 1);
+            resultSet = statement.executeQuery();
+            long row = 0;
+            Object key = null;
+            while (resultSet.next()) {
+                if (rowNumber) {
+                    row = resultSet.getLong(2);
+                    rowCount = resultSet.getLong(3);
+                } else {
+                    rowCount = ++row;
+                }
+                if (row == offset || isKeyBound(row - offset, count)) {
+                    keyBounds.add(key = resultSet.getObject(1));
+                } else if (row < offset) {
+                    key = resultSet.getObject(1);
+                }
+            }
+            lowerBound = offset > 0 && rowCount > 0;
+            if (lowerBound && rowCount < offset) {
+                // offset is past the last key, the only split will be empty
+                keyBounds.add(key);
+            }
+            // drop upper bound matching the very last key, it would produce empty split
+            if (isKeyBound(rowCount - offset, count)) {
+                keyBounds.remove(keyBounds.size() - 1);
+            }
+        } finally {
+            closeQuietly(resultSet);
+            closeQuietly(statement);
+        }
+        return keyBounds;
+    }
+
+    private static boolean isKeyBound(long row, long count) {
+        return row > 0 && count > 0 && row % count == 0;
+    }
+
+    protected SelectQuery createKeyQuery() {
+        SelectQuery query = new SelectQueryBuilder().dialect(dialect).from(table).column(key)
+                .filters(createFilters()).build();
+        query.orderBy(key.getName(dialect));
+        return query;
+    }
+
+    /**
+     * Numbers filtered rows in the key order and selects the keys of the rows
+     * closing each split along with the offset row and the very last row, which
+     * carries the total row count. Offset and count are inlined as literals, as
+     * parameters in arithmetic expressions can't be typed by some databases.
+     */
+    protected SelectQuery createRowNumberQuery(long offset, long count) {
+        String name = key.getName(dialect);
+        SelectQuery rowNumberQuery = new SelectQueryBuilder().dialect(dialect).from(table)
+                .column(name + " AS K").column("ROW_NUMBER() OVER (ORDER BY " + name + ") AS RN")
+                .column("COUNT(*) OVER () AS N").filters(createFilters()).build();
+        SelectQuery query = new SelectQuery();
+        query.setDialect(dialect);
+        query.columns("K", "RN", "N");
+        query.from("(" + rowNumberQuery + ") B");
+        String bound = "RN = N";
+        if (offset > 0) {
+            bound += " OR RN = " + offset;
+        }
+        if (count > 0) {
+            bound += " OR (RN > " + offset + " AND RN - " + offset + " = FLOOR((RN - " + offset + ") / " + count
+                    + ") * " + count + ")";
+        }
+        query.where(bound);
+        query.orderBy("RN");
+        return query;
+    }
+
+    protected SelectQuery createSplitQuery(int splitIndex) {
+        Collection<String> filters = createFilters();
+        String name = key.getName(dialect);
+        if (hasKeyBound(splitIndex - 1)) {
+            filters.add(name + " > ?");
+        }
+        if (hasKeyBound(splitIndex)) {
+            filters.add(name + " <= ?");
+        }
+        SelectQueryBuilder builder = new SelectQueryBuilder().dialect(dialect).from(table).filters(filters);
+        if (columns != null) {
+            for (Column column : columns) {
+                builder.column(column);
+            }
+        }
+        return builder.build();
+    }
+
+    protected Collection<String> createFilters() {
+        Collection<String> filters = newArrayList();
+        if (!isEmpty(filter)) {
+            filters.add("(" + filter + ")");
+        }
+        return filters;
+    }
+
+    /**
+     * Bound with the index -1 is the lower bound of the first split, index of
+     * the bound is shifted by one if the offset produced the lower bound.
+     */
+    protected boolean hasKeyBound(int index) {
+        index = lowerBound ? index + 1 : index;
+        return index >= 0 && index < keyBounds.size();
+    }
+
+    protected Object getKeyBound(int index) {
+        return keyBounds.get(lowerBound ? index + 1 : index);
+    }
+
+    @Override
+    protected PreparedStatement createStatement(Connection connection, QueryLimit queryLimit, int splitIndex)
+            throws SQLException {
+        return prepareStatement(connection, queryLimit, splitIndex);
+    }
+
+    @Override
+    protected PreparedStatement prepareStatement(Connection connection, QueryLimit queryLimit, int splitIndex)
+            throws SQLException {
+        getKeyBounds(connection);
+        PreparedStatement statement = connection.prepareStatement(createSplitQuery(splitIndex).toString());
+        int column = 1;
+        column += bindFilterParameters(statement, column);
+        if (hasKeyBound(splitIndex - 1)) {
+            statement.setObject(column++, getKeyBound(splitIndex - 1));
+        }
+        if (hasKeyBound(splitIndex)) {
+            statement.setObject(column++, getKeyBound(splitIndex));
+        }
+        return statement;
+    }
+
+    protected int bindFilterParameters(PreparedStatement statement, int column) throws SQLException {
+        ParametersBinder parametersBinder = getParametersBinder();
+        return parametersBinder != null ? parametersBinder.bindParameters(statement, column) : 0;
+    }
+
+    @Override
+    protected ResultSet executeStatement(PreparedStatement statement, QueryLimit queryLimit, int splitIndex)
+            throws SQLException {
+        return statement.executeQuery();
+    }
+
+    public Dialect getDialect() {
+        return dialect;
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public Column getKey() {
+        return key;
+    }
+}
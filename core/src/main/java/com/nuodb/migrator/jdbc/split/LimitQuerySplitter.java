@@ -33,6 +33,7 @@ import com.nuodb.migrator.jdbc.dialect.LimitHandler;
 import com.nuodb.migrator.jdbc.query.QueryLimit;
 import com.nuodb.migrator.jdbc.query.Query;
 
+import java.io.Serializable;
 import java.sql.*;
 
 import static com.nuodb.migrator.jdbc.query.QueryLimitUtils.getCount;
@@ -46,6 +47,7 @@ public class LimitQuerySplitter extends QuerySplitterBase<Statement> {
 
     private final Dialect dialect;
     private final RowCountStrategy rowCountStrategy;
+    private Long rowCount;
 
     protected LimitQuerySplitter(Dialect dialect, RowCountStrategy rowCountStrategy, Query query, QueryLimit queryLimit,
             ParametersBinder parametersBinder) {
@@ -70,7 +72,23 @@ public class LimitQuerySplitter extends QuerySplitterBase<Statement> {
     }
 
     protected long getRowCount(Connection connection) throws SQLException {
-        return getRowCountStrategy().getRowCount(connection);
+        if (rowCount == null) {
+            rowCount = getRowCountStrategy().getRowCount(connection);
+        }
+        return rowCount;
+    }
+
+    /**
+     * Row count split into limits is the bound of the splits
+     */
+    @Override
+    public Serializable getSplitBounds(Connection connection) throws SQLException {
+        return getRowCount(connection);
+    }
+
+    @Override
+    public void setSplitBounds(Serializable splitBounds) {
+        rowCount = (Long) splitBounds;
     }
 
     @Override
@@ -32,6 +32,7 @@ import com.nuodb.migrator.jdbc.query.QueryLimit;
 import com.nuodb.migrator.jdbc.query.Query;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -64,12 +65,15 @@ public class NoLimitQuerySplitter extends QuerySplitterBase<Statement> {
     @Override
     protected Statement prepareStatement(Connection connection, QueryLimit queryLimit, int splitIndex)
             throws SQLException {
-        return connection.prepareStatement(getQuery().toString());
+        PreparedStatement statement = connection.prepareStatement(getQuery().toString());
+        getParametersBinder().bindParameters(statement, 1);
+        return statement;
     }
 
     @Override
     protected ResultSet executeStatement(Statement statement, QueryLimit queryLimit, int splitIndex)
             throws SQLException {
-        return statement.executeQuery(getQuery().toString());
+        return isParameterized() ? ((PreparedStatement) statement).executeQuery()
+                : statement.executeQuery(getQuery().toString());
     }
 }
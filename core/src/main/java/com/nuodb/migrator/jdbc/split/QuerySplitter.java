@@ -31,6 +31,7 @@ import com.nuodb.migrator.jdbc.query.QueryLimit;
 import com.nuodb.migrator.jdbc.query.Query;
 import com.nuodb.migrator.jdbc.query.StatementCallback;
 
+import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -49,4 +50,17 @@ public interface QuerySplitter<S extends Statement> {
     QuerySplit getNextQuerySplit(Connection connection) throws SQLException;
 
     QuerySplit getNextQuerySplit(Connection connection, StatementCallback<S> callback) throws SQLException;
+
+    /**
+     * Returns bounds of the splits, which are saved, so that the query can be split the same way by another run
+     * regardless of changes made to the source since.
+     *
+     * @return serializable bounds or null if splits don't depend on the source data.
+     */
+    Serializable getSplitBounds(Connection connection) throws SQLException;
+
+    /**
+     * Restores bounds of the splits saved by another run, should be invoked before the first split is requested.
+     */
+    void setSplitBounds(Serializable splitBounds);
 }
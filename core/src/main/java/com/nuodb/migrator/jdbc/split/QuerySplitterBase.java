@@ -32,6 +32,7 @@ import com.nuodb.migrator.jdbc.query.QueryLimit;
 import com.nuodb.migrator.jdbc.query.Query;
 import com.nuodb.migrator.jdbc.query.StatementCallback;
 
+import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -138,6 +139,15 @@ public abstract class QuerySplitterBase<S extends Statement> implements QuerySpl
         };
     }
 
+    @Override
+    public Serializable getSplitBounds(Connection connection) throws SQLException {
+        return null;
+    }
+
+    @Override
+    public void setSplitBounds(Serializable splitBounds) {
+    }
+
     public boolean isParameterized() {
         return parametersBinder != null;
     }
@@ -28,11 +28,17 @@
 package com.nuodb.migrator.jdbc.split;
 
 import com.nuodb.migrator.jdbc.dialect.Dialect;
+import com.nuodb.migrator.jdbc.metadata.Column;
+import com.nuodb.migrator.jdbc.metadata.Index;
+import com.nuodb.migrator.jdbc.metadata.PrimaryKey;
+import com.nuodb.migrator.jdbc.query.ParametersBinder;
 import com.nuodb.migrator.jdbc.query.QueryLimit;
 import com.nuodb.migrator.jdbc.metadata.Table;
 import com.nuodb.migrator.jdbc.query.Query;
 
+import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.Collection;
 
 import static com.nuodb.migrator.jdbc.dialect.RowCountType.EXACT;
 
@@ -52,7 +58,77 @@ public class QuerySplitters {
         return new LimitQuerySplitter(dialect, rowCountStrategy, query, queryLimit, null);
     }
 
+    /**
+     * Table can be split into key ranges with any filter, as key ranges are
+     * appended to the filter.
+     *
+     * @param table
+     *            to be split.
+     * @return true if table has a key column to split by.
+     */
+    public static boolean supportsKeyRangeSplitter(Table table) {
+        return getKeyRangeColumn(table) != null;
+    }
+
+    /**
+     * Key range splitter is picked for dialects selecting key bounds with the
+     * row number window function only, as the ordered key scan taken otherwise
+     * reads every key of the table in a single pass before the first split is
+     * dumped. Such tables are split by the limit splitter instead.
+     *
+     * @param dialect
+     *            of the database the table is read from.
+     * @param table
+     *            to be split.
+     * @return true if key bounds are selected on the database side.
+     */
+    public static boolean supportsKeyRangeSplitter(Dialect dialect, Table table) {
+        return dialect.supportsRowNumber() && supportsKeyRangeSplitter(table);
+    }
+
+    /**
+     * Returns single column of the primary key or of a non partial unique index
+     * on a not nullable column, which can be used to split table into key
+     * ranges.
+     *
+     * @param table
+     *            to find key column for.
+     * @return key column or null if table has no suitable key.
+     */
+    public static Column getKeyRangeColumn(Table table) {
+        PrimaryKey primaryKey = table.getPrimaryKey();
+        if (primaryKey != null && primaryKey.getColumns().size() == 1) {
+            return primaryKey.getColumns().iterator().next();
+        }
+        for (Index index : table.getIndexes()) {
+            if (index.isUnique() && index.getExpression() == null && index.getFilterCondition() == null
+                    && index.getColumns().size() == 1) {
+                Column column = index.getColumns().iterator().next();
+                if (!column.isNullable()) {
+                    return column;
+                }
+            }
+        }
+        return null;
+    }
+
+    public static QuerySplitter<PreparedStatement> newKeyRangeSplitter(Dialect dialect, Table table,
+            Collection<Column> columns, String filter, Query query, QueryLimit queryLimit) {
+        return newKeyRangeSplitter(dialect, table, columns, filter, query, queryLimit, null);
+    }
+
+    public static QuerySplitter<PreparedStatement> newKeyRangeSplitter(Dialect dialect, Table table,
+            Collection<Column> columns, String filter, Query query, QueryLimit queryLimit,
+            ParametersBinder parametersBinder) {
+        return new KeyRangeQuerySplitter(dialect, table, columns, filter, getKeyRangeColumn(table), query,
+                queryLimit, parametersBinder);
+    }
+
     public static QuerySplitter<Statement> newNoLimitSplitter(Query query) {
-        return new NoLimitQuerySplitter(query, null);
+        return newNoLimitSplitter(query, null);
+    }
+
+    public static QuerySplitter<Statement> newNoLimitSplitter(Query query, ParametersBinder parametersBinder) {
+        return new NoLimitQuerySplitter(query, parametersBinder);
     }
 }
@@ -42,6 +42,7 @@ public class SimpleJdbcValueGetter<T> implements JdbcValueGetter<T> {
 
     private final JdbcTypeRegistry jdbcTypeRegistry;
     private final JdbcTypeValue<T> jdbcTypeValue;
+    private JdbcTypeAdapterCache jdbcTypeAdapterCache;
 
     public SimpleJdbcValueGetter(JdbcTypeRegistry jdbcTypeRegistry, JdbcTypeValue<T> jdbcTypeValue) {
         this.jdbcTypeRegistry = jdbcTypeRegistry;
@@ -58,10 +59,23 @@ public class SimpleJdbcValueGetter<T> implements JdbcValueGetter<T> {
     public <X> X getValue(ResultSet resultSet, Connection connection, int columnIndex, Field field, Class<X> valueClass,
             Map<String, Object> options) throws SQLException {
         X value = (X) jdbcTypeValue.getValue(resultSet, columnIndex, field, options);
-        JdbcTypeAdapter<X> adapter = jdbcTypeRegistry.getJdbcTypeAdapter(valueClass, jdbcTypeValue.getValueClass());
+        JdbcTypeAdapter<X> adapter = getJdbcTypeAdapter(valueClass);
         if (adapter != null) {
             value = adapter.unwrap(value, valueClass, connection);
         }
         return value;
     }
-}
\ No newline at end of file
+
+    /**
+     * Getter is created per column and is called with the same value class,
+     * so the adapter is looked up once and cached.
+     */
+    protected JdbcTypeAdapter getJdbcTypeAdapter(Class valueClass) {
+        JdbcTypeAdapterCache jdbcTypeAdapterCache = this.jdbcTypeAdapterCache;
+        if (jdbcTypeAdapterCache == null || jdbcTypeAdapterCache.getValueClass() != valueClass) {
+            this.jdbcTypeAdapterCache = jdbcTypeAdapterCache = new JdbcTypeAdapterCache(valueClass,
+                    jdbcTypeRegistry.getJdbcTypeAdapter(valueClass, jdbcTypeValue.getValueClass()));
+        }
+        return jdbcTypeAdapterCache.getJdbcTypeAdapter();
+    }
+}
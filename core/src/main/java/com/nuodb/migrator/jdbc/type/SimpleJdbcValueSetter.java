@@ -42,6 +42,7 @@ public class SimpleJdbcValueSetter implements JdbcValueSetter {
 
     private final JdbcTypeRegistry jdbcTypeRegistry;
     private final JdbcTypeValue jdbcTypeValue;
+    private JdbcTypeAdapterCache jdbcTypeAdapterCache;
 
     public SimpleJdbcValueSetter(JdbcTypeRegistry jdbcTypeRegistry, JdbcTypeValue jdbcTypeValue) {
         this.jdbcTypeRegistry = jdbcTypeRegistry;
@@ -51,11 +52,23 @@ public class SimpleJdbcValueSetter implements JdbcValueSetter {
     @Override
     public <X> void setValue(PreparedStatement statement, Connection connection, int index, Field field, X value,
             Map<String, Object> options) throws SQLException {
-        JdbcTypeAdapter<X> adapter = jdbcTypeRegistry.getJdbcTypeAdapter(value != null ? value.getClass() : null,
-                jdbcTypeValue.getValueClass());
+        JdbcTypeAdapter<X> adapter = getJdbcTypeAdapter(value != null ? value.getClass() : null);
         if (adapter != null) {
             value = adapter.wrap(value, connection);
         }
         jdbcTypeValue.setValue(statement, index, field, value, options);
     }
+
+    /**
+     * Values bound to a column are mostly of the same class, so the adapter of
+     * the last value class is cached.
+     */
+    protected JdbcTypeAdapter getJdbcTypeAdapter(Class valueClass) {
+        JdbcTypeAdapterCache jdbcTypeAdapterCache = this.jdbcTypeAdapterCache;
+        if (jdbcTypeAdapterCache == null || jdbcTypeAdapterCache.getValueClass() != valueClass) {
+            this.jdbcTypeAdapterCache = jdbcTypeAdapterCache = new JdbcTypeAdapterCache(valueClass,
+                    jdbcTypeRegistry.getJdbcTypeAdapter(valueClass, jdbcTypeValue.getValueClass()));
+        }
+        return jdbcTypeAdapterCache.getJdbcTypeAdapter();
+    }
 }
@@ -30,6 +30,7 @@ package com.nuodb.migrator.jdbc.type.jdbc2;
 import com.nuodb.migrator.jdbc.model.Field;
 import com.nuodb.migrator.jdbc.type.JdbcTypeValue;
 import com.nuodb.migrator.jdbc.type.JdbcTypeValueBase;
+import com.nuodb.migrator.jdbc.type.StreamBlob;
 
 import java.sql.*;
 import java.util.Map;
@@ -53,6 +54,16 @@ public class JdbcBlobValue extends JdbcTypeValueBase<Blob> {
     @Override
     protected void setNullSafeValue(PreparedStatement statement, Blob value, int index, Field field,
             Map<String, Object> options) throws SQLException {
-        statement.setBlob(index, value);
+        if (value instanceof StreamBlob) {
+            // int length variant is supported by drivers not implementing JDBC 4
+            long length = value.length();
+            if (length <= Integer.MAX_VALUE) {
+                statement.setBinaryStream(index, value.getBinaryStream(), (int) length);
+            } else {
+                statement.setBinaryStream(index, value.getBinaryStream(), length);
+            }
+        } else {
+            statement.setBlob(index, value);
+        }
     }
 }
@@ -30,6 +30,7 @@ package com.nuodb.migrator.jdbc.type.jdbc2;
 import com.nuodb.migrator.jdbc.model.Field;
 import com.nuodb.migrator.jdbc.type.JdbcTypeValue;
 import com.nuodb.migrator.jdbc.type.JdbcTypeValueBase;
+import com.nuodb.migrator.jdbc.type.StreamClob;
 
 import java.sql.*;
 import java.util.Map;
@@ -53,6 +54,16 @@ public class JdbcClobValue extends JdbcTypeValueBase<Clob> {
     @Override
     protected void setNullSafeValue(PreparedStatement statement, Clob value, int index, Field field,
             Map<String, Object> options) throws SQLException {
-        statement.setClob(index, value);
+        if (value instanceof StreamClob) {
+            // int length variant is supported by drivers not implementing JDBC 4
+            long length = value.length();
+            if (length <= Integer.MAX_VALUE) {
+                statement.setCharacterStream(index, value.getCharacterStream(), (int) length);
+            } else {
+                statement.setCharacterStream(index, value.getCharacterStream(), length);
+            }
+        } else {
+            statement.setClob(index, value);
+        }
     }
 }
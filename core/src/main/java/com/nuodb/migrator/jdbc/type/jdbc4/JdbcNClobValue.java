@@ -30,6 +30,7 @@ package com.nuodb.migrator.jdbc.type.jdbc4;
 import com.nuodb.migrator.jdbc.model.Field;
 import com.nuodb.migrator.jdbc.type.JdbcTypeValue;
 import com.nuodb.migrator.jdbc.type.JdbcTypeValueBase;
+import com.nuodb.migrator.jdbc.type.StreamClob;
 import com.nuodb.migrator.jdbc.type.JdbcTypeDesc;
 
 import java.sql.*;
@@ -67,6 +68,10 @@ public class JdbcNClobValue extends JdbcTypeValueBase<NClob> {
     @Override
     protected void setNullSafeValue(PreparedStatement statement, NClob value, int index, Field field,
             Map<String, Object> options) throws SQLException {
-        statement.setNClob(index, value);
+        if (value instanceof StreamClob) {
+            statement.setNCharacterStream(index, value.getCharacterStream(), value.length());
+        } else {
+            statement.setNClob(index, value);
+        }
     }
 }
@@ -63,6 +63,10 @@ public abstract class ScriptGeneratorJobBase<T extends ScriptGeneratorJobSpecBas
         return getJobSpec().getTableTypes();
     }
 
+    protected String getInspectionCache() {
+        return getJobSpec().getInspectionCache();
+    }
+
     protected Collection<MetaDataType> getObjectTypes() {
         return getJobSpec().getObjectTypes();
     }
@@ -77,6 +77,7 @@ public class LoadJob extends ScriptGeneratorJobBase<LoadJobSpec> {
         backupLoader.setIdentifierNormalizer(getIdentifierNormalizer());
         backupLoader.setIdentifierQuoting(getIdentifierQuoting());
         backupLoader.setInsertTypeFactory(createInsertTypeMapper());
+        backupLoader.setInsertRowsFactory(createInsertRowsFactory());
         backupLoader.setInspectionManager(createInspectionManager());
         backupLoader.setMetaDataSpec(getMetaDataSpec());
         backupLoader.setMigrationModes(getMigrationModes());
@@ -88,6 +89,7 @@ public class LoadJob extends ScriptGeneratorJobBase<LoadJobSpec> {
         backupLoader.setTargetSessionFactory(createTargetSessionFactory());
         backupLoader.setTimeZone(getTimeZone());
         backupLoader.setThreads(getThreads() != null ? getThreads() : THREADS);
+        backupLoader.setResume(isResume());
         backupLoader.setTranslationConfig(getTranslationConfig());
         backupLoader.setValueFormatRegistryResolver(createValueFormatRegistryResolver());
         setBackupLoader(backupLoader);
@@ -97,6 +99,10 @@ public class LoadJob extends ScriptGeneratorJobBase<LoadJobSpec> {
         return new SimpleInsertTypeFactory(getInsertType(), getTableInsertTypes());
     }
 
+    protected InsertRowsFactory createInsertRowsFactory() {
+        return new SimpleInsertRowsFactory(getInsertRows(), getTableInsertRows());
+    }
+
     protected SessionFactory createTargetSessionFactory() {
         SessionFactory targetSessionFactory = newSessionFactory(
                 createConnectionProviderFactory().createConnectionProvider(getTargetSpec()), createDialectResolver());
@@ -152,6 +158,14 @@ public class LoadJob extends ScriptGeneratorJobBase<LoadJobSpec> {
         return getJobSpec().getTableInsertTypes();
     }
 
+    protected int getInsertRows() {
+        return getJobSpec().getInsertRows();
+    }
+
+    protected Map<String, Integer> getTableInsertRows() {
+        return getJobSpec().getTableInsertRows();
+    }
+
     protected ResourceSpec getInputSpec() {
         return getJobSpec().getInputSpec();
     }
@@ -183,4 +197,8 @@ public class LoadJob extends ScriptGeneratorJobBase<LoadJobSpec> {
     protected Integer getThreads() {
         return getJobSpec().getThreads();
     }
+
+    protected boolean isResume() {
+        return getJobSpec().isResume();
+    }
 }
\ No newline at end of file
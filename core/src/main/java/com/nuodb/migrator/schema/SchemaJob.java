@@ -27,6 +27,7 @@
  */
 package com.nuodb.migrator.schema;
 
+import com.nuodb.migrator.backup.XmlInspectionCache;
 import com.nuodb.migrator.jdbc.dialect.Dialect;
 import com.nuodb.migrator.jdbc.dialect.DialectResolver;
 import com.nuodb.migrator.jdbc.dialect.TranslationConfig;
@@ -39,6 +40,7 @@ import com.nuodb.migrator.jdbc.metadata.generator.ScriptExporter;
 import com.nuodb.migrator.jdbc.metadata.generator.ScriptGeneratorManager;
 import com.nuodb.migrator.jdbc.metadata.generator.SessionScriptExporter;
 import com.nuodb.migrator.jdbc.metadata.generator.Script;
+import com.nuodb.migrator.jdbc.metadata.inspector.InspectionCache;
 import com.nuodb.migrator.jdbc.metadata.inspector.InspectionScope;
 import com.nuodb.migrator.jdbc.metadata.inspector.TableInspectionScope;
 import com.nuodb.migrator.jdbc.session.Session;
@@ -61,6 +63,7 @@ import static com.nuodb.migrator.jdbc.metadata.DatabaseInfos.NUODB;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.DATABASE;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.TYPES;
 import static com.nuodb.migrator.jdbc.metadata.generator.HasTablesScriptGenerator.GROUP_SCRIPTS_BY;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionCacheBase.getLiveTypes;
 import static com.nuodb.migrator.jdbc.metadata.generator.WriterScriptExporter.SYSTEM_OUT;
 import static com.nuodb.migrator.jdbc.session.SessionFactories.newSessionFactory;
 import static com.nuodb.migrator.jdbc.type.JdbcTypeOptions.newOptions;
@@ -144,8 +147,26 @@ public class SchemaJob extends ScriptGeneratorJobBase<SchemaJobSpec> {
     protected Database inspect() throws SQLException {
         InspectionScope inspectionScope = new TableInspectionScope(getSourceSpec().getCatalog(),
                 getSourceSpec().getSchema(), getTableTypes());
-        return createInspectionManager().inspect(getSourceSession().getConnection(), inspectionScope, TYPES)
-                .getObject(DATABASE);
+        Session sourceSession = getSourceSession();
+        InspectionCache inspectionCache = createInspectionCache();
+        Database database = inspectionCache != null ? inspectionCache.read(sourceSession, inspectionScope, TYPES)
+                : null;
+        if (database == null) {
+            database = createInspectionManager().inspect(sourceSession.getConnection(), inspectionScope, TYPES)
+                    .getObject(DATABASE);
+            if (inspectionCache != null) {
+                inspectionCache.write(sourceSession, inspectionScope, database, TYPES);
+            }
+        } else {
+            createInspectionManager().inspect(sourceSession.getConnection(), database, inspectionScope,
+                    getLiveTypes(TYPES));
+        }
+        return database;
+    }
+
+    protected InspectionCache createInspectionCache() {
+        String inspectionCache = getInspectionCache();
+        return inspectionCache != null ? new XmlInspectionCache(inspectionCache) : null;
     }
 
     protected ScriptGeneratorManager createScriptGeneratorManager() throws SQLException {
@@ -48,12 +48,15 @@ public class DumpJobSpec extends JobSpecBase {
     private Collection<BackupWriterListener> listeners = newArrayList();
     private Collection<MigrationMode> migrationModes = newHashSet(DATA, SCHEMA);
     private Integer threads;
+    private boolean resume;
     private TimeZone timeZone;
     private ConnectionSpec sourceSpec;
     private ResourceSpec outputSpec;
     private MetaDataSpec metaDataSpec = new MetaDataSpec();
     private Collection<QuerySpec> querySpecs = newArrayList();
     private QueryLimit queryLimit;
+    private Collection<TableSpec> tableSpecs = newArrayList();
+    private String parent;
 
     public void addListener(BackupWriterListener listener) {
         listeners.add(listener);
@@ -83,6 +86,14 @@ public class DumpJobSpec extends JobSpecBase {
         this.threads = threads;
     }
 
+    public boolean isResume() {
+        return resume;
+    }
+
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
     public TimeZone getTimeZone() {
         return timeZone;
     }
@@ -131,6 +142,14 @@ public class DumpJobSpec extends JobSpecBase {
         return metaDataSpec.getTableTypes();
     }
 
+    public String getInspectionCache() {
+        return metaDataSpec.getInspectionCache();
+    }
+
+    public void setInspectionCache(String inspectionCache) {
+        metaDataSpec.setInspectionCache(inspectionCache);
+    }
+
     public void setMetaDataFilterManager(MetaDataFilterManager metaDataFilterManager) {
         metaDataSpec.setMetaDataFilterManager(metaDataFilterManager);
     }
@@ -155,6 +174,22 @@ public class DumpJobSpec extends JobSpecBase {
         this.queryLimit = queryLimit;
     }
 
+    public Collection<TableSpec> getTableSpecs() {
+        return tableSpecs;
+    }
+
+    public void setTableSpecs(Collection<TableSpec> tableSpecs) {
+        this.tableSpecs = tableSpecs;
+    }
+
+    public String getParent() {
+        return parent;
+    }
+
+    public void setParent(String parent) {
+        this.parent = parent;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -176,10 +211,16 @@ public class DumpJobSpec extends JobSpecBase {
             return false;
         if (querySpecs != null ? !querySpecs.equals(that.querySpecs) : that.querySpecs != null)
             return false;
+        if (tableSpecs != null ? !tableSpecs.equals(that.tableSpecs) : that.tableSpecs != null)
+            return false;
+        if (parent != null ? !parent.equals(that.parent) : that.parent != null)
+            return false;
         if (sourceSpec != null ? !sourceSpec.equals(that.sourceSpec) : that.sourceSpec != null)
             return false;
         if (threads != null ? !threads.equals(that.threads) : that.threads != null)
             return false;
+        if (resume != that.resume)
+            return false;
         if (timeZone != null ? !timeZone.equals(that.timeZone) : that.timeZone != null)
             return false;
 
@@ -191,12 +232,15 @@ public class DumpJobSpec extends JobSpecBase {
         int result = super.hashCode();
         result = 31 * result + (migrationModes != null ? migrationModes.hashCode() : 0);
         result = 31 * result + (threads != null ? threads.hashCode() : 0);
+        result = 31 * result + (resume ? 1 : 0);
         result = 31 * result + (timeZone != null ? timeZone.hashCode() : 0);
         result = 31 * result + (sourceSpec != null ? sourceSpec.hashCode() : 0);
         result = 31 * result + (outputSpec != null ? outputSpec.hashCode() : 0);
         result = 31 * result + (metaDataSpec != null ? metaDataSpec.hashCode() : 0);
         result = 31 * result + (querySpecs != null ? querySpecs.hashCode() : 0);
         result = 31 * result + (queryLimit != null ? queryLimit.hashCode() : 0);
+        result = 31 * result + (tableSpecs != null ? tableSpecs.hashCode() : 0);
+        result = 31 * result + (parent != null ? parent.hashCode() : 0);
         return result;
     }
 }
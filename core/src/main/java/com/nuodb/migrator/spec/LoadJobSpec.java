@@ -57,9 +57,12 @@ public class LoadJobSpec extends ScriptGeneratorJobSpecBase {
     private Collection<MigrationMode> migrationModes = newHashSet(DATA, SCHEMA);
     private Parallelizer parallelizer = new TableLevelParallelizer();
     private Map<String, InsertType> tableInsertTypes = newHashMap();
+    private int insertRows = 1;
+    private Map<String, Integer> tableInsertRows = newHashMap();
     private ConnectionSpec targetSpec;
     private TimeZone timeZone;
     private Integer threads;
+    private boolean resume;
 
     public CommitStrategy getCommitStrategy() {
         return commitStrategy;
@@ -129,6 +132,14 @@ public class LoadJobSpec extends ScriptGeneratorJobSpecBase {
         this.threads = threads;
     }
 
+    public boolean isResume() {
+        return resume;
+    }
+
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
     public Map<String, InsertType> getTableInsertTypes() {
         return tableInsertTypes;
     }
@@ -137,6 +148,22 @@ public class LoadJobSpec extends ScriptGeneratorJobSpecBase {
         this.tableInsertTypes = newHashMap(tableInsertTypes);
     }
 
+    public int getInsertRows() {
+        return insertRows;
+    }
+
+    public void setInsertRows(int insertRows) {
+        this.insertRows = insertRows;
+    }
+
+    public Map<String, Integer> getTableInsertRows() {
+        return tableInsertRows;
+    }
+
+    public void setTableInsertRows(Map<String, Integer> tableInsertRows) {
+        this.tableInsertRows = newHashMap(tableInsertRows);
+    }
+
     public Parallelizer getParallelizer() {
         return parallelizer;
     }
@@ -166,12 +193,18 @@ public class LoadJobSpec extends ScriptGeneratorJobSpecBase {
             return false;
         if (tableInsertTypes != null ? !tableInsertTypes.equals(that.tableInsertTypes) : that.tableInsertTypes != null)
             return false;
+        if (insertRows != that.insertRows)
+            return false;
+        if (tableInsertRows != null ? !tableInsertRows.equals(that.tableInsertRows) : that.tableInsertRows != null)
+            return false;
         if (targetSpec != null ? !targetSpec.equals(that.targetSpec) : that.targetSpec != null)
             return false;
         if (timeZone != null ? !timeZone.equals(that.timeZone) : that.timeZone != null)
             return false;
         if (threads != null ? !threads.equals(that.threads) : that.threads != null)
             return false;
+        if (resume != that.resume)
+            return false;
 
         return true;
     }
@@ -184,9 +217,12 @@ public class LoadJobSpec extends ScriptGeneratorJobSpecBase {
         result = 31 * result + (insertType != null ? insertType.hashCode() : 0);
         result = 31 * result + (migrationModes != null ? migrationModes.hashCode() : 0);
         result = 31 * result + (tableInsertTypes != null ? tableInsertTypes.hashCode() : 0);
+        result = 31 * result + insertRows;
+        result = 31 * result + (tableInsertRows != null ? tableInsertRows.hashCode() : 0);
         result = 31 * result + (targetSpec != null ? targetSpec.hashCode() : 0);
         result = 31 * result + (timeZone != null ? timeZone.hashCode() : 0);
         result = 31 * result + (threads != null ? threads.hashCode() : 0);
+        result = 31 * result + (resume ? 1 : 0);
         return result;
     }
 }
@@ -49,6 +49,7 @@ public class MetaDataSpec extends SpecBase {
     private Collection<MetaDataType> objectTypes = OBJECT_TYPES;
     private MetaDataFilterManager metaDataFilterManager = new MetaDataFilterManager();
     private String[] tableTypes = TABLE_TYPES;
+    private String inspectionCache;
 
     public Collection<MetaDataType> getObjectTypes() {
         return objectTypes;
@@ -79,6 +80,14 @@ public class MetaDataSpec extends SpecBase {
         this.tableTypes = tableTypes;
     }
 
+    public String getInspectionCache() {
+        return inspectionCache;
+    }
+
+    public void setInspectionCache(String inspectionCache) {
+        this.inspectionCache = inspectionCache;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -97,6 +106,8 @@ public class MetaDataSpec extends SpecBase {
             return false;
         if (!Arrays.equals(tableTypes, that.tableTypes))
             return false;
+        if (inspectionCache != null ? !inspectionCache.equals(that.inspectionCache) : that.inspectionCache != null)
+            return false;
 
         return true;
     }
@@ -107,6 +118,7 @@ public class MetaDataSpec extends SpecBase {
         result = 31 * result + (objectTypes != null ? objectTypes.hashCode() : 0);
         result = 31 * result + (metaDataFilterManager != null ? metaDataFilterManager.hashCode() : 0);
         result = 31 * result + (tableTypes != null ? Arrays.hashCode(tableTypes) : 0);
+        result = 31 * result + (inspectionCache != null ? inspectionCache.hashCode() : 0);
         return result;
     }
 }
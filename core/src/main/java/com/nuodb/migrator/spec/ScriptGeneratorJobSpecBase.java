@@ -89,6 +89,14 @@ public class ScriptGeneratorJobSpecBase extends JobSpecBase {
         return metaDataSpec.getTableTypes();
     }
 
+    public String getInspectionCache() {
+        return metaDataSpec.getInspectionCache();
+    }
+
+    public void setInspectionCache(String inspectionCache) {
+        metaDataSpec.setInspectionCache(inspectionCache);
+    }
+
     public void setObjectTypes(Collection<MetaDataType> objectTypes) {
         metaDataSpec.setObjectTypes(objectTypes);
     }
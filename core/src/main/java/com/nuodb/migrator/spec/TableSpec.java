@@ -36,6 +36,7 @@ public class TableSpec {
     private String table;
     private Collection<String> columns;
     private String filter;
+    private String watermark;
 
     public TableSpec(String table) {
         this.table = table;
@@ -70,6 +71,18 @@ public class TableSpec {
         this.filter = filter;
     }
 
+    /**
+     * Name of the updated at or monotonically increasing column, which makes
+     * the table dumped incrementally from its previous high water mark.
+     */
+    public String getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(String watermark) {
+        this.watermark = watermark;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -85,6 +98,8 @@ public class TableSpec {
             return false;
         if (table != null ? !table.equals(that.table) : that.table != null)
             return false;
+        if (watermark != null ? !watermark.equals(that.watermark) : that.watermark != null)
+            return false;
 
         return true;
     }
@@ -94,6 +109,7 @@ public class TableSpec {
         int result = table != null ? table.hashCode() : 0;
         result = 31 * result + (columns != null ? columns.hashCode() : 0);
         result = 31 * result + (filter != null ? filter.hashCode() : 0);
+        result = 31 * result + (watermark != null ? watermark.hashCode() : 0);
         return result;
     }
 
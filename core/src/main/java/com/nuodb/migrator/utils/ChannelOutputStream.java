@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.lang.Math.min;
+import static java.nio.ByteBuffer.allocateDirect;
+
+/**
+ * Writes file through a channel from a direct buffer, so that the channel
+ * doesn't copy bytes to a temporary direct buffer of its own. With write
+ * behind a full buffer is written on the given executor, while the next one
+ * is being filled. Direct buffers are taken from and returned on close to the
+ * given queue, so that consecutive chunks don't allocate them over again.
+ *
+ * @author Sergey Bushik
+ */
+public class ChannelOutputStream extends OutputStream {
+
+    public static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final Queue<ByteBuffer> buffers;
+    private final ExecutorService writeBehind;
+    private ByteBuffer buffer;
+    private ByteBuffer writeBuffer;
+    private Future<?> write;
+
+    public ChannelOutputStream(FileChannel channel) {
+        this(channel, null, null);
+    }
+
+    /**
+     * @param channel
+     *            to write to.
+     * @param buffers
+     *            pool of direct buffers to reuse, or null to allocate them.
+     * @param writeBehind
+     *            executor writing full buffers, or null to write them on the
+     *            calling thread.
+     */
+    public ChannelOutputStream(FileChannel channel, Queue<ByteBuffer> buffers, ExecutorService writeBehind) {
+        this.channel = channel;
+        this.buffers = buffers;
+        this.writeBehind = writeBehind;
+        this.buffer = takeBuffer();
+        if (writeBehind != null) {
+            this.writeBuffer = takeBuffer();
+        }
+    }
+
+    protected ByteBuffer takeBuffer() {
+        ByteBuffer buffer = buffers != null ? buffers.poll() : null;
+        if (buffer == null) {
+            buffer = allocateDirect(BUFFER_SIZE);
+        } else {
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    protected void releaseBuffers() {
+        if (buffers != null && write == null) {
+            buffers.offer(buffer);
+            if (writeBuffer != null) {
+                buffers.offer(writeBuffer);
+            }
+        }
+        buffer = null;
+        writeBuffer = null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            writeBuffer();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (!buffer.hasRemaining()) {
+                writeBuffer();
+            }
+            int length = min(len, buffer.remaining());
+            buffer.put(b, off, length);
+            off += length;
+            len -= length;
+        }
+    }
+
+    /**
+     * Writes filled buffer to the channel, or hands it over to the write
+     * behind thread and continues with the buffer it has written before.
+     */
+    protected void writeBuffer() throws IOException {
+        buffer.flip();
+        if (writeBehind == null) {
+            write(channel, buffer);
+            buffer.clear();
+        } else {
+            awaitWrite();
+            final ByteBuffer filled = buffer;
+            write = writeBehind.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws IOException {
+                    write(channel, filled);
+                    return null;
+                }
+            });
+            buffer = writeBuffer;
+            buffer.clear();
+            writeBuffer = filled;
+        }
+    }
+
+    protected void awaitWrite() throws IOException {
+        if (write == null) {
+            return;
+        }
+        try {
+            write.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } finally {
+            write = null;
+        }
+    }
+
+    protected static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (buffer.position() > 0) {
+            writeBuffer();
+        }
+        awaitWrite();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            releaseBuffers();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.lang.Math.min;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+/**
+ * Reads file by mapping consecutive regions of it into memory, skipping bytes
+ * moves position and maps the region it lands in on the next read.
+ *
+ * @author Sergey Bushik
+ */
+public class MappedInputStream extends InputStream {
+
+    public static final int MAP_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int mapSize;
+    private MappedByteBuffer buffer;
+    private long position;
+
+    public MappedInputStream(FileChannel channel) throws IOException {
+        this(channel, MAP_SIZE);
+    }
+
+    public MappedInputStream(FileChannel channel, int mapSize) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.mapSize = mapSize;
+    }
+
+    /**
+     * Maps region starting at the current position if the mapped one is read.
+     *
+     * @return false if the end of file is reached
+     */
+    protected boolean map() throws IOException {
+        if (buffer != null && buffer.hasRemaining()) {
+            return true;
+        }
+        if (position >= size) {
+            return false;
+        }
+        buffer = channel.map(READ_ONLY, position, min(mapSize, size - position));
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!map()) {
+            return -1;
+        }
+        position++;
+        return buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!map()) {
+            return -1;
+        }
+        len = min(len, buffer.remaining());
+        buffer.get(b, off, len);
+        position += len;
+        return len;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        n = min(n, size - position);
+        if (n <= 0) {
+            return 0;
+        }
+        if (buffer != null && n <= buffer.remaining()) {
+            buffer.position(buffer.position() + (int) n);
+        } else {
+            buffer = null;
+        }
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) min(size - position, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        channel.close();
+    }
+}
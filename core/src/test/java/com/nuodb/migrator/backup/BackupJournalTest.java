@@ -0,0 +1,273 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup;
+
+import com.nuodb.migrator.backup.format.InputRange;
+import com.nuodb.migrator.backup.format.RowGroup;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.zip.CRC32;
+
+import static com.google.common.collect.Iterables.get;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.nuodb.migrator.backup.BackupJournal.DUMP;
+import static com.nuodb.migrator.backup.BackupJournal.LOAD;
+import static com.nuodb.migrator.backup.BackupJournal.openJournal;
+import static com.nuodb.migrator.backup.format.value.ValueType.DECIMAL;
+import static com.nuodb.migrator.backup.format.value.ValueType.LONG;
+import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
+import static java.nio.file.Files.createTempDirectory;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Sergey Bushik
+ */
+public class BackupJournalTest {
+
+    private File dir;
+    private BackupOps backupOps;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dir = createTempDirectory("journal").toFile();
+        backupOps = new XmlBackupOps();
+        backupOps.setPath(new File(dir, "backup.cat").getPath());
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        deleteQuietly(dir);
+    }
+
+    @Test
+    public void testResumeDump() {
+        BackupJournal backupJournal = openJournal(backupOps, DUMP, false);
+        assertEquals(backupJournal.getFile(), new File(dir, "backup.dump.journal"));
+        backupJournal.writeChunk("t1.1.csv", createChunk("t1.1.csv", "gzip", 10, 100), 1L);
+        Chunk indexed = createChunk("t1.1.2.csv", null, 5, 50);
+        indexed.addRowGroup(new InputRange(6, 20, 0, 3));
+        indexed.addRowGroup(new InputRange(26, 24, 3, 2));
+        backupJournal.writeChunk("t1.1.csv", indexed, 2L);
+        backupJournal.writeSplit("t1.1.csv", newArrayList(new Column("id", LONG), new Column("name\tx", STRING)));
+        backupJournal.writeChunk("t1.2.csv", createChunk("t1.2.csv", null, 7, 70), 3L);
+        backupJournal.close();
+
+        backupJournal = openJournal(backupOps, DUMP, true);
+        assertTrue(backupJournal.isSplitWritten("t1.1.csv"));
+        assertFalse(backupJournal.isSplitWritten("t1.2.csv"));
+        Collection<Chunk> chunks = backupJournal.getSplitChunks("t1.1.csv");
+        assertEquals(chunks.size(), 2);
+        Chunk chunk = get(chunks, 0);
+        assertEquals(chunk.getName(), "t1.1.csv");
+        assertEquals(chunk.getCodec(), "gzip");
+        assertEquals(chunk.getRowCount(), 10);
+        assertEquals(chunk.getSize(), Long.valueOf(100));
+        assertNull(get(chunks, 1).getCodec());
+        assertEquals(get(chunks, 1).getRowGroups(), indexed.getRowGroups());
+        assertTrue(chunk.getRowGroups().isEmpty());
+        assertEquals(backupJournal.getSplitColumns("t1.1.csv"),
+                newArrayList(new Column("id", LONG), new Column("name\tx", STRING)));
+        backupJournal.close();
+
+        backupJournal = openJournal(backupOps, DUMP, false);
+        assertFalse(backupJournal.isSplitWritten("t1.1.csv"));
+        backupJournal.close();
+    }
+
+    /**
+     * Key bounds of row groups are kept by the journal, groups without them
+     * are read as plain ranges.
+     */
+    @Test
+    public void testResumeDumpKeyBounds() {
+        BackupJournal backupJournal = openJournal(backupOps, DUMP, false);
+        Chunk chunk = createChunk("t1.csv", null, 5, 50);
+        chunk.addRowGroup(new RowGroup(6, 20, 0, 3, "-1.5", "2"));
+        chunk.addRowGroup(new InputRange(26, 24, 3, 2));
+        backupJournal.writeChunk("t1.csv", chunk, 1L);
+        backupJournal.writeSplit("t1.csv", newArrayList(new Column("id", DECIMAL)));
+        backupJournal.close();
+
+        backupJournal = openJournal(backupOps, DUMP, true);
+        Chunk resumed = get(backupJournal.getSplitChunks("t1.csv"), 0);
+        assertEquals(resumed.getRowGroups(), chunk.getRowGroups());
+        assertEquals(resumed.getRowGroups().get(1).getClass(), InputRange.class);
+        backupJournal.close();
+    }
+
+    @Test
+    public void testResumeLoad() throws Exception {
+        Chunk chunk1 = createChunk("t1.1.csv", null, 10, 100);
+        Chunk chunk2 = createChunk("t1.2.csv", null, 10, 100);
+        BackupJournal backupJournal = openJournal(backupOps, LOAD, false);
+        backupJournal.writeLoad(chunk1, 4);
+        backupJournal.writeLoad(chunk1, 10);
+        backupJournal.writeLoad(chunk2, 3);
+        backupJournal.close();
+        // partially written last record is discarded
+        writeStringToFile(backupJournal.getFile(), "load\tt1.2.csv\t", "UTF-8", true);
+
+        backupJournal = openJournal(backupOps, LOAD, true);
+        assertTrue(backupJournal.isChunkLoaded(chunk1));
+        assertFalse(backupJournal.isChunkLoaded(chunk2));
+        assertEquals(backupJournal.getLoadedRows(chunk2), 3);
+        assertEquals(backupJournal.getLoadedRows(createChunk("t2.csv", null, 1, 1)), 0);
+        backupJournal.close();
+    }
+
+    /**
+     * Ranges of rows committed out of order are merged, rows of a chunk
+     * split into ranges and committed by several threads are resumed.
+     */
+    @Test
+    public void testResumeLoadRanges() throws Exception {
+        Chunk chunk = createChunk("t1.csv", null, 100, 1000);
+        BackupJournal backupJournal = openJournal(backupOps, LOAD, false);
+        backupJournal.writeTable("t1");
+        backupJournal.writeLoad(chunk, 50, 60);
+        backupJournal.writeLoad(chunk, 0, 20);
+        backupJournal.writeLoad(chunk, 60, 70);
+        backupJournal.writeLoad(chunk, 20, 30);
+        backupJournal.writeLoad(chunk, 90, 90);
+        backupJournal.close();
+
+        backupJournal = openJournal(backupOps, LOAD, true);
+        assertTrue(backupJournal.isTableStarted("t1"));
+        assertFalse(backupJournal.isTableStarted("t2"));
+        assertTrue(backupJournal.isChunkStarted(chunk));
+        assertEquals(backupJournal.getLoadedRows(chunk), 30);
+        NavigableMap<Long, Long> loadedRanges = backupJournal.getLoadedRanges(chunk);
+        assertEquals(loadedRanges.size(), 2);
+        assertEquals(loadedRanges.get(0L), Long.valueOf(30));
+        assertEquals(loadedRanges.get(50L), Long.valueOf(70));
+        backupJournal.writeLoad(chunk, 25, 55);
+        assertEquals(backupJournal.getLoadedRows(chunk), 70);
+        assertFalse(backupJournal.isChunkLoaded(chunk));
+        backupJournal.close();
+    }
+
+    @Test
+    public void testResumeSplitBounds() {
+        BackupJournal backupJournal = openJournal(backupOps, DUMP, false);
+        backupJournal.writeSplitBounds("t1", new Object[] { newArrayList(10L, "key\tb"), true, 100L });
+        backupJournal.writeSplitBounds("t2", 200L);
+        backupJournal.close();
+
+        backupJournal = openJournal(backupOps, DUMP, true);
+        Object[] bounds = (Object[]) backupJournal.getSplitBounds("t1");
+        assertEquals(bounds[0], newArrayList(10L, "key\tb"));
+        assertEquals(bounds[1], true);
+        assertEquals(bounds[2], 100L);
+        assertEquals(backupJournal.getSplitBounds("t2"), 200L);
+        assertNull(backupJournal.getSplitBounds("t3"));
+        backupJournal.close();
+    }
+
+    /**
+     * Chunk recorded again for the split means the split is dumped anew after
+     * a failed verification, so only the chunks of the last attempt are kept.
+     */
+    @Test
+    public void testResumeDumpRewritten() {
+        BackupJournal backupJournal = openJournal(backupOps, DUMP, false);
+        backupJournal.writeChunk("t1.csv", createChunk("t1.csv", null, 10, 100), 1L);
+        backupJournal.writeChunk("t1.csv", createChunk("t1.2.csv", null, 10, 100), 2L);
+        backupJournal.writeSplit("t1.csv", newArrayList(new Column("id", LONG)));
+        backupJournal.writeChunk("t1.csv", createChunk("t1.csv", null, 15, 150), 3L);
+        backupJournal.close();
+
+        backupJournal = openJournal(backupOps, DUMP, true);
+        assertFalse(backupJournal.isSplitWritten("t1.csv"));
+        Collection<Chunk> chunks = backupJournal.getSplitChunks("t1.csv");
+        assertEquals(chunks.size(), 1);
+        assertEquals(get(chunks, 0).getRowCount(), 15);
+        assertEquals(backupJournal.getChunkChecksum(get(chunks, 0)), Long.valueOf(3));
+        backupJournal.close();
+    }
+
+    @Test
+    public void testVerifySplit() throws Exception {
+        Chunk chunk1 = writeChunk("t1.csv", null, "1,a\n2,b\n");
+        Chunk chunk2 = writeChunk("t1.2.csv.gz", "gzip", "3,c\n");
+        BackupJournal backupJournal = openJournal(backupOps, DUMP, false);
+        backupJournal.writeChunk("t1.csv", chunk1, getChecksum("1,a\n2,b\n"));
+        backupJournal.writeChunk("t1.csv", chunk2, getChecksum("3,c\n"));
+        backupJournal.writeSplit("t1.csv", newArrayList(new Column("id", LONG)));
+        backupJournal.close();
+
+        backupJournal = openJournal(backupOps, DUMP, true);
+        assertTrue(backupJournal.isSplitVerified("t1.csv", backupOps));
+        assertFalse(backupJournal.isSplitVerified("t2.csv", backupOps));
+
+        // damaged chunk of the same length
+        writeStringToFile(new File(dir, "t1.csv"), "1,a\n2,x\n");
+        assertFalse(backupJournal.isSplitVerified("t1.csv", backupOps));
+        // lost chunk
+        writeChunk("t1.csv", null, "1,a\n2,b\n");
+        assertTrue(new File(dir, "t1.2.csv.gz").delete());
+        assertFalse(backupJournal.isSplitVerified("t1.csv", backupOps));
+        backupJournal.close();
+    }
+
+    private Chunk writeChunk(String name, String codec, String content) throws Exception {
+        OutputStream output = backupOps.openOutput(name, codec);
+        try {
+            output.write(content.getBytes("UTF-8"));
+        } finally {
+            output.close();
+        }
+        backupOps.sync(name);
+        return createChunk(name, codec, 1, backupOps.getLength(name));
+    }
+
+    private static long getChecksum(String content) throws Exception {
+        CRC32 crc = new CRC32();
+        crc.update(content.getBytes("UTF-8"));
+        return crc.getValue();
+    }
+
+    private static Chunk createChunk(String name, String codec, long rowCount, long size) {
+        Chunk chunk = new Chunk();
+        chunk.setName(name);
+        chunk.setCodec(codec);
+        chunk.setRowCount(rowCount);
+        chunk.setSize(size);
+        return chunk;
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup;
+
+import com.nuodb.migrator.utils.ChannelOutputStream;
+import com.nuodb.migrator.utils.MappedInputStream;
+import org.slf4j.Logger;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.nuodb.migrator.backup.BackupOps.ATTRIBUTE_IO;
+import static com.nuodb.migrator.backup.BackupOps.ATTRIBUTE_IO_WRITE_BEHIND;
+import static com.nuodb.migrator.backup.BackupOps.IO_CHANNEL;
+import static com.nuodb.migrator.backup.BackupOps.IO_STREAM;
+import static java.lang.Long.getLong;
+import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Arrays.copyOf;
+import static java.util.Collections.newSetFromMap;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.apache.commons.io.FileUtils.getFile;
+import static org.apache.commons.io.FileUtils.readFileToByteArray;
+import static org.apache.commons.io.FileUtils.writeByteArrayToFile;
+import static org.apache.commons.io.IOUtils.toByteArray;
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Sergey Bushik
+ */
+public class BackupOpsIoTest {
+
+    private final Logger logger = getLogger(getClass());
+
+    private File dir;
+    private byte[] bytes;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setUp() throws Exception {
+        dir = createTempDirectory("backup").toFile();
+        bytes = new byte[3 * 1024 * 1024 + 17];
+        new Random(1).nextBytes(bytes);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        deleteQuietly(dir);
+    }
+
+    @DataProvider(name = "io")
+    public Object[][] createIoData() {
+        return new Object[][] { { IO_STREAM, "false" }, { IO_CHANNEL, "false" }, { IO_CHANNEL, "true" } };
+    }
+
+    @Test(dataProvider = "io")
+    public void testWriteRead(String io, String writeBehind) throws Exception {
+        Map<String, Object> attributes = newHashMap();
+        attributes.put(ATTRIBUTE_IO, io);
+        attributes.put(ATTRIBUTE_IO_WRITE_BEHIND, writeBehind);
+        BackupOps backupOps = new XmlBackupOps();
+        backupOps.setAttributes(attributes);
+        backupOps.setDir(new File(dir, "chunks").getPath());
+
+        OutputStream output = backupOps.openOutput("chunk.bin");
+        output.write(bytes, 0, 10);
+        output.write(bytes[10]);
+        output.write(bytes, 11, bytes.length - 11);
+        output.close();
+        assertEquals(backupOps.getLength("chunk.bin"), Long.valueOf(bytes.length));
+
+        InputStream input = backupOps.openInput("chunk.bin");
+        assertEquals(toByteArray(input), bytes);
+        input.close();
+    }
+
+    @Test(expectedExceptions = BackupException.class)
+    public void testUnsupportedIo() {
+        Map<String, Object> attributes = newHashMap();
+        attributes.put(ATTRIBUTE_IO, "unknown");
+        BackupOps backupOps = new XmlBackupOps();
+        backupOps.setAttributes(attributes);
+        backupOps.setDir(dir.getPath());
+        backupOps.openOutput("chunk.bin");
+    }
+
+    @Test
+    public void testMappedRegions() throws Exception {
+        File file = getFile(dir, "chunk.bin");
+        writeByteArrayToFile(file, bytes);
+        InputStream input = new MappedInputStream(FileChannel.open(file.toPath(), READ), 1000);
+        byte[] read = new byte[1500];
+        assertEquals(input.read(read), 1000);
+        assertEquals(input.skip(999), 999);
+        assertEquals(input.read(), bytes[1999] & 0xff);
+        assertEquals(input.skip(bytes.length), bytes.length - 2000);
+        assertEquals(input.read(), -1);
+        input.close();
+    }
+
+    /**
+     * Direct buffers of a closed channel output are reused by the next one.
+     */
+    @Test
+    public void testReuseBuffers() throws Exception {
+        Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+        ExecutorService writeBehind = newSingleThreadExecutor();
+        try {
+            OutputStream output = new ChannelOutputStream(FileChannel.open(new File(dir, "chunk1.bin").toPath(),
+                    CREATE, WRITE), buffers, writeBehind);
+            output.write(bytes);
+            output.close();
+            assertEquals(buffers.size(), 2);
+            Collection<ByteBuffer> released = newArrayList(buffers);
+
+            output = new ChannelOutputStream(FileChannel.open(new File(dir, "chunk2.bin").toPath(), CREATE, WRITE),
+                    buffers, writeBehind);
+            assertTrue(buffers.isEmpty());
+            output.write(bytes);
+            output.close();
+            assertEquals(newIdentityHashSet(buffers), newIdentityHashSet(released));
+            assertEquals(readFileToByteArray(new File(dir, "chunk2.bin")), bytes);
+        } finally {
+            writeBehind.shutdown();
+        }
+    }
+
+    private static Set<ByteBuffer> newIdentityHashSet(Collection<ByteBuffer> buffers) {
+        Set<ByteBuffer> set = newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+        set.addAll(buffers);
+        return set;
+    }
+
+    /**
+     * Compares throughput of stream and channel modes on a chunk of
+     * backup.io.benchmark.size bytes, 128 MB by default. The chunk is written
+     * and read back in 8 KB blocks, as formats do through their buffers, and
+     * the rate of each pass is logged. The benchmark is excluded from the unit
+     * tests and is run with mvn test -P benchmark-tests.
+     */
+    @Test(groups = "benchmark", dataProvider = "io")
+    public void testThroughput(String io, String writeBehind) throws Exception {
+        long size = getLong("backup.io.benchmark.size", 128L * 1024 * 1024);
+        Map<String, Object> attributes = newHashMap();
+        attributes.put(ATTRIBUTE_IO, io);
+        attributes.put(ATTRIBUTE_IO_WRITE_BEHIND, writeBehind);
+        BackupOps backupOps = new XmlBackupOps();
+        backupOps.setAttributes(attributes);
+        backupOps.setDir(dir.getPath());
+
+        byte[] block = copyOf(bytes, 8192);
+        long start = nanoTime();
+        OutputStream output = backupOps.openOutput("chunk.bin");
+        for (long written = 0; written < size; written += block.length) {
+            output.write(block);
+        }
+        output.close();
+        long write = nanoTime() - start;
+
+        start = nanoTime();
+        InputStream input = backupOps.openInput("chunk.bin");
+        long read = 0;
+        int count;
+        while ((count = input.read(block)) >= 0) {
+            read += count;
+        }
+        input.close();
+        assertEquals(read, backupOps.getLength("chunk.bin").longValue());
+        if (logger.isInfoEnabled()) {
+            logger.info(format("%s io, write behind %s: write %.1f MB/s, read %.1f MB/s", io, writeBehind,
+                    getRate(read, write), getRate(read, nanoTime() - start)));
+        }
+    }
+
+    private static double getRate(long bytes, long nanos) {
+        return bytes / (1024D * 1024D) / (nanos / 1E9D);
+    }
+}
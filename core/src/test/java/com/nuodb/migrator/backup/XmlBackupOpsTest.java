@@ -28,6 +28,8 @@
 package com.nuodb.migrator.backup;
 
 import com.nuodb.migrator.Migrator;
+import com.nuodb.migrator.backup.format.InputRange;
+import com.nuodb.migrator.backup.format.RowGroup;
 import com.nuodb.migrator.backup.format.value.ValueType;
 import com.nuodb.migrator.jdbc.metadata.Column;
 import com.nuodb.migrator.jdbc.metadata.Database;
@@ -39,7 +41,9 @@ import com.nuodb.migrator.jdbc.type.JdbcTypeDesc;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import static com.nuodb.migrator.backup.format.value.ValueType.LONG;
 import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
+import static com.nuodb.migrator.backup.format.value.ValueType.TIMESTAMP;
 import static com.nuodb.migrator.jdbc.metadata.Identifier.EMPTY;
 import static com.nuodb.migrator.jdbc.type.JdbcTypeOptions.newOptions;
 import static org.apache.commons.io.IOUtils.toInputStream;
@@ -86,6 +90,163 @@ public class XmlBackupOpsTest {
         assertEquals(actual, expected);
     }
 
+    @Test
+    public void testReadChunkCodec() {
+        Backup expected = new Backup();
+        expected.setDatabase(new Database());
+        expected.setFormat("csv");
+
+        TableRowSet rowSet = new TableRowSet();
+        rowSet.setType("table");
+        rowSet.setName("test.t1");
+        rowSet.setRowCount(1L);
+        rowSet.setCatalog("test");
+        rowSet.setTable("t1");
+        rowSet.addColumn("f1", STRING);
+
+        Chunk chunk = new Chunk();
+        chunk.setName("test.t1.csv.gz");
+        chunk.setCodec("gzip");
+        chunk.setRowCount(1L);
+        rowSet.addChunk(chunk);
+        expected.addRowSet(rowSet);
+
+        String input = "<?xml version=\"1.0\"?>\n" + "<backup version=\"" + Migrator.getVersion()
+                + "\" format=\"csv\">\n" + "  <database/>\n"
+                + "  <row-set type=\"table\" name=\"test.t1\" row-count=\"1\" catalog=\"test\" table=\"t1\">\n"
+                + "    <column name=\"f1\" value-type=\"string\"/>\n"
+                + "    <chunk name=\"test.t1.csv.gz\" row-count=\"1\" codec=\"gzip\"/>\n" + "  </row-set>\n"
+                + "</backup>";
+        Backup actual = xmlBackupOps.read(toInputStream(input));
+        assertEquals(actual, expected);
+    }
+
+    /**
+     * Key column of the chunk and key bounds of its row groups are read, row
+     * groups without bounds stay plain ranges.
+     */
+    @Test
+    public void testReadChunkKeyBounds() {
+        Backup expected = new Backup();
+        expected.setDatabase(new Database());
+        expected.setFormat("csv");
+
+        TableRowSet rowSet = new TableRowSet();
+        rowSet.setType("table");
+        rowSet.setName("test.t1");
+        rowSet.setRowCount(3L);
+        rowSet.setCatalog("test");
+        rowSet.setTable("t1");
+        rowSet.addColumn("id", LONG);
+
+        Chunk chunk = new Chunk();
+        chunk.setName("test.t1.csv");
+        chunk.setRowCount(3L);
+        chunk.setKeyColumn("id");
+        chunk.addRowGroup(new RowGroup(3, 4, 0, 2, "1", "20"));
+        chunk.addRowGroup(new InputRange(7, 2, 2, 1));
+        rowSet.addChunk(chunk);
+        expected.addRowSet(rowSet);
+
+        String input = "<?xml version=\"1.0\"?>\n" + "<backup version=\"" + Migrator.getVersion()
+                + "\" format=\"csv\">\n" + "  <database/>\n"
+                + "  <row-set type=\"table\" name=\"test.t1\" row-count=\"3\" catalog=\"test\" table=\"t1\">\n"
+                + "    <column name=\"id\" value-type=\"long\"/>\n"
+                + "    <chunk name=\"test.t1.csv\" row-count=\"3\" key-column=\"id\">\n"
+                + "      <row-group offset=\"3\" length=\"4\" row=\"0\" rows=\"2\" min-key=\"1\" max-key=\"20\"/>\n"
+                + "      <row-group offset=\"7\" length=\"2\" row=\"2\" rows=\"1\"/>\n" + "    </chunk>\n"
+                + "  </row-set>\n" + "</backup>";
+        Backup actual = xmlBackupOps.read(toInputStream(input));
+        assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testReadChunkRowGroups() {
+        Backup expected = new Backup();
+        expected.setDatabase(new Database());
+        expected.setFormat("csv");
+
+        TableRowSet rowSet = new TableRowSet();
+        rowSet.setType("table");
+        rowSet.setName("test.t1");
+        rowSet.setRowCount(3L);
+        rowSet.setCatalog("test");
+        rowSet.setTable("t1");
+        rowSet.addColumn("f1", STRING);
+
+        Chunk chunk = new Chunk();
+        chunk.setName("test.t1.csv");
+        chunk.setRowCount(3L);
+        chunk.addRowGroup(new InputRange(3, 4, 0, 2));
+        chunk.addRowGroup(new InputRange(7, 2, 2, 1));
+        rowSet.addChunk(chunk);
+        expected.addRowSet(rowSet);
+
+        String input = "<?xml version=\"1.0\"?>\n" + "<backup version=\"" + Migrator.getVersion()
+                + "\" format=\"csv\">\n" + "  <database/>\n"
+                + "  <row-set type=\"table\" name=\"test.t1\" row-count=\"3\" catalog=\"test\" table=\"t1\">\n"
+                + "    <column name=\"f1\" value-type=\"string\"/>\n"
+                + "    <chunk name=\"test.t1.csv\" row-count=\"3\">\n"
+                + "      <row-group offset=\"3\" length=\"4\" row=\"0\" rows=\"2\"/>\n"
+                + "      <row-group offset=\"7\" length=\"2\" row=\"2\" rows=\"1\"/>\n" + "    </chunk>\n"
+                + "  </row-set>\n" + "</backup>";
+        Backup actual = xmlBackupOps.read(toInputStream(input));
+        assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testReadWatermark() {
+        Backup expected = new Backup();
+        expected.setDatabase(new Database());
+        expected.setFormat("csv");
+        expected.setParent("/backups/base/backup.cat");
+
+        TableRowSet rowSet = new TableRowSet();
+        rowSet.setType("table");
+        rowSet.setName("test.t1");
+        rowSet.setCatalog("test");
+        rowSet.setTable("t1");
+        rowSet.setWatermarkColumn("updated_at");
+        rowSet.setWatermark("'2016-01-01 00:00:00'");
+        rowSet.addColumn("f1", STRING);
+        expected.addRowSet(rowSet);
+
+        String input = "<?xml version=\"1.0\"?>\n" + "<backup version=\"" + Migrator.getVersion()
+                + "\" format=\"csv\" parent=\"/backups/base/backup.cat\">\n" + "  <database/>\n"
+                + "  <row-set type=\"table\" name=\"test.t1\" row-count=\"0\" catalog=\"test\" table=\"t1\" "
+                + "watermark-column=\"updated_at\" watermark=\"'2016-01-01 00:00:00'\">\n"
+                + "    <column name=\"f1\" value-type=\"string\"/>\n" + "  </row-set>\n" + "</backup>";
+        Backup actual = xmlBackupOps.read(toInputStream(input));
+        assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testReadWatermarkType() {
+        Backup expected = new Backup();
+        expected.setDatabase(new Database());
+        expected.setFormat("csv");
+        expected.setParent("/backups/base/backup.cat");
+
+        TableRowSet rowSet = new TableRowSet();
+        rowSet.setType("table");
+        rowSet.setName("test.t1");
+        rowSet.setCatalog("test");
+        rowSet.setTable("t1");
+        rowSet.setWatermarkColumn("updated_at");
+        rowSet.setWatermark("2016-01-01 00:00:00.0");
+        rowSet.setWatermarkType(TIMESTAMP);
+        rowSet.addColumn("f1", STRING);
+        expected.addRowSet(rowSet);
+
+        String input = "<?xml version=\"1.0\"?>\n" + "<backup version=\"" + Migrator.getVersion()
+                + "\" format=\"csv\" parent=\"/backups/base/backup.cat\">\n" + "  <database/>\n"
+                + "  <row-set type=\"table\" name=\"test.t1\" row-count=\"0\" catalog=\"test\" table=\"t1\" "
+                + "watermark-column=\"updated_at\" watermark=\"2016-01-01 00:00:00.0\" watermark-type=\"timestamp\">\n"
+                + "    <column name=\"f1\" value-type=\"string\"/>\n" + "  </row-set>\n" + "</backup>";
+        Backup actual = xmlBackupOps.read(toInputStream(input));
+        assertEquals(actual, expected);
+    }
+
     /**
      * Tests MIG-44 implicitly declared tables (referenced by foreign-key)
      */
@@ -0,0 +1,299 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup;
+
+import com.nuodb.migrator.jdbc.dialect.Dialect;
+import com.nuodb.migrator.jdbc.metadata.Column;
+import com.nuodb.migrator.jdbc.metadata.Database;
+import com.nuodb.migrator.jdbc.metadata.DatabaseInfo;
+import com.nuodb.migrator.jdbc.metadata.Schema;
+import com.nuodb.migrator.jdbc.metadata.Sequence;
+import com.nuodb.migrator.jdbc.metadata.Table;
+import com.nuodb.migrator.jdbc.metadata.inspector.InspectionFingerprint;
+import com.nuodb.migrator.jdbc.metadata.inspector.InspectionScope;
+import com.nuodb.migrator.jdbc.metadata.inspector.TableInspectionScope;
+import com.nuodb.migrator.jdbc.session.Session;
+import com.nuodb.migrator.jdbc.type.JdbcType;
+import com.nuodb.migrator.jdbc.type.JdbcTypeDesc;
+import org.apache.commons.io.FileUtils;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.Collection;
+import java.util.Map;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.io.Files.createTempDir;
+import static com.nuodb.migrator.jdbc.metadata.Identifier.EMPTY;
+import static com.nuodb.migrator.jdbc.metadata.DatabaseInfos.MYSQL;
+import static com.nuodb.migrator.jdbc.metadata.DatabaseInfos.POSTGRE_SQL;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataType.COLUMN;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataType.SEQUENCE;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataType.TABLE;
+import static com.nuodb.migrator.jdbc.type.JdbcTypeOptions.newOptions;
+import static org.apache.commons.lang3.StringUtils.substringAfter;
+import static org.apache.commons.lang3.StringUtils.substringBefore;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Sergey Bushik
+ */
+public class XmlInspectionCacheTest {
+
+    private static final DatabaseInfo DATABASE_INFO = new DatabaseInfo("Test");
+
+    private File dir;
+    private Session session;
+    private InspectionFingerprint fingerprint;
+    private InspectionScope inspectionScope;
+    private XmlInspectionCache inspectionCache;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dir = createTempDir();
+
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        given(metaData.getURL()).willReturn("jdbc:test://localhost/test");
+        given(metaData.getUserName()).willReturn("test");
+        Connection connection = mock(Connection.class);
+        given(connection.getMetaData()).willReturn(metaData);
+        session = mock(Session.class);
+        given(session.getConnection()).willReturn(connection);
+        given(session.getDatabaseInfo()).willReturn(DATABASE_INFO);
+        given(session.getDialect()).willReturn(mock(Dialect.class));
+
+        fingerprint = mock(InspectionFingerprint.class);
+        inspectionScope = new TableInspectionScope("test", null);
+        inspectionCache = new XmlInspectionCache(dir.getPath());
+        inspectionCache.register(DATABASE_INFO, fingerprint);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    @Test
+    public void testReadWritten() throws Exception {
+        given(fingerprint.getFingerprint(any(Connection.class), any(InspectionScope.class))).willReturn("1:2");
+        assertNull(inspectionCache.read(session, inspectionScope, TABLE, COLUMN));
+        inspectionCache.write(session, inspectionScope, createDatabase(), TABLE, COLUMN);
+
+        Database database = inspectionCache.read(session, inspectionScope, TABLE, COLUMN);
+        assertNotNull(database);
+        assertEquals(database.getDialect(), session.getDialect());
+        Table table = database.getCatalog("test").getSchema(EMPTY).getTable("t1");
+        assertEquals(table.getColumn("f1").getJdbcType().getTypeName(), "INT");
+    }
+
+    @Test
+    public void testReadChanged() throws Exception {
+        given(fingerprint.getFingerprint(any(Connection.class), any(InspectionScope.class))).willReturn("1:2", "1:3");
+        assertNull(inspectionCache.read(session, inspectionScope, TABLE, COLUMN));
+        inspectionCache.write(session, inspectionScope, createDatabase(), TABLE, COLUMN);
+
+        assertNull(inspectionCache.read(session, inspectionScope, TABLE, COLUMN));
+    }
+
+    @Test
+    public void testReadOtherObjectTypes() throws Exception {
+        given(fingerprint.getFingerprint(any(Connection.class), any(InspectionScope.class))).willReturn("1:2");
+        inspectionCache.write(session, inspectionScope, createDatabase(), TABLE, COLUMN);
+
+        assertNull(inspectionCache.read(session, inspectionScope, TABLE));
+    }
+
+    @Test
+    public void testNoFingerprint() throws Exception {
+        given(session.getDatabaseInfo()).willReturn(new DatabaseInfo("Other"));
+        assertNull(inspectionCache.read(session, inspectionScope, TABLE, COLUMN));
+        inspectionCache.write(session, inspectionScope, createDatabase(), TABLE, COLUMN);
+
+        assertTrue(dir.list().length == 0);
+    }
+
+    /**
+     * Sequences are inspected live, so they are left out of the key and of the
+     * cached database
+     */
+    @Test
+    public void testReadSequences() throws Exception {
+        given(fingerprint.getFingerprint(any(Connection.class), any(InspectionScope.class))).willReturn("1:2");
+        Database database = createDatabase();
+        Schema schema = database.getCatalog("test").getSchema(EMPTY);
+        Sequence sequence = new Sequence("s1");
+        schema.addSequence(sequence);
+        schema.getTable("t1").getColumn("f1").setSequence(sequence);
+        inspectionCache.write(session, inspectionScope, database, TABLE, COLUMN, SEQUENCE);
+
+        assertNotNull(inspectionCache.read(session, inspectionScope, TABLE, COLUMN));
+        database = inspectionCache.read(session, inspectionScope, TABLE, COLUMN, SEQUENCE);
+        assertNotNull(database);
+        schema = database.getCatalog("test").getSchema(EMPTY);
+        assertTrue(schema.getSequences().isEmpty());
+        assertNull(schema.getTable("t1").getColumn("f1").getSequence());
+    }
+
+    /**
+     * Verifies that MySQL fingerprint summarizes columns, indexes, constraints,
+     * key columns and triggers of the catalog of the scope
+     */
+    @Test
+    public void testMySQLFingerprint() throws Exception {
+        given(session.getDatabaseInfo()).willReturn(MYSQL);
+        Collection<String> queries = newArrayList();
+        answerQueries(newHashMap(), queries);
+        assertNull(inspectionCache.read(session, inspectionScope, TABLE, COLUMN));
+
+        Collection<String> tables = newArrayList();
+        for (String query : queries) {
+            tables.add(getTable(query));
+            assertTrue(query.endsWith("SCHEMA=?"), query);
+        }
+        assertEquals(tables,
+                newArrayList("COLUMNS", "STATISTICS", "TABLE_CONSTRAINTS", "KEY_COLUMN_USAGE", "TRIGGERS"));
+    }
+
+    /**
+     * Verifies that the cached database is missed after an index is added to
+     * the MySQL source
+     */
+    @Test
+    public void testReadChangedIndex() throws Exception {
+        given(session.getDatabaseInfo()).willReturn(MYSQL);
+        Map<String, String> checksums = newHashMap();
+        answerQueries(checksums, newArrayList());
+        assertNull(inspectionCache.read(session, inspectionScope, TABLE, COLUMN));
+        inspectionCache.write(session, inspectionScope, createDatabase(), TABLE, COLUMN);
+        assertNotNull(inspectionCache.read(session, inspectionScope, TABLE, COLUMN));
+
+        checksums.put("STATISTICS", "2");
+        assertNull(inspectionCache.read(session, inspectionScope, TABLE, COLUMN));
+    }
+
+    /**
+     * Verifies that PostgreSQL fingerprint summarizes relations & attributes,
+     * constraints, indexes, triggers and comments of the schema of the scope
+     */
+    @Test
+    public void testPostgreSQLFingerprint() throws Exception {
+        given(session.getDatabaseInfo()).willReturn(POSTGRE_SQL);
+        Collection<String> queries = newArrayList();
+        answerQueries(newHashMap(), queries);
+        assertNull(inspectionCache.read(session, new TableInspectionScope(null, "public"), TABLE, COLUMN));
+
+        Collection<String> tables = newArrayList();
+        for (String query : queries) {
+            tables.add(getTable(query));
+            assertTrue(query.endsWith("N.NSPNAME=?"), query);
+        }
+        assertEquals(tables,
+                newArrayList("PG_CLASS", "PG_CONSTRAINT", "PG_INDEX", "PG_TRIGGER", "PG_DESCRIPTION"));
+    }
+
+    @DataProvider(name = "postgreSQLCatalogs")
+    public Object[][] createPostgreSQLCatalogsData() {
+        return new Object[][] { { "PG_CONSTRAINT" }, { "PG_INDEX" }, { "PG_TRIGGER" }, { "PG_DESCRIPTION" } };
+    }
+
+    /**
+     * Verifies that the cached database is missed after a constraint, an index,
+     * a trigger or a comment is changed in the PostgreSQL source
+     */
+    @Test(dataProvider = "postgreSQLCatalogs")
+    public void testReadChangedPostgreSQLCatalog(String catalog) throws Exception {
+        given(session.getDatabaseInfo()).willReturn(POSTGRE_SQL);
+        InspectionScope inspectionScope = new TableInspectionScope(null, "public");
+        Map<String, String> checksums = newHashMap();
+        answerQueries(checksums, newArrayList());
+        assertNull(inspectionCache.read(session, inspectionScope, TABLE, COLUMN));
+        inspectionCache.write(session, inspectionScope, createDatabase(), TABLE, COLUMN);
+        assertNotNull(inspectionCache.read(session, inspectionScope, TABLE, COLUMN));
+
+        checksums.put(catalog, "2");
+        assertNull(inspectionCache.read(session, inspectionScope, TABLE, COLUMN));
+    }
+
+    /**
+     * Answers each fingerprint query with a row of the count and the checksum
+     * of the queried table
+     */
+    private void answerQueries(final Map<String, String> checksums, final Collection<String> queries)
+            throws Exception {
+        given(session.getConnection().prepareStatement(anyString(), anyInt(), anyInt()))
+                .willAnswer(new Answer<PreparedStatement>() {
+                    @Override
+                    public PreparedStatement answer(InvocationOnMock invocation) throws Throwable {
+                        String query = (String) invocation.getArguments()[0];
+                        queries.add(query);
+                        String checksum = checksums.get(getTable(query));
+                        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+                        given(metaData.getColumnCount()).willReturn(2);
+                        ResultSet resultSet = mock(ResultSet.class);
+                        given(resultSet.getMetaData()).willReturn(metaData);
+                        given(resultSet.next()).willReturn(true, false);
+                        given(resultSet.getString(1)).willReturn("1");
+                        given(resultSet.getString(2)).willReturn(checksum != null ? checksum : "1");
+                        PreparedStatement statement = mock(PreparedStatement.class);
+                        given(statement.executeQuery()).willReturn(resultSet);
+                        return statement;
+                    }
+                });
+    }
+
+    private static String getTable(String query) {
+        return substringAfter(substringBefore(substringAfter(query, "FROM "), " "), ".");
+    }
+
+    private static Database createDatabase() {
+        Database database = new Database();
+        Table table = database.addCatalog("test").addSchema(EMPTY).addTable("t1");
+        Column column = table.addColumn("f1");
+        column.setJdbcType(new JdbcType(new JdbcTypeDesc(4, "INT"), newOptions(10, 10, 0)));
+        return database;
+    }
+}
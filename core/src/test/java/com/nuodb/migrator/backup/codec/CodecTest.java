@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.codec;
+
+import com.nuodb.migrator.backup.BackupOps;
+import com.nuodb.migrator.backup.XmlBackupOps;
+import com.nuodb.migrator.utils.Counting;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static com.google.common.io.Files.createTempDir;
+import static org.apache.commons.lang3.StringUtils.repeat;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Sergey Bushik
+ */
+public class CodecTest {
+
+    private File dir;
+    private BackupOps backupOps;
+
+    @BeforeMethod
+    public void setUp() {
+        dir = createTempDir();
+        backupOps = new XmlBackupOps();
+        backupOps.setDir(dir.getPath());
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    @DataProvider(name = "codecs")
+    public Object[][] createCodecData() {
+        return new Object[][] { { GzipCodec.NAME }, { DeflateCodec.NAME }, { DeflateCodec.class.getName() } };
+    }
+
+    @Test(dataProvider = "codecs")
+    public void testCompress(String codec) throws Exception {
+        byte[] data = repeat("value1,value2,value3\n", 10000).getBytes();
+        OutputStream output = backupOps.openOutput("chunk.csv", codec);
+        output.write(data);
+        output.close();
+
+        assertTrue(output instanceof Counting);
+        long length = backupOps.getLength("chunk.csv");
+        assertEquals(((Counting) output).getCount(), length);
+        assertTrue(length < data.length);
+
+        InputStream input = backupOps.openInput("chunk.csv", codec);
+        assertEquals(IOUtils.toByteArray(input), data);
+        input.close();
+    }
+}
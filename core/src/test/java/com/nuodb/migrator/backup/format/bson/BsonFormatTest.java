@@ -0,0 +1,381 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.bson;
+
+import com.nuodb.migrator.backup.Column;
+import com.nuodb.migrator.backup.QueryRowSet;
+import com.nuodb.migrator.backup.RowSet;
+import com.nuodb.migrator.backup.format.InputRange;
+import com.nuodb.migrator.backup.format.value.LobBuffer;
+import com.nuodb.migrator.backup.format.value.LobValue;
+import com.nuodb.migrator.backup.format.value.Value;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
+import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.*;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Sergey Bushik
+ */
+public class BsonFormatTest {
+
+    private RowSet rowSet;
+
+    @BeforeMethod
+    public void setUp() {
+        rowSet = new QueryRowSet("SELECT * FROM table");
+        rowSet.setColumns(newArrayList(new Column("c1", STRING), new Column("c2", STRING), new Column("c3", STRING),
+                new Column("c4", STRING), new Column("c5", STRING), new Column("c6", STRING),
+                new Column("c7", STRING), new Column("c8", STRING), new Column("c9", BINARY),
+                new Column("c10", STRING)));
+    }
+
+    @Test
+    public void testTypedValues() {
+        Value[] values = new Value[] { string("text"), longValue(Long.MAX_VALUE), doubleValue(1.5),
+                decimal(new BigDecimal("-12345.678")), decimal(new BigDecimal("123456789012345678901234567890.1")),
+                booleanValue(true), timestamp(Timestamp.valueOf("2015-03-01 10:20:30.123")),
+                timestamp(Timestamp.valueOf("2015-03-01 10:20:30.123456")), binary(new byte[] { 1, 2, 3 }),
+                STRING_NULL };
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BsonOutput output = new BsonOutput();
+        output.setRowSet(rowSet);
+        output.setOutputStream(bytes);
+        output.init();
+        output.writeStart();
+        output.writeValues(values);
+        output.writeEnd();
+        output.close();
+
+        BsonInput input = new BsonInput();
+        input.setRowSet(rowSet);
+        input.setInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        input.init();
+        input.readStart();
+        Value[] result = input.readValues();
+        assertEquals(result, new Value[] { values[0], values[1], values[2], values[3], string(values[4].asString()),
+                values[5], values[6], values[7], values[8], values[9] });
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(result[i].asString(), values[i].asString());
+        }
+        assertNull(input.readValues());
+        input.close();
+    }
+
+    /**
+     * Large objects spilled to files are streamed to the output and read back as regular values.
+     */
+    @Test
+    public void testSpilledValues() throws Exception {
+        LobBuffer lobBuffer = new LobBuffer(0, 0);
+        try {
+            byte[] binary = new byte[100000];
+            for (int i = 0; i < binary.length; i++) {
+                binary[i] = (byte) i;
+            }
+            String string = "\u00e9\u00e8 text \u2713";
+            Value[] values = new Value[] { lobBuffer.string(new StringReader(string), string.length()), STRING_NULL,
+                    STRING_NULL, STRING_NULL, STRING_NULL, STRING_NULL, STRING_NULL, STRING_NULL,
+                    lobBuffer.binary(new ByteArrayInputStream(binary), binary.length), string("end") };
+            assertTrue(((LobValue) values[0]).isSpilled());
+            assertTrue(((LobValue) values[8]).isSpilled());
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            BsonOutput output = new BsonOutput();
+            output.setRowSet(rowSet);
+            output.setOutputStream(bytes);
+            output.init();
+            output.writeStart();
+            output.writeValues(values);
+            output.writeEnd();
+            output.close();
+
+            BsonInput input = new BsonInput();
+            input.setRowSet(rowSet);
+            input.setInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            input.init();
+            input.readStart();
+            Value[] result = input.readValues();
+            assertEquals(result[0].asString(), string);
+            assertEquals(result[8].asBytes(), binary);
+            assertEquals(result[9].asString(), "end");
+            assertNull(input.readValues());
+            input.close();
+        } finally {
+            lobBuffer.close();
+        }
+    }
+
+    /**
+     * Rows read range by range are the rows read from the whole chunk.
+     */
+    @Test
+    public void testSplit() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BsonOutput output = new BsonOutput();
+        output.setRowSet(rowSet);
+        output.setOutputStream(bytes);
+        output.init();
+        output.writeStart();
+        int rows = 100;
+        for (int row = 0; row < rows; row++) {
+            output.writeValues(new Value[] { string("row " + row), longValue(row), doubleValue(row),
+                    decimal(new BigDecimal(row)), STRING_NULL, booleanValue(row % 2 == 0),
+                    timestamp(new Timestamp(row)), string(""), binary(new byte[] { (byte) row }), STRING_NULL });
+        }
+        output.writeEnd();
+        output.close();
+
+        BsonInput input = new BsonInput();
+        input.setRowSet(rowSet);
+        input.setInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertTrue(input.isSplittable());
+        List<InputRange> inputRanges = input.split(512);
+        assertTrue(inputRanges.size() > 1);
+
+        int row = 0;
+        for (InputRange inputRange : inputRanges) {
+            assertEquals(inputRange.getRow(), row);
+            input = new BsonInput();
+            input.setRowSet(rowSet);
+            input.setInputRange(inputRange);
+            ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes.toByteArray());
+            inputStream.skip(inputRange.getOffset());
+            input.setInputStream(new BoundedInputStream(inputStream, inputRange.getLength()));
+            input.init();
+            input.readStart();
+            Value[] values;
+            while ((values = input.readValues()) != null) {
+                assertEquals(values[0].asString(), "row " + row);
+                assertEquals(values[1].asLong(), row++);
+            }
+            input.readEnd();
+            input.close();
+            assertEquals(row, inputRange.getRow() + inputRange.getRows());
+        }
+        assertEquals(row, rows);
+    }
+
+    /**
+     * Offsets told by the output between rows are row boundaries, so that
+     * recorded row groups are read as ranges.
+     */
+    @Test
+    public void testRowGroups() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BsonOutput output = new BsonOutput();
+        output.setRowSet(rowSet);
+        output.setOutputStream(bytes);
+        output.init();
+        output.writeStart();
+        List<InputRange> rowGroups = newArrayList();
+        long offset = output.getOffset();
+        int rows = 100;
+        for (int row = 0; row < rows; row++) {
+            output.writeValues(new Value[] { string("row " + row), longValue(row), doubleValue(row),
+                    decimal(new BigDecimal(row)), STRING_NULL, booleanValue(true), timestamp(new Timestamp(row)),
+                    string(""), binary(new byte[] { (byte) row }), STRING_NULL });
+            if (row % 30 == 29 || row == rows - 1) {
+                long row0 = rowGroups.isEmpty() ? 0 : rowGroups.get(rowGroups.size() - 1).getRow()
+                        + rowGroups.get(rowGroups.size() - 1).getRows();
+                rowGroups.add(new InputRange(offset, output.getOffset() - offset, row0, row + 1 - row0));
+                offset = output.getOffset();
+            }
+        }
+        output.writeEnd();
+        output.close();
+
+        int row = 0;
+        for (InputRange rowGroup : rowGroups) {
+            BsonInput input = new BsonInput();
+            input.setRowSet(rowSet);
+            input.setInputRange(rowGroup);
+            ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes.toByteArray());
+            inputStream.skip(rowGroup.getOffset());
+            input.setInputStream(new BoundedInputStream(inputStream, rowGroup.getLength()));
+            input.init();
+            input.readStart();
+            Value[] values;
+            while ((values = input.readValues()) != null) {
+                assertEquals(values[1].asLong(), row++);
+            }
+            input.close();
+            assertEquals(row, rowGroup.getRow() + rowGroup.getRows());
+        }
+        assertEquals(row, rows);
+    }
+
+    /**
+     * Repeated strings are written as dictionary ids and read as the same
+     * values, the chunk is read as a single range.
+     */
+    @Test
+    public void testDictionary() throws Exception {
+        Map<String, Object> attributes = newHashMap();
+        attributes.put(BsonFormat.ATTRIBUTE_DICTIONARY, "true");
+        attributes.put(BsonFormat.ATTRIBUTE_DICTIONARY_SIZE, "4");
+        byte[] plain = writeRows(null);
+        byte[] encoded = writeRows(attributes);
+        assertTrue(encoded.length < plain.length);
+
+        BsonInput input = new BsonInput();
+        input.setRowSet(rowSet);
+        input.setInputStream(new ByteArrayInputStream(encoded));
+        List<InputRange> inputRanges = input.split(512);
+        assertEquals(inputRanges.size(), 1);
+        assertEquals(inputRanges.get(0).getRows(), 100);
+
+        input = new BsonInput();
+        input.setRowSet(rowSet);
+        input.setInputStream(new ByteArrayInputStream(encoded));
+        input.init();
+        input.readStart();
+        Value[] first = null;
+        Value[] values;
+        int row = 0;
+        while ((values = input.readValues()) != null) {
+            assertEquals(values[0].asString(), "status " + row % 3);
+            assertEquals(values[1].asLong(), row);
+            assertEquals(values[2].asString(), "row " + row);
+            assertEquals(values[3].asDecimal(), new BigDecimal("123456789012345678901234567890." + row % 2));
+            assertEquals(values[8].asBytes(), new byte[] { 1 });
+            if (first == null) {
+                first = values;
+            } else if (row % 3 == 0) {
+                assertSame(values[0], first[0]);
+            }
+            row++;
+        }
+        assertEquals(row, 100);
+        input.close();
+    }
+
+    /**
+     * Strings longer than the dictionary length and strings of excluded
+     * columns are written as is, and the chunk is read back as written.
+     */
+    @Test
+    public void testDictionaryLengthAndExclude() throws Exception {
+        Map<String, Object> attributes = newHashMap();
+        attributes.put(BsonFormat.ATTRIBUTE_DICTIONARY, "true");
+        attributes.put(BsonFormat.ATTRIBUTE_DICTIONARY_SIZE, "4");
+        byte[] encoded = writeRows(attributes);
+
+        attributes.put(BsonFormat.ATTRIBUTE_DICTIONARY_LENGTH, "8");
+        attributes.put(BsonFormat.ATTRIBUTE_DICTIONARY_EXCLUDE, " C1 ");
+        byte[] limited = writeRows(attributes);
+        assertTrue(limited.length > encoded.length);
+
+        List<Value[]> rows = readRows(limited);
+        assertEquals(rows.size(), 100);
+        for (int row = 0; row < rows.size(); row++) {
+            Value[] values = rows.get(row);
+            assertEquals(values[0].asString(), "status " + row % 3);
+            assertEquals(values[2].asString(), "row " + row);
+            assertEquals(values[3].asDecimal(), new BigDecimal("123456789012345678901234567890." + row % 2));
+            if (row >= 3) {
+                assertNotSame(values[0], rows.get(row % 3)[0]);
+                assertNotSame(values[3], rows.get(row % 2)[3]);
+            }
+        }
+    }
+
+    /**
+     * Dictionary stops looking strings up once a sample shows the column
+     * doesn't repeat them, and keeps them for a column of low cardinality.
+     */
+    @Test
+    public void testDictionarySample() {
+        BsonDictionary unique = new BsonDictionary(BsonFormat.DICTIONARY_SIZE, BsonFormat.DICTIONARY_LENGTH);
+        BsonDictionary repeated = new BsonDictionary(BsonFormat.DICTIONARY_SIZE, BsonFormat.DICTIONARY_LENGTH);
+        for (int lookup = 0; lookup < BsonDictionary.SAMPLE; lookup++) {
+            assertNull(unique.getId("value " + lookup));
+            repeated.getId("value " + lookup % 3);
+        }
+        assertFalse(unique.isLookup());
+        assertNull(unique.getId("value 0"));
+        assertTrue(repeated.isLookup());
+        assertEquals(repeated.getId("value 2"), Integer.valueOf(2));
+    }
+
+    private List<Value[]> readRows(byte[] bytes) {
+        BsonInput input = new BsonInput();
+        input.setRowSet(rowSet);
+        input.setInputStream(new ByteArrayInputStream(bytes));
+        input.init();
+        input.readStart();
+        List<Value[]> rows = newArrayList();
+        Value[] values;
+        while ((values = input.readValues()) != null) {
+            rows.add(values);
+        }
+        input.close();
+        return rows;
+    }
+
+    private byte[] writeRows(Map<String, Object> attributes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BsonOutput output = new BsonOutput();
+        if (attributes != null) {
+            output.setAttributes(attributes);
+        }
+        assertEquals(output.isSplittable(), attributes == null);
+        output.setRowSet(rowSet);
+        output.setOutputStream(bytes);
+        output.init();
+        output.writeStart();
+        for (int row = 0; row < 100; row++) {
+            output.writeValues(new Value[] { string("status " + row % 3), longValue(row), string("row " + row),
+                    decimal(new BigDecimal("123456789012345678901234567890." + row % 2)), STRING_NULL,
+                    booleanValue(true), STRING_NULL, string(""), binary(new byte[] { 1 }), STRING_NULL });
+        }
+        output.writeEnd();
+        output.close();
+        return bytes.toByteArray();
+    }
+}
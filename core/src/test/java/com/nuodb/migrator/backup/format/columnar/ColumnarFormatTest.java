@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.columnar;
+
+import com.nuodb.migrator.backup.Column;
+import com.nuodb.migrator.backup.QueryRowSet;
+import com.nuodb.migrator.backup.RowSet;
+import com.nuodb.migrator.backup.format.value.Value;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.nuodb.migrator.backup.format.columnar.ColumnarFormat.ATTRIBUTE_ROW_GROUP_SIZE;
+import static com.nuodb.migrator.backup.format.columnar.ColumnarFormat.ROW_GROUP_SIZE;
+import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
+import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Sergey Bushik
+ */
+public class ColumnarFormatTest {
+
+    private RowSet rowSet;
+
+    @BeforeMethod
+    public void setUp() {
+        rowSet = new QueryRowSet("SELECT * FROM table");
+        rowSet.setColumns(newArrayList(new Column("id", STRING), new Column("status", STRING),
+                new Column("name", STRING), new Column("price", STRING), new Column("amount", STRING),
+                new Column("flag", STRING), new Column("created", STRING), new Column("data", BINARY),
+                new Column("mixed", STRING)));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        List<Value[]> rows = newArrayList();
+        for (int i = 0; i < 100; i++) {
+            rows.add(new Value[] { longValue(1000 + i * 3), string(i < 50 ? "active" : "closed"),
+                    i % 10 == 0 ? STRING_NULL : string("name" + i % 5), doubleValue(i * 0.5),
+                    decimal(new BigDecimal(i).movePointLeft(2)), booleanValue(i % 3 == 0),
+                    timestamp(Timestamp.valueOf("2015-03-01 10:20:30." + (100000 + i))),
+                    i % 7 == 0 ? BINARY_NULL : binary(new byte[] { (byte) i, 0 }),
+                    i % 2 == 0 ? longValue(i) : string("text" + i) });
+        }
+        Map<String, Object> attributes = newHashMap();
+        attributes.put(ATTRIBUTE_ROW_GROUP_SIZE, "32");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnarOutput output = new ColumnarOutput();
+        output.setAttributes(attributes);
+        output.setRowSet(rowSet);
+        output.setOutputStream(bytes);
+        output.init();
+        output.writeStart();
+        Value[] values = new Value[rowSet.getColumns().size()];
+        for (Value[] row : rows) {
+            System.arraycopy(row, 0, values, 0, row.length);
+            output.writeValues(values);
+        }
+        output.writeEnd();
+        output.close();
+
+        ColumnarInput input = new ColumnarInput();
+        input.setRowSet(rowSet);
+        input.setInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        input.init();
+        input.readStart();
+        for (Value[] row : rows) {
+            Value[] result = input.readValues();
+            for (int i = 0; i < row.length - 1; i++) {
+                assertEquals(result[i], row[i]);
+            }
+            assertEquals(result[row.length - 1].asString(), row[row.length - 1].asString());
+        }
+        assertNull(input.readValues());
+        input.readEnd();
+        input.close();
+    }
+
+    @Test
+    public void testWriteReusedValue() {
+        RowSet rowSet = new QueryRowSet("SELECT name FROM table");
+        rowSet.setColumns(newArrayList(new Column("name", STRING)));
+        // the same value instance is refilled by the caller for every row
+        Value value = mock(Value.class);
+        given(value.getValueType()).willReturn(STRING);
+        Value[] values = new Value[] { value };
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnarOutput output = new ColumnarOutput();
+        output.setRowSet(rowSet);
+        output.setOutputStream(bytes);
+        output.init();
+        output.writeStart();
+        given(value.asString()).willReturn("first");
+        output.writeValues(values);
+        given(value.asString()).willReturn("second");
+        output.writeValues(values);
+        output.writeEnd();
+        output.close();
+
+        ColumnarInput input = new ColumnarInput();
+        input.setRowSet(rowSet);
+        input.setReuseValues(true);
+        input.setInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        input.init();
+        input.readStart();
+        Value[] result = input.readValues();
+        assertEquals(result[0].asString(), "first");
+        assertTrue(input.readValues() == result);
+        assertEquals(result[0].asString(), "second");
+        assertNull(input.readValues());
+        input.close();
+    }
+
+    @Test
+    public void testCanWrite() {
+        ColumnarOutput output = new ColumnarOutput(1000L);
+        output.setRowSet(rowSet);
+        output.setOutputStream(new ByteArrayOutputStream());
+        output.init();
+        output.writeStart();
+        int rows = 0;
+        while (output.canWrite()) {
+            output.writeValues(new Value[] { longValue(rows), string("status" + rows), string("name" + rows),
+                    doubleValue(rows), decimal(BigDecimal.ONE), booleanValue(true), timestamp(rows),
+                    binary(new byte[] { (byte) rows }), string("mixed" + rows) });
+            rows++;
+        }
+        // row group of the buffered rows is counted before it's written
+        assertTrue(rows < ROW_GROUP_SIZE);
+        assertFalse(output.canWrite());
+        output.writeEnd();
+        output.close();
+    }
+}
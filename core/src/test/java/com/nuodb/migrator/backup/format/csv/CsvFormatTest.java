@@ -0,0 +1,401 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.csv;
+
+import com.nuodb.migrator.backup.Column;
+import com.nuodb.migrator.backup.QueryRowSet;
+import com.nuodb.migrator.backup.RowSet;
+import com.nuodb.migrator.backup.format.InputRange;
+import com.nuodb.migrator.backup.format.value.Value;
+import com.sun.management.ThreadMXBean;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.nuodb.migrator.backup.format.csv.CsvFormat.ATTRIBUTE_DELIMITER;
+import static com.nuodb.migrator.backup.format.csv.CsvFormat.ATTRIBUTE_QUOTING;
+import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
+import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.*;
+import static java.lang.String.format;
+import static java.lang.Thread.currentThread;
+import static java.lang.management.ManagementFactory.getThreadMXBean;
+import static org.apache.commons.csv.CSVFormat.newFormat;
+import static org.apache.commons.csv.QuoteMode.MINIMAL;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * @author Sergey Bushik
+ */
+public class CsvFormatTest {
+
+    private RowSet rowSet;
+    private Value[] values;
+
+    @BeforeMethod
+    public void setUp() {
+        rowSet = new QueryRowSet("SELECT * FROM table");
+        rowSet.setColumns(newArrayList(new Column("c1", STRING), new Column("c2", STRING), new Column("c3", STRING),
+                new Column("c4", STRING), new Column("c5", BINARY)));
+        values = new Value[] { string("text"), string(""), STRING_NULL, string("a,b"), binary(new byte[] { 1, 2 }) };
+    }
+
+    @Test
+    public void testWriteRead() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CsvOutput output = new CsvOutput();
+        output.setRowSet(rowSet);
+        output.setOutputStream(bytes);
+        output.init();
+        output.writeStart();
+        output.writeValues(values);
+        output.writeValues(values);
+        output.writeEnd();
+        output.close();
+
+        CsvInput input = new CsvInput();
+        input.setRowSet(rowSet);
+        input.setInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        input.init();
+        input.readStart();
+        assertEquals(input.readValues(), values);
+        assertEquals(input.readValues(), values);
+        assertNull(input.readValues());
+        input.close();
+    }
+
+    /**
+     * Rows read range by range are the rows read from the whole chunk.
+     */
+    @Test
+    public void testSplit() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CsvOutput output = new CsvOutput();
+        output.setRowSet(rowSet);
+        output.setOutputStream(bytes);
+        output.init();
+        output.writeStart();
+        int rows = 100;
+        for (int row = 0; row < rows; row++) {
+            output.writeValues(new Value[] { string("row " + row), string("line\r\nbreak"), STRING_NULL,
+                    string("\"a\",b"), binary(new byte[] { (byte) row }) });
+        }
+        output.writeEnd();
+        output.close();
+
+        CsvInput input = new CsvInput();
+        input.setRowSet(rowSet);
+        input.setInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertTrue(input.isSplittable());
+        List<InputRange> inputRanges = input.split(256);
+        assertTrue(inputRanges.size() > 1);
+
+        int row = 0;
+        for (InputRange inputRange : inputRanges) {
+            assertEquals(inputRange.getRow(), row);
+            input = new CsvInput();
+            input.setRowSet(rowSet);
+            input.setInputRange(inputRange);
+            ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes.toByteArray());
+            inputStream.skip(inputRange.getOffset());
+            input.setInputStream(new BoundedInputStream(inputStream, inputRange.getLength()));
+            input.init();
+            input.readStart();
+            Value[] values;
+            while ((values = input.readValues()) != null) {
+                assertEquals(values[0].asString(), "row " + row++);
+                assertEquals(values[1].asString(), "line\r\nbreak");
+                assertEquals(values[3].asString(), "\"a\",b");
+            }
+            input.close();
+            assertEquals(row, inputRange.getRow() + inputRange.getRows());
+        }
+        assertEquals(row, rows);
+    }
+
+    /**
+     * Offsets told by the output between rows are the byte offsets of the
+     * rows, chars of which can take several bytes.
+     */
+    @Test
+    public void testOffset() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CsvOutput output = new CsvOutput();
+        output.setRowSet(rowSet);
+        output.setOutputStream(bytes);
+        output.init();
+        output.writeStart();
+        List<Long> offsets = newArrayList(output.getOffset());
+        for (int row = 0; row < 3; row++) {
+            output.writeValues(new Value[] { string("\u00e9t\u00e9 " + row), string(""), STRING_NULL, string("a,b"),
+                    BINARY_NULL });
+            offsets.add(output.getOffset());
+        }
+        output.writeEnd();
+        output.close();
+
+        byte[] written = bytes.toByteArray();
+        List<Long> expected = newArrayList();
+        for (int index = 0; index < written.length; index++) {
+            if (written[index] == '\n') {
+                expected.add((long) index + 1);
+            }
+        }
+        assertEquals(offsets, expected);
+    }
+
+    /**
+     * Values of the steady state rows are converted to text without per row
+     * record arrays or column lookups. Values themselves are created by the
+     * caller, on dump they are read from the result set by value formats, which
+     * create a value per cell.
+     */
+    @Test
+    public void testWriteValuesAllocation() {
+        ThreadMXBean threadMXBean = (ThreadMXBean) getThreadMXBean();
+        if (!threadMXBean.isThreadAllocatedMemorySupported() || !threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            throw new SkipException("Thread allocated memory is not supported");
+        }
+        Value[] values = new Value[] { string("text"), string("text"), STRING_NULL, string("text"), BINARY_NULL };
+        CsvOutput output = new CsvOutput();
+        output.setRowSet(rowSet);
+        output.setOutputStream(new NullOutputStream());
+        output.init();
+        output.writeStart();
+        int rows = 100000;
+        for (int row = 0; row < rows; row++) {
+            output.writeValues(values);
+        }
+        long allocated = threadMXBean.getThreadAllocatedBytes(currentThread().getId());
+        for (int row = 0; row < rows; row++) {
+            output.writeValues(values);
+        }
+        allocated = threadMXBean.getThreadAllocatedBytes(currentThread().getId()) - allocated;
+        output.writeEnd();
+        output.close();
+        // tolerates allocations not related to rows, such as buffer flushes
+        assertTrue(allocated < rows, format("%d bytes allocated by %d rows", allocated, rows));
+    }
+
+    /**
+     * Reused values are refilled with the chars of the record, so that once the
+     * buffers have grown reading a row allocates nothing. Only the reader work
+     * is measured, values are checked during the warm-up.
+     */
+    @Test
+    public void testReadValuesAllocation() {
+        ThreadMXBean threadMXBean = (ThreadMXBean) getThreadMXBean();
+        if (!threadMXBean.isThreadAllocatedMemorySupported() || !threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            throw new SkipException("Thread allocated memory is not supported");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CsvOutput output = new CsvOutput();
+        output.setRowSet(rowSet);
+        output.setOutputStream(bytes);
+        output.init();
+        output.writeStart();
+        int rows = 100000;
+        for (int row = 0; row < rows * 2; row++) {
+            output.writeValues(values);
+        }
+        output.writeEnd();
+        output.close();
+
+        CsvInput input = new CsvInput();
+        input.setRowSet(rowSet);
+        input.setInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        input.setReuseValues(true);
+        input.init();
+        input.readStart();
+        Value[] first = input.readValues();
+        for (int row = 1; row < rows; row++) {
+            Value[] values = input.readValues();
+            assertTrue(values == first);
+            assertEquals(values[0].asString(), "text");
+            assertEquals(values[1].asString(), "");
+            assertTrue(values[2].isNull());
+            assertEquals(values[4].asBytes(), new byte[] { 1, 2 });
+        }
+        long allocated = threadMXBean.getThreadAllocatedBytes(currentThread().getId());
+        int read = 0;
+        while (input.readValues() != null) {
+            read++;
+        }
+        allocated = threadMXBean.getThreadAllocatedBytes(currentThread().getId()) - allocated;
+        input.close();
+        assertEquals(read, rows);
+        // tolerates allocations not related to rows, such as buffer refills
+        assertTrue(allocated < rows, format("%d bytes allocated by %d rows", allocated, rows));
+    }
+
+    @DataProvider(name = "attributes")
+    public Object[][] createAttributesData() {
+        return new Object[][] { { null, null }, { "true", null }, { null, "tab" }, { "true", ";" } };
+    }
+
+    /**
+     * Values written by the codec are read back as is by both the codec and
+     * commons-csv.
+     */
+    @Test(dataProvider = "attributes")
+    public void testWriteCompatibility(String quoting, String delimiter) throws Exception {
+        CsvFormatBuilder builder = createBuilder(quoting, delimiter);
+        for (List<String> record : createRecords()) {
+            StringWriter writer = new StringWriter();
+            CsvWriter csvWriter = new CsvWriter(writer, builder);
+            for (String value : record) {
+                csvWriter.write(value);
+            }
+            csvWriter.writeRecordEnd();
+            csvWriter.close();
+
+            assertEquals(readRecord(writer.toString(), builder), record);
+            CSVRecord csvRecord = new CSVParser(new StringReader(writer.toString()), createCSVFormat(builder))
+                    .iterator().next();
+            assertEquals(newArrayList(csvRecord.iterator()), record);
+        }
+    }
+
+    /**
+     * Values streamed from readers, as spilled large objects are, are read back
+     * as is.
+     */
+    @Test(dataProvider = "attributes")
+    public void testWriteReader(String quoting, String delimiter) throws Exception {
+        CsvFormatBuilder builder = createBuilder(quoting, delimiter);
+        for (List<String> record : createRecords()) {
+            if (record.contains("")) {
+                continue;
+            }
+            StringWriter writer = new StringWriter();
+            CsvWriter csvWriter = new CsvWriter(writer, builder);
+            for (String value : record) {
+                csvWriter.write(new StringReader(value));
+            }
+            csvWriter.writeRecordEnd();
+            csvWriter.close();
+
+            assertEquals(readRecord(writer.toString(), builder), record);
+        }
+    }
+
+    /**
+     * Backups written with commons-csv are parsed by the codec the same way as
+     * commons-csv parses them.
+     */
+    @Test(dataProvider = "attributes")
+    public void testReadCompatibility(String quoting, String delimiter) throws Exception {
+        CsvFormatBuilder builder = createBuilder(quoting, delimiter);
+        for (List<String> record : createRecords()) {
+            StringWriter writer = new StringWriter();
+            CSVPrinter csvPrinter = new CSVPrinter(writer, createCSVFormat(builder));
+            csvPrinter.printRecord(record);
+            csvPrinter.close();
+
+            List<String> expected = null;
+            boolean readable = true;
+            try {
+                Iterator<CSVRecord> iterator = new CSVParser(new StringReader(writer.toString()),
+                        createCSVFormat(builder)).iterator();
+                expected = iterator.hasNext() ? newArrayList(iterator.next().iterator()) : null;
+            } catch (RuntimeException exception) {
+                // escape before a closing quote isn't readable by commons-csv either
+                readable = false;
+            }
+            if (readable) {
+                assertEquals(readRecord(writer.toString(), builder), expected);
+            } else {
+                try {
+                    readRecord(writer.toString(), builder);
+                    fail(format("Record %s is expected to be unreadable", writer));
+                } catch (IOException exception) {
+                    // expected
+                }
+            }
+        }
+    }
+
+    protected List<List<String>> createRecords() {
+        List<String> values = newArrayList("text", "", "a,b", "a;b", "tab\tvalue", "line\nbreak", "cr\rlf\r\n",
+                "|pipe|", "\"quoted\"", "\"\"", " lead", "trail ", "#hash", "\u00fcnicode \u2713", "\\b", "|n");
+        List<List<String>> records = newArrayList();
+        for (String value : values) {
+            records.add(newArrayList(value));
+            records.add(newArrayList(value, value, "end"));
+        }
+        return records;
+    }
+
+    protected List<String> readRecord(String text, CsvFormatBuilder builder) throws Exception {
+        CsvReader csvReader = new CsvReader(new StringReader(text), builder);
+        if (!csvReader.readRecord()) {
+            return null;
+        }
+        List<String> record = newArrayList();
+        for (int field = 0; field < csvReader.getFieldCount(); field++) {
+            record.add(csvReader.getField(field));
+        }
+        assertFalse(csvReader.readRecord());
+        return record;
+    }
+
+    protected CsvFormatBuilder createBuilder(String quoting, String delimiter) {
+        CsvOutput format = new CsvOutput();
+        format.setAttributes(new HashMap<String, Object>());
+        format.getAttributes().put(ATTRIBUTE_QUOTING, quoting);
+        format.getAttributes().put(ATTRIBUTE_DELIMITER, delimiter);
+        return new CsvFormatBuilder(format).build();
+    }
+
+    protected CSVFormat createCSVFormat(CsvFormatBuilder builder) {
+        CSVFormat format = newFormat(builder.getDelimiter()).withEscape(builder.getEscape())
+                .withCommentMarker(builder.getCommentMarker()).withRecordSeparator(builder.getLineSeparator());
+        return builder.isQuoting() ? format.withQuoteMode(MINIMAL).withQuote(builder.getQuote()) : format;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.value;
+
+import com.google.common.io.CharStreams;
+import com.nuodb.migrator.jdbc.model.Field;
+import com.nuodb.migrator.jdbc.type.JdbcValueAccess;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Types;
+
+import static com.google.common.io.ByteStreams.toByteArray;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Sergey Bushik
+ */
+public class LobBufferTest {
+
+    private LobBuffer lobBuffer;
+
+    @BeforeMethod
+    public void setUp() {
+        lobBuffer = new LobBuffer(8, 12);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        lobBuffer.close();
+    }
+
+    @Test
+    public void testBinary() throws Exception {
+        LobValue heap = (LobValue) lobBuffer.binary(new ByteArrayInputStream("12345678".getBytes()), 8);
+        assertFalse(heap.isSpilled());
+        assertEquals(heap.asBytes(), "12345678".getBytes());
+        assertEquals(lobBuffer.getHeapSize(), 8);
+
+        LobValue overThreshold = (LobValue) lobBuffer.binary(new ByteArrayInputStream("123456789".getBytes()), 9);
+        assertTrue(overThreshold.isSpilled());
+        assertEquals(toByteArray(overThreshold.openStream()), "123456789".getBytes());
+
+        LobValue overBudget = (LobValue) lobBuffer.binary(new ByteArrayInputStream("12345".getBytes()), 5);
+        assertTrue(overBudget.isSpilled());
+
+        lobBuffer.release(new Value[] { heap, overThreshold });
+        assertEquals(lobBuffer.getHeapSize(), 0);
+        File file = overThreshold.getFile();
+        assertTrue(file.exists());
+        lobBuffer.flush();
+        assertFalse(file.exists());
+        assertTrue(overBudget.getFile().exists());
+    }
+
+    @Test
+    public void testString() throws Exception {
+        LobValue heap = (LobValue) lobBuffer.string(new StringReader("abcd"), 4);
+        assertFalse(heap.isSpilled());
+        assertEquals(heap.asString(), "abcd");
+
+        LobValue spilled = (LobValue) lobBuffer.string(new StringReader("éèabcdef"), 8);
+        assertTrue(spilled.isSpilled());
+        assertEquals(spilled.asString(), "éèabcdef");
+        assertEquals(CharStreams.toString(spilled.openReader()), "éèabcdef");
+        assertEquals(spilled.getLength(), 8);
+    }
+
+    /**
+     * Spilled value is bound as a stream of the file, not read into heap.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSetSpilledValue() throws Exception {
+        LobValue spilled = (LobValue) lobBuffer.binary(new ByteArrayInputStream("123456789".getBytes()), 9);
+        Field field = mock(Field.class);
+        given(field.getTypeCode()).willReturn(Types.BLOB);
+        JdbcValueAccess<Object> access = mock(JdbcValueAccess.class);
+        given(access.getField()).willReturn(field);
+        new JdbcValueFormat().setValue(spilled, access, null);
+
+        ArgumentCaptor<Object> value = ArgumentCaptor.forClass(Object.class);
+        verify(access).setValue(value.capture(), anyMap());
+        Blob blob = (Blob) value.getValue();
+        assertEquals(blob.length(), 9);
+        assertFalse(blob.getBinaryStream() instanceof ByteArrayInputStream);
+        assertEquals(toByteArray(blob.getBinaryStream()), "123456789".getBytes());
+    }
+
+    @Test
+    public void testFree() throws Exception {
+        Blob blob = mock(Blob.class);
+        given(blob.getBinaryStream()).willReturn(new ByteArrayInputStream("123456789".getBytes()));
+        given(blob.length()).willReturn(9L);
+        assertTrue(((LobValue) lobBuffer.binary(blob)).isSpilled());
+        verify(blob).free();
+
+        Clob clob = mock(Clob.class);
+        given(clob.getCharacterStream()).willReturn(new StringReader("abcd"));
+        given(clob.length()).willReturn(4L);
+        assertEquals(lobBuffer.string(clob).asString(), "abcd");
+        verify(clob).free();
+    }
+}
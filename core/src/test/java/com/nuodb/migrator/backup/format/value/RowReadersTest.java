@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.value;
+
+import com.nuodb.migrator.backup.Backup;
+import com.nuodb.migrator.backup.BackupOps;
+import com.nuodb.migrator.backup.Chunk;
+import com.nuodb.migrator.backup.Column;
+import com.nuodb.migrator.backup.QueryRowSet;
+import com.nuodb.migrator.backup.RowSet;
+import com.nuodb.migrator.backup.format.InputRange;
+import com.nuodb.migrator.backup.format.SimpleFormatFactory;
+import com.nuodb.migrator.backup.format.csv.CsvFormat;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.nuodb.migrator.backup.format.value.RowReaders.newChunkQueueRowReader;
+import static com.nuodb.migrator.backup.format.value.RowReaders.newChunkRangeQueueRowReader;
+import static com.nuodb.migrator.backup.format.value.RowReaders.newSequentialRowReader;
+import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
+import static java.lang.Math.max;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * @author Sergey Bushik
+ */
+public class RowReadersTest {
+
+    private RowSet rowSet;
+    private BackupOps backupOps;
+
+    @BeforeMethod
+    public void setUp() {
+        Backup backup = new Backup(CsvFormat.TYPE);
+        rowSet = new QueryRowSet("SELECT value FROM table");
+        rowSet.setColumns(newArrayList(new Column("value", STRING)));
+        backup.addRowSet(rowSet);
+
+        backupOps = mock(BackupOps.class);
+        Collection<Chunk> chunks = newArrayList();
+        for (int index = 1; index <= 3; index++) {
+            Chunk chunk = new Chunk();
+            chunk.setName("query-1." + index + ".csv");
+            chunks.add(chunk);
+            given(backupOps.openInput(chunk.getName(), null)).willReturn(
+                    new ByteArrayInputStream(("value\n" + index + "a\n" + index + "b\n").getBytes()));
+        }
+        rowSet.setChunks(chunks);
+    }
+
+    @Test
+    public void testSequentialRowReader() {
+        RowReader rowReader = newSequentialRowReader(rowSet, backupOps, new SimpleFormatFactory(), null);
+        Collection<String> values = newArrayList();
+        Row row;
+        while ((row = rowReader.readRow()) != null) {
+            values.add(row.getValues()[0].asString());
+        }
+        rowReader.close();
+        assertEquals(values, newArrayList("1a", "1b", "2a", "2b", "3a", "3b"));
+    }
+
+    @Test
+    public void testChunkQueueRowReader() {
+        Queue<Chunk> chunks = new ConcurrentLinkedQueue<Chunk>(rowSet.getChunks());
+        RowReader rowReader1 = newChunkQueueRowReader(rowSet, chunks, backupOps, new SimpleFormatFactory(), null);
+        RowReader rowReader2 = newChunkQueueRowReader(rowSet, chunks, backupOps, new SimpleFormatFactory(), null);
+
+        Row row1 = rowReader1.readRow();
+        Row row2 = rowReader2.readRow();
+        assertEquals(row1.getValues()[0].asString(), "1a");
+        assertEquals(row2.getValues()[0].asString(), "2a");
+        assertEquals(row2.getNumber(), 0);
+
+        Collection<String> values = newArrayList();
+        Row row;
+        while ((row = rowReader1.readRow()) != null) {
+            values.add(row.getValues()[0].asString());
+        }
+        assertEquals(values, newArrayList("1b", "3a", "3b"));
+        assertEquals(rowReader2.readRow().getValues()[0].asString(), "2b");
+        assertNull(rowReader2.readRow());
+    }
+
+    @Test
+    public void testChunkRangeQueueRowReader() {
+        Chunk chunk = rowSet.getChunks().iterator().next();
+        given(backupOps.openInput(chunk.getName(), null)).willReturn(
+                new ByteArrayInputStream("value\n1a\n1b\n".getBytes()),
+                new ByteArrayInputStream("value\n1a\n1b\n".getBytes()));
+        Queue<ChunkRange> chunkRanges = new ConcurrentLinkedQueue<ChunkRange>();
+        chunkRanges.add(new ChunkRange(chunk, new InputRange(6, 3, 0, 1)));
+        chunkRanges.add(new ChunkRange(chunk, new InputRange(9, 3, 1, 1)));
+        RowReader rowReader1 = newChunkRangeQueueRowReader(rowSet, chunkRanges, backupOps,
+                new SimpleFormatFactory(), null, false);
+        RowReader rowReader2 = newChunkRangeQueueRowReader(rowSet, chunkRanges, backupOps,
+                new SimpleFormatFactory(), null, false);
+
+        Row row1 = rowReader1.readRow();
+        Row row2 = rowReader2.readRow();
+        assertEquals(row1.getValues()[0].asString(), "1a");
+        assertEquals(row1.getNumber(), 0);
+        assertEquals(row2.getValues()[0].asString(), "1b");
+        assertEquals(row2.getNumber(), 1);
+        assertNull(rowReader1.readRow());
+        assertNull(rowReader2.readRow());
+    }
+
+    /**
+     * Bytes of the chunk before the range are skipped instead of being read.
+     */
+    @Test
+    public void testChunkRangeQueueRowReaderSeek() {
+        Chunk chunk = rowSet.getChunks().iterator().next();
+        final AtomicLong read = new AtomicLong();
+        given(backupOps.openInput(chunk.getName(), null)).willReturn(
+                new ByteArrayInputStream("value\n1a\n1b\n".getBytes()) {
+                    @Override
+                    public synchronized int read() {
+                        read.incrementAndGet();
+                        return super.read();
+                    }
+
+                    @Override
+                    public synchronized int read(byte[] b, int off, int len) {
+                        int count = super.read(b, off, len);
+                        read.addAndGet(max(count, 0));
+                        return count;
+                    }
+                });
+        Queue<ChunkRange> chunkRanges = new ConcurrentLinkedQueue<ChunkRange>();
+        chunkRanges.add(new ChunkRange(chunk, new InputRange(9, 3, 1, 1)));
+        RowReader rowReader = newChunkRangeQueueRowReader(rowSet, chunkRanges, backupOps,
+                new SimpleFormatFactory(), null, false);
+
+        Row row = rowReader.readRow();
+        assertEquals(row.getValues()[0].asString(), "1b");
+        assertEquals(row.getNumber(), 1);
+        assertNull(rowReader.readRow());
+        assertEquals(read.get(), 3);
+    }
+}
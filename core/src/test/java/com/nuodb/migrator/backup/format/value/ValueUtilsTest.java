@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.format.value;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.TimeZone;
+
+import static com.nuodb.migrator.backup.format.value.ValueUtils.decimal;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.doubleValue;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.timestamp;
+import static java.util.TimeZone.getTimeZone;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author Sergey Bushik
+ */
+public class ValueUtilsTest {
+
+    @Test
+    public void testTimestampInstant() {
+        TimeZone timeZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(getTimeZone("America/New_York"));
+            Timestamp timestamp = Timestamp.valueOf("2015-03-01 10:20:30.123456");
+            Value value = timestamp(timestamp);
+            // microseconds since the epoch of the instant, not of the wall clock taken as UTC
+            assertEquals(value.asLong(), timestamp.getTime() / 1000 * 1000000 + 123456);
+            assertEquals(value.asTimestamp(), timestamp);
+            TimeZone.setDefault(getTimeZone("UTC"));
+            assertEquals(value.asTimestamp().getTime(), timestamp.getTime());
+        } finally {
+            TimeZone.setDefault(timeZone);
+        }
+    }
+
+    @Test
+    public void testTimestampBeforeEpoch() {
+        Timestamp timestamp = new Timestamp(-1500L);
+        timestamp.setNanos(500000000);
+        assertEquals(timestamp(timestamp).asTimestamp(), timestamp);
+    }
+
+    @Test
+    public void testDoubleAsLong() {
+        assertEquals(doubleValue(42.0).asLong(), 42L);
+        assertEquals(doubleValue(-42.0).asLong(), -42L);
+    }
+
+    @DataProvider(name = "notLong")
+    public Object[][] createNotLongData() {
+        return new Object[][] { { doubleValue(1.5) }, { doubleValue(Double.NaN) },
+                { doubleValue(Double.POSITIVE_INFINITY) }, { doubleValue(1e19) },
+                { decimal(new BigDecimal("1.5")) } };
+    }
+
+    @Test(dataProvider = "notLong", expectedExceptions = ValueFormatException.class)
+    public void testNotLong(Value value) {
+        value.asLong();
+    }
+
+    @Test(expectedExceptions = ValueFormatException.class)
+    public void testTimestampAsBoolean() {
+        timestamp(0L).asBoolean();
+    }
+}
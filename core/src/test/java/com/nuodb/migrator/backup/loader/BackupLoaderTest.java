@@ -27,9 +27,21 @@
  */
 package com.nuodb.migrator.backup.loader;
 
+import com.nuodb.migrator.backup.Backup;
+import com.nuodb.migrator.backup.TableRowSet;
+import com.nuodb.migrator.jdbc.dialect.NuoDBDialect;
+import com.nuodb.migrator.jdbc.metadata.PrimaryKey;
+import com.nuodb.migrator.jdbc.metadata.Table;
+import com.nuodb.migrator.jdbc.query.Query;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
 
+import static com.nuodb.migrator.backup.format.value.ValueType.LONG;
+import static com.nuodb.migrator.jdbc.metadata.Identifier.valueOf;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createTable;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.testng.Assert.assertEquals;
 
 /**
  * @author Sergey Bushik
@@ -37,9 +49,38 @@ import static org.mockito.Mockito.spy;
 public class BackupLoaderTest {
 
     private BackupLoader backupLoader;
+    private Table table;
+    private TableRowSet rowSet;
 
     @BeforeMethod
     public void setUp() {
         backupLoader = spy(new BackupLoader());
+        table = createTable(null, null, "t");
+        table.getDatabase().setDialect(new NuoDBDialect());
+        table.addColumn("id");
+        table.addColumn("updated");
+
+        rowSet = new TableRowSet(table);
+        rowSet.addColumn("id", LONG);
+        rowSet.addColumn("updated", LONG);
+        rowSet.setWatermarkColumn("updated");
+        Backup backup = new Backup();
+        backup.setParent("parent");
+        backup.addRowSet(rowSet);
+    }
+
+    @Test
+    public void testCreateDeltaQuery() {
+        PrimaryKey primaryKey = new PrimaryKey(valueOf("pk"));
+        table.setPrimaryKey(primaryKey);
+        primaryKey.addColumn(table.getColumn("id"), 0);
+
+        Query query = backupLoader.createQuery(rowSet, table, mock(BackupLoaderContext.class));
+        assertEquals(query.toString(), "REPLACE INTO \"t\" (\"id\", \"updated\") VALUES (?, ?)");
+    }
+
+    @Test(expectedExceptions = BackupLoaderException.class)
+    public void testCreateDeltaQueryWithoutKey() {
+        backupLoader.createQuery(rowSet, table, mock(BackupLoaderContext.class));
     }
 }
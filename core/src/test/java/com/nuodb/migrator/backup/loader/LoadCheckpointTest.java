@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.loader;
+
+import com.nuodb.migrator.backup.BackupJournal;
+import com.nuodb.migrator.backup.Chunk;
+import com.nuodb.migrator.backup.format.value.Row;
+import com.nuodb.migrator.backup.format.value.RowReader;
+import com.nuodb.migrator.backup.format.value.Value;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * @author Sergey Bushik
+ */
+public class LoadCheckpointTest {
+
+    private Chunk chunk;
+    private BackupJournal backupJournal;
+    private LoadCheckpoint loadCheckpoint;
+
+    @BeforeMethod
+    public void setUp() {
+        chunk = new Chunk();
+        chunk.setName("t1.csv");
+        RowReader rowReader = mock(RowReader.class);
+        given(rowReader.readRow()).willReturn(createRow(0), createRow(1), createRow(2), createRow(3), null);
+        backupJournal = mock(BackupJournal.class);
+        loadCheckpoint = new LoadCheckpoint(rowReader, backupJournal);
+    }
+
+    /**
+     * Rows are recorded as committed up to the first row read and not
+     * committed by any of the threads.
+     */
+    @Test
+    public void testCommit() {
+        loadCheckpoint.readRow(0);
+        loadCheckpoint.readRow(1);
+        loadCheckpoint.readRow(0);
+        // row 1 is read by the thread 1 and isn't committed yet
+        loadCheckpoint.commit(0, new Chunk[1], new long[1], 0);
+        verify(backupJournal).writeLoad(chunk, 0, 1);
+
+        // row 3 is bound by the thread 1 and isn't executed yet
+        loadCheckpoint.readRow(1);
+        loadCheckpoint.commit(1, new Chunk[] { chunk }, new long[] { 3 }, 1);
+        verify(backupJournal).writeLoad(chunk, 1, 3);
+
+        loadCheckpoint.commit(0, new Chunk[1], new long[1], 0);
+        loadCheckpoint.commit(1, new Chunk[1], new long[1], 0);
+        verify(backupJournal).writeLoad(chunk, 3, 4);
+        verifyNoMoreInteractions(backupJournal);
+    }
+
+    @Test
+    public void testCommitNothing() {
+        loadCheckpoint.readRow(0);
+        loadCheckpoint.readRow(1);
+        loadCheckpoint.commit(1, new Chunk[1], new long[1], 0);
+        verifyNoMoreInteractions(backupJournal);
+    }
+
+    private Row createRow(long number) {
+        return new Row(chunk, new Value[0], number);
+    }
+}
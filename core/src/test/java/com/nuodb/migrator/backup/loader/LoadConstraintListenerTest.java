@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.loader;
+
+import com.nuodb.migrator.jdbc.metadata.Column;
+import com.nuodb.migrator.jdbc.metadata.PrimaryKey;
+import com.nuodb.migrator.jdbc.metadata.Schema;
+import com.nuodb.migrator.jdbc.metadata.Table;
+import com.nuodb.migrator.jdbc.session.WorkEvent;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.nuodb.migrator.jdbc.metadata.Identifier.valueOf;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createForeignKey;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createIndex;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createSchema;
+import static java.util.Collections.singleton;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author Sergey Bushik
+ */
+@SuppressWarnings("unchecked")
+public class LoadConstraintListenerTest {
+
+    private BackupLoader backupLoader;
+    private BackupLoaderManager backupLoaderManager;
+    private BackupLoaderContext backupLoaderContext;
+    private List<LoadConstraint> started;
+
+    @BeforeMethod
+    public void setUp() {
+        backupLoader = mock(BackupLoader.class);
+        backupLoaderManager = mock(BackupLoaderManager.class);
+        backupLoaderContext = mock(BackupLoaderContext.class);
+        when(backupLoaderManager.getBackupLoaderContext()).thenReturn(backupLoaderContext);
+        started = newArrayList();
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                started.addAll((Collection<LoadConstraint>) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(backupLoader).loadConstraints(anyCollection(), any(BackupLoaderManager.class));
+    }
+
+    /**
+     * Foreign key between small tables starts once the unique index of the
+     * referenced column is loaded, regardless of the other index of the
+     * referencing table and of the large table still loading.
+     */
+    @Test
+    public void testForeignKeysByDependencies() {
+        Schema schema = createSchema(null, "schema");
+        Table large = schema.addTable("large");
+        Table parent = schema.addTable("parent");
+        Table child = schema.addTable("child");
+        Column largeId = large.addColumn("id");
+        Column largeParentId = large.addColumn("parent_id");
+        Column parentId = parent.addColumn("id");
+        Column childParentId = child.addColumn("parent_id");
+
+        LoadConstraints loadConstraints = new LoadConstraints();
+        LoadConstraint largeIndex = new LoadConstraint(createIndex("large_idx", singleton(largeId), true));
+        LoadConstraint parentIndex = new LoadConstraint(createIndex("parent_idx", singleton(parentId), true));
+        LoadConstraint childIndex = new LoadConstraint(createIndex("child_idx", singleton(childParentId), false));
+        LoadConstraint childForeignKey = new LoadConstraint(
+                createForeignKey("child_fk", singleton(parentId), singleton(childParentId)));
+        LoadConstraint largeForeignKey = new LoadConstraint(
+                createForeignKey("large_fk", singleton(parentId), singleton(largeParentId)));
+        for (LoadConstraint loadConstraint : newArrayList(largeIndex, parentIndex, childIndex, childForeignKey,
+                largeForeignKey)) {
+            loadConstraints.addLoadConstraint(loadConstraint);
+        }
+        when(backupLoaderContext.getLoadConstraints()).thenReturn(loadConstraints);
+
+        LoadConstraintListener listener = new LoadConstraintListener(backupLoader, backupLoaderManager);
+        // parent is loaded before tables to load are known
+        loadTable(listener, parent);
+        assertEquals(started, newArrayList(parentIndex));
+        listener.loadConstraints(newArrayList(large, parent, child));
+        assertEquals(started, newArrayList(parentIndex));
+
+        loadTable(listener, child);
+        assertEquals(started, newArrayList(parentIndex, childIndex));
+        loadConstraint(listener, parentIndex);
+        assertEquals(started, newArrayList(parentIndex, childIndex, childForeignKey));
+        loadConstraint(listener, childIndex);
+        loadConstraint(listener, childForeignKey);
+
+        loadTable(listener, large);
+        assertEquals(started, newArrayList(parentIndex, childIndex, childForeignKey, largeIndex, largeForeignKey));
+        loadConstraint(listener, largeIndex);
+        verify(backupLoaderManager, never()).loadConstraintsDone();
+        loadConstraint(listener, largeForeignKey);
+        verify(backupLoaderManager, times(1)).loadConstraintsDone();
+    }
+
+    /**
+     * Non-unique index of the referenced table doesn't hold the foreign key,
+     * while the primary key of the referenced column does.
+     */
+    @Test
+    public void testForeignKeyWithPendingIndex() {
+        Schema schema = createSchema(null, "schema");
+        Table parent = schema.addTable("parent");
+        Table child = schema.addTable("child");
+        Column parentId = parent.addColumn("id");
+        Column parentName = parent.addColumn("name");
+        Column childParentId = child.addColumn("parent_id");
+
+        PrimaryKey primaryKey = new PrimaryKey(valueOf("parent_pk"));
+        parent.setPrimaryKey(primaryKey);
+        primaryKey.addColumn(parentId, 0);
+
+        LoadConstraints loadConstraints = new LoadConstraints();
+        LoadConstraint parentPrimaryKey = new LoadConstraint(primaryKey);
+        LoadConstraint parentIndex = new LoadConstraint(createIndex("parent_idx", singleton(parentName), false));
+        LoadConstraint childForeignKey = new LoadConstraint(
+                createForeignKey("child_fk", singleton(parentId), singleton(childParentId)));
+        for (LoadConstraint loadConstraint : newArrayList(parentPrimaryKey, parentIndex, childForeignKey)) {
+            loadConstraints.addLoadConstraint(loadConstraint);
+        }
+        when(backupLoaderContext.getLoadConstraints()).thenReturn(loadConstraints);
+
+        LoadConstraintListener listener = new LoadConstraintListener(backupLoader, backupLoaderManager);
+        listener.loadConstraints(newArrayList(parent, child));
+        loadTable(listener, parent);
+        loadTable(listener, child);
+        assertEquals(started, newArrayList(parentPrimaryKey, parentIndex));
+        loadConstraint(listener, parentPrimaryKey);
+        assertEquals(started, newArrayList(parentPrimaryKey, parentIndex, childForeignKey));
+        loadConstraint(listener, childForeignKey);
+        verify(backupLoaderManager, never()).loadConstraintsDone();
+        loadConstraint(listener, parentIndex);
+        verify(backupLoaderManager, times(1)).loadConstraintsDone();
+    }
+
+    /**
+     * Indexes of tables without data start once tables to load are known.
+     */
+    @Test
+    public void testTablesWithoutData() {
+        Schema schema = createSchema(null, "schema");
+        Table table = schema.addTable("table");
+        Column column = table.addColumn("id");
+        LoadConstraints loadConstraints = new LoadConstraints();
+        LoadConstraint index = new LoadConstraint(createIndex("idx", singleton(column), true));
+        loadConstraints.addLoadConstraint(index);
+        when(backupLoaderContext.getLoadConstraints()).thenReturn(loadConstraints);
+
+        LoadConstraintListener listener = new LoadConstraintListener(backupLoader, backupLoaderManager);
+        listener.loadConstraints(Collections.<Table>emptyList());
+        assertEquals(started, newArrayList(index));
+        loadConstraint(listener, index);
+        verify(backupLoaderManager, times(1)).loadConstraintsDone();
+    }
+
+    protected void loadTable(LoadConstraintListener listener, Table table) {
+        LoadTable loadTable = mock(LoadTable.class);
+        LoadTableWork loadTableWork = mock(LoadTableWork.class);
+        when(loadTableWork.getLoadTable()).thenReturn(loadTable);
+        when(backupLoader.getTable(loadTable, backupLoaderContext)).thenReturn(table);
+        listener.onExecuteEnd(new WorkEvent(loadTableWork));
+    }
+
+    protected void loadConstraint(LoadConstraintListener listener, LoadConstraint loadConstraint) {
+        LoadConstraintWork loadConstraintWork = mock(LoadConstraintWork.class);
+        when(loadConstraintWork.getLoadConstraint()).thenReturn(loadConstraint);
+        listener.onExecuteEnd(new WorkEvent(loadConstraintWork));
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.loader;
+
+import com.nuodb.migrator.jdbc.metadata.generator.Script;
+import com.nuodb.migrator.jdbc.session.Session;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Sergey Bushik
+ */
+public class LoadSchemaWorkTest {
+
+    private BackupLoaderManager backupLoaderManager;
+    private Session session;
+    private Connection connection;
+    private Statement statement;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        backupLoaderManager = mock(BackupLoaderManager.class);
+        when(backupLoaderManager.getBackupLoaderContext()).thenReturn(mock(BackupLoaderContext.class));
+        when(backupLoaderManager.canExecute(any(LoadSchemaWork.class))).thenReturn(true);
+        statement = mock(Statement.class);
+        connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        session = mock(Session.class);
+        when(session.getConnection()).thenReturn(connection);
+    }
+
+    /**
+     * Each group of scripts is executed in order and committed on its own.
+     */
+    @Test
+    public void testExecute() throws Exception {
+        Queue<Collection<Script>> scripts = new ConcurrentLinkedQueue<Collection<Script>>();
+        scripts.add(newArrayList(new Script("USE s1"), new Script("CREATE TABLE t1 (c1 INT)")));
+        scripts.add(newArrayList(new Script("USE s2"), new Script("CREATE TABLE t2 (c1 INT)")));
+
+        LoadSchemaWork loadSchemaWork = new LoadSchemaWork(scripts, backupLoaderManager);
+        loadSchemaWork.init(session);
+        loadSchemaWork.execute();
+        loadSchemaWork.close();
+
+        assertTrue(scripts.isEmpty());
+        verify(statement).executeUpdate("USE s1");
+        verify(statement).executeUpdate("CREATE TABLE t1 (c1 INT)");
+        verify(statement).executeUpdate("USE s2");
+        verify(statement).executeUpdate("CREATE TABLE t2 (c1 INT)");
+        verify(connection, times(2)).commit();
+    }
+}
@@ -0,0 +1,357 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.loader;
+
+import com.nuodb.migrator.backup.Backup;
+import com.nuodb.migrator.backup.BackupOps;
+import com.nuodb.migrator.backup.Chunk;
+import com.nuodb.migrator.backup.TableRowSet;
+import com.nuodb.migrator.backup.format.SimpleFormatFactory;
+import com.nuodb.migrator.backup.format.csv.CsvOutput;
+import com.nuodb.migrator.backup.format.value.RowReader;
+import com.nuodb.migrator.backup.format.value.Value;
+import com.nuodb.migrator.backup.format.value.ValueAccessor;
+import com.nuodb.migrator.backup.format.value.ValueFormat;
+import com.nuodb.migrator.backup.format.value.ValueHandle;
+import com.nuodb.migrator.backup.format.value.ValueType;
+import com.nuodb.migrator.jdbc.commit.CommitExecutor;
+import com.nuodb.migrator.jdbc.commit.CommitStrategy;
+import com.nuodb.migrator.jdbc.dialect.NuoDBDialect;
+import com.nuodb.migrator.jdbc.metadata.Table;
+import com.nuodb.migrator.jdbc.model.Field;
+import com.nuodb.migrator.jdbc.model.SimpleField;
+import com.nuodb.migrator.jdbc.query.InsertQueryBuilder;
+import com.nuodb.migrator.jdbc.query.Query;
+import com.nuodb.migrator.jdbc.session.Session;
+import com.nuodb.migrator.jdbc.session.Work;
+import com.nuodb.migrator.jdbc.type.JdbcValueAccess;
+import com.sun.management.ThreadMXBean;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.nuodb.migrator.backup.format.value.RowReaders.newChunkQueueRowReader;
+import static com.nuodb.migrator.backup.format.value.ValueType.BINARY;
+import static com.nuodb.migrator.backup.format.value.ValueType.STRING;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.binary;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.string;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createTable;
+import static java.lang.String.format;
+import static java.lang.Thread.currentThread;
+import static java.lang.management.ManagementFactory.getThreadMXBean;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Sergey Bushik
+ */
+public class LoadTableForkWorkTest {
+
+    private static final int ROWS = 100000;
+
+    private Table table;
+    private TableRowSet rowSet;
+    private byte[] bytes;
+    private BackupOps backupOps;
+    private BackupLoaderContext backupLoaderContext;
+    private SimpleBackupLoaderManager backupLoaderManager;
+    private Session session;
+    private int executed;
+    private int finished;
+    private Connection connection;
+    private ValueAccessor[] valueAccessors;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        executed = 0;
+        finished = 0;
+        table = createTable(null, null, "t");
+        table.getDatabase().setDialect(new NuoDBDialect());
+        table.addColumn("c1");
+        table.addColumn("c2");
+        rowSet = new TableRowSet(table);
+        rowSet.addColumn("c1", STRING);
+        rowSet.addColumn("c2", BINARY);
+        new Backup("csv").addRowSet(rowSet);
+        writeRows(ROWS);
+
+        backupOps = mock(BackupOps.class);
+        backupLoaderContext = mock(BackupLoaderContext.class);
+        given(backupLoaderContext.getCommitStrategy()).willReturn(new CommitStrategy() {
+            @Override
+            public void setAttributes(Map<String, Object> attributes) {
+            }
+
+            @Override
+            public CommitExecutor createCommitExecutor(final Statement statement, final Query query) {
+                return new CommitExecutor() {
+                    @Override
+                    public Statement getStatement() {
+                        return statement;
+                    }
+
+                    @Override
+                    public Query getQuery() {
+                        return query;
+                    }
+
+                    @Override
+                    public boolean execute() {
+                        executed++;
+                        return false;
+                    }
+
+                    @Override
+                    public void finish() {
+                        finished++;
+                    }
+                };
+            }
+        });
+        backupLoaderManager = new SimpleBackupLoaderManager();
+        backupLoaderManager.setBackupLoaderContext(backupLoaderContext);
+        connection = mock(Connection.class);
+        given(connection.prepareStatement(anyString())).willReturn(mock(PreparedStatement.class));
+        session = mock(Session.class);
+        given(session.getConnection()).willReturn(connection);
+    }
+
+    /**
+     * Rows read into reused value slots are bound and kept for the statement
+     * of the rows left without allocations per row beyond the allocations of
+     * the input.
+     */
+    @Test
+    public void testLoadAllocation() throws Exception {
+        ThreadMXBean threadMXBean = (ThreadMXBean) getThreadMXBean();
+        if (!threadMXBean.isThreadAllocatedMemorySupported() || !threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            throw new SkipException("Thread allocated memory is not supported");
+        }
+        readRows(threadMXBean);
+        loadRows(4, threadMXBean);
+        long read = readRows(threadMXBean);
+        long loaded = loadRows(4, threadMXBean);
+        // tolerates allocations not related to rows, such as value accessors
+        assertTrue(loaded - read < ROWS, format("%d bytes allocated by load, %d bytes by read", loaded, read));
+        assertEquals(executed, ROWS / 4);
+    }
+
+    /**
+     * Rows left after the last full statement are inserted with the statement
+     * of their number binding values of each row, not the values of the last
+     * row read into the reused slots.
+     */
+    @Test
+    public void testLoadBoundRows() throws Exception {
+        writeRows(8);
+        LoadTableForkWork loadTableForkWork = createLoadTableForkWork(3, createRowReader());
+        loadTableForkWork.init(session);
+        loadTableForkWork.execute();
+        loadTableForkWork.close();
+
+        assertEquals(executed, 3);
+        assertEquals(finished, 2);
+        verify(connection, times(2)).prepareStatement(anyString());
+        assertEquals(valueAccessors.length, 4);
+        assertEquals(valueAccessors[0].getValue().asString(), "row 6");
+        assertEquals(valueAccessors[1].getValue().asBytes(), new byte[] { 6 });
+        assertEquals(valueAccessors[2].getValue().asString(), "row 7");
+        assertEquals(valueAccessors[3].getValue().asBytes(), new byte[] { 7 });
+    }
+
+    /**
+     * Work cancelled by the manager neither commits executed rows nor inserts
+     * rows left after the last full statement.
+     */
+    @Test
+    public void testLoadCancelled() throws Exception {
+        writeRows(8);
+        backupLoaderManager = new SimpleBackupLoaderManager() {
+            private int rows;
+
+            @Override
+            public boolean canExecute(Work work) {
+                return rows++ < 4;
+            }
+        };
+        backupLoaderManager.setBackupLoaderContext(backupLoaderContext);
+        LoadTableForkWork loadTableForkWork = createLoadTableForkWork(3, createRowReader());
+        loadTableForkWork.init(session);
+        loadTableForkWork.execute();
+        loadTableForkWork.close();
+
+        assertEquals(executed, 1);
+        assertEquals(finished, 0);
+        verify(connection, times(1)).prepareStatement(anyString());
+    }
+
+    protected void writeRows(int rows) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CsvOutput csvOutput = new CsvOutput();
+        csvOutput.setRowSet(rowSet);
+        csvOutput.setOutputStream(output);
+        csvOutput.init();
+        csvOutput.writeStart();
+        for (int row = 0; row < rows; row++) {
+            csvOutput.writeValues(new Value[] { string("row " + row), binary(new byte[] { (byte) row }) });
+        }
+        csvOutput.writeEnd();
+        csvOutput.close();
+        bytes = output.toByteArray();
+        Chunk chunk = new Chunk();
+        chunk.setName("t.csv");
+        chunk.setRowCount(rows);
+        rowSet.setChunks(newArrayList(chunk));
+    }
+
+    protected long readRows(ThreadMXBean threadMXBean) {
+        RowReader rowReader = createRowReader();
+        long allocated = threadMXBean.getThreadAllocatedBytes(currentThread().getId());
+        while (rowReader.readRow() != null) {
+        }
+        allocated = threadMXBean.getThreadAllocatedBytes(currentThread().getId()) - allocated;
+        rowReader.close();
+        return allocated;
+    }
+
+    protected long loadRows(int insertRows, ThreadMXBean threadMXBean) throws Exception {
+        executed = 0;
+        LoadTableForkWork loadTableForkWork = createLoadTableForkWork(insertRows, createRowReader());
+        loadTableForkWork.init(session);
+        long allocated = threadMXBean.getThreadAllocatedBytes(currentThread().getId());
+        loadTableForkWork.execute();
+        allocated = threadMXBean.getThreadAllocatedBytes(currentThread().getId()) - allocated;
+        loadTableForkWork.close();
+        return allocated;
+    }
+
+    protected RowReader createRowReader() {
+        given(backupOps.openInput(anyString(), anyString())).willReturn(new ByteArrayInputStream(bytes));
+        Queue<Chunk> chunks = new ConcurrentLinkedQueue<Chunk>(rowSet.getChunks());
+        return newChunkQueueRowReader(rowSet, chunks, backupOps, new SimpleFormatFactory(),
+                Collections.<String, Object>emptyMap(), true);
+    }
+
+    protected LoadTableForkWork createLoadTableForkWork(int insertRows, RowReader rowReader) {
+        Query query = new InsertQueryBuilder().into(table).rows(insertRows).build();
+        return new LoadTableForkWork(new LoadTable(rowSet, table, query), rowReader, 0, backupLoaderManager) {
+            @Override
+            protected ValueAccessor[] createValueAccessors(PreparedStatement statement, int rows) {
+                valueAccessors = new ValueAccessor[rows * rowSet.getColumns().size()];
+                for (int index = 0; index < valueAccessors.length; index++) {
+                    valueAccessors[index] = new ValueAccessor(new BoundValueHandle());
+                }
+                return valueAccessors;
+            }
+        };
+    }
+
+    /**
+     * Binds values to the format keeping the last bound value.
+     */
+    static class BoundValueHandle extends SimpleField implements ValueHandle {
+
+        private ValueFormat valueFormat = new BoundValueFormat();
+
+        @Override
+        public ValueType getValueType() {
+            return null;
+        }
+
+        @Override
+        public void setValueType(ValueType valueType) {
+        }
+
+        @Override
+        public ValueFormat getValueFormat() {
+            return valueFormat;
+        }
+
+        @Override
+        public void setValueFormat(ValueFormat valueFormat) {
+            this.valueFormat = valueFormat;
+        }
+
+        @Override
+        public JdbcValueAccess getJdbcValueAccess() {
+            return null;
+        }
+
+        @Override
+        public void setJdbcValueAccess(JdbcValueAccess jdbcValueAccess) {
+        }
+
+        @Override
+        public Map<String, Object> getJdbcValueAccessOptions() {
+            return null;
+        }
+
+        @Override
+        public void setJdbcValueAccessOptions(Map<String, Object> jdbcValueAccessOptions) {
+        }
+    }
+
+    /**
+     * Keeps the last value bound to the parameter.
+     */
+    static class BoundValueFormat implements ValueFormat {
+
+        private Value value;
+
+        @Override
+        public Value getValue(JdbcValueAccess access, Map options) {
+            return value;
+        }
+
+        @Override
+        public void setValue(Value value, JdbcValueAccess access, Map options) {
+            this.value = value;
+        }
+
+        @Override
+        public ValueType getValueType(Field field) {
+            return null;
+        }
+    }
+}
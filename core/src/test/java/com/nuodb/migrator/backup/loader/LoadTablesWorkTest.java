@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.loader;
+
+import com.nuodb.migrator.backup.BackupOps;
+import com.nuodb.migrator.backup.RowSet;
+import com.nuodb.migrator.jdbc.session.Session;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author Sergey Bushik
+ */
+public class LoadTablesWorkTest {
+
+    private BackupOps backupOps;
+    private LoadTablesWork loadTablesWork;
+
+    @BeforeMethod
+    public void setUp() {
+        backupOps = mock(BackupOps.class);
+        BackupLoaderContext backupLoaderContext = mock(BackupLoaderContext.class);
+        given(backupLoaderContext.getTargetSession()).willReturn(mock(Session.class));
+        BackupLoaderManager backupLoaderManager = mock(BackupLoaderManager.class);
+        given(backupLoaderManager.getBackupLoaderContext()).willReturn(backupLoaderContext);
+        loadTablesWork = new LoadTablesWork(backupLoaderManager);
+    }
+
+    @Test
+    public void testSortLargestFirst() {
+        LoadTable small = createLoadTable(10L);
+        LoadTable large = createLoadTable(1000L);
+        LoadTable medium = createLoadTable(100L);
+        List<LoadTable> loadTables = newArrayList(small, large, medium);
+        loadTablesWork.sortLoadTables(loadTables, backupOps);
+        assertEquals(loadTables, newArrayList(large, medium, small));
+    }
+
+    @Test
+    public void testSortEqualSizes() {
+        LoadTable loadTable1 = createLoadTable(10L);
+        LoadTable loadTable2 = createLoadTable(10L);
+        LoadTable large = createLoadTable(100L);
+        LoadTable loadTable3 = createLoadTable(10L);
+        List<LoadTable> loadTables = newArrayList(loadTable1, loadTable2, large, loadTable3);
+        loadTablesWork.sortLoadTables(loadTables, backupOps);
+        assertEquals(loadTables, newArrayList(large, loadTable1, loadTable2, loadTable3));
+    }
+
+    @Test
+    public void testSortUnknownSizes() {
+        LoadTable unknown1 = createLoadTable(null);
+        LoadTable empty = createLoadTable(0L);
+        LoadTable unknown2 = createLoadTable(null);
+        LoadTable large = createLoadTable(100L);
+        List<LoadTable> loadTables = newArrayList(unknown1, empty, unknown2, large);
+        loadTablesWork.sortLoadTables(loadTables, backupOps);
+        assertEquals(loadTables, newArrayList(large, empty, unknown1, unknown2));
+    }
+
+    protected LoadTable createLoadTable(Long size) {
+        RowSet rowSet = mock(RowSet.class);
+        given(rowSet.getSize(backupOps)).willReturn(size);
+        return new LoadTable(rowSet, null, null);
+    }
+}
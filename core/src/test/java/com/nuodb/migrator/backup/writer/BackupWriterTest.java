@@ -27,9 +27,37 @@
  */
 package com.nuodb.migrator.backup.writer;
 
+import com.nuodb.migrator.backup.Backup;
+import com.nuodb.migrator.backup.TableRowSet;
+import com.nuodb.migrator.jdbc.dialect.NuoDBDialect;
+import com.nuodb.migrator.jdbc.metadata.Table;
+import com.nuodb.migrator.jdbc.session.Session;
+import com.nuodb.migrator.spec.TableSpec;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
 
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+import static com.nuodb.migrator.backup.format.value.ValueType.DECIMAL;
+import static com.nuodb.migrator.backup.format.value.ValueType.LONG;
+import static com.nuodb.migrator.backup.format.value.ValueType.TIMESTAMP;
+import static com.nuodb.migrator.backup.writer.BackupWriter.formatWatermark;
+import static com.nuodb.migrator.backup.writer.BackupWriter.getWatermarkType;
+import static com.nuodb.migrator.backup.writer.BackupWriter.parseWatermark;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createTable;
+import static java.sql.Timestamp.valueOf;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 
 /**
  * @author Sergey Bushik
@@ -42,4 +70,73 @@ public class BackupWriterTest {
     public void setUp() {
         backupWriter = spy(new BackupWriter());
     }
+
+    @Test
+    public void testCreateIncrementalWriteQuery() throws Exception {
+        Table table = createTable(null, null, "t");
+        table.getDatabase().setDialect(new NuoDBDialect());
+        table.addColumn("id");
+        table.addColumn("updated");
+
+        TableRowSet parentRowSet = new TableRowSet(table);
+        parentRowSet.setName("t");
+        parentRowSet.setWatermarkColumn("updated");
+        parentRowSet.setWatermark("2016-01-01 00:00:00.0");
+        parentRowSet.setWatermarkType(TIMESTAMP);
+        Backup parentBackup = new Backup();
+        parentBackup.addRowSet(parentRowSet);
+
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        Timestamp watermark = valueOf("2016-02-01 12:00:00");
+        given(connection.createStatement()).willReturn(statement);
+        given(statement.executeQuery(anyString())).willReturn(resultSet);
+        given(resultSet.next()).willReturn(true);
+        given(resultSet.getObject(1)).willReturn(watermark);
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        given(connection.prepareStatement(anyString())).willReturn(preparedStatement);
+        Session session = mock(Session.class);
+        given(session.getConnection()).willReturn(connection);
+        BackupWriterContext backupWriterContext = mock(BackupWriterContext.class);
+        given(backupWriterContext.getSourceSession()).willReturn(session);
+
+        TableSpec tableSpec = new TableSpec("t", "\"id\" > 0");
+        tableSpec.setWatermark("updated");
+        WriteQuery writeQuery = backupWriter.createWriteQuery(table, tableSpec, parentBackup, backupWriterContext);
+        verify(statement).executeQuery("SELECT MAX(\"updated\") FROM \"t\" WHERE \"id\" > 0");
+
+        writeQuery.getQuerySplitter().getNextQuerySplit(connection).getResultSet(connection);
+        verify(connection).prepareStatement(
+                "SELECT \"id\", \"updated\" FROM \"t\" WHERE (\"id\" > 0) AND \"updated\" > ? AND \"updated\" <= ?");
+        verify(preparedStatement).setObject(1, valueOf("2016-01-01 00:00:00"));
+        verify(preparedStatement).setObject(2, watermark);
+        verify(preparedStatement).executeQuery();
+
+        TableRowSet rowSet = (TableRowSet) writeQuery.getRowSet();
+        assertEquals(rowSet.getWatermarkColumn(), "updated");
+        assertEquals(rowSet.getWatermark(), "2016-02-01 12:00:00.0");
+        assertEquals(rowSet.getWatermarkType(), TIMESTAMP);
+    }
+
+    @Test
+    public void testFormatWatermark() {
+        assertEquals(formatWatermark(42L), "42");
+        assertEquals(getWatermarkType(42L), LONG);
+        assertEquals(parseWatermark("42", LONG), 42L);
+        assertEquals(formatWatermark(new BigDecimal("1E+3")), "1000");
+        assertEquals(getWatermarkType(new BigDecimal("1E+3")), DECIMAL);
+        assertEquals(parseWatermark("1000", DECIMAL), new BigDecimal("1000"));
+        assertEquals(parseWatermark(formatWatermark(valueOf("2016-01-01 00:00:00.123")), TIMESTAMP),
+                valueOf("2016-01-01 00:00:00.123"));
+        assertNull(formatWatermark(null));
+        assertNull(getWatermarkType(null));
+    }
+
+    @Test
+    public void testParseLegacyWatermark() {
+        assertEquals(parseWatermark("'2016-01-01 00:00:00'", null), "2016-01-01 00:00:00");
+        assertEquals(parseWatermark("'O''Neil'", null), "O'Neil");
+        assertEquals(parseWatermark("42", null), new BigDecimal("42"));
+    }
 }
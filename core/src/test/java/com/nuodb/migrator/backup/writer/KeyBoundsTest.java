@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.writer;
+
+import com.nuodb.migrator.backup.Chunk;
+import com.nuodb.migrator.backup.format.InputRange;
+import com.nuodb.migrator.backup.format.RowGroup;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.STRING_NULL;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.decimal;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.longValue;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.string;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.timestamp;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * @author Sergey Bushik
+ */
+public class KeyBoundsTest {
+
+    @Test
+    public void testLongBounds() {
+        KeyBounds keyBounds = new KeyBounds();
+        assertNull(keyBounds.getMin());
+        keyBounds.add(longValue(5));
+        keyBounds.add(STRING_NULL);
+        keyBounds.add(longValue(-3));
+        keyBounds.add(longValue(12));
+        assertEquals(keyBounds.getMin(), "-3");
+        assertEquals(keyBounds.getMax(), "12");
+
+        keyBounds.clear();
+        keyBounds.add(longValue(7));
+        assertEquals(keyBounds.getMin(), "7");
+        assertEquals(keyBounds.getMax(), "7");
+    }
+
+    @Test
+    public void testDecimalBounds() {
+        KeyBounds keyBounds = new KeyBounds();
+        keyBounds.add(decimal(new BigDecimal("1E+3")));
+        keyBounds.add(decimal(new BigDecimal("-0.25")));
+        assertEquals(keyBounds.getMin(), "-0.25");
+        assertEquals(keyBounds.getMax(), "1000");
+    }
+
+    /**
+     * Keys of another representation make the bounds of the group unknown,
+     * instead of comparing them as text, until the bounds are cleared.
+     */
+    @Test
+    public void testUnknownBounds() {
+        KeyBounds keyBounds = new KeyBounds();
+        keyBounds.add(string("a"));
+        assertNull(keyBounds.getMin());
+
+        keyBounds.clear();
+        keyBounds.add(longValue(1));
+        keyBounds.add(timestamp(1000000L));
+        keyBounds.add(longValue(3));
+        assertNull(keyBounds.getMin());
+        assertNull(keyBounds.getMax());
+
+        keyBounds.clear();
+        keyBounds.add(longValue(3));
+        assertEquals(keyBounds.getMax(), "3");
+    }
+
+    /**
+     * Adjacent row groups are merged pairwise, merged group has bounds if both
+     * groups have them.
+     */
+    @Test
+    public void testMergeRowGroups() {
+        Chunk chunk = new Chunk();
+        chunk.addRowGroup(new RowGroup(0, 10, 0, 2, "5", "9"));
+        chunk.addRowGroup(new RowGroup(10, 10, 2, 2, "1.5", "7"));
+        chunk.addRowGroup(new RowGroup(20, 10, 4, 2, "10", "11"));
+        chunk.addRowGroup(new InputRange(30, 10, 6, 2));
+        chunk.addRowGroup(new RowGroup(40, 5, 8, 1, "20", "20"));
+        WriteQueryWork.mergeRowGroups(chunk);
+        assertEquals(chunk.getRowGroups(), newArrayList(new RowGroup(0, 20, 0, 4, "1.5", "9"),
+                new InputRange(20, 20, 4, 4), new RowGroup(40, 5, 8, 1, "20", "20")));
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.writer;
+
+import com.nuodb.migrator.backup.Chunk;
+import com.nuodb.migrator.backup.format.value.Value;
+import com.nuodb.migrator.jdbc.split.QuerySplit;
+import com.nuodb.migrator.jdbc.session.Work;
+import com.nuodb.migrator.utils.concurrent.ForkJoinPool;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.nuodb.migrator.backup.format.value.ValueUtils.longValue;
+import static com.nuodb.migrator.backup.writer.PipelinedWriteQueryWork.ATTRIBUTE_PIPELINE_BATCH_SIZE;
+import static com.nuodb.migrator.backup.writer.PipelinedWriteQueryWork.ATTRIBUTE_PIPELINE_QUEUE_SIZE;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * @author Sergey Bushik
+ */
+public class PipelinedWriteQueryWorkTest {
+
+    private static final int ROWS = 1000;
+    private static final int QUEUE_SIZE = 2;
+    private static final int BATCH_SIZE = 10;
+
+    private ForkJoinPool executorService;
+    private ResultSet resultSet;
+    private List<Long> written;
+    private Set<Value[]> arrays;
+    private int ends;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        // single worker would deadlock if the blocked fetch stage held it from the encode stage
+        executorService = new ForkJoinPool(1);
+        resultSet = mock(ResultSet.class);
+        final int[] row = new int[1];
+        given(resultSet.next()).willAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                return row[0]++ < ROWS;
+            }
+        });
+        written = Collections.synchronizedList(newArrayList());
+        arrays = Collections.newSetFromMap(new IdentityHashMap<Value[], Boolean>());
+        ends = 0;
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testWriteRows() throws Exception {
+        PipelinedWriteQueryWork work = createWork(null, null);
+        execute(work);
+
+        assertEquals(written.size(), ROWS);
+        for (int index = 0; index < ROWS; index++) {
+            assertEquals(written.get(index), Long.valueOf(index));
+        }
+        assertEquals(ends, 1);
+        // value arrays of the batches are refilled instead of allocated per row
+        assertTrue(arrays.size() <= (QUEUE_SIZE + 2) * BATCH_SIZE);
+    }
+
+    @Test
+    public void testEncodeFailure() throws Exception {
+        PipelinedWriteQueryWork work = createWork(null, new IllegalStateException("encode"));
+        try {
+            execute(work);
+            fail("Encode failure is expected");
+        } catch (IllegalStateException exception) {
+            assertEquals(exception.getMessage(), "encode");
+        }
+        assertEquals(ends, 0);
+    }
+
+    @Test
+    public void testFetchFailure() throws Exception {
+        PipelinedWriteQueryWork work = createWork(new SQLException("fetch"), null);
+        try {
+            execute(work);
+            fail("Fetch failure is expected");
+        } catch (SQLException exception) {
+            assertEquals(exception.getMessage(), "fetch");
+        }
+        assertEquals(ends, 0);
+        assertTrue(written.size() < ROWS);
+    }
+
+    protected void execute(final PipelinedWriteQueryWork work) throws Exception {
+        final Exception[] failure = new Exception[1];
+        executorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    work.writeRows();
+                } catch (Exception exception) {
+                    failure[0] = exception;
+                }
+            }
+        }).get();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    protected PipelinedWriteQueryWork createWork(final Exception fetchFailure, final Exception encodeFailure) {
+        BackupWriterManager backupWriterManager = mock(BackupWriterManager.class);
+        given(backupWriterManager.getBackupWriterContext()).willReturn(mock(BackupWriterContext.class));
+        given(backupWriterManager.canExecute(any(Work.class))).willReturn(true);
+        PipelinedWriteQueryWork work = new PipelinedWriteQueryWork(mock(WriteQuery.class), mock(QuerySplit.class),
+                false, backupWriterManager) {
+
+            private long number;
+
+            @Override
+            public String getName() {
+                return "work";
+            }
+
+            @Override
+            protected ExecutorService getExecutorService() {
+                return executorService;
+            }
+
+            @Override
+            protected ResultSet getResultSet() {
+                return resultSet;
+            }
+
+            @Override
+            protected int getColumnCount() {
+                return 1;
+            }
+
+            @Override
+            protected Value[] readValues(Value[] values) throws Exception {
+                if (fetchFailure != null && number == ROWS / 2) {
+                    throw fetchFailure;
+                }
+                values[0] = longValue(number++);
+                return values;
+            }
+
+            @Override
+            protected Chunk writeValues(Chunk chunk, Value[] values) throws Exception {
+                if (encodeFailure != null && written.size() == ROWS / 2) {
+                    throw encodeFailure;
+                }
+                arrays.add(values);
+                written.add(values[0].asLong());
+                return chunk != null ? chunk : new Chunk();
+            }
+
+            @Override
+            protected void writeEnd(Chunk chunk) {
+                ends++;
+            }
+        };
+        Map<String, Object> attributes = newHashMap();
+        attributes.put(ATTRIBUTE_PIPELINE_QUEUE_SIZE, QUEUE_SIZE);
+        attributes.put(ATTRIBUTE_PIPELINE_BATCH_SIZE, BATCH_SIZE);
+        work.initPipeline(attributes);
+        return work;
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.backup.writer;
+
+import com.nuodb.migrator.backup.RowSet;
+import com.nuodb.migrator.jdbc.session.Session;
+import com.nuodb.migrator.jdbc.split.QuerySplitter;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * @author Sergey Bushik
+ */
+public class WriteQueriesWorkTest {
+
+    private WriteQueriesWork writeQueriesWork;
+
+    @BeforeMethod
+    public void setUp() {
+        BackupWriterContext backupWriterContext = mock(BackupWriterContext.class);
+        given(backupWriterContext.getSourceSession()).willReturn(mock(Session.class));
+        BackupWriterManager backupWriterManager = mock(BackupWriterManager.class);
+        given(backupWriterManager.getBackupWriterContext()).willReturn(backupWriterContext);
+        writeQueriesWork = new WriteQueriesWork(backupWriterManager);
+    }
+
+    @Test
+    public void testSortLargestFirst() {
+        WriteQuery small = createWriteQuery();
+        WriteQuery large = createWriteQuery();
+        WriteQuery medium = createWriteQuery();
+        List<WriteQuery> writeQueries = newArrayList(small, large, medium);
+        Map<WriteQuery, Long> costs = newHashMap();
+        costs.put(small, 10L);
+        costs.put(large, 1000L);
+        costs.put(medium, 100L);
+        writeQueriesWork.sortWriteQueries(writeQueries, costs);
+        assertEquals(writeQueries, newArrayList(large, medium, small));
+    }
+
+    @Test
+    public void testSortEqualCosts() {
+        WriteQuery writeQuery1 = createWriteQuery();
+        WriteQuery writeQuery2 = createWriteQuery();
+        WriteQuery writeQuery3 = createWriteQuery();
+        WriteQuery large = createWriteQuery();
+        List<WriteQuery> writeQueries = newArrayList(writeQuery1, writeQuery2, large, writeQuery3);
+        Map<WriteQuery, Long> costs = newHashMap();
+        costs.put(writeQuery1, 10L);
+        costs.put(writeQuery2, 10L);
+        costs.put(writeQuery3, 10L);
+        costs.put(large, 100L);
+        writeQueriesWork.sortWriteQueries(writeQueries, costs);
+        assertEquals(writeQueries, newArrayList(large, writeQuery1, writeQuery2, writeQuery3));
+    }
+
+    /**
+     * Queries which row count can't be estimated go after all estimated queries in their original order
+     */
+    @Test
+    public void testSortUnknownCosts() {
+        WriteQuery unknown1 = createWriteQuery();
+        WriteQuery small = createWriteQuery();
+        WriteQuery unknown2 = createWriteQuery();
+        WriteQuery large = createWriteQuery();
+        List<WriteQuery> writeQueries = newArrayList(unknown1, small, unknown2, large);
+        Map<WriteQuery, Long> costs = newHashMap();
+        costs.put(unknown1, null);
+        costs.put(small, 1L);
+        costs.put(unknown2, null);
+        costs.put(large, 100L);
+        writeQueriesWork.sortWriteQueries(writeQueries, costs);
+        assertEquals(writeQueries, newArrayList(large, small, unknown1, unknown2));
+    }
+
+    /**
+     * Row count of a custom query isn't estimated
+     */
+    @Test
+    public void testGetRowCountOfQuery() {
+        assertNull(writeQueriesWork.getRowCount(createWriteQuery(), mock(Connection.class)));
+    }
+
+    protected WriteQuery createWriteQuery() {
+        return new WriteQuery(mock(QuerySplitter.class), new RowSet());
+    }
+}
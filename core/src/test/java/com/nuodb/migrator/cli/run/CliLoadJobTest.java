@@ -69,7 +69,8 @@ public class CliLoadJobTest {
                 "--input.path=/tmp/dump.cat", "--input.csv.encoding=cp1251", "--input.csv.delimiter= ",
                 "--input.csv.quoting=true", "--input.csv.escape=|",
 
-                "--table.deployments.insert", "--table.deployments_nodes.replace", "--time.zone=GMT+2" };
+                "--table.deployments.insert", "--table.deployments_nodes.replace", "--insert.rows=50",
+                "--table.deployments_nodes.rows=10", "--time.zone=GMT+2" };
         parser.parse(arguments, cliLoadJob);
 
         assertEquals(cliLoadJob.getJobSpec(), createLoadSpec());
@@ -101,6 +102,10 @@ public class CliLoadJobTest {
         tableInsertTypes.put("deployments", InsertType.INSERT);
         tableInsertTypes.put("deployments_nodes", InsertType.REPLACE);
         loadJobSpec.setTableInsertTypes(tableInsertTypes);
+        loadJobSpec.setInsertRows(50);
+        Map<String, Integer> tableInsertRows = Maps.newHashMap();
+        tableInsertRows.put("deployments_nodes", 10);
+        loadJobSpec.setTableInsertRows(tableInsertRows);
         loadJobSpec.setTimeZone(TimeZone.getTimeZone("GMT+2"));
         loadJobSpec.setCommitStrategy(new BatchCommitStrategy());
         return loadJobSpec;
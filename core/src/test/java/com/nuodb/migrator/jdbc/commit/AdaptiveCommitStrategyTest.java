@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.jdbc.commit;
+
+import com.nuodb.migrator.jdbc.query.BasicQuery;
+import com.nuodb.migrator.jdbc.query.Query;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Sergey Bushik
+ */
+public class AdaptiveCommitStrategyTest {
+
+    private long nanoTime;
+    private long batch;
+    private int fastBatches;
+    private List<Long> batches;
+    private PreparedStatement statement;
+    private Query query = new BasicQuery("INSERT INTO \"table\" (\"column\") VALUES (?)");
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        nanoTime = 0;
+        batch = 0;
+        fastBatches = 0;
+        batches = newArrayList();
+        statement = mock(PreparedStatement.class);
+        when(statement.getConnection()).thenReturn(mock(Connection.class));
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                batch++;
+                return null;
+            }
+        }).when(statement).addBatch();
+        // a batch takes a millisecond per 10 rows, unless it's one of the first fast batches
+        doAnswer(new Answer<int[]>() {
+            @Override
+            public int[] answer(InvocationOnMock invocation) {
+                nanoTime += fastBatches-- > 0 ? 0 : MILLISECONDS.toNanos(batch / 10);
+                batches.add(batch);
+                batch = 0;
+                return new int[0];
+            }
+        }).when(statement).executeBatch();
+    }
+
+    /**
+     * Batches grow until they take longer than the target latency and stay
+     * around the size executed within it.
+     */
+    @Test
+    public void testConverge() throws Exception {
+        AdaptiveCommitStrategy commitStrategy = createCommitStrategy("50", null);
+        long rows = execute(commitStrategy, 50000);
+
+        long total = 0;
+        for (long batch : batches) {
+            total += batch;
+        }
+        assertEquals(total, rows);
+        assertTrue(batches.get(1) > batches.get(0));
+        for (long batch : batches.subList(batches.size() / 2, batches.size() - 1)) {
+            assertTrue(batch >= 250 && batch <= 600, "Batch size " + batch + " out of range");
+        }
+        long batchSize = commitStrategy.getBatchSize(query);
+        assertTrue(batchSize >= 250 && batchSize <= 600);
+    }
+
+    @Test
+    public void testBounds() throws Exception {
+        AdaptiveCommitStrategy commitStrategy = createCommitStrategy("50", "300");
+        execute(commitStrategy, 50000);
+        for (long batch : batches) {
+            assertTrue(batch <= 300);
+        }
+        assertEquals(commitStrategy.getBatchSize(query), Long.valueOf(300));
+
+        // next executor of the same statement starts from the size reached
+        batches.clear();
+        execute(commitStrategy, 300);
+        assertEquals(batches.get(0), Long.valueOf(300));
+    }
+
+    /**
+     * A burst of fast batches doesn't set a throughput the following batches
+     * are held to, the moving average follows the throughput down and the
+     * batch size recovers from the minimum.
+     */
+    @Test
+    public void testRecoverAfterBurst() throws Exception {
+        fastBatches = 20;
+        AdaptiveCommitStrategy commitStrategy = createCommitStrategy("50", null);
+        execute(commitStrategy, 50000);
+        long batchSize = commitStrategy.getBatchSize(query);
+        assertTrue(batchSize >= 250 && batchSize <= 600, "Batch size " + batchSize + " out of range");
+    }
+
+    /**
+     * Batches are timed with their share of the commit, so that a slow commit
+     * of 10 batches adds a tenth of its time to each of them rather than
+     * halving the batch that commits.
+     */
+    @Test
+    public void testCommitShare() throws Exception {
+        Connection connection = mock(Connection.class);
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                nanoTime += MILLISECONDS.toNanos(300);
+                return null;
+            }
+        }).when(connection).commit();
+        when(statement.getConnection()).thenReturn(connection);
+        AdaptiveCommitStrategy commitStrategy = createCommitStrategy("50", null);
+        Map<String, Object> attributes = newHashMap();
+        attributes.put(AdaptiveCommitStrategy.ATTRIBUTE_BATCH_SIZE, "100");
+        attributes.put(AdaptiveCommitStrategy.ATTRIBUTE_BATCH_LATENCY, "50");
+        attributes.put(AdaptiveCommitStrategy.ATTRIBUTE_COMMIT_BATCHES, "10");
+        commitStrategy.setAttributes(attributes);
+        execute(commitStrategy, 50000);
+
+        // a batch of 200 rows takes 20 ms and 30 ms of the commit, which is the target latency
+        for (long batch : batches.subList(batches.size() / 2, batches.size() - 1)) {
+            assertTrue(batch >= 100 && batch <= 350, "Batch size " + batch + " out of range");
+        }
+    }
+
+    protected AdaptiveCommitStrategy createCommitStrategy(String batchLatency, String batchSizeMax) {
+        AdaptiveCommitStrategy commitStrategy = new AdaptiveCommitStrategy() {
+            @Override
+            protected long nanoTime() {
+                return nanoTime;
+            }
+        };
+        Map<String, Object> attributes = newHashMap();
+        attributes.put(AdaptiveCommitStrategy.ATTRIBUTE_BATCH_SIZE, "100");
+        attributes.put(AdaptiveCommitStrategy.ATTRIBUTE_BATCH_LATENCY, batchLatency);
+        attributes.put(AdaptiveCommitStrategy.ATTRIBUTE_BATCH_SIZE_MAX, batchSizeMax);
+        commitStrategy.setAttributes(attributes);
+        return commitStrategy;
+    }
+
+    protected long execute(CommitStrategy commitStrategy, long rows) throws Exception {
+        CommitExecutor commitExecutor = commitStrategy.createCommitExecutor(statement, query);
+        for (long row = 0; row < rows; row++) {
+            commitExecutor.execute();
+        }
+        commitExecutor.finish();
+        return rows;
+    }
+}
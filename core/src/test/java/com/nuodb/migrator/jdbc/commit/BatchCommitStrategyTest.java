@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.jdbc.commit;
+
+import com.nuodb.migrator.jdbc.metadata.Table;
+import com.nuodb.migrator.jdbc.query.BasicQuery;
+import com.nuodb.migrator.jdbc.query.InsertQueryBuilder;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Map;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createTable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author Sergey Bushik
+ */
+public class BatchCommitStrategyTest {
+
+    private Connection connection;
+    private PreparedStatement statement;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        when(statement.getConnection()).thenReturn(connection);
+    }
+
+    @DataProvider(name = "commitInterval")
+    public Object[][] createCommitIntervalData() {
+        return new Object[][] { { null, null, 1000, 10, 10, 10 }, { "500", null, 1000, 10, 2, 2 },
+                { "450", null, 1000, 10, 2, 2 }, { null, "3", 1000, 10, 4, 3 }, { "500", null, 1050, 11, 3, 2 },
+                { "500", null, 0, 0, 0, 0 } };
+    }
+
+    /**
+     * Batches are executed every batch size rows and committed every commit
+     * interval, rows left are executed and committed when finished.
+     */
+    @Test(dataProvider = "commitInterval")
+    public void testCommitInterval(String commitRows, String commitBatches, int rows, int executes, int commits,
+            int committed) throws Exception {
+        Map<String, Object> attributes = newHashMap();
+        attributes.put(BatchCommitStrategy.ATTRIBUTE_BATCH_SIZE, "99");
+        attributes.put(BatchCommitStrategy.ATTRIBUTE_COMMIT_ROWS, commitRows);
+        attributes.put(BatchCommitStrategy.ATTRIBUTE_COMMIT_BATCHES, commitBatches);
+        BatchCommitStrategy commitStrategy = new BatchCommitStrategy();
+        commitStrategy.setAttributes(attributes);
+
+        CommitExecutor commitExecutor = commitStrategy.createCommitExecutor(statement,
+                new BasicQuery("INSERT INTO \"table\" (\"column\") VALUES (?)"));
+        int committedRows = 0;
+        for (int row = 0; row < rows; row++) {
+            if (commitExecutor.execute()) {
+                committedRows++;
+            }
+        }
+        commitExecutor.finish();
+        verify(statement, times(executes)).executeBatch();
+        verify(connection, times(commits)).commit();
+        assertEquals(committedRows, committed);
+    }
+
+    /**
+     * Commit rows count rows inserted by each multi-row statement, a batch of
+     * 100 statements of 4 rows each reaches 800 commit rows every 2 batches.
+     */
+    @Test
+    public void testCommitRowsOfInsertRows() throws Exception {
+        Map<String, Object> attributes = newHashMap();
+        attributes.put(BatchCommitStrategy.ATTRIBUTE_BATCH_SIZE, "99");
+        attributes.put(BatchCommitStrategy.ATTRIBUTE_COMMIT_ROWS, "800");
+        BatchCommitStrategy commitStrategy = new BatchCommitStrategy();
+        commitStrategy.setAttributes(attributes);
+
+        Table table = createTable(null, null, "table");
+        table.addColumn("column");
+        CommitExecutor commitExecutor = commitStrategy.createCommitExecutor(statement,
+                new InsertQueryBuilder().into(table).rows(4).build());
+        for (int index = 0; index < 1000; index++) {
+            commitExecutor.execute();
+        }
+        commitExecutor.finish();
+        verify(statement, times(10)).executeBatch();
+        verify(connection, times(5)).commit();
+    }
+}
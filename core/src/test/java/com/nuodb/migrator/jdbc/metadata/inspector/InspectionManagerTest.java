@@ -1,20 +1,38 @@
 package com.nuodb.migrator.jdbc.metadata.inspector;
 
+import com.nuodb.migrator.jdbc.metadata.Column;
 import com.nuodb.migrator.jdbc.metadata.MetaDataType;
+import com.nuodb.migrator.jdbc.metadata.Sequence;
+import com.nuodb.migrator.jdbc.metadata.Table;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import com.nuodb.migrator.jdbc.session.Session;
+import com.nuodb.migrator.jdbc.session.SessionFactory;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.sql.Connection;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
 
+import static com.google.common.collect.Lists.newArrayList;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataType.COLUMN;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataType.TABLE;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionManager.isPartition;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
+import static java.util.Collections.synchronizedList;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
 import static org.mockito.Matchers.anyVararg;
 import static org.mockito.Mockito.*;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
 
 @SuppressWarnings("unchecked")
 public class InspectionManagerTest {
@@ -70,4 +88,169 @@ public class InspectionManagerTest {
         assertNotNull(inspectionManager.inspect(mock(Connection.class), objectType));
         verify(inspector).inspectScope(any(InspectionContext.class), any(InspectionScope.class));
     }
+
+    /**
+     * Verifies that columns of tables from distinct schemas are inspected on
+     * the sessions opened for partitions
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInspectPartitions() throws Exception {
+        Inspector tableInspector = mock(Inspector.class);
+        when(tableInspector.supports(TABLE)).thenReturn(true);
+        when(tableInspector.supportsScope(any(InspectionContext.class), any(InspectionScope.class))).thenReturn(true);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                InspectionContext inspectionContext = (InspectionContext) invocation.getArguments()[0];
+                addTable(inspectionContext.getInspectionResults(), null, "schema1", "table1");
+                addTable(inspectionContext.getInspectionResults(), null, "schema2", "table2");
+                return null;
+            }
+        }).when(tableInspector).inspectScope(any(InspectionContext.class), any(InspectionScope.class));
+        inspectionManager.addInspector(tableInspector);
+
+        final Collection<Connection> connections = synchronizedList(newArrayList());
+        final Collection<String> schemas = synchronizedList(newArrayList());
+        Inspector columnInspector = mock(Inspector.class);
+        when(columnInspector.supports(COLUMN)).thenReturn(true);
+        when(columnInspector.supportsScope(any(InspectionContext.class), any(InspectionScope.class))).thenReturn(true);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                InspectionContext inspectionContext = (InspectionContext) invocation.getArguments()[0];
+                assertEquals(inspectionContext.getInspectionResults().getObjects(TABLE).size(), 1);
+                connections.add(inspectionContext.getConnection());
+                schemas.add(((TableInspectionScope) invocation.getArguments()[1]).getSchema());
+                return null;
+            }
+        }).when(columnInspector).inspectScope(any(InspectionContext.class), any(InspectionScope.class));
+        inspectionManager.addInspector(columnInspector);
+
+        Session session = mock(Session.class);
+        Connection sessionConnection = mock(Connection.class);
+        given(session.getConnection()).willReturn(sessionConnection);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        given(sessionFactory.openSession()).willReturn(session);
+
+        Connection connection = mock(Connection.class);
+        ExecutorService executorService = newFixedThreadPool(2);
+        try {
+            InspectionResults inspectionResults = inspectionManager.inspect(connection,
+                    new TableInspectionScope(), sessionFactory, executorService, 2, TABLE, COLUMN);
+            assertEquals(inspectionResults.getObjects(TABLE).size(), 2);
+        } finally {
+            executorService.shutdown();
+        }
+        assertEquals(schemas.size(), 2);
+        assertTrue(schemas.containsAll(newArrayList("schema1", "schema2")));
+        assertFalse(connections.contains(connection));
+        verify(sessionFactory, times(2)).openSession();
+        verify(session, times(2)).close();
+    }
+
+    /**
+     * Verifies that columns of tables from a single schema are inspected in
+     * bulk by the scope on the given connection
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInspectSingleSchema() throws Exception {
+        addTableInspector(new String[][] { { "schema1", "table1" }, { "schema1", "table2" } });
+
+        final Collection<Connection> connections = synchronizedList(newArrayList());
+        Inspector columnInspector = mock(Inspector.class);
+        when(columnInspector.supports(COLUMN)).thenReturn(true);
+        when(columnInspector.supportsScope(any(InspectionContext.class), any(InspectionScope.class))).thenReturn(true);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                InspectionContext inspectionContext = (InspectionContext) invocation.getArguments()[0];
+                connections.add(inspectionContext.getConnection());
+                return null;
+            }
+        }).when(columnInspector).inspectScope(any(InspectionContext.class), any(InspectionScope.class));
+        inspectionManager.addInspector(columnInspector);
+
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        Connection connection = mock(Connection.class);
+        ExecutorService executorService = newFixedThreadPool(2);
+        try {
+            inspectionManager.inspect(connection, new TableInspectionScope(), sessionFactory, executorService, 2,
+                    TABLE, COLUMN);
+        } finally {
+            executorService.shutdown();
+        }
+        assertEquals(connections, newArrayList(connection));
+        verify(columnInspector, never()).inspectObjects(any(InspectionContext.class), anyCollection());
+        verify(sessionFactory, never()).openSession();
+    }
+
+    /**
+     * Verifies that sequences of columns inspected in partitions are added to
+     * their schemas on merge, not by the partitions
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInspectPartitionSequences() throws Exception {
+        addTableInspector(new String[][] { { "schema1", "table1" }, { "schema2", "table2" } });
+
+        Inspector columnInspector = mock(Inspector.class);
+        when(columnInspector.supports(COLUMN)).thenReturn(true);
+        when(columnInspector.supportsScope(any(InspectionContext.class), any(InspectionScope.class))).thenReturn(true);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                InspectionContext inspectionContext = (InspectionContext) invocation.getArguments()[0];
+                assertTrue(isPartition(inspectionContext));
+                InspectionResults inspectionResults = inspectionContext.getInspectionResults();
+                for (Table table : inspectionResults.<Table>getObjects(TABLE)) {
+                    Column column = table.addColumn("id");
+                    column.setSequence(new Sequence(table.getName() + "_sequence"));
+                    inspectionResults.addObject(column);
+                }
+                return null;
+            }
+        }).when(columnInspector).inspectScope(any(InspectionContext.class), any(InspectionScope.class));
+        inspectionManager.addInspector(columnInspector);
+
+        Session session = mock(Session.class);
+        given(session.getConnection()).willReturn(mock(Connection.class));
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        given(sessionFactory.openSession()).willReturn(session);
+
+        InspectionResults inspectionResults;
+        ExecutorService executorService = newFixedThreadPool(2);
+        try {
+            inspectionResults = inspectionManager.inspect(mock(Connection.class), new TableInspectionScope(),
+                    sessionFactory, executorService, 2, TABLE, COLUMN);
+        } finally {
+            executorService.shutdown();
+        }
+        for (Table table : inspectionResults.<Table>getObjects(TABLE)) {
+            Sequence sequence = table.getColumn("id").getSequence();
+            assertEquals(sequence.getSchema(), table.getSchema());
+            assertEquals(table.getSchema().getSequences(), newArrayList(sequence));
+        }
+    }
+
+    protected void addTableInspector(final String[][] tables) throws Exception {
+        Inspector tableInspector = mock(Inspector.class);
+        when(tableInspector.supports(TABLE)).thenReturn(true);
+        when(tableInspector.supportsScope(any(InspectionContext.class), any(InspectionScope.class))).thenReturn(true);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                InspectionContext inspectionContext = (InspectionContext) invocation.getArguments()[0];
+                for (String[] table : tables) {
+                    addTable(inspectionContext.getInspectionResults(), null, table[0], table[1]);
+                }
+                return null;
+            }
+        }).when(tableInspector).inspectScope(any(InspectionContext.class), any(InspectionScope.class));
+        inspectionManager.addInspector(tableInspector);
+    }
 }
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.jdbc.metadata.inspector;
+
+import com.nuodb.migrator.jdbc.metadata.PrimaryKey;
+import com.nuodb.migrator.jdbc.metadata.Table;
+import org.testng.annotations.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+
+import static com.google.common.collect.Iterables.get;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataType.PRIMARY_KEY;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author Sergey Bushik
+ */
+public class MySQLPrimaryKeyInspectorTest extends InspectorTestBase {
+
+    public MySQLPrimaryKeyInspectorTest() {
+        super(MySQLPrimaryKeyInspector.class);
+    }
+
+    @Test
+    public void testInspectBulk() throws Exception {
+        PreparedStatement query = mock(PreparedStatement.class);
+        given(getConnection().prepareStatement(anyString(), anyInt(), anyInt())).willReturn(query);
+
+        ResultSet resultSet = mock(ResultSet.class);
+        given(query.executeQuery()).willReturn(resultSet);
+        given(resultSet.next()).willReturn(true, true, false);
+        given(resultSet.getString("TABLE_CAT")).willReturn("catalog");
+        given(resultSet.getString("TABLE_NAME")).willReturn("table1", "table2");
+        given(resultSet.getString("COLUMN_NAME")).willReturn("column1", "column2");
+        given(resultSet.getInt("KEY_SEQ")).willReturn(1);
+
+        InspectionResults inspectionResults = new SimpleInspectionResults();
+        Table table = addTable(inspectionResults, "catalog", null, "table1");
+        TableInspectionScope inspectionScope = new TableInspectionScope("catalog", null, (String) null);
+        getInspectionManager().inspect(getConnection(), inspectionResults, inspectionScope, PRIMARY_KEY);
+        verifyInspectScope(getInspector(), inspectionScope);
+        verify(getConnection()).prepareStatement(contains("K.TABLE_SCHEMA=?"), anyInt(), anyInt());
+        verify(query).setObject(1, "catalog");
+
+        Collection<PrimaryKey> primaryKeys = inspectionResults.getObjects(PRIMARY_KEY);
+        assertEquals(primaryKeys.size(), 1);
+        assertEquals(get(primaryKeys, 0).getTable(), table);
+        assertEquals(get(get(primaryKeys, 0).getColumns(), 0).getName(), "column1");
+    }
+}
@@ -40,10 +40,13 @@ import static com.google.common.collect.Iterables.get;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.CHECK;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createColumn;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createTable;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 
@@ -95,4 +98,31 @@ public class NuoDBCheckInspectorTest extends InspectorTestBase {
         check = column.addCheck(new Check(checkName2, checkClause2));
         assertEquals(get(checks, 1), check);
     }
+
+    @Test
+    public void testInspectBulk() throws Exception {
+        PreparedStatement query = mock(PreparedStatement.class);
+        given(getConnection().prepareStatement(anyString(), anyInt(), anyInt())).willReturn(query);
+
+        ResultSet resultSet = mock(ResultSet.class);
+        given(query.executeQuery()).willReturn(resultSet);
+        given(resultSet.next()).willReturn(true, true, false);
+        given(resultSet.getString("SCHEMA")).willReturn("schema");
+        given(resultSet.getString("TABLENAME")).willReturn("table1", "table2");
+        given(resultSet.getString("CONSTRAINTNAME")).willReturn("check1", "check2");
+        given(resultSet.getString("CONSTRAINTTEXT")).willReturn("column > 0");
+
+        InspectionResults inspectionResults = new SimpleInspectionResults();
+        Table table = addTable(inspectionResults, null, "schema", "table1");
+        TableInspectionScope inspectionScope = new TableInspectionScope(null, "schema", (String) null);
+        getInspectionManager().inspect(getConnection(), inspectionResults, inspectionScope, CHECK);
+        verifyInspectScope(getInspector(), inspectionScope);
+        verify(getConnection()).prepareStatement(contains("T.SCHEMA=?"), anyInt(), anyInt());
+        verify(query).setObject(1, "schema");
+
+        Collection<Check> checks = inspectionResults.getObjects(CHECK);
+        assertEquals(checks.size(), 1);
+        assertEquals(get(table.getChecks(), 0), get(checks, 0));
+        assertEquals(get(checks, 0).getName(), "check1");
+    }
 }
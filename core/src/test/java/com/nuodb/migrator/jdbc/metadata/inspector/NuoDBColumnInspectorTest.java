@@ -29,6 +29,7 @@ package com.nuodb.migrator.jdbc.metadata.inspector;
 
 import com.nuodb.migrator.jdbc.dialect.NuoDBDialect;
 import com.nuodb.migrator.jdbc.metadata.Column;
+import com.nuodb.migrator.jdbc.metadata.Table;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -42,10 +43,13 @@ import static com.google.common.collect.Iterables.get;
 import static com.nuodb.migrator.jdbc.metadata.DefaultValue.valueOf;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.COLUMN;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createColumn;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 
@@ -136,4 +140,43 @@ public class NuoDBColumnInspectorTest extends InspectorTestBase {
 
         assertEquals(get(columns, 0), column);
     }
+
+    @Test
+    public void testInspectBulk() throws Exception {
+        PreparedStatement query = mock(PreparedStatement.class);
+        given(getConnection().prepareStatement(anyString(), anyInt(), anyInt())).willReturn(query);
+
+        ResultSet resultSet = mock(ResultSet.class);
+        given(query.executeQuery()).willReturn(resultSet);
+        given(resultSet.next()).willReturn(true, true, false);
+        given(resultSet.getString("SCHEMA")).willReturn("schema");
+        given(resultSet.getString("TABLENAME")).willReturn("table1", "table2");
+        given(resultSet.getString("FIELD")).willReturn("column");
+
+        // types of the fields of all tables of the schema are fetched at once
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        given(getConnection().getMetaData()).willReturn(metaData);
+        ResultSet columnsResultSet = mock(ResultSet.class);
+        given(metaData.getColumns(null, "schema", null, null)).willReturn(columnsResultSet);
+        given(columnsResultSet.next()).willReturn(true, true, false);
+        given(columnsResultSet.getInt("DATA_TYPE")).willReturn(Types.VARCHAR);
+        given(columnsResultSet.getString("TYPE_NAME")).willReturn("string");
+        given(columnsResultSet.getString("TABLE_SCHEM")).willReturn("schema");
+        given(columnsResultSet.getString("TABLE_NAME")).willReturn("table1", "table2");
+        given(columnsResultSet.getString("COLUMN_NAME")).willReturn("column");
+
+        InspectionResults inspectionResults = new SimpleInspectionResults();
+        Table table = addTable(inspectionResults, null, "schema", "table1");
+        TableInspectionScope inspectionScope = new TableInspectionScope(null, "schema", (String) null);
+        getInspectionManager().inspect(getConnection(), inspectionResults, inspectionScope, COLUMN);
+        verifyInspectScope(getInspector(), inspectionScope);
+        verify(getConnection()).prepareStatement(contains("F.SCHEMA=?"), anyInt(), anyInt());
+        verify(query).setObject(1, "schema");
+        verify(metaData).getColumns(null, "schema", null, null);
+
+        Collection<Column> columns = inspectionResults.getObjects(COLUMN);
+        assertEquals(columns.size(), 1);
+        assertEquals(get(columns, 0).getTable(), table);
+        assertEquals(get(columns, 0).getTypeCode(), Types.VARCHAR);
+    }
 }
@@ -42,11 +42,14 @@ import static com.google.common.collect.Iterables.get;
 import static com.nuodb.migrator.jdbc.metadata.Identifier.EMPTY;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.FOREIGN_KEY;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createTable;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 import static java.sql.DatabaseMetaData.*;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 
@@ -121,4 +124,35 @@ public class NuoDBForeignKeyInspectorTest extends InspectorTestBase {
         assertNotNull(foreignKey);
         assertEquals(get(foreignKeys, 0), foreignKey);
     }
+
+    @Test
+    public void testInspectBulk() throws Exception {
+        PreparedStatement query = mock(PreparedStatement.class);
+        given(getConnection().prepareStatement(anyString(), anyInt(), anyInt())).willReturn(query);
+
+        ResultSet resultSet = mock(ResultSet.class);
+        given(query.executeQuery()).willReturn(resultSet);
+        given(resultSet.next()).willReturn(true, true, false);
+        given(resultSet.getString("FKTABLE_SCHEM")).willReturn("schema");
+        given(resultSet.getString("FKTABLE_NAME")).willReturn("table1", "table2");
+        given(resultSet.getString("FKCOLUMN_NAME")).willReturn("primary_id");
+        given(resultSet.getString("PKTABLE_SCHEM")).willReturn("schema");
+        given(resultSet.getString("PKTABLE_NAME")).willReturn("primary");
+        given(resultSet.getString("PKCOLUMN_NAME")).willReturn("id");
+        given(resultSet.getString("FK_NAME")).willReturn("fk1", "fk2");
+        given(resultSet.getInt("KEY_SEQ")).willReturn(1);
+
+        InspectionResults inspectionResults = new SimpleInspectionResults();
+        Table table = addTable(inspectionResults, null, "schema", "table1");
+        TableInspectionScope inspectionScope = new TableInspectionScope(null, "schema", (String) null);
+        getInspectionManager().inspect(getConnection(), inspectionResults, inspectionScope, FOREIGN_KEY);
+        verifyInspectScope(getInspector(), inspectionScope);
+        verify(getConnection()).prepareStatement(contains("FOREIGNTABLE.SCHEMA=?"), anyInt(), anyInt());
+        verify(query).setObject(1, "schema");
+
+        Collection<ForeignKey> foreignKeys = inspectionResults.getObjects(FOREIGN_KEY);
+        assertEquals(foreignKeys.size(), 1);
+        assertEquals(get(foreignKeys, 0).getForeignTable(), table);
+        assertEquals(get(foreignKeys, 0).getName(), "fk1");
+    }
 }
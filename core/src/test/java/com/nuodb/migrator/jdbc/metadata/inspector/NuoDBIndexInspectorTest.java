@@ -39,10 +39,13 @@ import static com.google.common.collect.Iterables.get;
 import static com.nuodb.migrator.jdbc.metadata.Identifier.valueOf;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.INDEX;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createTable;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertEquals;
 
 /**
@@ -91,4 +94,35 @@ public class NuoDBIndexInspectorTest extends InspectorTestBase {
 
         assertEquals(get(indexes, 0), index);
     }
+
+    /**
+     * Indexes of all tables of the schema are fetched with a single query, rows of tables which were not inspected
+     * are skipped
+     */
+    @Test
+    public void testInspectBulk() throws Exception {
+        PreparedStatement query = mock(PreparedStatement.class);
+        given(getConnection().prepareStatement(anyString(), anyInt(), anyInt())).willReturn(query);
+
+        ResultSet resultSet = mock(ResultSet.class);
+        given(query.executeQuery()).willReturn(resultSet);
+        given(resultSet.next()).willReturn(true, true, false);
+        given(resultSet.getString("SCHEMA")).willReturn("schema");
+        given(resultSet.getString("TABLENAME")).willReturn("table1", "table2");
+        given(resultSet.getString("FIELD")).willReturn("column");
+        given(resultSet.getString("INDEXNAME")).willReturn("index1", "index2");
+        given(resultSet.getInt("INDEXTYPE")).willReturn(NuoDBIndex.KEY);
+
+        InspectionResults inspectionResults = new SimpleInspectionResults();
+        Table table = addTable(inspectionResults, null, "schema", "table1");
+        TableInspectionScope inspectionScope = new TableInspectionScope(null, "schema", (String) null);
+        getInspectionManager().inspect(getConnection(), inspectionResults, inspectionScope, INDEX);
+        verifyInspectScope(getInspector(), inspectionScope);
+        verify(getConnection(), times(1)).prepareStatement(anyString(), anyInt(), anyInt());
+
+        Collection<Index> indexes = inspectionResults.getObjects(INDEX);
+        assertEquals(indexes.size(), 1);
+        assertEquals(get(indexes, 0).getTable(), table);
+        assertEquals(get(indexes, 0).getName(), "index1");
+    }
 }
@@ -39,10 +39,13 @@ import static com.google.common.collect.Iterables.get;
 import static com.nuodb.migrator.jdbc.metadata.Identifier.valueOf;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataType.PRIMARY_KEY;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createTable;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertEquals;
 
 /**
@@ -92,4 +95,31 @@ public class NuoDBPrimaryKeyInspectorTest extends InspectorTestBase {
 
         assertEquals(get(primaryKeys, 0), primaryKey);
     }
+
+    @Test
+    public void testInspectBulk() throws Exception {
+        PreparedStatement query = mock(PreparedStatement.class);
+        given(getConnection().prepareStatement(anyString(), anyInt(), anyInt())).willReturn(query);
+
+        ResultSet resultSet = mock(ResultSet.class);
+        given(query.executeQuery()).willReturn(resultSet);
+        given(resultSet.next()).willReturn(true, true, false);
+        given(resultSet.getString("SCHEMA")).willReturn("schema");
+        given(resultSet.getString("TABLENAME")).willReturn("table1", "table2");
+        given(resultSet.getString("FIELD")).willReturn("column1", "column2");
+        given(resultSet.getString("INDEXNAME")).willReturn("pk1", "pk2");
+
+        InspectionResults inspectionResults = new SimpleInspectionResults();
+        Table table = addTable(inspectionResults, null, "schema", "table1");
+        TableInspectionScope inspectionScope = new TableInspectionScope(null, "schema", (String) null);
+        getInspectionManager().inspect(getConnection(), inspectionResults, inspectionScope, PRIMARY_KEY);
+        verifyInspectScope(getInspector(), inspectionScope);
+        verify(getConnection()).prepareStatement(contains("I.SCHEMA=?"), anyInt(), anyInt());
+        verify(query).setObject(1, "schema");
+
+        Collection<PrimaryKey> primaryKeys = inspectionResults.getObjects(PRIMARY_KEY);
+        assertEquals(primaryKeys.size(), 1);
+        assertEquals(get(primaryKeys, 0).getTable(), table);
+        assertEquals(get(primaryKeys, 0).getName(), "pk1");
+    }
 }
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.jdbc.metadata.inspector;
+
+import com.nuodb.migrator.jdbc.dialect.OracleDialect;
+import com.nuodb.migrator.jdbc.metadata.Column;
+import com.nuodb.migrator.jdbc.metadata.Table;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.Collection;
+
+import static com.google.common.collect.Iterables.get;
+import static com.nuodb.migrator.jdbc.metadata.DatabaseInfos.ORACLE;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataType.COLUMN;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
+import static java.sql.Types.VARCHAR;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author Sergey Bushik
+ */
+public class OracleColumnInspectorTest extends InspectorTestBase {
+
+    public OracleColumnInspectorTest() {
+        super(OracleColumnInspector.class);
+    }
+
+    @Override
+    @BeforeMethod
+    public void setUp() throws Exception {
+        super.setUp();
+        willResolveDialect(getInspectionManager(), new OracleDialect(ORACLE));
+    }
+
+    @Test
+    public void testInspectBulk() throws Exception {
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        given(getConnection().getMetaData()).willReturn(metaData);
+
+        ResultSet resultSet = mock(ResultSet.class);
+        given(metaData.getColumns(null, "SCHEMA", null, null)).willReturn(resultSet);
+        given(resultSet.getMetaData()).willReturn(mock(ResultSetMetaData.class));
+        given(resultSet.next()).willReturn(true, true, false);
+        given(resultSet.getString("TABLE_SCHEM")).willReturn("SCHEMA");
+        given(resultSet.getString("TABLE_NAME")).willReturn("TABLE1", "TABLE2");
+        given(resultSet.getString("COLUMN_NAME")).willReturn("COLUMN1", "COLUMN2");
+        given(resultSet.getInt("DATA_TYPE")).willReturn(VARCHAR);
+        given(resultSet.getString("TYPE_NAME")).willReturn("VARCHAR2");
+        given(resultSet.getInt("COLUMN_SIZE")).willReturn(10);
+        given(resultSet.getString("IS_NULLABLE")).willReturn("YES");
+
+        InspectionResults inspectionResults = new SimpleInspectionResults();
+        Table table = addTable(inspectionResults, null, "SCHEMA", "TABLE1");
+        TableInspectionScope inspectionScope = new TableInspectionScope(null, "SCHEMA", (String) null);
+        getInspectionManager().inspect(getConnection(), inspectionResults, inspectionScope, COLUMN);
+        verifyInspectScope(getInspector(), inspectionScope);
+        verify(metaData).getColumns(null, "SCHEMA", null, null);
+        verify(getConnection(), never()).prepareStatement(anyString(), anyInt(), anyInt());
+
+        Collection<Column> columns = inspectionResults.getObjects(COLUMN);
+        assertEquals(columns.size(), 1);
+        assertEquals(get(columns, 0).getTable(), table);
+        assertEquals(get(columns, 0).getName(), "COLUMN1");
+        assertEquals(get(columns, 0).getSize(), Long.valueOf(10));
+    }
+}
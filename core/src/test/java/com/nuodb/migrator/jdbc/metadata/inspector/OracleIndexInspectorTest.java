@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.jdbc.metadata.inspector;
+
+import com.nuodb.migrator.jdbc.metadata.Index;
+import com.nuodb.migrator.jdbc.metadata.Table;
+import org.testng.annotations.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+
+import static com.google.common.collect.Iterables.get;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataType.INDEX;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
+import static java.sql.DatabaseMetaData.tableIndexClustered;
+import static java.sql.DatabaseMetaData.tableIndexStatistic;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author Sergey Bushik
+ */
+public class OracleIndexInspectorTest extends InspectorTestBase {
+
+    public OracleIndexInspectorTest() {
+        super(OracleIndexInspector.class);
+    }
+
+    @Test
+    public void testInspectBulk() throws Exception {
+        PreparedStatement query = mock(PreparedStatement.class);
+        given(getConnection().prepareStatement(anyString(), anyInt(), anyInt())).willReturn(query);
+
+        ResultSet resultSet = mock(ResultSet.class);
+        given(query.executeQuery()).willReturn(resultSet);
+        given(resultSet.next()).willReturn(true, true, true, false);
+        given(resultSet.getShort("TYPE")).willReturn(tableIndexStatistic, tableIndexClustered, tableIndexClustered);
+        given(resultSet.getString("TABLE_SCHEM")).willReturn("SCHEMA");
+        given(resultSet.getString("TABLE_NAME")).willReturn("TABLE1", "TABLE2");
+        given(resultSet.getString("INDEX_NAME")).willReturn("INDEX1", "INDEX2");
+        given(resultSet.getString("INDEX_TYPE")).willReturn("NORMAL");
+        given(resultSet.getString("COLUMN_NAME")).willReturn("COLUMN");
+        given(resultSet.getInt("ORDINAL_POSITION")).willReturn(1);
+
+        InspectionResults inspectionResults = new SimpleInspectionResults();
+        Table table = addTable(inspectionResults, null, "SCHEMA", "TABLE1");
+        TableInspectionScope inspectionScope = new TableInspectionScope(null, "SCHEMA", (String) null);
+        getInspectionManager().inspect(getConnection(), inspectionResults, inspectionScope, INDEX);
+        verifyInspectScope(getInspector(), inspectionScope);
+        verify(getConnection()).prepareStatement(contains("I.OWNER=?"), anyInt(), anyInt());
+        // the schema is bound to both the statistics and the index parts of the union
+        verify(query).setObject(1, "SCHEMA");
+        verify(query).setObject(2, "SCHEMA");
+
+        Collection<Index> indexes = inspectionResults.getObjects(INDEX);
+        assertEquals(indexes.size(), 1);
+        assertEquals(get(indexes, 0).getTable(), table);
+        assertEquals(get(indexes, 0).getName(), "INDEX1");
+    }
+}
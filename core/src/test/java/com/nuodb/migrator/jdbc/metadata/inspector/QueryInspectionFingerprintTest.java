@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.jdbc.metadata.inspector;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author Sergey Bushik
+ */
+public class QueryInspectionFingerprintTest {
+
+    private static final String QUERY = "SELECT COUNT(*), MAX(MODIFIED) FROM OBJECTS";
+
+    private Connection connection;
+    private PreparedStatement statement;
+    private QueryInspectionFingerprint fingerprint;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        given(metaData.getColumnCount()).willReturn(2);
+        ResultSet resultSet = mock(ResultSet.class);
+        given(resultSet.getMetaData()).willReturn(metaData);
+        given(resultSet.next()).willReturn(true, true, false);
+        given(resultSet.getString(1)).willReturn("3", "4");
+        given(resultSet.getString(2)).willReturn("2015-01-01", "2015-01-02");
+        statement = mock(PreparedStatement.class);
+        given(statement.executeQuery()).willReturn(resultSet);
+        connection = mock(Connection.class);
+        given(connection.prepareStatement(anyString(), anyInt(), anyInt())).willReturn(statement);
+        fingerprint = new QueryInspectionFingerprint(QUERY, "CATALOG=?", "SCHEMA=?");
+    }
+
+    /**
+     * Verifies that the query is filtered by the catalog and schema of the
+     * scope and values of all rows are joined
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFingerprint() throws Exception {
+        assertEquals(fingerprint.getFingerprint(connection, new TableInspectionScope("catalog", "schema")),
+                "3:2015-01-01:4:2015-01-02");
+        verify(connection).prepareStatement(QUERY + " WHERE CATALOG=? AND SCHEMA=?", TYPE_FORWARD_ONLY,
+                CONCUR_READ_ONLY);
+        verify(statement).setObject(1, "catalog");
+        verify(statement).setObject(2, "schema");
+    }
+
+    /**
+     * Verifies that the query is not filtered by parts of the scope, which are
+     * not given
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFingerprintNoScope() throws Exception {
+        fingerprint.getFingerprint(connection, new TableInspectionScope());
+        verify(connection).prepareStatement(QUERY, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY);
+        verify(statement, never()).setObject(anyInt(), anyString());
+    }
+}
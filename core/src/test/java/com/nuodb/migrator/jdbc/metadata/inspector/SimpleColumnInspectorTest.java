@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.jdbc.metadata.inspector;
+
+import com.nuodb.migrator.jdbc.dialect.SimpleDialect;
+import com.nuodb.migrator.jdbc.metadata.Column;
+import com.nuodb.migrator.jdbc.metadata.DatabaseInfo;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.Collection;
+
+import static com.google.common.collect.Iterables.get;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataType.COLUMN;
+import static com.nuodb.migrator.jdbc.metadata.inspector.InspectionResultsUtils.addTable;
+import static com.nuodb.migrator.jdbc.metadata.inspector.SimpleColumnInspector.AUTO_INCREMENT;
+import static java.sql.Types.INTEGER;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Sergey Bushik
+ */
+public class SimpleColumnInspectorTest extends InspectorTestBase {
+
+    public SimpleColumnInspectorTest() {
+        super(SimpleColumnInspector.class);
+    }
+
+    @Override
+    @BeforeMethod
+    public void setUp() throws Exception {
+        super.setUp();
+        willResolveDialect(getInspectionManager(), new SimpleDialect(new DatabaseInfo()));
+    }
+
+    /**
+     * Result set meta data is looked up once for all columns fetched in bulk
+     */
+    @Test
+    public void testInspectBulkAutoIncrement() throws Exception {
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        given(getConnection().getMetaData()).willReturn(metaData);
+
+        ResultSet resultSet = mock(ResultSet.class);
+        given(metaData.getColumns(null, "schema", null, null)).willReturn(resultSet);
+        ResultSetMetaData resultSetMetaData = mock(ResultSetMetaData.class);
+        given(resultSetMetaData.getColumnCount()).willReturn(1);
+        given(resultSetMetaData.getColumnLabel(1)).willReturn(AUTO_INCREMENT);
+        given(resultSet.getMetaData()).willReturn(resultSetMetaData);
+        given(resultSet.next()).willReturn(true, true, true, false);
+        given(resultSet.getString("TABLE_SCHEM")).willReturn("schema");
+        given(resultSet.getString("TABLE_NAME")).willReturn("table1", "table2", "table1");
+        given(resultSet.getString("COLUMN_NAME")).willReturn("column1", "column2");
+        given(resultSet.getInt("DATA_TYPE")).willReturn(INTEGER);
+        given(resultSet.getString("TYPE_NAME")).willReturn("INTEGER");
+        given(resultSet.getString(AUTO_INCREMENT)).willReturn("YES", "NO");
+
+        InspectionResults inspectionResults = new SimpleInspectionResults();
+        addTable(inspectionResults, null, "schema", "table1");
+        TableInspectionScope inspectionScope = new TableInspectionScope(null, "schema", (String) null);
+        getInspectionManager().inspect(getConnection(), inspectionResults, inspectionScope, COLUMN);
+        verifyInspectScope(getInspector(), inspectionScope);
+        verify(metaData).getColumns(null, "schema", null, null);
+        verify(resultSet, times(1)).getMetaData();
+        verify(resultSet, times(2)).getString(AUTO_INCREMENT);
+
+        Collection<Column> columns = inspectionResults.getObjects(COLUMN);
+        assertEquals(columns.size(), 2);
+        assertTrue(get(columns, 0).isAutoIncrement());
+        assertFalse(get(columns, 1).isAutoIncrement());
+    }
+}
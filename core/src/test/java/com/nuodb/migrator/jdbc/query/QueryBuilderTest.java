@@ -39,6 +39,7 @@ import static com.google.common.collect.Lists.newArrayList;
 import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createTable;
 import static com.nuodb.migrator.jdbc.query.InsertType.INSERT;
 import static com.nuodb.migrator.jdbc.query.InsertType.REPLACE;
+import static java.lang.Integer.MAX_VALUE;
 import static java.util.Collections.emptySet;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
@@ -80,6 +81,24 @@ public class QueryBuilderTest {
         assertEquals(insertQuery.toString(), query);
     }
 
+    @Test
+    public void testInsertRowsQueryBuilder() {
+        Table table = createTable(null, "schema", "table");
+        table.addColumn("column1");
+        table.addColumn("column2");
+        InsertQuery insertQuery = new InsertQueryBuilder().into(table).dialect(new NuoDBDialect()).qualifyNames(false)
+                .rows(3).build();
+
+        assertEquals(insertQuery.getRows(), 3);
+        assertEquals(insertQuery.toString(),
+                "INSERT INTO \"table\" (\"column1\", \"column2\") VALUES (?, ?), (?, ?), (?, ?)");
+        assertEquals(insertQuery.toString(2),
+                "INSERT INTO \"table\" (\"column1\", \"column2\") VALUES (?, ?), (?, ?)");
+
+        insertQuery = new InsertQueryBuilder().into(table).dialect(new NuoDBDialect()).rows(MAX_VALUE).build();
+        assertEquals(insertQuery.getRows(), InsertQueryBuilder.MAX_PARAMETERS / 2);
+    }
+
     @DataProvider(name = "selectQueryBuilder")
     public Object[][] createSelectQueryBuilderData() {
         Table table = createTable(null, "schema", "table");
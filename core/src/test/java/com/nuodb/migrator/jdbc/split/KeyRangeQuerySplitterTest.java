@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2015, NuoDB, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of NuoDB, Inc. nor the names of its contributors may
+ *       be used to endorse or promote products derived from this software
+ *       without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL NUODB, INC. BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.nuodb.migrator.jdbc.split;
+
+import com.nuodb.migrator.jdbc.dialect.Dialect;
+import com.nuodb.migrator.jdbc.dialect.MySQLDialect;
+import com.nuodb.migrator.jdbc.dialect.NuoDBDialect;
+import com.nuodb.migrator.jdbc.dialect.PostgreSQLDialect;
+import com.nuodb.migrator.jdbc.metadata.Column;
+import com.nuodb.migrator.jdbc.metadata.DatabaseInfo;
+import com.nuodb.migrator.jdbc.metadata.PrimaryKey;
+import com.nuodb.migrator.jdbc.metadata.Table;
+import com.nuodb.migrator.jdbc.query.QueryLimit;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static com.nuodb.migrator.jdbc.metadata.DatabaseInfos.POSTGRE_SQL;
+import static com.nuodb.migrator.jdbc.metadata.Identifier.valueOf;
+import static com.nuodb.migrator.jdbc.metadata.MetaDataUtils.createTable;
+import static com.nuodb.migrator.jdbc.query.Queries.newQuery;
+import static com.nuodb.migrator.jdbc.split.QuerySplitters.getKeyRangeColumn;
+import static com.nuodb.migrator.jdbc.split.QuerySplitters.newKeyRangeSplitter;
+import static com.nuodb.migrator.jdbc.split.QuerySplitters.supportsKeyRangeSplitter;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Sergey Bushik
+ */
+public class KeyRangeQuerySplitterTest {
+
+    private Dialect dialect;
+    private Table table;
+    private Column key;
+    private Connection connection;
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dialect = new NuoDBDialect();
+        table = createTable(null, null, "table");
+        key = table.addColumn("id");
+        table.addColumn("name");
+        PrimaryKey primaryKey = new PrimaryKey(valueOf("pk"));
+        table.setPrimaryKey(primaryKey);
+        primaryKey.addColumn(key, 0);
+
+        connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        resultSet = mock(ResultSet.class);
+        given(connection.prepareStatement(anyString())).willReturn(statement);
+        given(statement.executeQuery()).willReturn(resultSet);
+        given(resultSet.next()).willReturn(true, true, true, true, true, true, true, true, true, true, false);
+    }
+
+    @Test
+    public void testGetKeyRangeColumn() {
+        assertEquals(getKeyRangeColumn(table), key);
+        assertNull(getKeyRangeColumn(createTable(null, null, "heap")));
+    }
+
+    /**
+     * Dialects without row numbers would scan every key of the table, such
+     * tables are left to the limit splitter.
+     */
+    @Test
+    public void testSupportsKeyRangeSplitter() {
+        assertTrue(supportsKeyRangeSplitter(new PostgreSQLDialect(POSTGRE_SQL), table));
+        assertTrue(supportsKeyRangeSplitter(new MySQLDialect(new DatabaseInfo("MySQL", null, 8, 0)), table));
+        assertFalse(supportsKeyRangeSplitter(new MySQLDialect(new DatabaseInfo("MySQL", null, 5, 7)), table));
+        assertFalse(supportsKeyRangeSplitter(dialect, table));
+        assertFalse(supportsKeyRangeSplitter(new PostgreSQLDialect(POSTGRE_SQL), createTable(null, null, "heap")));
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+        // keys are read for the 4th and 8th rows only
+        given(resultSet.getObject(1)).willReturn(4L, 8L);
+        QuerySplitter<PreparedStatement> querySplitter = newKeyRangeSplitter(dialect, table, table.getColumns(),
+                null, newQuery(table, table.getColumns(), null), new QueryLimit(4L));
+
+        assertTrue(querySplitter.hasNextQuerySplit(connection));
+        QuerySplit querySplit = querySplitter.getNextQuerySplit(connection);
+        verify(connection).prepareStatement("SELECT \"id\" FROM \"table\" ORDER BY \"id\"");
+        assertEquals(querySplit.getQueryLimit(), new QueryLimit(4L));
+        querySplit.getResultSet(connection);
+        verify(connection).prepareStatement("SELECT \"id\", \"name\" FROM \"table\" WHERE \"id\" <= ?");
+        verify(statement).setObject(1, 4L);
+
+        querySplit = querySplitter.getNextQuerySplit(connection);
+        querySplit.getResultSet(connection);
+        verify(connection).prepareStatement(
+                "SELECT \"id\", \"name\" FROM \"table\" WHERE \"id\" > ? AND \"id\" <= ?");
+        verify(statement).setObject(2, 8L);
+
+        querySplit = querySplitter.getNextQuerySplit(connection);
+        assertEquals(querySplit.getQueryLimit(), new QueryLimit(2L));
+        querySplit.getResultSet(connection);
+        verify(connection).prepareStatement("SELECT \"id\", \"name\" FROM \"table\" WHERE \"id\" > ?");
+        verify(statement).setObject(1, 8L);
+
+        assertFalse(querySplitter.hasNextQuerySplit(connection));
+    }
+
+    @Test
+    public void testSplitWithOffset() throws Exception {
+        given(resultSet.getObject(1)).willReturn(1L, 2L, 3L, 4L, 5L, 10L);
+        QuerySplitter<PreparedStatement> querySplitter = newKeyRangeSplitter(dialect, table, table.getColumns(),
+                "\"name\" IS NOT NULL", newQuery(table, table.getColumns(), null), new QueryLimit(5L, 5L));
+
+        QuerySplit querySplit = querySplitter.getNextQuerySplit(connection);
+        verify(connection).prepareStatement(
+                "SELECT \"id\" FROM \"table\" WHERE (\"name\" IS NOT NULL) ORDER BY \"id\"");
+        querySplit.getResultSet(connection);
+        verify(connection)
+                .prepareStatement("SELECT \"id\", \"name\" FROM \"table\" WHERE (\"name\" IS NOT NULL) AND \"id\" > ?");
+        verify(statement).setObject(1, 5L);
+
+        assertFalse(querySplitter.hasNextQuerySplit(connection));
+    }
+
+    @Test
+    public void testSplitWithRowNumber() throws Exception {
+        // only the 4th, 8th and the last 10th rows are selected by the database
+        given(resultSet.next()).willReturn(true, true, true, false);
+        given(resultSet.getLong(2)).willReturn(4L, 8L, 10L);
+        given(resultSet.getLong(3)).willReturn(10L);
+        given(resultSet.getObject(1)).willReturn(4L, 8L);
+        given(statement.getConnection()).willReturn(connection);
+        given(connection.getMetaData()).willReturn(mock(DatabaseMetaData.class));
+        QuerySplitter<PreparedStatement> querySplitter = newKeyRangeSplitter(new PostgreSQLDialect(POSTGRE_SQL),
+                table, table.getColumns(), null, newQuery(table, table.getColumns(), null), new QueryLimit(4L));
+
+        QuerySplit querySplit = querySplitter.getNextQuerySplit(connection);
+        verify(connection).prepareStatement("SELECT K, RN, N FROM (SELECT \"id\" AS K, ROW_NUMBER() OVER "
+                + "(ORDER BY \"id\") AS RN, COUNT(*) OVER () AS N FROM \"table\") B WHERE RN = N OR (RN > 0 AND RN - 0 = "
+                + "FLOOR((RN - 0) / 4) * 4) ORDER BY RN");
+        assertEquals(querySplit.getQueryLimit(), new QueryLimit(4L));
+        querySplitter.getNextQuerySplit(connection);
+        querySplit = querySplitter.getNextQuerySplit(connection);
+        assertEquals(querySplit.getQueryLimit(), new QueryLimit(2L));
+        querySplit.getResultSet(connection);
+        verify(statement).setObject(1, 8L);
+
+        assertFalse(querySplitter.hasNextQuerySplit(connection));
+    }
+}
@@ -149,4 +149,19 @@ public class JdbcValueAccessTest {
         preparedStatementAccess.setValue(calendar, options);
         verify(preparedStatement, times(2)).setTimestamp(eq(COLUMN), eq(timestamp));
     }
+
+    @Test
+    public void testAdapterResolvedOnce() throws Exception {
+        Calendar calendar = Calendar.getInstance();
+        given(resultSet.getTimestamp(COLUMN)).willReturn(new Timestamp(calendar.getTimeInMillis()));
+
+        JdbcValueAccess<Timestamp> resultSetAccess = jdbcValueAccessProvider.getJdbcValueGetter(connection, resultSet,
+                COLUMN);
+
+        Map<String, Object> options = new HashMap<String, Object>();
+        for (int row = 0; row < 3; row++) {
+            assertEquals(resultSetAccess.getValue(Calendar.class, options), calendar);
+        }
+        verify(jdbcTypeRegistry, times(1)).getJdbcTypeAdapter(Calendar.class, Timestamp.class);
+    }
 }